@@ -23,14 +23,13 @@ import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.http.*;
 import org.apache.http.client.HttpClient;
-import org.apache.http.client.entity.GzipDecompressingEntity;
-import org.apache.http.client.utils.URIUtils;
 import org.apache.http.client.utils.URLEncodedUtils;
-import org.apache.http.conn.params.ConnRoutePNames;
-import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.params.BasicHttpParams;
-import org.apache.http.params.HttpParams;
-import org.apache.http.params.HttpProtocolParams;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.protocol.HttpContext;
 import org.apache.log4j.Logger;
 import org.dasein.cloud.*;
@@ -59,8 +58,6 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
@@ -72,6 +69,13 @@ import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 public class AWSCloud extends AbstractCloud {
 
@@ -183,16 +187,44 @@ public class AWSCloud extends AbstractCloud {
         return str.toString();
     }
 
-    static public byte[] HmacSHA256( String data, byte[] key ) throws InternalException {
+    static private final String HMAC_SHA256_ALGORITHM = "HmacSHA256";
+
+    /**
+     * {@link Mac#getInstance(String)} and {@link MessageDigest#getInstance(String)} walk the security providers on
+     * every call, so each thread keeps its own instances for request signing.
+     */
+    static private final ThreadLocal<Mac> hmacSHA256 = new ThreadLocal<Mac>() {
+        @Override
+        protected Mac initialValue() {
+            try {
+                return Mac.getInstance(HMAC_SHA256_ALGORITHM);
+            }
+            catch( NoSuchAlgorithmException e ) {
+                throw new RuntimeException(e);
+            }
+        }
+    };
+
+    static private final ThreadLocal<MessageDigest> sha256 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            }
+            catch( NoSuchAlgorithmException e ) {
+                throw new RuntimeException(e);
+            }
+        }
+    };
 
-        final String algorithm = "HmacSHA256";
-        Mac mac;
+    static public byte[] HmacSHA256( String data, byte[] key ) throws InternalException {
         try {
-            mac = Mac.getInstance(algorithm);
-            mac.init(new SecretKeySpec(key, algorithm));
+            Mac mac = hmacSHA256.get();
+
+            mac.init(new SecretKeySpec(key, HMAC_SHA256_ALGORITHM));
             return mac.doFinal(data.getBytes("UTF-8"));
         }
-        catch( NoSuchAlgorithmException e ) {
+        catch( RuntimeException e ) {
             throw new InternalException(e);
         }
         catch( InvalidKeyException e ) {
@@ -205,20 +237,15 @@ public class AWSCloud extends AbstractCloud {
 
     static public String computeSHA256Hash( String value ) throws InternalException {
         try {
-            byte[] valueBytes = value.getBytes("utf-8");
-            BufferedInputStream inputStream = new BufferedInputStream(new ByteArrayInputStream(valueBytes));
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] buffer = new byte[4096];
-            int read;
-            while( ( read = inputStream.read(buffer, 0, buffer.length) ) != -1 ) {
-                digest.update(buffer, 0, read);
-            }
-            return new String(Hex.encodeHex(digest.digest(), true));
+            MessageDigest digest = sha256.get();
+
+            digest.reset();
+            return new String(Hex.encodeHex(digest.digest(value.getBytes("utf-8")), true));
         }
-        catch( NoSuchAlgorithmException e ) {
+        catch( RuntimeException e ) {
             throw new InternalException(e);
         }
-        catch( IOException e ) {
+        catch( UnsupportedEncodingException e ) {
             throw new InternalException(e);
         }
     }
@@ -336,10 +363,8 @@ public class AWSCloud extends AbstractCloud {
     					logger.error("EC2 error setting tags for " + Arrays.toString(resourceIds) + ": " + e.getSummary());
     					return;
     				}
-    				try {
-    					Thread.sleep(5000L);
-    				} catch( InterruptedException ignore ) {
-    				}
+    				// tagging usually fails on resources that are not visible yet, so wait in seconds rather than millis
+    				getRetryPolicy().backoff(attempt + 1, 5000L);
     				logger.warn("Retry attempt "+ (attempt + 1) + " to create tags for ["+resourceIds+"]");
     				createTags(attempt + 1, service, resourceIds, keyValuePairs);
     			}
@@ -521,13 +546,45 @@ public class AWSCloud extends AbstractCloud {
     }
 
     static public final String DSN_ACCESS_KEY = "accessKey";
+    static public final String DSN_MAX_CONNECTIONS = "maxConnections";
+    static public final String DSN_MAX_CONNECTIONS_PER_ROUTE = "maxConnectionsPerRoute";
+    static public final String DSN_CONNECTION_TTL = "connectionTTL";
+    static public final String DSN_S3_PART_SIZE = "s3PartSize";
+    static public final String DSN_S3_UPLOAD_THREADS = "s3UploadThreads";
+    static public final String DSN_S3_DOWNLOAD_THREADS = "s3DownloadThreads";
+    static public final String DSN_S3_REGION_THREADS = "s3RegionThreads";
+    static public final String DSN_S3_REGION_CACHE = "s3RegionCache";
+    static public final String DSN_GLACIER_PART_SIZE = "glacierPartSize";
+    static public final String DSN_GLACIER_UPLOAD_THREADS = "glacierUploadThreads";
+    static public final String DSN_GLACIER_DOWNLOAD_THREADS = "glacierDownloadThreads";
+    static public final String DSN_DESCRIBE_PAGE_SIZE = "describePageSize";
+    static public final String DSN_RETRY_ATTEMPTS = "retryAttempts";
+    static public final String DSN_IMAGE_CATALOG = "imageCatalog";
+    static public final String DSN_ASYNC_PASSWORDS = "asyncPasswords";
+    static public final String DSN_METRIC_THREADS = "metricThreads";
 
     @Override
     public @Nonnull ContextRequirements getContextRequirements() {
         return new ContextRequirements(
                 new ContextRequirements.Field(DSN_ACCESS_KEY, "AWS API access keys", ContextRequirements.FieldType.KEYPAIR, ContextRequirements.Field.ACCESS_KEYS, true),
                 new ContextRequirements.Field("proxyHost", "Proxy host", ContextRequirements.FieldType.TEXT, false),
-                new ContextRequirements.Field("proxyPort", "Proxy port", ContextRequirements.FieldType.TEXT, false));
+                new ContextRequirements.Field("proxyPort", "Proxy port", ContextRequirements.FieldType.TEXT, false),
+                new ContextRequirements.Field(DSN_MAX_CONNECTIONS, "Maximum number of pooled HTTP connections", ContextRequirements.FieldType.TEXT, false),
+                new ContextRequirements.Field(DSN_MAX_CONNECTIONS_PER_ROUTE, "Maximum number of pooled HTTP connections per endpoint", ContextRequirements.FieldType.TEXT, false),
+                new ContextRequirements.Field(DSN_CONNECTION_TTL, "Time to live of pooled HTTP connections in seconds", ContextRequirements.FieldType.TEXT, false),
+                new ContextRequirements.Field(DSN_S3_PART_SIZE, "Part size in MB for S3 multipart uploads and ranged downloads", ContextRequirements.FieldType.TEXT, false),
+                new ContextRequirements.Field(DSN_S3_UPLOAD_THREADS, "Number of parts uploaded concurrently to S3", ContextRequirements.FieldType.TEXT, false),
+                new ContextRequirements.Field(DSN_S3_DOWNLOAD_THREADS, "Number of byte ranges downloaded concurrently from S3; objects are downloaded in one request unless this is above 1", ContextRequirements.FieldType.TEXT, false),
+                new ContextRequirements.Field(DSN_S3_REGION_THREADS, "Number of bucket regions looked up concurrently when listing S3 buckets", ContextRequirements.FieldType.TEXT, false),
+                new ContextRequirements.Field(DSN_S3_REGION_CACHE, "File in which the regions of S3 buckets are saved across restarts", ContextRequirements.FieldType.TEXT, false),
+                new ContextRequirements.Field(DSN_GLACIER_PART_SIZE, "Part size in MB for Glacier multipart uploads, rounded up to a power of two", ContextRequirements.FieldType.TEXT, false),
+                new ContextRequirements.Field(DSN_GLACIER_UPLOAD_THREADS, "Number of parts uploaded concurrently to Glacier", ContextRequirements.FieldType.TEXT, false),
+                new ContextRequirements.Field(DSN_GLACIER_DOWNLOAD_THREADS, "Number of byte ranges downloaded concurrently from Glacier", ContextRequirements.FieldType.TEXT, false),
+                new ContextRequirements.Field(DSN_DESCRIBE_PAGE_SIZE, "Number of resources requested per page of paginated describe calls (5-1000)", ContextRequirements.FieldType.TEXT, false),
+                new ContextRequirements.Field(DSN_RETRY_ATTEMPTS, "Number of times a throttled or failed request is sent before giving up", ContextRequirements.FieldType.TEXT, false),
+                new ContextRequirements.Field(DSN_IMAGE_CATALOG, "Directory in which public machine images are cataloged so searches are answered locally", ContextRequirements.FieldType.TEXT, false),
+                new ContextRequirements.Field(DSN_ASYNC_PASSWORDS, "Set to true to fetch the initial passwords of launched servers in the background", ContextRequirements.FieldType.TEXT, false),
+                new ContextRequirements.Field(DSN_METRIC_THREADS, "Number of CloudWatch queries sent concurrently when gathering server statistics", ContextRequirements.FieldType.TEXT, false));
     }
 
     public byte[][] getAccessKey() {
@@ -995,6 +1052,39 @@ public class AWSCloud extends AbstractCloud {
         }
     }
 
+    static private final Pattern URL_SCHEME = Pattern.compile("https?://");
+
+    /**
+     * Per-thread date formats for the v4 signing path; {@link SimpleDateFormat} is expensive to build and not
+     * thread safe.
+     */
+    static private final ThreadLocal<SimpleDateFormat> v4DateFormat = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            SimpleDateFormat fmt = new SimpleDateFormat("yyyyMMdd'T'HHmmss'Z'");
+
+            fmt.setCalendar(Calendar.getInstance(new SimpleTimeZone(0, "GMT")));
+            return fmt;
+        }
+    };
+
+    static private final ThreadLocal<SimpleDateFormat> httpDateFormat = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz");
+        }
+    };
+
+    /**
+     * Per-thread buffer the canonical request is assembled in.
+     */
+    static private final ThreadLocal<StringBuilder> canonicalBuffer = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(1024);
+        }
+    };
+
     /**
      * Generates an AWS v4 signature authorization string
      *
@@ -1011,11 +1101,7 @@ public class AWSCloud extends AbstractCloud {
     public String getV4Authorization( String accessKey, String secretKey, String action, String url, String serviceId, Map<String, String> headers, String bodyHash ) throws InternalException {
         serviceId = serviceId.toLowerCase();
         String regionId = "us-east-1"; // default for IAM
-//        if( ctx != null && ctx.getRegionId() != null && !ctx.getRegionId().isEmpty() &&
-//                !serviceId.equalsIgnoreCase(IAMMethod.SERVICE_ID) ) {
-//            regionId = getContext().getRegionId();
-//        } else {
-        String host = url.replaceAll("https?:\\/\\/", "");
+        String host = URL_SCHEME.matcher(url).replaceAll("");
         if( host.indexOf('/') > 0 ) {
             host = host.substring(0, host.indexOf('/', 1));
         }
@@ -1028,31 +1114,17 @@ public class AWSCloud extends AbstractCloud {
         }
         String amzDate = extractV4Date(headers);
         String credentialScope = getV4CredentialScope(amzDate, regionId, serviceId);
-        String signedHeaders = getV4SignedHeaders(headers);
-        String signature = signV4(secretKey, action, url, regionId, serviceId, headers, bodyHash);
-
-        return V4_ALGORITHM + " " + "Credential=" + accessKey + "/" + credentialScope + ", " + "SignedHeaders=" + signedHeaders + ", " + "Signature=" + signature;
-    }
-
-    private String signV4( String secretKey, String action, String serviceUrl, String regionId, String serviceId, Map<String, String> headers, String bodyHash ) throws InternalException {
-        final String canonicalRequest = getV4CanonicalRequest(action, serviceUrl, headers, bodyHash);
-
-        String amzDate = extractV4Date(headers);
-        final String stringToSign = getV4StringToSign(amzDate, regionId, serviceId, canonicalRequest);
-
+        StringBuilder signedHeaders = new StringBuilder(64);
+        String canonicalRequest = getV4CanonicalRequest(action, url, headers, bodyHash, signedHeaders);
+        String stringToSign = V4_ALGORITHM + "\n" + amzDate + "\n" + credentialScope + "\n" + computeSHA256Hash(canonicalRequest);
         // signature uses YYYYMMDD
-        String dateStamp = amzDate.substring(0, 8);
-        final byte[] signingKey = getV4SigningKey(secretKey, dateStamp, regionId, serviceId);
+        byte[] signingKey = getV4SigningKey(secretKey, amzDate.substring(0, 8), regionId, serviceId);
+        String signature = new String(Hex.encodeHex(HmacSHA256(stringToSign, signingKey), true));
 
-        return new String(Hex.encodeHex(HmacSHA256(stringToSign, signingKey), true));
+        return V4_ALGORITHM + " " + "Credential=" + accessKey + "/" + credentialScope + ", " + "SignedHeaders=" + signedHeaders + ", " + "Signature=" + signature;
     }
 
     private String extractV4Date( Map<String, String> headers ) throws InternalException {
-
-        Map<String, String> lower = new HashMap<String, String>();
-        for( Map.Entry<String, String> entry : headers.entrySet() ) {
-            lower.put(entry.getKey().toLowerCase(), entry.getValue());
-        }
         String amzDate = headers.get(P_AWS_DATE);
         // expecting YYYYMMDDTHHMMSSZ
         if( amzDate != null ) {
@@ -1062,36 +1134,95 @@ public class AWSCloud extends AbstractCloud {
             return amzDate;
         }
 
-        String date = lower.get("date");
+        String date = null;
+        for( Map.Entry<String, String> entry : headers.entrySet() ) {
+            if( "date".equalsIgnoreCase(entry.getKey()) ) {
+                date = entry.getValue();
+            }
+        }
         if( date == null ) {
             throw new InternalException("request is missing date header");
         }
-        SimpleDateFormat parser = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz");
         try {
-            return getV4HeaderDate(parser.parse(date));
+            return getV4HeaderDate(httpDateFormat.get().parse(date));
 
         } catch( ParseException e ) {
             throw new InternalException("request has invalid date header format");
         }
     }
 
-    private byte[] getV4SigningKey( String secretKey, String dateStamp, String regionId, String serviceId ) throws InternalException {
+    static private final int MAX_SIGNING_KEYS = 256;
+
+    /**
+     * Derived v4 signing keys by secret, date, region and service. A key only changes once per UTC day, so the
+     * four chained HMACs of the derivation are paid once per day rather than once per request. Secrets are known
+     * here only by their SHA-256 fingerprint so that the cache does not keep them in memory.
+     */
+    static private final ConcurrentMap<String, byte[]> signingKeys = new ConcurrentHashMap<String, byte[]>();
+
+    /**
+     * The last secret this provider signed with and its fingerprint, so the fingerprint is computed once per
+     * credential rather than once per request.
+     */
+    static private class SecretFingerprint {
+        final String secretKey;
+        final String fingerprint;
+
+        SecretFingerprint( String secretKey, String fingerprint ) {
+            this.secretKey = secretKey;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private volatile SecretFingerprint secretFingerprint;
+
+    private String getSecretFingerprint( String secretKey ) throws InternalException {
+        SecretFingerprint current = secretFingerprint;
+
+        if( current == null || !current.secretKey.equals(secretKey) ) {
+            current = new SecretFingerprint(secretKey, computeSHA256Hash(secretKey));
+            secretFingerprint = current;
+        }
+        return current.fingerprint;
+    }
+
+    byte[] getV4SigningKey( String secretKey, String dateStamp, String regionId, String serviceId ) throws InternalException {
+        String cacheKey = getSecretFingerprint(secretKey) + "\n" + dateStamp + "\n" + regionId + "\n" + serviceId;
+        byte[] signingKey = signingKeys.get(cacheKey);
+
+        if( signingKey != null ) {
+            return signingKey;
+        }
         byte[] withSecret = ( "AWS4" + secretKey ).getBytes();
         byte[] withDate = HmacSHA256(dateStamp, withSecret);
         byte[] withRegion = HmacSHA256(regionId, withDate);
         byte[] withService = HmacSHA256(serviceId, withRegion);
-        return HmacSHA256("aws4_request", withService);
-    }
+        signingKey = HmacSHA256(V4_TERMINATION, withService);
+        if( signingKeys.size() >= MAX_SIGNING_KEYS ) {
+            // mostly keys of past days; any still in use are derived again on their next request
+            signingKeys.clear();
+        }
+        byte[] existing = signingKeys.putIfAbsent(cacheKey, signingKey);
 
-    private String getV4StringToSign( String dateStamp, String regionId, String serviceId, String canonicalRequest ) throws InternalException {
-        return V4_ALGORITHM + "\n" + dateStamp + "\n" + getV4CredentialScope(dateStamp, regionId, serviceId) + "\n" + computeSHA256Hash(canonicalRequest);
+        return ( existing == null ? signingKey : existing );
     }
 
     private String getV4CredentialScope( String dateStamp, String regionId, String serviceId ) {
         return dateStamp.substring(0, 8) + "/" + regionId + "/" + serviceId + "/" + V4_TERMINATION;
     }
 
-    private String getV4CanonicalRequest( String action, String serviceUrl, Map<String, String> headers, String bodyHash ) throws InternalException {
+    /**
+     * Builds the canonical request in a single pass over the headers: they are sorted once by their lower-cased
+     * name, and both the canonical header block and the signed header list are emitted from that one ordering.
+     * @param action the HTTP method
+     * @param serviceUrl the full URL of the request including any query parameters
+     * @param headers the headers being signed
+     * @param bodyHash the hex-encoded SHA-256 hash of the request body
+     * @param signedHeaders receives the semicolon separated list of signed header names
+     * @return the canonical request
+     * @throws InternalException the URL could not be parsed
+     */
+    private String getV4CanonicalRequest( String action, String serviceUrl, Map<String, String> headers, String bodyHash, StringBuilder signedHeaders ) throws InternalException {
     /*
         CanonicalRequest =
         HTTPRequestMethod + '\n' +
@@ -1109,33 +1240,80 @@ public class AWSCloud extends AbstractCloud {
             throw new InternalException(e);
         }
 
-        final StringBuilder s = new StringBuilder();
-        s.append(action.toUpperCase()).append("\n");
+        final StringBuilder s = canonicalBuffer.get();
+        s.setLength(0);
+        s.append(action.toUpperCase()).append('\n');
 
         String path = endpoint.getPath();
         if( path == null || path.length() == 0 ) {
             path = "/";
         }
-        s.append(encode(path, true)).append("\n");
-        s.append(getV4CanonicalQueryString(endpoint)).append("\n");
-
-        List<String> sortedHeaders = new ArrayList<String>();
-        sortedHeaders.addAll(headers.keySet());
-        Collections.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
+        s.append(encode(path, true)).append('\n');
+        appendV4CanonicalQueryString(s, endpoint);
+        s.append('\n');
 
-        for( String header : sortedHeaders ) {
-            String value = headers.get(header).trim().replaceAll("\\s+", " ");
-            header = header.toLowerCase().replaceAll("\\s+", " ");
-            s.append(header).append(":").append(value).append("\n");
+        String[][] sorted = new String[headers.size()][];
+        int n = 0;
+        for( Map.Entry<String, String> entry : headers.entrySet() ) {
+            sorted[n++] = new String[]{entry.getKey().toLowerCase(), entry.getValue()};
+        }
+        // stable, so headers differing only by case keep their map order
+        Arrays.sort(sorted, V4_HEADER_ORDER);
+
+        String previous = null;
+        for( String[] header : sorted ) {
+            appendCollapsed(s, header[0]);
+            s.append(':');
+            appendCollapsed(s, header[1].trim());
+            s.append('\n');
+            if( !header[0].equals(previous) ) {
+                if( signedHeaders.length() > 0 ) {
+                    signedHeaders.append(';');
+                }
+                signedHeaders.append(header[0]);
+                previous = header[0];
+            }
         }
-        s.append("\n").append(getV4SignedHeaders(headers)).append("\n").append(bodyHash);
+        s.append('\n').append(signedHeaders).append('\n').append(bodyHash);
 
         return s.toString();
     }
 
-    private String getV4CanonicalQueryString( URI endpoint ) throws InternalException {
-        // parse query params and translate to another form of tuple that is comparable on both key and value
+    static private final Comparator<String[]> V4_HEADER_ORDER = new Comparator<String[]>() {
+        @Override
+        public int compare( String[] a, String[] b ) {
+            return a[0].compareTo(b[0]);
+        }
+    };
+
+    /**
+     * Appends the value with every run of whitespace collapsed into a single space, the equivalent of
+     * {@code value.replaceAll("\\s+", " ")} without the regular expression.
+     */
+    static private void appendCollapsed( StringBuilder s, String value ) {
+        boolean inWhitespace = false;
 
+        for( int i = 0; i < value.length(); i++ ) {
+            char c = value.charAt(i);
+
+            if( c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r' ) {
+                if( !inWhitespace ) {
+                    s.append(' ');
+                    inWhitespace = true;
+                }
+            }
+            else {
+                s.append(c);
+                inWhitespace = false;
+            }
+        }
+    }
+
+    private void appendV4CanonicalQueryString( StringBuilder s, URI endpoint ) throws InternalException {
+        if( endpoint.getRawQuery() == null ) {
+            return;
+        }
+        // parse query params and translate to another form of tuple that is comparable on both key and value
         List<NameValuePair> parsedParams = URLEncodedUtils.parse(endpoint, "UTF-8");
         List<KeyValuePair> queryParams = new ArrayList<KeyValuePair>(parsedParams.size());
         for( NameValuePair param : parsedParams ) {
@@ -1147,38 +1325,18 @@ public class AWSCloud extends AbstractCloud {
         // sort query parameters by key, then value
         Collections.sort(queryParams);
 
-        StringBuilder sb = new StringBuilder();
+        boolean first = true;
         for( KeyValuePair pair : queryParams ) {
-            if( sb.length() > 0 ) {
-                sb.append("&");
-            }
-            sb.append(pair.getKey()).append("=").append(pair.getValue());
-        }
-        return sb.toString();
-    }
-
-    private String getV4SignedHeaders( Map<String, String> headers ) {
-        // move to set to lower case and remove dupes
-        Set<String> sorted = new TreeSet<String>();
-        for( String header : headers.keySet() ) {
-            sorted.add(header.toLowerCase());
-        }
-
-        StringBuilder sb = new StringBuilder();
-        for( String header : sorted ) {
-            if( sb.length() > 0 ) {
-                sb.append(";");
+            if( !first ) {
+                s.append('&');
             }
-            sb.append(header.toLowerCase());
+            first = false;
+            s.append(pair.getKey()).append('=').append(pair.getValue());
         }
-
-        return sb.toString();
     }
 
     public String getV4HeaderDate( Date date ) {
-        SimpleDateFormat fmt = new SimpleDateFormat("yyyyMMdd'T'HHmmss'Z'");
-        Calendar cal = Calendar.getInstance(new SimpleTimeZone(0, "GMT"));
-        fmt.setCalendar(cal);
+        SimpleDateFormat fmt = v4DateFormat.get();
         if( date == null ) {
             return fmt.format(new Date());
         }
@@ -1433,69 +1591,210 @@ public class AWSCloud extends AbstractCloud {
         parameters.put(key, value.toString());
     }
 
+    static private final int  DEFAULT_MAX_CONNECTIONS           = 200;
+    static private final int  DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 50;
+    static private final int  DEFAULT_CONNECTION_TTL            = 60;
+    static private final long DEFAULT_KEEP_ALIVE                = 30L;
+
+    static private final int MAX_CLIENTS = 64;
+
+    /**
+     * A pooled HTTP client along with its connection manager, which tells when the client is no longer in use.
+     */
+    static private class PooledClient {
+        final CloseableHttpClient                client;
+        final PoolingHttpClientConnectionManager manager;
+
+        PooledClient( @Nonnull CloseableHttpClient client, @Nonnull PoolingHttpClientConnectionManager manager ) {
+            this.client = client;
+            this.manager = manager;
+        }
+    }
+
+    /**
+     * Pooled HTTP clients shared by all provider instances talking to the same cloud through the same proxy with
+     * the same pool settings. Idle and expired connections are evicted in the background. At most
+     * {@link #MAX_CLIENTS} clients are kept; beyond that the oldest is dropped and closed once none of its
+     * connections is leased.
+     */
+    static private final ConcurrentMap<String, PooledClient> clients = new ConcurrentHashMap<String, PooledClient>();
+    // the keys of the clients in the order they were created, guarded by clients
+    static private final LinkedList<String> clientKeys = new LinkedList<String>();
+
+    static private final ScheduledExecutorService clientReaper;
+
+    static {
+        ScheduledThreadPoolExecutor reaper = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "dasein-client-reaper");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        reaper.setKeepAliveTime(60L, TimeUnit.SECONDS);
+        reaper.allowCoreThreadTimeOut(true);
+        clientReaper = reaper;
+    }
+
+    /**
+     * Closes a client dropped from the cache once its last leased connection is released. Providers fetch the
+     * client for every request, so no new request starts on it after a short while.
+     */
+    static private class ClientRetirement implements Runnable {
+        private final PooledClient retired;
+
+        ClientRetirement( @Nonnull PooledClient retired ) {
+            this.retired = retired;
+        }
+
+        @Override
+        public void run() {
+            if( retired.manager.getTotalStats().getLeased() > 0 ) {
+                clientReaper.schedule(this, 1L, TimeUnit.MINUTES);
+                return;
+            }
+            try {
+                retired.client.close();
+            }
+            catch( IOException e ) {
+                logger.warn("Unable to close a retired HTTP client: " + e.getMessage());
+            }
+        }
+    }
+
+    private int getIntProperty( @Nullable Properties props, @Nonnull String name, int defaultValue ) {
+        String value = ( props == null ? null : props.getProperty(name) );
+
+        if( value != null && value.trim().length() > 0 ) {
+            try {
+                return Integer.parseInt(value.trim());
+            }
+            catch( NumberFormatException e ) {
+                logger.warn("Invalid value for " + name + ": " + value);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Reads an integer setting from the custom properties of the current context.
+     * @param name the name of the custom property
+     * @param defaultValue the value to use when the property is missing or invalid
+     * @return the configured value or the default
+     */
+    public int getIntProperty( @Nonnull String name, int defaultValue ) {
+        ProviderContext ctx = getContext();
+
+        return getIntProperty(ctx == null ? null : ctx.getCustomProperties(), name, defaultValue);
+    }
+
+    /**
+     * Retry policies shared by all provider instances working against the same account in the same region, so
+     * that they draw on a single retry budget.
+     */
+    static private final ConcurrentMap<String, RetryPolicy> retryPolicies = new ConcurrentHashMap<String, RetryPolicy>();
+
+    /**
+     * Provides the policy deciding how failed requests are retried. The policy, and with it the retry budget, is
+     * shared by every request against the same account and region. Override to plug in a different policy.
+     * @return the retry policy for the current context
+     */
+    public @Nonnull RetryPolicy getRetryPolicy() {
+        ProviderContext ctx = getContext();
+        int maxAttempts = getIntProperty(DSN_RETRY_ATTEMPTS, RetryPolicy.DEFAULT_MAX_ATTEMPTS);
+        String key = ( ctx == null ? "" : ctx.getAccountNumber() + "|" + ctx.getRegionId() ) + "|" + maxAttempts;
+        RetryPolicy policy = retryPolicies.get(key);
+
+        if( policy == null ) {
+            RetryPolicy created = new RetryPolicy(maxAttempts, RetryPolicy.DEFAULT_BUDGET);
+
+            policy = retryPolicies.putIfAbsent(key, created);
+            if( policy == null ) {
+                policy = created;
+            }
+        }
+        return policy;
+    }
+
     public @Nonnull HttpClient getClient() throws InternalException {
         return getClient(false);
     }
 
+    /**
+     * Provides an HTTP client backed by a long-lived connection pool shared across requests for this cloud. Callers
+     * must release the connection by consuming or closing the response entity and must never shut down the
+     * connection manager of the returned client.
+     * @param multipart retained for API compatibility, the pooled client handles all request types
+     * @return a pooled HTTP client
+     * @throws InternalException no context was set for this provider
+     */
     public @Nonnull HttpClient getClient(boolean multipart) throws InternalException {
         ProviderContext ctx = getContext();
         if( ctx == null ) {
             throw new InternalException("No context was specified for this request");
         }
-
-        final HttpParams params = new BasicHttpParams();
-
-        HttpProtocolParams.setVersion(params, HttpVersion.HTTP_1_1);
-        if( !multipart ) {
-            HttpProtocolParams.setContentCharset(params, Consts.UTF_8.toString());
-        }
-        HttpProtocolParams.setUserAgent(params, "Dasein Cloud");
-
         Properties p = ctx.getCustomProperties();
+        String proxyHost = null;
+        int proxyPort = 0;
+
         if( p != null ) {
-            String proxyHost = p.getProperty("proxyHost");
+            proxyHost = p.getProperty("proxyHost");
             String proxyPortStr = p.getProperty("proxyPort");
-            int proxyPort = 0;
             if( proxyPortStr != null ) {
                 proxyPort = Integer.parseInt(proxyPortStr);
             }
-            if( proxyHost != null && proxyHost.length() > 0 && proxyPort > 0 ) {
-                params.setParameter(ConnRoutePNames.DEFAULT_PROXY,
-                        new HttpHost(proxyHost, proxyPort)
-                );
-            }
         }
-        DefaultHttpClient httpClient = new DefaultHttpClient(params);
-        httpClient.addRequestInterceptor(new HttpRequestInterceptor() {
-            public void process(
-                    final HttpRequest request,
-                    final HttpContext context) throws HttpException, IOException {
-                if( !request.containsHeader("Accept-Encoding") ) {
-                    request.addHeader("Accept-Encoding", "gzip");
-                }
-                request.setParams(params);
-            }
-        });
-        httpClient.addResponseInterceptor(new HttpResponseInterceptor() {
-            public void process(
-                    final HttpResponse response,
-                    final HttpContext context) throws HttpException, IOException {
-                HttpEntity entity = response.getEntity();
-                if( entity != null ) {
-                    Header header = entity.getContentEncoding();
-                    if( header != null ) {
-                        for( HeaderElement codec : header.getElements() ) {
-                            if( codec.getName().equalsIgnoreCase("gzip") ) {
-                                response.setEntity(
-                                        new GzipDecompressingEntity(response.getEntity()));
-                                break;
-                            }
-                        }
+        int maxConnections = getIntProperty(p, DSN_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS);
+        int maxPerRoute = Math.min(maxConnections, getIntProperty(p, DSN_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_MAX_CONNECTIONS_PER_ROUTE));
+        long ttl = getIntProperty(p, DSN_CONNECTION_TTL, DEFAULT_CONNECTION_TTL);
+        String key = getProviderName() + "|" + ctx.getCloud().getEndpoint() + "|" + proxyHost + ":" + proxyPort + "|" + maxConnections + "|" + maxPerRoute + "|" + ttl;
+
+        PooledClient client = clients.get(key);
+        if( client == null ) {
+            synchronized( clients ) {
+                client = clients.get(key);
+                if( client == null ) {
+                    client = createPooledClient(proxyHost, proxyPort, maxConnections, maxPerRoute, ttl);
+                    clients.put(key, client);
+                    clientKeys.addLast(key);
+                    if( clientKeys.size() > MAX_CLIENTS ) {
+                        PooledClient retired = clients.remove(clientKeys.removeFirst());
+
+                        clientReaper.schedule(new ClientRetirement(retired), 1L, TimeUnit.MINUTES);
                     }
                 }
             }
-        });
-        return httpClient;
+        }
+        return client.client;
+    }
+
+    private @Nonnull PooledClient createPooledClient( @Nullable String proxyHost, int proxyPort, int maxConnections, int maxPerRoute, long ttl ) {
+        PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(ttl, TimeUnit.SECONDS);
+
+        manager.setMaxTotal(maxConnections);
+        manager.setDefaultMaxPerRoute(maxPerRoute);
+
+        final long keepAlive = TimeUnit.SECONDS.toMillis(Math.min(ttl, DEFAULT_KEEP_ALIVE));
+        HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(manager)
+                .setUserAgent("Dasein Cloud")
+                .setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+                    @Override
+                    public long getKeepAliveDuration( HttpResponse response, HttpContext context ) {
+                        long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+
+                        return ( duration > 0 ? Math.min(duration, keepAlive) : keepAlive );
+                    }
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAlive, TimeUnit.MILLISECONDS);
+
+        if( proxyHost != null && proxyHost.length() > 0 && proxyPort > 0 ) {
+            builder.setProxy(new HttpHost(proxyHost, proxyPort));
+        }
+        return new PooledClient(builder.build(), manager);
     }
 
     /**
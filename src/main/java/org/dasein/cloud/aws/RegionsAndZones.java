@@ -30,6 +30,7 @@ import org.dasein.cloud.dc.*;
 import org.dasein.cloud.util.APITrace;
 import org.dasein.cloud.util.Cache;
 import org.dasein.cloud.util.CacheLevel;
+import org.dasein.util.CalendarWrapper;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -37,12 +38,33 @@ import org.w3c.dom.NodeList;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class RegionsAndZones extends AbstractDataCenterServices<AWSCloud> {
 	static private final Logger logger = Logger.getLogger(RegionsAndZones.class);
 
 	static public final String DESCRIBE_AVAILABILITY_ZONES = "DescribeAvailabilityZones";
 	static public final String DESCRIBE_REGIONS            = "DescribeRegions";
+
+    static private final int  PROBE_THREADS = 16;
+    static private final long PROBE_TIMEOUT = CalendarWrapper.MINUTE;
+
+    static private final ExecutorService probePool;
+    static private final Object          probeLock = new Object();
+
+    static {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(PROBE_THREADS, PROBE_THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "dasein-region-probe");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        pool.allowCoreThreadTimeOut(true);
+        probePool = pool;
+    }
 	
     private String oneRegionId;
     private String oneZoneId;
@@ -391,61 +413,156 @@ public class RegionsAndZones extends AbstractDataCenterServices<AWSCloud> {
         }
 	}
 
+    /**
+     * Determines the EC2 platform of a region. On a cold cache the platforms of all regions are looked up at once,
+     * the requested region first. Every lookup is shared through the cache while it runs, so a caller asking for a
+     * region whose lookup is in flight waits for that lookup rather than starting another. A lookup that failed or
+     * found nothing is forgotten and tried again by the next caller.
+     * @param regionId the region
+     * @return {@link AWSCloud#PLATFORM_EC2}, {@link AWSCloud#PLATFORM_VPC} or <code>null</code> if unknown
+     */
     public String isRegionEC2VPC(String regionId) throws CloudException, InternalException{
-        ProviderContext ctx = getProvider().getContext();
-
-        Cache<HashMap> cache = Cache.getInstance(getProvider(), "ec2-types", HashMap.class, CacheLevel.CLOUD_ACCOUNT);
-        Collection<HashMap> region2Ec2Types = (Collection<HashMap>)cache.get(ctx);
-        HashMap<String, String> platformMap = null;
-
-        if(region2Ec2Types == null){
-            region2Ec2Types = new ArrayList<HashMap>();
-            Collection<Region> regions = listRegions();
-            platformMap = new HashMap<String, String>();
-
-            for(Region r : regions){
-                Map<String,String> parameters = getProvider().getStandardParameters(getProvider().getContext(), EC2Method.DESCRIBE_ACCOUNT_ATTRIBUTES);
-                parameters.put("AttributeName.1", "supported-platforms");
-                EC2Method method = new EC2Method(EC2Method.SERVICE_ID, r.getProviderRegionId(), getProvider(), parameters);
-                try{
-                    Document doc = method.invoke();
-
-                    String supportedPlatform = null;
-                    NodeList attributes = doc.getElementsByTagName("attributeValueSet").item(0).getChildNodes();
-                    for(int i=0;i<attributes.getLength();i++){
-                        Node attribute = attributes.item(i);
-                        if(attribute.getNodeType() == Node.TEXT_NODE)continue;
-
-                        if(attribute.getNodeName().equals("item")){
-                            NodeList data = attribute.getChildNodes();
-
-                            for(int j=0;j<data.getLength();j++){
-                                Node value = data.item(j);
-                                if(value.getNodeType() == Node.TEXT_NODE)continue;
-
-                                if(supportedPlatform != null){
-                                    supportedPlatform = AWSCloud.PLATFORM_EC2;//For now if it can be either we'll use EC2-Classic
-                                }
-                                else{
-                                    supportedPlatform = value.getFirstChild().getNodeValue().trim();
-                                }
-                                platformMap.put(r.getProviderRegionId(), supportedPlatform);
-                            }
+        APITrace.begin(getProvider(), "DC.isRegionEC2VPC");
+        try {
+            ProviderContext ctx = getProvider().getContext();
+
+            if( ctx == null ) {
+                throw new CloudException("No context was set for this request");
+            }
+            ConcurrentHashMap<String, Future<String>> probes = getPlatformProbes(ctx, regionId);
+            Future<String> probe = probes.get(regionId);
+
+            if( probe == null ) {
+                probe = probe(ctx, probes, regionId);
+            }
+            try {
+                String platform = probe.get(PROBE_TIMEOUT, TimeUnit.MILLISECONDS);
+
+                if( platform == null ) {
+                    probes.remove(regionId, probe);
+                }
+                return platform;
+            }
+            catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InternalException(e);
+            }
+            catch( TimeoutException e ) {
+                // other callers may still be waiting on it, so it is left running but no longer shared
+                probes.remove(regionId, probe);
+                throw new CloudException("Timed out determining the EC2 platform of " + regionId);
+            }
+            catch( ExecutionException e ) {
+                probes.remove(regionId, probe);
+                Throwable cause = e.getCause();
+
+                if( cause instanceof CloudException ) {
+                    throw ( CloudException ) cause;
+                }
+                if( cause instanceof InternalException ) {
+                    throw ( InternalException ) cause;
+                }
+                throw new InternalException(cause);
+            }
+        }
+        finally {
+            APITrace.end();
+        }
+    }
+
+    /**
+     * Provides the platform lookups of the account, starting a lookup for every region if there are none yet. The
+     * lock only covers finding or creating the lookups of the account; the regions are listed after it is released,
+     * so callers for other accounts, or for regions already being looked up, do not wait on that request.
+     */
+    @SuppressWarnings("unchecked")
+    private @Nonnull ConcurrentHashMap<String, Future<String>> getPlatformProbes(@Nonnull ProviderContext ctx, @Nonnull String regionId) throws CloudException, InternalException {
+        Cache<ConcurrentHashMap> cache = Cache.getInstance(getProvider(), "ec2-types", ConcurrentHashMap.class, CacheLevel.CLOUD_ACCOUNT);
+        ConcurrentHashMap<String, Future<String>> probes;
+
+        synchronized( probeLock ) {
+            Collection<ConcurrentHashMap> region2Ec2Types = (Collection<ConcurrentHashMap>)cache.get(ctx);
+
+            if( region2Ec2Types != null && !region2Ec2Types.isEmpty() ) {
+                return region2Ec2Types.iterator().next();
+            }
+            probes = new ConcurrentHashMap<String, Future<String>>();
+            cache.put(ctx, Collections.singletonList(probes));
+        }
+        // the requested region goes first so it never waits for a thread
+        probe(ctx, probes, regionId);
+        for( Region r : listRegions() ) {
+            probe(ctx, probes, r.getProviderRegionId());
+        }
+        return probes;
+    }
+
+    /**
+     * Starts looking up the platform of a region unless a lookup is already running.
+     * @return the lookup of the region
+     */
+    private @Nonnull Future<String> probe(@Nonnull final ProviderContext ctx, @Nonnull ConcurrentHashMap<String, Future<String>> probes, @Nonnull final String regionId) {
+        FutureTask<String> task = new FutureTask<String>(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                try {
+                    return describePlatform(ctx, regionId);
+                }
+                catch( Exception e ) {
+                    logger.warn("Unable to determine the EC2 platform of " + regionId + ": " + e.getMessage());
+                    throw e;
+                }
+                finally {
+                    getProvider().release();
+                }
+            }
+        });
+        Future<String> running = probes.putIfAbsent(regionId, task);
+
+        if( running != null ) {
+            return running;
+        }
+        getProvider().hold();
+        probePool.execute(task);
+        return task;
+    }
+
+    private @Nullable String describePlatform(@Nonnull ProviderContext ctx, @Nonnull String regionId) throws CloudException, InternalException {
+        Map<String,String> parameters = getProvider().getStandardParameters(ctx, EC2Method.DESCRIBE_ACCOUNT_ATTRIBUTES);
+        parameters.put("AttributeName.1", "supported-platforms");
+        EC2Method method = new EC2Method(EC2Method.SERVICE_ID, regionId, getProvider(), parameters);
+        String supportedPlatform = null;
+
+        try{
+            Document doc = method.invoke();
+
+            NodeList attributes = doc.getElementsByTagName("attributeValueSet").item(0).getChildNodes();
+            for(int i=0;i<attributes.getLength();i++){
+                Node attribute = attributes.item(i);
+                if(attribute.getNodeType() == Node.TEXT_NODE)continue;
+
+                if(attribute.getNodeName().equals("item")){
+                    NodeList data = attribute.getChildNodes();
+
+                    for(int j=0;j<data.getLength();j++){
+                        Node value = data.item(j);
+                        if(value.getNodeType() == Node.TEXT_NODE)continue;
+
+                        if(supportedPlatform != null){
+                            supportedPlatform = AWSCloud.PLATFORM_EC2;//For now if it can be either we'll use EC2-Classic
+                        }
+                        else{
+                            supportedPlatform = value.getFirstChild().getNodeValue().trim();
                         }
                     }
                 }
-                catch( EC2Exception e ) {
-                    logger.error(e.getSummary());
-                    throw new CloudException(e);
-                }
             }
-            region2Ec2Types.add(platformMap);
-            cache.put(ctx, region2Ec2Types);
         }
-        else{
-            platformMap = region2Ec2Types.iterator().next();
+        catch( EC2Exception e ) {
+            logger.error(e.getSummary());
+            throw new CloudException(e);
         }
-        return platformMap.get(regionId);
+        return supportedPlatform;
     }
 
 	private DataCenter toDataCenter(String regionId, Node zone) throws CloudException {
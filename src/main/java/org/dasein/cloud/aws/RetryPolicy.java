@@ -0,0 +1,194 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws;
+
+import org.apache.http.HttpStatus;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides whether a failed AWS request is retried and how long to wait before retrying it. Waits grow
+ * exponentially with full jitter so that threads failing together do not retry together, and every retry is
+ * paid for from a budget shared by all requests against the same account and region. The budget is refilled by
+ * successful requests, so a struggling endpoint quickly stops being retried at all instead of being hammered by
+ * every thread. Subclasses may change any of the decisions; see {@link AWSCloud#getRetryPolicy()}.
+ */
+public class RetryPolicy {
+    static public final int  DEFAULT_MAX_ATTEMPTS  = 5;
+    static public final int  DEFAULT_BUDGET        = 500;
+    static public final long DEFAULT_BASE_DELAY    = 100L;
+    static public final long THROTTLED_BASE_DELAY  = 500L;
+    static public final long MAX_DELAY             = 20000L;
+
+    static private final int RETRY_COST     = 5;
+    static private final int SUCCESS_REFUND = 1;
+
+    static private final Set<String> THROTTLE_CODES = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+            "Throttling", "ThrottlingException", "ThrottledException", "RequestThrottled", "RequestThrottledException",
+            "RequestLimitExceeded", "TooManyRequestsException", "SlowDown", "PriorRequestNotComplete",
+            "BandwidthLimitExceeded", "ProvisionedThroughputExceededException", "EC2ThrottledException")));
+
+    private final int           maxAttempts;
+    private final int           budget;
+    private final AtomicInteger available;
+
+    public RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BUDGET);
+    }
+
+    /**
+     * @param maxAttempts the number of times a request is sent before its failure is reported
+     * @param budget the number of tokens available for retries; each retry costs five tokens
+     */
+    public RetryPolicy( @Nonnegative int maxAttempts, @Nonnegative int budget ) {
+        this.maxAttempts = maxAttempts;
+        this.budget = budget;
+        this.available = new AtomicInteger(budget);
+    }
+
+    /**
+     * @return the number of times a request is sent before its failure is reported
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @return the number of tokens currently left in the retry budget
+     */
+    public int getAvailableBudget() {
+        return available.get();
+    }
+
+    /**
+     * @param code the AWS error code of a failed request
+     * @return true if the code says the request was rejected because of rate limiting
+     */
+    public boolean isThrottle( @Nullable String code ) {
+        return code != null && THROTTLE_CODES.contains(code);
+    }
+
+    /**
+     * @param status the HTTP status of a failed request
+     * @param code the AWS error code of the failed request, if it is known
+     * @return true if the same request may succeed when it is sent again
+     */
+    public boolean isRetryable( int status, @Nullable String code ) {
+        switch( status ) {
+            case HttpStatus.SC_INTERNAL_SERVER_ERROR:
+            case HttpStatus.SC_BAD_GATEWAY:
+            case HttpStatus.SC_SERVICE_UNAVAILABLE:
+            case HttpStatus.SC_GATEWAY_TIMEOUT:
+            case 429:
+                return true;
+        }
+        return isThrottle(code);
+    }
+
+    /**
+     * Decides whether a failed request is sent again and, if so, takes the cost of the retry from the budget.
+     * @param attempts the number of times the request has been sent so far
+     * @param status the HTTP status of the last response
+     * @param code the AWS error code of the last response, if it is known
+     * @return true if the caller should {@link #backoff(int, boolean) back off} and send the request again
+     */
+    public boolean shouldRetry( int attempts, int status, @Nullable String code ) {
+        return attempts < maxAttempts && isRetryable(status, code) && acquire();
+    }
+
+    /**
+     * Records a successful request, returning a little of the budget spent on earlier retries.
+     */
+    public void succeeded() {
+        while( true ) {
+            int current = available.get();
+
+            if( current >= budget || available.compareAndSet(current, Math.min(budget, current + SUCCESS_REFUND)) ) {
+                return;
+            }
+        }
+    }
+
+    private boolean acquire() {
+        while( true ) {
+            int current = available.get();
+
+            if( current < RETRY_COST ) {
+                return false;
+            }
+            if( available.compareAndSet(current, current - RETRY_COST) ) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Computes a wait with full jitter: a random delay between zero and the exponentially growing ceiling.
+     * @param attempts the number of times the request has been sent so far
+     * @param baseDelay the ceiling in milliseconds after the first attempt
+     * @return the number of milliseconds to wait before the next attempt
+     */
+    public long getDelay( int attempts, long baseDelay ) {
+        int shift = Math.max(0, Math.min(attempts - 1, 30));
+        long ceiling = Math.min(MAX_DELAY, baseDelay << shift);
+
+        if( ceiling <= 0L ) {
+            return 0L;
+        }
+        return ThreadLocalRandom.current().nextLong(ceiling + 1L);
+    }
+
+    /**
+     * Waits before a request is sent again.
+     * @param attempts the number of times the request has been sent so far
+     * @param throttled true if the last attempt was rejected by rate limiting, which calls for longer waits
+     */
+    public void backoff( int attempts, boolean throttled ) {
+        sleep(getDelay(attempts, throttled ? THROTTLED_BASE_DELAY : DEFAULT_BASE_DELAY));
+    }
+
+    /**
+     * Waits before an operation is tried again, for operations that poll or wait on eventual consistency and
+     * need a longer first wait than a failed request.
+     * @param attempts the number of times the operation has been tried so far
+     * @param baseDelay the ceiling in milliseconds after the first attempt
+     */
+    public void backoff( int attempts, long baseDelay ) {
+        sleep(getDelay(attempts, baseDelay));
+    }
+
+    private void sleep( long delay ) {
+        if( delay > 0L ) {
+            try {
+                Thread.sleep(delay);
+            }
+            catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws;
+
+import org.apache.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Tee over a response body that copies each line read by the consumer to the wire log, so a response can be
+ * parsed straight from the connection and still be logged. Use {@link #wrap(InputStream, Logger)}, which leaves
+ * the stream untouched when the wire log is disabled.
+ */
+public class WireInputStream extends FilterInputStream {
+    static private final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Wraps a response body so that it is copied to the wire log as it is read.
+     * @param input the response body
+     * @param wire the wire logger
+     * @return the tee over the body or the body itself if wire logging is disabled
+     */
+    static public @Nonnull InputStream wrap( @Nonnull InputStream input, @Nonnull Logger wire ) {
+        if( wire.isDebugEnabled() ) {
+            return new WireInputStream(input, wire);
+        }
+        return input;
+    }
+
+    private final Logger                wire;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+
+    private WireInputStream( @Nonnull InputStream input, @Nonnull Logger wire ) {
+        super(input);
+        this.wire = wire;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+
+        if( b == -1 ) {
+            flush();
+        }
+        else {
+            log(b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read( byte[] buffer, int offset, int length ) throws IOException {
+        int count = super.read(buffer, offset, length);
+
+        if( count == -1 ) {
+            flush();
+        }
+        for( int i = 0; i < count; i++ ) {
+            log(buffer[offset + i]);
+        }
+        return count;
+    }
+
+    @Override
+    public long skip( long n ) throws IOException {
+        // route skipped bytes through read() so they reach the log too
+        byte[] buffer = new byte[(int)Math.min(n, 4096L)];
+        long skipped = 0L;
+
+        while( skipped < n ) {
+            int count = read(buffer, 0, (int)Math.min(buffer.length, n - skipped));
+
+            if( count == -1 ) {
+                break;
+            }
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        super.close();
+    }
+
+    private void log( int b ) {
+        if( b == '\n' ) {
+            flush();
+        }
+        else if( b != '\r' ) {
+            line.write(b);
+        }
+    }
+
+    private void flush() {
+        if( line.size() > 0 ) {
+            wire.debug(new String(line.toByteArray(), UTF8));
+            line.reset();
+        }
+    }
+}
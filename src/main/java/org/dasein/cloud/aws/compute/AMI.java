@@ -36,9 +36,12 @@ import org.w3c.dom.NodeList;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.File;
 import java.io.UnsupportedEncodingException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @version 2013.01.1 Fixed a data consistency issue with AWS (issue #21)
@@ -46,6 +49,24 @@ import java.util.*;
 public class AMI extends AbstractImageSupport<AWSCloud> {
 	static private final Logger logger = Logger.getLogger(AMI.class);
 	
+    static private final int SEARCH_THREADS = 16;
+
+    static private final ExecutorService searchPool;
+
+    static {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(SEARCH_THREADS, SEARCH_THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "dasein-image-search");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        pool.allowCoreThreadTimeOut(true);
+        searchPool = pool;
+    }
+
     private volatile transient AMICapabilities capabilities;
 
     AMI(AWSCloud provider) {
@@ -169,12 +190,14 @@ public class AMI extends AbstractImageSupport<AWSCloud> {
                 if( blocks.getLength() > 0 ) {
                     Node imageIdNode = blocks.item(0);
                     String id = imageIdNode.getFirstChild().getNodeValue().trim();
+                    invalidate(id);
                     MachineImage img = getImage(id);
 
                     if( img == null ) {
                         for( int i=0; i<5; i++ ) {
                             try { Thread.sleep(5000L * i); }
                             catch( InterruptedException ignore ) { }
+                            invalidate(id);
                             img = getImage(id);
                             if( img != null ) {
                                 break;
@@ -374,7 +397,11 @@ public class AMI extends AbstractImageSupport<AWSCloud> {
         }
     }
 
-    private @Nonnull Iterable<MachineImage> executeImageSearch(int pass, boolean forPublic, @Nonnull ImageFilterOptions options) throws CloudException, InternalException {
+    /**
+     * Runs one pass of an image search.
+     * @param results the merger the images found are handed to as they are parsed
+     */
+    private void executeImageSearch(int pass, boolean forPublic, @Nonnull ImageFilterOptions options, final @Nonnull ImageMerger results) throws CloudException, InternalException {
         APITrace.begin(getProvider(), "Image.executeImageSearch");
         try {
             final ProviderContext ctx = getProvider(). getContext();
@@ -391,13 +418,11 @@ public class AMI extends AbstractImageSupport<AWSCloud> {
 
             if( architecture != null && !architecture.equals(Architecture.I32) && !architecture.equals(Architecture.I64) ) {
                 if( !options.isMatchesAny() ) {
-                    return Collections.emptyList();
+                    return;
                 }
             }
             Map<String,String> parameters = getProvider(). getStandardParameters(getProvider(). getContext(), EC2Method.DESCRIBE_IMAGES);
 
-            final List<MachineImage> list = new ArrayList<MachineImage>();
-
             if( forPublic ) {
                 if( pass == 1 ) {
                     parameters.put("ExecutableBy.1", "all");
@@ -415,6 +440,8 @@ public class AMI extends AbstractImageSupport<AWSCloud> {
                 }
             }
             final ImageFilterOptions finalOptions = fillImageFilterParameters(forPublic, options, parameters);
+            // an image search that matches any criterion also matches every image of this account
+            final String ownAccount = ( !forPublic && options.isMatchesAny() && options.getCriteriaCount() > 1 ? ctx.getAccountNumber() : null );
 
             EC2Method method = new EC2Method(getProvider(), parameters);
             try {
@@ -422,14 +449,20 @@ public class AMI extends AbstractImageSupport<AWSCloud> {
                         new DescribeImagesResponseParser(
                                 getProvider(). getContext().getRegionId(),
                                 (getProvider(). getEC2Provider().isAWS() ? null : getProvider(). getContext().getAccountNumber()),
-                                finalOptions,
-                                list));
+                                null,
+                                null) {
+                            @Override
+                            protected void emit(@Nonnull MachineImage image) {
+                                if( finalOptions.matches(image) || ( ownAccount != null && ownAccount.equals(image.getProviderOwnerId()) ) ) {
+                                    results.add(image);
+                                }
+                            }
+                        });
             }
             catch( EC2Exception e ) {
                 logger.error(e.getSummary());
                 throw new CloudException(e);
             }
-            return list;
         }
         finally {
             APITrace.end();
@@ -437,7 +470,43 @@ public class AMI extends AbstractImageSupport<AWSCloud> {
     }
 
     @Override
-    public @Nullable MachineImage getImage(@Nonnull String providerImageId) throws CloudException, InternalException {
+    public @Nullable MachineImage getImage(final @Nonnull String providerImageId) throws CloudException, InternalException {
+        ImageCache cache = getImageCache();
+
+        if( cache == null ) {
+            return describeImage(providerImageId);
+        }
+        return cache.get(providerImageId, new Callable<MachineImage>() {
+            @Override
+            public MachineImage call() throws Exception {
+                return describeImage(providerImageId);
+            }
+        });
+    }
+
+    /**
+     * @return the cache of images looked up by ID in the current region or <code>null</code> if no account or region is set
+     */
+    private @Nullable ImageCache getImageCache() {
+        ProviderContext ctx = getProvider(). getContext();
+
+        if( ctx == null || ctx.getAccountNumber() == null || ctx.getRegionId() == null ) {
+            return null;
+        }
+        return ImageCache.getInstance(ctx.getAccountNumber(), ctx.getRegionId());
+    }
+
+    private void invalidate(@Nonnull String ... imageIds) {
+        ImageCache cache = getImageCache();
+
+        if( cache != null ) {
+            for( String imageId : imageIds ) {
+                cache.invalidate(imageId);
+            }
+        }
+    }
+
+    private @Nullable MachineImage describeImage(@Nonnull String providerImageId) throws CloudException, InternalException {
         APITrace.begin(getProvider(), "Image.getImage");
         try {
             ProviderContext ctx = getProvider(). getContext();
@@ -694,14 +763,9 @@ public class AMI extends AbstractImageSupport<AWSCloud> {
             parameters.put("Filter." + (filter++) + ".Value.1", "available");
         }
 
+        // the options are shared by concurrent search passes, so they are only read here
         if( options.isMatchesAny() && options.getCriteriaCount() > 1 ) {
-            if( forPublic ) {
-                return options;
-            }
-            else {
-                options.withAccountNumber(getContext().getAccountNumber());
-                return options;
-            }
+            return options;
         }
 
         String owner = options.getAccountNumber();
@@ -903,6 +967,7 @@ public class AMI extends AbstractImageSupport<AWSCloud> {
             if( blocks.getLength() > 0 ) {
                 Node imageIdNode = blocks.item(0);
                 String id = imageIdNode.getFirstChild().getNodeValue().trim();
+                invalidate(id);
                 MachineImage img = getMachineImage(id);
 
                 if( img == null ) {
@@ -958,6 +1023,9 @@ public class AMI extends AbstractImageSupport<AWSCloud> {
                 logger.error( e.getSummary() );
                 throw new CloudException( e );
             }
+            finally {
+                invalidate( providerImageId );
+            }
             blocks = doc.getElementsByTagName( "return" );
             if ( blocks.getLength() > 0 ) {
                 Node imageIdNode = blocks.item( 0 );
@@ -1025,17 +1093,7 @@ public class AMI extends AbstractImageSupport<AWSCloud> {
                 APITrace.begin(getProvider(), "Image.listImages");
                 try {
                     try {
-                        Set<String> ids = new TreeSet<String>();
-
-                        for( MachineImage img : executeImageSearch(1, false, opts) ) {
-                            ids.add(img.getProviderMachineImageId());
-                            iterator.push(img);
-                        }
-                        for( MachineImage img : executeImageSearch(2, false, opts) ) {
-                            if( !ids.contains(img.getProviderMachineImageId()) ) {
-                                iterator.push(img);
-                            }
-                        }
+                        searchConcurrently(false, opts, null, iterator);
                     }
                     finally {
                         getProvider(). release();
@@ -1051,8 +1109,115 @@ public class AMI extends AbstractImageSupport<AWSCloud> {
         return populator.getResult();
     }
 
+    /**
+     * Runs both passes of an image search at the same time. Images are pushed into the iterator as soon as either
+     * pass parses them, and an image found by both passes is pushed only once.
+     * @param firstPass the images of the first pass if they are already known, in which case only the second pass
+     *                  goes to the cloud
+     */
+    private void searchConcurrently(final boolean forPublic, final @Nonnull ImageFilterOptions options, @Nullable Iterable<MachineImage> firstPass, @Nonnull Jiterator<MachineImage> iterator) throws CloudException, InternalException {
+        final ImageMerger merger = new ImageMerger(iterator);
+        final AtomicBoolean abandoned = new AtomicBoolean();
+        Future<Void> secondPass = searchPool.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                if( !abandoned.get() ) {
+                    executeImageSearch(2, forPublic, options, merger);
+                }
+                return null;
+            }
+        });
+
+        try {
+            if( firstPass == null ) {
+                executeImageSearch(1, forPublic, options, merger);
+            }
+            else {
+                for( MachineImage img : firstPass ) {
+                    merger.add(img);
+                }
+            }
+            secondPass.get();
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InternalException(e);
+        }
+        catch( ExecutionException e ) {
+            Throwable cause = e.getCause();
+
+            if( cause instanceof CloudException ) {
+                throw (CloudException)cause;
+            }
+            if( cause instanceof InternalException ) {
+                throw (InternalException)cause;
+            }
+            throw new InternalException(cause);
+        }
+        finally {
+            if( !secondPass.isDone() ) {
+                // the caller releases the provider once this returns, so a running second pass is waited for
+                abandoned.set(true);
+                awaitQuietly(secondPass);
+            }
+        }
+    }
+
+    /**
+     * Waits for a search pass to finish, ignoring its outcome and keeping any interrupt for the caller.
+     */
+    static private void awaitQuietly(@Nonnull Future<?> pass) {
+        boolean interrupted = false;
+
+        while( true ) {
+            try {
+                pass.get();
+                break;
+            }
+            catch( InterruptedException e ) {
+                interrupted = true;
+            }
+            catch( ExecutionException e ) {
+                break;
+            }
+        }
+        if( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Passes the images of concurrent search passes on to one iterator, skipping images already passed on. It keeps
+     * nothing but the image IDs.
+     */
+    static private class ImageMerger {
+        private final Jiterator<MachineImage> iterator;
+        private final Set<String>             ids = new HashSet<String>();
+
+        ImageMerger(@Nonnull Jiterator<MachineImage> iterator) {
+            this.iterator = iterator;
+        }
+
+        synchronized void add(@Nonnull MachineImage image) {
+            if( ids.add(image.getProviderMachineImageId()) ) {
+                iterator.push(image);
+            }
+        }
+    }
+
+    /**
+     * Searches the public images of the current region. When a catalog directory is configured, the first pass is
+     * answered from the local catalog while the second still goes to the cloud. Images from either pass carry the
+     * fields the DescribeImages stream parser fills in, without provider metadata, volumes, creation time or
+     * software; {@link #getImage(String)} returns an image with its provider metadata and volumes.
+     */
     @Override
     public @Nonnull Iterable<MachineImage> searchPublicImages(final @Nonnull ImageFilterOptions options) throws CloudException, InternalException {
+        final PublicImageCatalog catalog = getPublicImageCatalog();
+
+        if( catalog != null && catalog.isStale() ) {
+            refreshPublicImageCatalog(catalog);
+        }
         getProvider(). hold();
         PopulatorThread<MachineImage> populator = new PopulatorThread<MachineImage>(new JiteratorPopulator<MachineImage>() {
             @Override
@@ -1060,12 +1225,7 @@ public class AMI extends AbstractImageSupport<AWSCloud> {
                 APITrace.begin(getProvider(), "searchPublicImages");
                 try {
                     try {
-                        for( MachineImage img : executeImageSearch(1, true, options) ) {
-                            iterator.push(img);
-                        }
-                        for( MachineImage img : executeImageSearch(2, true, options) ) {
-                            iterator.push(img);
-                        }
+                        searchConcurrently(true, options, (catalog == null ? null : catalog.search(options)), iterator);
                     }
                     finally {
                         getProvider(). release();
@@ -1081,6 +1241,76 @@ public class AMI extends AbstractImageSupport<AWSCloud> {
         return populator.getResult();
     }
 
+    /**
+     * @return the catalog of public images of the current region or <code>null</code> if no catalog directory is
+     * configured or the cloud is not AWS
+     */
+    private @Nullable PublicImageCatalog getPublicImageCatalog() {
+        ProviderContext ctx = getProvider(). getContext();
+
+        if( ctx == null || ctx.getRegionId() == null || !getProvider(). getEC2Provider().isAWS() ) {
+            return null;
+        }
+        Properties p = ctx.getCustomProperties();
+        String directory = (p == null ? null : p.getProperty(AWSCloud.DSN_IMAGE_CATALOG));
+
+        if( directory == null || directory.trim().isEmpty() ) {
+            return null;
+        }
+        return PublicImageCatalog.getInstance(new File(directory.trim()), ctx.getRegionId());
+    }
+
+    private void refreshPublicImageCatalog(@Nonnull PublicImageCatalog catalog) {
+        getProvider(). hold();
+        boolean started = catalog.refresh(new Callable<List<MachineImage>>() {
+            @Override
+            public List<MachineImage> call() throws Exception {
+                try {
+                    return listAllPublicImages();
+                }
+                finally {
+                    getProvider(). release();
+                }
+            }
+        });
+
+        if( !started ) {
+            getProvider(). release();
+        }
+    }
+
+    /**
+     * Lists every available public image of the current region, unfiltered, for the public image catalog.
+     */
+    private @Nonnull List<MachineImage> listAllPublicImages() throws CloudException, InternalException {
+        APITrace.begin(getProvider(), "Image.listAllPublicImages");
+        try {
+            ProviderContext ctx = getProvider(). getContext();
+
+            if( ctx == null ) {
+                throw new CloudException("No context was set for this request");
+            }
+            Map<String,String> parameters = getProvider(). getStandardParameters(ctx, EC2Method.DESCRIBE_IMAGES);
+            List<MachineImage> list = new ArrayList<MachineImage>();
+
+            parameters.put("ExecutableBy.1", "all");
+            ImageFilterOptions options = fillImageFilterParameters(true, ImageFilterOptions.getInstance(), parameters);
+            EC2Method method = new EC2Method(getProvider(), parameters);
+
+            try {
+                method.invoke(new DescribeImagesResponseParser(ctx.getRegionId(), null, options, list));
+            }
+            catch( EC2Exception e ) {
+                logger.error(e.getSummary());
+                throw new CloudException(e);
+            }
+            return list;
+        }
+        finally {
+            APITrace.end();
+        }
+    }
+
     private void setPrivateShare(@Nonnull String imageId, boolean allowed, @Nonnull String ... accountIds) throws CloudException, InternalException {
         if( accountIds == null || accountIds.length < 1 ) {
             return;
@@ -1131,6 +1361,9 @@ public class AMI extends AbstractImageSupport<AWSCloud> {
             logger.error(e.getSummary());
             throw new CloudException(e);
         }
+        finally {
+            invalidate(imageId);
+        }
         blocks = doc.getElementsByTagName("return");
         if( blocks.getLength() > 0 ) {
             if( !blocks.item(0).getFirstChild().getNodeValue().equalsIgnoreCase("true") ) {
@@ -1217,6 +1450,9 @@ public class AMI extends AbstractImageSupport<AWSCloud> {
             logger.error(e.getSummary());
             throw new CloudException(e);
         }
+        finally {
+            invalidate(imageId);
+        }
         blocks = doc.getElementsByTagName("return");
         if( blocks.getLength() > 0 ) {
             if( !blocks.item(0).getFirstChild().getNodeValue().equalsIgnoreCase("true") ) {
@@ -1226,6 +1462,8 @@ public class AMI extends AbstractImageSupport<AWSCloud> {
         timeout = System.currentTimeMillis() + (CalendarWrapper.SECOND * 30);
         while( timeout > System.currentTimeMillis() ) {
             try {
+                // the change takes a moment to show, so the image is looked up afresh each time
+                invalidate(imageId);
                 MachineImage img = getMachineImage(imageId);
 
                 if( img == null ) {
@@ -1725,6 +1963,7 @@ public class AMI extends AbstractImageSupport<AWSCloud> {
             getProvider(). createTags(EC2Method.SERVICE_ID, imageIds, tags);
         }
         finally {
+            invalidate(imageIds);
             APITrace.end();
         }
     }
@@ -1741,6 +1980,7 @@ public class AMI extends AbstractImageSupport<AWSCloud> {
             getProvider(). removeTags(EC2Method.SERVICE_ID, imageIds, tags);
         }
         finally {
+            invalidate(imageIds);
             APITrace.end();
         }
     }
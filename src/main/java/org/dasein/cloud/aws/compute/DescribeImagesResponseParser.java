@@ -51,10 +51,15 @@ public class DescribeImagesResponseParser implements XmlStreamParser<MachineImag
     private final ImageFilterOptions filterOptions;
     private int itemDepth;
 
+    /**
+     * @param filterOptions the options images must match, or <code>null</code> to emit every image
+     * @param list the list matching images are added to, or <code>null</code> if {@link #emit(MachineImage)} is
+     *             overridden to pass them on elsewhere
+     */
     public DescribeImagesResponseParser(@Nonnull String regionId,
                                         @Nullable String providerOwnerId,
                                         @Nullable ImageFilterOptions filterOptions,
-                                        @Nonnull List<MachineImage> list) {
+                                        @Nullable List<MachineImage> list) {
         this.providerOwnerId = providerOwnerId;
         this.regionId = regionId;
         this.filterOptions = filterOptions;
@@ -79,8 +84,8 @@ public class DescribeImagesResponseParser implements XmlStreamParser<MachineImag
                         if( "item".equalsIgnoreCase(name) ) {
                             itemDepth++;
                             MachineImage image = readItem(reader);
-                            if( image != null && ( filterOptions != null && filterOptions.matches(image) ) ) {
-                                list.add(image);
+                            if( image != null && ( filterOptions == null || filterOptions.matches(image) ) ) {
+                                emit(image);
                             }
                         }
                         break;
@@ -107,6 +112,19 @@ public class DescribeImagesResponseParser implements XmlStreamParser<MachineImag
         return list;
     }
 
+    /**
+     * Hands a matching image to the caller. By default the image is added to the list given to the constructor;
+     * override to push images elsewhere as soon as they are parsed.
+     * @param image the parsed image
+     * @throws CloudException the caller rejected the image
+     * @throws InternalException the caller failed to handle the image
+     */
+    protected void emit( @Nonnull MachineImage image ) throws CloudException, InternalException {
+        if( list != null ) {
+            list.add(image);
+        }
+    }
+
     private int skipToNext( String imagesSet, XMLStreamReader reader ) throws XMLStreamException {
         while ( reader.hasNext() ) {
             int event = reader.next();
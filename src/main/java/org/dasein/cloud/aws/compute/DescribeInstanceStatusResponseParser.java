@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+package org.dasein.cloud.aws.compute;
+
+import org.dasein.cloud.compute.VirtualMachineStatus;
+import org.w3c.dom.Node;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Streaming parser for DescribeInstanceStatus responses, emitting the status of each instance as soon as it has
+ * been read.
+ *
+ * @see org.dasein.cloud.aws.compute.EC2Instance#getVMStatus(org.dasein.cloud.compute.VmStatusFilterOptions)
+ */
+public class DescribeInstanceStatusResponseParser extends ItemStreamParser<VirtualMachineStatus> {
+    private final EC2Instance support;
+
+    public DescribeInstanceStatusResponseParser( @Nonnull EC2Instance support, @Nullable List<VirtualMachineStatus> list ) {
+        super("instanceStatusSet", list);
+        this.support = support;
+    }
+
+    @Override
+    protected @Nullable VirtualMachineStatus toItem( @Nonnull Node item ) {
+        return support.toVirtualMachineStatus(item);
+    }
+}
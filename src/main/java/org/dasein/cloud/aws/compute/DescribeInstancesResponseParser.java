@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+package org.dasein.cloud.aws.compute;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.aws.AWSCloud;
+import org.dasein.cloud.compute.VirtualMachine;
+import org.dasein.cloud.network.IpAddress;
+import org.w3c.dom.Node;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Streaming parser for DescribeInstances responses, emitting a virtual machine for each instance of every
+ * reservation as soon as it has been read.
+ *
+ * @see org.dasein.cloud.aws.compute.EC2Instance#listVirtualMachines(org.dasein.cloud.compute.VMFilterOptions)
+ */
+public class DescribeInstancesResponseParser extends ItemStreamParser<VirtualMachine> {
+    static private final Logger logger = AWSCloud.getLogger(DescribeInstancesResponseParser.class);
+
+    private final EC2Instance                   support;
+    private final ProviderContext               ctx;
+    private final Future<Iterable<IpAddress>>   ipPoolFuture;
+    private Iterable<IpAddress>                 addresses;
+
+    /**
+     * @param support the virtual machine support converting each instance
+     * @param ctx the context of the request
+     * @param ipPoolFuture the pending list of elastic IPs to match against the instances, awaited only once an
+     *                     instance has been read
+     * @param list the list to which virtual machines are added
+     */
+    public DescribeInstancesResponseParser( @Nonnull EC2Instance support, @Nonnull ProviderContext ctx, @Nullable Future<Iterable<IpAddress>> ipPoolFuture, @Nullable List<VirtualMachine> list ) {
+        super("instancesSet", list);
+        this.support = support;
+        this.ctx = ctx;
+        this.ipPoolFuture = ipPoolFuture;
+    }
+
+    @Override
+    protected @Nullable VirtualMachine toItem( @Nonnull Node item ) throws CloudException {
+        return support.toVirtualMachine(ctx, item, getAddresses());
+    }
+
+    private @Nonnull Iterable<IpAddress> getAddresses() {
+        if( addresses == null ) {
+            addresses = Collections.emptyList();
+            if( ipPoolFuture != null ) {
+                try {
+                    addresses = ipPoolFuture.get(30, TimeUnit.SECONDS);
+                }
+                catch( InterruptedException e ) {
+                    logger.error(e.getMessage());
+                }
+                catch( ExecutionException e ) {
+                    logger.error(e.getMessage());
+                }
+                catch( TimeoutException e ) {
+                    logger.error(e.getMessage());
+                }
+            }
+        }
+        return addresses;
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+package org.dasein.cloud.aws.compute;
+
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.compute.Snapshot;
+import org.w3c.dom.Node;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Streaming parser for DescribeSnapshots responses, emitting each snapshot as soon as it has been read.
+ *
+ * @see org.dasein.cloud.aws.compute.EBSSnapshot#listSnapshots(org.dasein.cloud.compute.SnapshotFilterOptions)
+ */
+public class DescribeSnapshotsResponseParser extends ItemStreamParser<Snapshot> {
+    private final EBSSnapshot support;
+
+    public DescribeSnapshotsResponseParser( @Nonnull EBSSnapshot support, @Nullable List<Snapshot> list ) {
+        super("snapshotSet", list);
+        this.support = support;
+    }
+
+    @Override
+    protected @Nullable Snapshot toItem( @Nonnull Node item ) throws CloudException, InternalException {
+        return support.toSnapshot(item);
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+package org.dasein.cloud.aws.compute;
+
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.compute.Volume;
+import org.w3c.dom.Node;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Streaming parser for DescribeVolumes responses, emitting each volume as soon as it has been read.
+ *
+ * @see org.dasein.cloud.aws.compute.EBSVolume#listVolumes(org.dasein.cloud.compute.VolumeFilterOptions)
+ */
+public class DescribeVolumesResponseParser extends ItemStreamParser<Volume> {
+    private final EBSVolume       support;
+    private final ProviderContext ctx;
+
+    public DescribeVolumesResponseParser( @Nonnull EBSVolume support, @Nonnull ProviderContext ctx, @Nullable List<Volume> list ) {
+        super("volumeSet", list);
+        this.support = support;
+        this.ctx = ctx;
+    }
+
+    @Override
+    protected @Nullable Volume toItem( @Nonnull Node item ) throws CloudException {
+        return support.toVolume(ctx, item);
+    }
+}
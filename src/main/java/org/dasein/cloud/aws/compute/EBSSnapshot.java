@@ -406,14 +406,12 @@ public class EBSSnapshot extends AbstractSnapshotSupport<AWSCloud> {
         getProvider().hold();
         PopulatorThread<Snapshot> populator = new PopulatorThread<Snapshot>(new JiteratorPopulator<Snapshot>() {
             @Override
-            public void populate(@Nonnull Jiterator<Snapshot> iterator) throws Exception {
+            public void populate(final @Nonnull Jiterator<Snapshot> iterator) throws Exception {
                 try {
                     APITrace.begin(getProvider(), "Snapshot.listSnapshots");
                     try {
                         Map<String,String> parameters = getProvider().getStandardParameters(getContext(), EC2Method.DESCRIBE_SNAPSHOTS);
                         EC2Method method;
-                        NodeList blocks;
-                        Document doc;
 
                         // we want to use the more efficient tag search via AWS if possible
                         // it is only possible if a) tags is the only search criterion or b) the options is set ot match all criteria
@@ -433,30 +431,19 @@ public class EBSSnapshot extends AbstractSnapshotSupport<AWSCloud> {
                         }
                         method = new EC2Method(getProvider(), parameters);
                         try {
-                            doc = method.invoke();
+                            method.invoke(new DescribeSnapshotsResponseParser(EBSSnapshot.this, null) {
+                                @Override
+                                protected void emit( @Nonnull Snapshot snapshot ) throws CloudException, InternalException {
+                                    if( options == null || options.matches(snapshot, getContext().getAccountNumber()) ) {
+                                        iterator.push(snapshot);
+                                    }
+                                }
+                            });
                         }
                         catch( EC2Exception e ) {
                             logger.error(e.getSummary());
                             throw new CloudException(e);
                         }
-                        blocks = doc.getElementsByTagName("snapshotSet");
-                        for( int i=0; i<blocks.getLength(); i++ ) {
-                            NodeList items = blocks.item(i).getChildNodes();
-
-                            for( int j=0; j<items.getLength(); j++ ) {
-                                Node item = items.item(j);
-
-                                if( item.getNodeName().equals("item") ) {
-                                    Snapshot snapshot = toSnapshot(item);
-
-                                    if( snapshot != null ) {
-                                        if( options == null || options.matches(snapshot, getContext().getAccountNumber()) ) {
-                                            iterator.push(snapshot);
-                                        }
-                                    }
-                                }
-                            }
-                        }
                     }
                     finally {
                         APITrace.end();
@@ -732,7 +719,7 @@ public class EBSSnapshot extends AbstractSnapshotSupport<AWSCloud> {
         }
     }
 
-    private @Nullable Snapshot toSnapshot(@Nullable Node node) throws CloudException, InternalException {
+    @Nullable Snapshot toSnapshot(@Nullable Node node) throws CloudException, InternalException {
         if( node == null ) {
             return null;
         }
@@ -379,7 +379,7 @@ public class EBSVolume extends AbstractVolumeSupport<AWSCloud> {
     }
 
     @Override
-    public @Nonnull Iterable<Volume> listVolumes(@Nullable VolumeFilterOptions options) throws InternalException, CloudException {
+    public @Nonnull Iterable<Volume> listVolumes(final @Nullable VolumeFilterOptions options) throws InternalException, CloudException {
         APITrace.begin(getProvider(), "Volume.listVolumes");
         try {
             ProviderContext ctx = getProvider().getContext();
@@ -390,8 +390,6 @@ public class EBSVolume extends AbstractVolumeSupport<AWSCloud> {
             Map<String,String> parameters = getProvider().getStandardParameters(getProvider().getContext(), EC2Method.DESCRIBE_VOLUMES);
             ArrayList<Volume> list = new ArrayList<Volume>();
             EC2Method method;
-            NodeList blocks;
-            Document doc;
 
             if ( options != null ) {
                 AWSCloud.addExtraParameters( parameters, getProvider().getTagFilterParams( options.getTags() ) );
@@ -399,28 +397,19 @@ public class EBSVolume extends AbstractVolumeSupport<AWSCloud> {
 
             method = new EC2Method( getProvider(), parameters );
             try {
-                doc = method.invoke();
+                method.invoke(new DescribeVolumesResponseParser(this, ctx, list) {
+                    @Override
+                    protected void emit( @Nonnull Volume volume ) throws CloudException, InternalException {
+                        if( options == null || options.matches(volume) ) {
+                            super.emit(volume);
+                        }
+                    }
+                });
             }
             catch( EC2Exception e ) {
                 logger.error(e.getSummary());
                 throw new CloudException(e);
             }
-            blocks = doc.getElementsByTagName("volumeSet");
-            for( int i=0; i<blocks.getLength(); i++ ) {
-                NodeList items = blocks.item(i).getChildNodes();
-
-                for( int j=0; j<items.getLength(); j++ ) {
-                    Node item = items.item(j);
-
-                    if( item.getNodeName().equals("item") ) {
-                        Volume volume = toVolume( ctx, item );
-
-                        if( volume != null && (options == null || options.matches(volume)) ) {
-                            list.add(volume);
-                        }
-                    }
-                }
-            }
             return list;
         }
         finally {
@@ -562,7 +551,7 @@ public class EBSVolume extends AbstractVolumeSupport<AWSCloud> {
         return new ResourceStatus(volumeId, state);
     }
 
-	private @Nullable Volume toVolume(@Nonnull ProviderContext ctx, @Nullable Node node) throws CloudException {
+	@Nullable Volume toVolume(@Nonnull ProviderContext ctx, @Nullable Node node) throws CloudException {
         if( node == null ) {
             return null;
         }
@@ -73,7 +73,7 @@ public class EC2Exception extends CloudException {
      * @return dasein cloud error type
      */
     private static CloudErrorType toCloudErrorType(String code) {
-        if ("Throttling".equals(code)) {
+        if ("Throttling".equals(code) || "RequestLimitExceeded".equals(code)) {
             return CloudErrorType.THROTTLING;
         } else if ("TooManyBuckets".equals(code)) {
             return CloudErrorType.QUOTA;
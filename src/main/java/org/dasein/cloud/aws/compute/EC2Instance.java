@@ -36,6 +36,9 @@ import org.dasein.cloud.util.APITrace;
 import org.dasein.cloud.util.Cache;
 import org.dasein.cloud.util.CacheLevel;
 import org.dasein.util.CalendarWrapper;
+import org.dasein.util.Jiterator;
+import org.dasein.util.JiteratorPopulator;
+import org.dasein.util.PopulatorThread;
 import org.dasein.util.uom.storage.Gigabyte;
 import org.dasein.util.uom.storage.Megabyte;
 import org.dasein.util.uom.storage.Storage;
@@ -60,6 +63,44 @@ import java.util.concurrent.*;
 public class EC2Instance extends AbstractVMSupport<AWSCloud> {
     static private final Logger   logger       = Logger.getLogger(EC2Instance.class);
     static private final Calendar UTC_CALENDAR = Calendar.getInstance(new SimpleTimeZone(0, "GMT"));
+    static private final int      DEFAULT_METRIC_THREADS = 16;
+
+    /**
+     * Pools for CloudWatch queries by number of threads, so that providers configured alike share one.
+     */
+    static private final ConcurrentMap<Integer, ExecutorService> metricsPools = new ConcurrentHashMap<Integer, ExecutorService>();
+
+    static private final int             LAUNCH_THREADS = 16;
+    static private final ExecutorService launchPool;
+
+    static private final int                      PASSWORD_THREADS = 4;
+    static private final ScheduledExecutorService passwordPool;
+
+    static {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(LAUNCH_THREADS, LAUNCH_THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "dasein-launch-pool");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        pool.allowCoreThreadTimeOut(true);
+        launchPool = pool;
+
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(PASSWORD_THREADS, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "dasein-password-pool");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        scheduler.setKeepAliveTime(60L, TimeUnit.SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+        passwordPool = scheduler;
+    }
 
     private transient volatile EC2InstanceCapabilities capabilities;
 
@@ -162,32 +203,16 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
         }
     }
 
-    static private class Metric implements Comparable<Metric> {
-        int    samples   = 0;
-        long   timestamp = -1L;
-        double minimum   = -1.0;
-        double maximum   = 0.0;
-        double average   = 0.0;
-
-        public int compareTo( Metric other ) {
-            if( other == this ) {
-                return 0;
-            }
-            return ( Long.valueOf(timestamp) ).compareTo(other.timestamp);
-        }
-    }
-
-    private Set<Metric> calculate( String metric, String unit, String id, boolean idIsVolumeId, long startTimestamp, long endTimestamp ) throws CloudException, InternalException {
+    private @Nonnull MetricSeries calculate( String metric, String unit, String id, boolean idIsVolumeId, long startTimestamp, long endTimestamp ) throws CloudException, InternalException {
         APITrace.begin(getProvider(), "calculateVMAnalytics");
         try {
             if( !getProvider().getEC2Provider().isAWS() ) {
-                return new TreeSet<Metric>();
+                return new MetricSeries(0);
             }
             Map<String, String> parameters = getProvider().getStandardCloudWatchParameters(getContext(), EC2Method.GET_METRIC_STATISTICS);
             SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ");
-            fmt.setCalendar(UTC_CALENDAR);
+            fmt.setTimeZone(UTC_CALENDAR.getTimeZone());
             EC2Method method;
-            NodeList blocks;
             Document doc;
 
             parameters.put("EndTime", fmt.format(new Date(endTimestamp)));
@@ -208,43 +233,12 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
                 logger.error(e.getSummary());
                 throw new CloudException(e);
             }
-            TreeSet<Metric> metrics = new TreeSet<Metric>();
-            fmt = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
-            fmt.setCalendar(UTC_CALENDAR);
-            blocks = doc.getElementsByTagName("member");
-            for( int i = 0; i < blocks.getLength(); i++ ) {
-                NodeList items = blocks.item(i).getChildNodes();
-                Metric m = new Metric();
-
-                for( int j = 0; j < items.getLength(); j++ ) {
-                    Node item = items.item(j);
-
-                    if( item.getNodeName().equals("Timestamp") ) {
-                        String dateString = item.getFirstChild().getNodeValue();
-
-                        try {
-                            m.timestamp = fmt.parse(dateString).getTime();
-                        } catch( ParseException e ) {
-                            logger.error(e);
-                            throw new InternalException(e);
-                        }
-                    }
-                    else if( item.getNodeName().equals("Average") ) {
-                        m.average = Double.parseDouble(item.getFirstChild().getNodeValue());
-                    }
-                    else if( item.getNodeName().equals("Minimum") ) {
-                        m.minimum = Double.parseDouble(item.getFirstChild().getNodeValue());
-                    }
-                    else if( item.getNodeName().equals("Maximum") ) {
-                        m.maximum = Double.parseDouble(item.getFirstChild().getNodeValue());
-                    }
-                    else if( item.getNodeName().equals("Samples") ) {
-                        m.samples = ( int ) Double.parseDouble(item.getFirstChild().getNodeValue());
-                    }
-                }
-                metrics.add(m);
+            try {
+                return MetricSeries.parse(doc);
+            } catch( ParseException e ) {
+                logger.error(e);
+                throw new InternalException(e);
             }
-            return metrics;
         } finally {
             APITrace.end();
         }
@@ -254,27 +248,119 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
         public void apply( VmStatistics stats, long start, long end, int samples, double average, double minimum, double maximum );
     }
 
-    private void calculate( VmStatistics stats, String metricName, String unit, String id, boolean idIsVolumeId, long startTimestamp, long endTimestamp, ApplyCalcs apply ) throws CloudException, InternalException {
-        Set<Metric> metrics = calculate(metricName, unit, id, idIsVolumeId, startTimestamp, endTimestamp);
+    /**
+     * A metric query sent to CloudWatch on the shared metrics pool, along with how its result is applied to the
+     * statistics of a virtual machine once it arrives.
+     */
+    static private class PendingMetric {
+        final Future<MetricSeries> metrics;
+        final ApplyCalcs          apply;
+
+        PendingMetric( @Nonnull Future<MetricSeries> metrics, @Nonnull ApplyCalcs apply ) {
+            this.metrics = metrics;
+            this.apply = apply;
+        }
+    }
+
+    /**
+     * @return the pool for CloudWatch queries with as many threads as the context asks for
+     */
+    private @Nonnull ExecutorService getMetricsPool() {
+        int threads = Math.max(1, getProvider().getIntProperty(AWSCloud.DSN_METRIC_THREADS, DEFAULT_METRIC_THREADS));
+        ExecutorService pool = metricsPools.get(threads);
+
+        if( pool == null ) {
+            ThreadPoolExecutor created = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "dasein-metrics-pool");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+            created.allowCoreThreadTimeOut(true);
+            pool = metricsPools.putIfAbsent(threads, created);
+            if( pool == null ) {
+                pool = created;
+            }
+            else {
+                created.shutdown();
+            }
+        }
+        return pool;
+    }
+
+    private @Nonnull PendingMetric fetch( final String metricName, final String unit, final String id, final boolean idIsVolumeId, final long startTimestamp, final long endTimestamp, @Nonnull ApplyCalcs apply ) {
+        Future<MetricSeries> metrics = getMetricsPool().submit(new Callable<MetricSeries>() {
+            @Override
+            public MetricSeries call() throws Exception {
+                return calculate(metricName, unit, id, idIsVolumeId, startTimestamp, endTimestamp);
+            }
+        });
+
+        return new PendingMetric(metrics, apply);
+    }
+
+    /**
+     * Waits for metric queries and applies their results in order. If any query fails, the rest are cancelled.
+     */
+    private void summarize( @Nonnull VmStatistics stats, @Nonnull List<PendingMetric> pending, long startTimestamp, long endTimestamp ) throws CloudException, InternalException {
+        try {
+            for( PendingMetric p : pending ) {
+                summarize(stats, await(p), startTimestamp, endTimestamp, p.apply);
+            }
+        }
+        finally {
+            for( PendingMetric p : pending ) {
+                p.metrics.cancel(true);
+            }
+        }
+    }
+
+    private @Nonnull MetricSeries await( @Nonnull PendingMetric pending ) throws CloudException, InternalException {
+        try {
+            return pending.metrics.get();
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InternalException(e);
+        }
+        catch( ExecutionException e ) {
+            Throwable cause = e.getCause();
+
+            if( cause instanceof CloudException ) {
+                throw ( CloudException ) cause;
+            }
+            if( cause instanceof InternalException ) {
+                throw ( InternalException ) cause;
+            }
+            throw new InternalException(cause);
+        }
+    }
+
+    private void summarize( VmStatistics stats, MetricSeries metrics, long startTimestamp, long endTimestamp, ApplyCalcs apply ) {
         double minimum = -1.0, maximum = 0.0, sum = 0.0;
         long start = -1L, end = 0L;
         int samples = 0;
 
-        for( Metric metric : metrics ) {
+        for( int i = 0; i < metrics.size(); i++ ) {
+            long timestamp = metrics.getTimestamp(i);
+
             if( start < 0L ) {
-                start = metric.timestamp;
+                start = timestamp;
             }
-            if( metric.timestamp > end ) {
-                end = metric.timestamp;
+            if( timestamp > end ) {
+                end = timestamp;
             }
             samples++;
-            if( metric.minimum < minimum || minimum < 0.0 ) {
-                minimum = metric.minimum;
+            if( metrics.getMinimum(i) < minimum || minimum < 0.0 ) {
+                minimum = metrics.getMinimum(i);
             }
-            if( metric.maximum > maximum ) {
-                maximum = metric.maximum;
+            if( metrics.getMaximum(i) > maximum ) {
+                maximum = metrics.getMaximum(i);
             }
-            sum += metric.average;
+            sum += metrics.getAverage(i);
         }
         if( start < 0L ) {
             start = startTimestamp;
@@ -291,7 +377,7 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
         apply.apply(stats, start, end, samples, samples == 0 ? 0.0 : sum / samples, minimum, maximum);
     }
 
-    private void calculateCpuUtilization( VmStatistics statistics, String instanceId, long startTimestamp, long endTimestamp ) throws CloudException, InternalException {
+    private @Nonnull PendingMetric fetchCpuUtilization( String instanceId, long startTimestamp, long endTimestamp ) {
         ApplyCalcs apply = new ApplyCalcs() {
             public void apply( VmStatistics stats, long start, long end, int samples, double average, double minimum, double maximum ) {
                 stats.setSamples(samples);
@@ -302,10 +388,10 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
                 stats.setEndTimestamp(end);
             }
         };
-        calculate(statistics, "CPUUtilization", "Percent", instanceId, false, startTimestamp, endTimestamp, apply);
+        return fetch("CPUUtilization", "Percent", instanceId, false, startTimestamp, endTimestamp, apply);
     }
 
-    private void calculateDiskReadBytes( VmStatistics statistics, String id, boolean idIsVolumeId, long startTimestamp, long endTimestamp ) throws CloudException, InternalException {
+    private @Nonnull PendingMetric fetchDiskReadBytes( String id, boolean idIsVolumeId, long startTimestamp, long endTimestamp ) {
         ApplyCalcs apply = new ApplyCalcs() {
             public void apply( VmStatistics stats, long start, long end, int samples, double average, double minimum, double maximum ) {
                 stats.setMinimumDiskReadBytes(minimum);
@@ -313,10 +399,10 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
                 stats.setMaximumDiskReadBytes(maximum);
             }
         };
-        calculate(statistics, idIsVolumeId ? "VolumeReadBytes" : "DiskReadBytes", "Bytes", id, idIsVolumeId, startTimestamp, endTimestamp, apply);
+        return fetch(idIsVolumeId ? "VolumeReadBytes" : "DiskReadBytes", "Bytes", id, idIsVolumeId, startTimestamp, endTimestamp, apply);
     }
 
-    private void calculateDiskReadOps( VmStatistics statistics, String id, boolean idIsVolumeId, long startTimestamp, long endTimestamp ) throws CloudException, InternalException {
+    private @Nonnull PendingMetric fetchDiskReadOps( String id, boolean idIsVolumeId, long startTimestamp, long endTimestamp ) {
         ApplyCalcs apply = new ApplyCalcs() {
             public void apply( VmStatistics stats, long start, long end, int samples, double average, double minimum, double maximum ) {
                 stats.setMinimumDiskReadOperations(minimum);
@@ -324,10 +410,10 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
                 stats.setMaximumDiskReadOperations(maximum);
             }
         };
-        calculate(statistics, idIsVolumeId ? "VolumeReadOps" : "DiskReadOps", "Count", id, idIsVolumeId, startTimestamp, endTimestamp, apply);
+        return fetch(idIsVolumeId ? "VolumeReadOps" : "DiskReadOps", "Count", id, idIsVolumeId, startTimestamp, endTimestamp, apply);
     }
 
-    private void calculateDiskWriteBytes( VmStatistics statistics, String id, boolean idIsVolumeId, long startTimestamp, long endTimestamp ) throws CloudException, InternalException {
+    private @Nonnull PendingMetric fetchDiskWriteBytes( String id, boolean idIsVolumeId, long startTimestamp, long endTimestamp ) {
         ApplyCalcs apply = new ApplyCalcs() {
             public void apply( VmStatistics stats, long start, long end, int samples, double average, double minimum, double maximum ) {
                 stats.setMinimumDiskWriteBytes(minimum);
@@ -335,10 +421,10 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
                 stats.setMaximumDiskWriteBytes(maximum);
             }
         };
-        calculate(statistics, idIsVolumeId ? "VolumeWriteBytes" : "DiskWriteBytes", "Bytes", id, idIsVolumeId, startTimestamp, endTimestamp, apply);
+        return fetch(idIsVolumeId ? "VolumeWriteBytes" : "DiskWriteBytes", "Bytes", id, idIsVolumeId, startTimestamp, endTimestamp, apply);
     }
 
-    private void calculateDiskWriteOps( VmStatistics statistics, String id, boolean idIsVolumeId, long startTimestamp, long endTimestamp ) throws CloudException, InternalException {
+    private @Nonnull PendingMetric fetchDiskWriteOps( String id, boolean idIsVolumeId, long startTimestamp, long endTimestamp ) {
         ApplyCalcs apply = new ApplyCalcs() {
             public void apply( VmStatistics stats, long start, long end, int samples, double average, double minimum, double maximum ) {
                 stats.setMinimumDiskWriteOperations(minimum);
@@ -346,10 +432,10 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
                 stats.setMaximumDiskWriteOperations(maximum);
             }
         };
-        calculate(statistics, idIsVolumeId ? "VolumeWriteOps" : "DiskWriteOps", "Count", id, idIsVolumeId, startTimestamp, endTimestamp, apply);
+        return fetch(idIsVolumeId ? "VolumeWriteOps" : "DiskWriteOps", "Count", id, idIsVolumeId, startTimestamp, endTimestamp, apply);
     }
 
-    private void calculateNetworkIn( VmStatistics statistics, String instanceId, long startTimestamp, long endTimestamp ) throws CloudException, InternalException {
+    private @Nonnull PendingMetric fetchNetworkIn( String instanceId, long startTimestamp, long endTimestamp ) {
         ApplyCalcs apply = new ApplyCalcs() {
             public void apply( VmStatistics stats, long start, long end, int samples, double average, double minimum, double maximum ) {
                 stats.setMinimumNetworkIn(minimum);
@@ -357,10 +443,10 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
                 stats.setMaximumNetworkIn(maximum);
             }
         };
-        calculate(statistics, "NetworkIn", "Bytes", instanceId, false, startTimestamp, endTimestamp, apply);
+        return fetch("NetworkIn", "Bytes", instanceId, false, startTimestamp, endTimestamp, apply);
     }
 
-    private void calculateNetworkOut( VmStatistics statistics, String instanceId, long startTimestamp, long endTimestamp ) throws CloudException, InternalException {
+    private @Nonnull PendingMetric fetchNetworkOut( String instanceId, long startTimestamp, long endTimestamp ) {
         ApplyCalcs apply = new ApplyCalcs() {
             public void apply( VmStatistics stats, long start, long end, int samples, double average, double minimum, double maximum ) {
                 stats.setMinimumNetworkOut(minimum);
@@ -368,7 +454,7 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
                 stats.setMaximumNetworkOut(maximum);
             }
         };
-        calculate(statistics, "NetworkOut", "Bytes", instanceId, false, startTimestamp, endTimestamp, apply);
+        return fetch("NetworkOut", "Bytes", instanceId, false, startTimestamp, endTimestamp, apply);
     }
 
     @Override
@@ -489,6 +575,171 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
         }
     }
 
+    /**
+     * Polls for the initial password of a newly launched instance on the password pool. GetPasswordData answers
+     * without a password for several minutes after launch, so the password is asked for again with a growing delay
+     * until it is there, the deadline passes or a few requests in a row fail. Serves as the password callback of the
+     * instance: it answers with the password polled for in the background and asks the cloud itself if none was
+     * available in time.
+     */
+    static class PasswordFetch implements Callable<String> {
+        static private final int  ATTEMPTS      = 3;
+        static private final long FIRST_DELAY   = CalendarWrapper.SECOND * 15L;
+        static private final long MAXIMUM_DELAY = CalendarWrapper.MINUTE * 2L;
+        static private final long TIMEOUT       = CalendarWrapper.MINUTE * 30L;
+        static private final long WAIT          = CalendarWrapper.SECOND * 10L;
+
+        private final String                 instanceId;
+        private final AWSCloud               provider;
+        private final GetPassCallable        fetch;
+        private final long                   timeout;
+        private final SettableFuture<String> fetched  = new SettableFuture<String>();
+        private long                         deadline;
+        private long                         delay;
+        private int                          failures = 0;
+
+        private final Runnable poll = new Runnable() {
+            @Override
+            public void run() {
+                poll();
+            }
+        };
+
+        PasswordFetch( @Nonnull String instanceId, @Nonnull AWSCloud provider ) {
+            this(instanceId, provider, FIRST_DELAY, TIMEOUT);
+        }
+
+        PasswordFetch( @Nonnull String instanceId, @Nonnull AWSCloud provider, long firstDelay, long timeout ) {
+            this.instanceId = instanceId;
+            this.provider = provider;
+            this.fetch = new GetPassCallable(instanceId, provider);
+            this.delay = firstDelay;
+            this.timeout = timeout;
+        }
+
+        /**
+         * Starts polling in the background.
+         * @return this fetch
+         */
+        @Nonnull PasswordFetch start() {
+            deadline = System.currentTimeMillis() + timeout;
+            provider.hold();
+            try {
+                passwordPool.execute(poll);
+            } catch( RejectedExecutionException e ) {
+                finish(null, e);
+            }
+            return this;
+        }
+
+        private void poll() {
+            try {
+                String password = fetch.call();
+
+                failures = 0;
+                if( password != null || System.currentTimeMillis() + delay > deadline ) {
+                    finish(password, null);
+                    return;
+                }
+                logger.debug("No password for " + instanceId + " yet, asking again in " + delay + "ms");
+            } catch( Throwable t ) {
+                if( ++failures >= ATTEMPTS || System.currentTimeMillis() + delay > deadline ) {
+                    finish(null, t);
+                    return;
+                }
+                logger.debug("Retrying password retrieval for " + instanceId + ": " + t.getMessage());
+            }
+            long next = delay;
+
+            // updated before the next poll is scheduled, as that poll may run on another thread at once
+            delay = Math.min(delay * 2, MAXIMUM_DELAY);
+            try {
+                passwordPool.schedule(poll, next, TimeUnit.MILLISECONDS);
+            } catch( RejectedExecutionException e ) {
+                finish(null, e);
+            }
+        }
+
+        private void finish( @Nullable String password, @Nullable Throwable failure ) {
+            try {
+                if( failure == null ) {
+                    fetched.set(password);
+                }
+                else {
+                    fetched.setException(failure);
+                }
+            } finally {
+                provider.release();
+            }
+        }
+
+        @Override
+        public String call() throws CloudException, InternalException {
+            try {
+                String password = fetched.get(WAIT, TimeUnit.MILLISECONDS);
+
+                if( password != null ) {
+                    return password;
+                }
+            } catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InternalException(e);
+            } catch( ExecutionException e ) {
+                logger.warn("Unable to retrieve password in the background: " + e.getCause().getMessage());
+            } catch( TimeoutException e ) {
+                logger.debug("Still polling for the password of " + instanceId + ", asking the cloud directly");
+            }
+            return fetch.call();
+        }
+    }
+
+    /**
+     * Gives a newly launched server its initial password, or a callback that fetches the password once the server
+     * has one. With {@link AWSCloud#DSN_ASYNC_PASSWORDS} set, only Windows servers are polled for a password in
+     * the background; the bootstrap key is the key pair Unix servers are launched with too, and they never get one.
+     * @param server the newly launched server
+     */
+    void assignPassword( @Nonnull VirtualMachine server ) {
+        if( isAsyncPasswords() ) {
+            Platform platform = server.getPlatform();
+
+            if( platform != null && platform.isWindows() ) {
+                server.setRootPassword(null);
+                server.setPasswordCallback(new PasswordFetch(server.getProviderVirtualMachineId(), getProvider()).start());
+            }
+            return;
+        }
+        try {
+            Callable<String> callable = new GetPassCallable(server.getProviderVirtualMachineId(), getProvider());
+            String password = callable.call();
+
+            if( password == null ) {
+                server.setRootPassword(null);
+                server.setPasswordCallback(callable);
+            }
+            else {
+                server.setRootPassword(password);
+            }
+            server.setPlatform(Platform.WINDOWS);
+        } catch( CloudException e ) {
+            logger.warn(e.getMessage());
+        } catch( InternalException e ) {
+            logger.warn(e.getMessage());
+        }
+    }
+
+    /**
+     * @return true if the initial passwords of launched servers are polled for in the background
+     * @see AWSCloud#DSN_ASYNC_PASSWORDS
+     */
+    private boolean isAsyncPasswords() {
+        ProviderContext ctx = getContext();
+        Properties p = ( ctx == null ? null : ctx.getCustomProperties() );
+        String value = ( p == null ? null : p.getProperty(AWSCloud.DSN_ASYNC_PASSWORDS) );
+
+        return ( value != null && value.trim().equalsIgnoreCase("true") );
+    }
+
     @Override
     public @Nullable String getUserData( @Nonnull String instanceId ) throws InternalException, CloudException {
         APITrace.begin(getProvider(), "getUserData");
@@ -590,7 +841,7 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
             blocks = doc.getElementsByTagName("timestamp");
             for( int i = 0; i < blocks.getLength(); i++ ) {
                 SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-                fmt.setCalendar(UTC_CALENDAR);
+                fmt.setTimeZone(UTC_CALENDAR.getTimeZone());
                 String ts = blocks.item(i).getFirstChild().getNodeValue();
                 long timestamp;
 
@@ -678,7 +929,18 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
     }
 
     private @Nonnull List<VirtualMachine> describeInstances(@Nonnull String ... instanceIds) throws InternalException, CloudException {
+        return describeInstances(false, instanceIds);
+    }
+
+    /**
+     * @param filtered true to name the instances in the <code>instance-id</code> filter, which leaves out instances
+     *                 EC2 does not know yet instead of failing the whole request with <code>InvalidInstanceID</code>
+     * @param instanceIds the IDs of the instances
+     * @return those of the instances that were found
+     */
+    private @Nonnull List<VirtualMachine> describeInstances(boolean filtered, @Nonnull String ... instanceIds) throws InternalException, CloudException {
         List<VirtualMachine> results = new ArrayList<VirtualMachine>();
+        Set<String> requested = new HashSet<String>(Arrays.asList(instanceIds));
         ProviderContext ctx = getContext();
 
         if( ctx == null ) {
@@ -707,7 +969,12 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
         NodeList blocks;
         Document doc;
 
-        AWSCloud.addIndexedParameters(parameters, "InstanceId", instanceIds);
+        if( filtered ) {
+            AWSCloud.addFilterParameters(parameters, 1, "instance-id", ( Object[] ) instanceIds);
+        }
+        else {
+            AWSCloud.addIndexedParameters(parameters, "InstanceId", instanceIds);
+        }
 
         method = new EC2Method(getProvider(), parameters);
         try {
@@ -715,10 +982,15 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
         } catch( EC2Exception e ) {
             String code = e.getCode();
 
-            if( code != null && code.startsWith("InvalidInstanceID") ) {
+            // a filtered lookup fails only on a malformed ID, which the caller must learn about to leave it out
+            if( !filtered && code != null && code.startsWith("InvalidInstanceID") ) {
                 return results;
             }
             logger.error(e.getSummary());
+            if( filtered ) {
+                // keeps the error code for the instance waiter
+                throw e;
+            }
             throw new CloudException(e);
         }
         blocks = doc.getElementsByTagName("instancesSet");
@@ -747,7 +1019,7 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
                         addresses = Collections.emptyList();
                     }
                     VirtualMachine server = toVirtualMachine(ctx, instance, addresses);
-                    if( server != null && Arrays.binarySearch(instanceIds, server.getProviderVirtualMachineId()) >= 0) {
+                    if( server != null && requested.contains(server.getProviderVirtualMachineId()) ) {
                         results.add(server);
                     }
                 }
@@ -778,10 +1050,15 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
 
     @Override
     public @Nullable VirtualMachineProduct getProduct( @Nonnull String sizeId ) throws CloudException, InternalException {
+        VirtualMachineProduct product = getProductIndex().getProduct(sizeId);
+
+        if( product == null || product.getArchitectures() == null ) {
+            return null;
+        }
         for( Architecture a : getCapabilities().listSupportedArchitectures() ) {
-            for( VirtualMachineProduct prd : listProducts(null, a) ) {
-                if( prd.getProviderProductId().equals(sizeId) ) {
-                    return prd;
+            for( Architecture supported : product.getArchitectures() ) {
+                if( a.equals(supported) ) {
+                    return product;
                 }
             }
         }
@@ -818,45 +1095,128 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
     public @Nonnull VmStatistics getVMStatistics( @Nonnull String instanceId, @Nonnegative long startTimestamp, @Nonnegative long endTimestamp ) throws InternalException, CloudException {
         APITrace.begin(getProvider(), "getVMStatistics");
         try {
+            long[] period = getStatisticsPeriod(startTimestamp, endTimestamp);
             VmStatistics statistics = new VmStatistics();
+            VirtualMachine vm = getVirtualMachine(instanceId);
 
-            if( endTimestamp < 1L ) {
-                endTimestamp = System.currentTimeMillis() + 1000L;
+            if( vm != null ) {
+                summarize(statistics, fetchStatistics(vm, period[0], period[1]), period[0], period[1]);
             }
-            if( startTimestamp < ( System.currentTimeMillis() - ( 2L * CalendarWrapper.DAY ) ) ) {
-                startTimestamp = System.currentTimeMillis() - ( 2L * CalendarWrapper.DAY );
-                if( startTimestamp > ( endTimestamp - ( 2L * CalendarWrapper.MINUTE ) ) ) {
-                    endTimestamp = startTimestamp + ( 2L * CalendarWrapper.MINUTE );
-                }
+            return statistics;
+        } finally {
+            APITrace.end();
+        }
+    }
+
+    /**
+     * Provides statistics for many virtual machines at once. The machines are described in a single request and
+     * the CloudWatch queries for all of them run on the shared metrics pool, which bounds how many are in flight.
+     * @param instanceIds the virtual machines to provide statistics for
+     * @param startTimestamp the beginning of the period, which is moved to no earlier than two days ago
+     * @param endTimestamp the end of the period
+     * @return the statistics of each virtual machine that exists and whose metrics could be read, keyed by its ID
+     * @throws InternalException an error occurred within Dasein Cloud processing the request
+     * @throws CloudException an error occurred in AWS processing the request
+     */
+    public @Nonnull Map<String, VmStatistics> getVMStatistics( @Nonnull Collection<String> instanceIds, @Nonnegative long startTimestamp, @Nonnegative long endTimestamp ) throws InternalException, CloudException {
+        APITrace.begin(getProvider(), "getVMStatistics");
+        try {
+            Map<String, VmStatistics> results = new LinkedHashMap<String, VmStatistics>();
+
+            if( instanceIds.isEmpty() ) {
+                return results;
             }
-            else if( startTimestamp > ( endTimestamp - ( 2L * CalendarWrapper.MINUTE ) ) ) {
-                startTimestamp = endTimestamp - ( 2L * CalendarWrapper.MINUTE );
+            long[] period = getStatisticsPeriod(startTimestamp, endTimestamp);
+            List<VirtualMachine> vms = describeInstances(instanceIds.toArray(new String[instanceIds.size()]));
+
+            if( vms.isEmpty() && instanceIds.size() > 1 ) {
+                // one unknown ID fails the whole request, so fall back to describing them one by one
+                for( String instanceId : instanceIds ) {
+                    VirtualMachine vm = getVirtualMachine(instanceId);
+
+                    if( vm != null ) {
+                        vms.add(vm);
+                    }
+                }
             }
+            Map<String, List<PendingMetric>> pending = new LinkedHashMap<String, List<PendingMetric>>();
 
-            String id = instanceId;
-            boolean idIsVolumeId = false;
-            VirtualMachine vm = getVirtualMachine(instanceId);
-            if( vm != null ) {
-                if( vm.isPersistent() ) {
-                    if( vm.getProviderVolumeIds(getProvider()).length > 0 ) {
-                        id = vm.getProviderVolumeIds(getProvider())[0];
-                        idIsVolumeId = true;
+            try {
+                for( VirtualMachine vm : vms ) {
+                    pending.put(vm.getProviderVirtualMachineId(), fetchStatistics(vm, period[0], period[1]));
+                }
+                for( Map.Entry<String, List<PendingMetric>> entry : pending.entrySet() ) {
+                    VmStatistics statistics = new VmStatistics();
+
+                    try {
+                        summarize(statistics, entry.getValue(), period[0], period[1]);
+                    } catch( CloudException e ) {
+                        // one machine failing does not cost the others their statistics
+                        logger.warn("Unable to read the statistics of " + entry.getKey() + ": " + e.getMessage());
+                        continue;
                     }
+                    results.put(entry.getKey(), statistics);
                 }
-                calculateCpuUtilization(statistics, instanceId, startTimestamp, endTimestamp);
-                calculateDiskReadBytes(statistics, id, idIsVolumeId, startTimestamp, endTimestamp);
-                calculateDiskReadOps(statistics, id, idIsVolumeId, startTimestamp, endTimestamp);
-                calculateDiskWriteBytes(statistics, id, idIsVolumeId, startTimestamp, endTimestamp);
-                calculateDiskWriteOps(statistics, id, idIsVolumeId, startTimestamp, endTimestamp);
-                calculateNetworkIn(statistics, instanceId, startTimestamp, endTimestamp);
-                calculateNetworkOut(statistics, instanceId, startTimestamp, endTimestamp);
             }
-            return statistics;
+            finally {
+                for( List<PendingMetric> metrics : pending.values() ) {
+                    for( PendingMetric p : metrics ) {
+                        p.metrics.cancel(true);
+                    }
+                }
+            }
+            return results;
         } finally {
             APITrace.end();
         }
     }
 
+    private @Nonnull long[] getStatisticsPeriod( long startTimestamp, long endTimestamp ) {
+        if( endTimestamp < 1L ) {
+            endTimestamp = System.currentTimeMillis() + 1000L;
+        }
+        if( startTimestamp < ( System.currentTimeMillis() - ( 2L * CalendarWrapper.DAY ) ) ) {
+            startTimestamp = System.currentTimeMillis() - ( 2L * CalendarWrapper.DAY );
+            if( startTimestamp > ( endTimestamp - ( 2L * CalendarWrapper.MINUTE ) ) ) {
+                endTimestamp = startTimestamp + ( 2L * CalendarWrapper.MINUTE );
+            }
+        }
+        else if( startTimestamp > ( endTimestamp - ( 2L * CalendarWrapper.MINUTE ) ) ) {
+            startTimestamp = endTimestamp - ( 2L * CalendarWrapper.MINUTE );
+        }
+        return new long[] { startTimestamp, endTimestamp };
+    }
+
+    /**
+     * Sends the CloudWatch queries making up the statistics of a virtual machine. Disk metrics come from the
+     * first volume of EBS backed machines.
+     */
+    private @Nonnull List<PendingMetric> fetchStatistics( @Nonnull VirtualMachine vm, long startTimestamp, long endTimestamp ) throws InternalException, CloudException {
+        String instanceId = vm.getProviderVirtualMachineId();
+
+        if( vm.isPersistent() ) {
+            String[] volumeIds = vm.getProviderVolumeIds(getProvider());
+
+            if( volumeIds.length > 0 ) {
+                return fetchStatistics(instanceId, volumeIds[0], true, startTimestamp, endTimestamp);
+            }
+        }
+        return fetchStatistics(instanceId, instanceId, false, startTimestamp, endTimestamp);
+    }
+
+    private @Nonnull List<PendingMetric> fetchStatistics( @Nonnull String instanceId, @Nonnull String id, boolean idIsVolumeId, long startTimestamp, long endTimestamp ) {
+        List<PendingMetric> pending = new ArrayList<PendingMetric>();
+
+        pending.add(fetchCpuUtilization(instanceId, startTimestamp, endTimestamp));
+        pending.add(fetchDiskReadBytes(id, idIsVolumeId, startTimestamp, endTimestamp));
+        pending.add(fetchDiskReadOps(id, idIsVolumeId, startTimestamp, endTimestamp));
+        pending.add(fetchDiskWriteBytes(id, idIsVolumeId, startTimestamp, endTimestamp));
+        pending.add(fetchDiskWriteOps(id, idIsVolumeId, startTimestamp, endTimestamp));
+        pending.add(fetchNetworkIn(instanceId, startTimestamp, endTimestamp));
+        pending.add(fetchNetworkOut(instanceId, startTimestamp, endTimestamp));
+        return pending;
+    }
+
     @Override
     public @Nonnull Iterable<VmStatistics> getVMStatisticsForPeriod( @Nonnull String instanceId, long startTimestamp, long endTimestamp ) throws InternalException, CloudException {
         APITrace.begin(getProvider(), "getVMStatisticsForPeriod");
@@ -873,28 +1233,6 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
             else if( startTimestamp > ( endTimestamp - ( 2L * CalendarWrapper.MINUTE ) ) ) {
                 startTimestamp = endTimestamp - ( 2L * CalendarWrapper.MINUTE );
             }
-            TreeMap<Integer, VmStatistics> statMap = new TreeMap<Integer, VmStatistics>();
-            int minutes = ( int ) ( ( endTimestamp - startTimestamp ) / CalendarWrapper.MINUTE );
-
-            for( int i = 1; i <= minutes; i++ ) {
-                statMap.put(i, new VmStatistics());
-            }
-            Set<Metric> metrics = calculate("CPUUtilization", "Percent", instanceId, false, startTimestamp, endTimestamp);
-            for( Metric m : metrics ) {
-                int minute = 1 + ( int ) ( ( m.timestamp - startTimestamp ) / CalendarWrapper.MINUTE );
-                VmStatistics stats = statMap.get(minute);
-
-                if( stats == null ) {
-                    stats = new VmStatistics();
-                    statMap.put(minute, stats);
-                }
-                stats.setAverageCpuUtilization(m.average);
-                stats.setMaximumCpuUtilization(m.maximum);
-                stats.setMinimumCpuUtilization(m.minimum);
-                stats.setStartTimestamp(m.timestamp);
-                stats.setEndTimestamp(m.timestamp);
-                stats.setSamples(m.samples);
-            }
             String id = instanceId;
             boolean idIsVolumeId = false;
             VirtualMachine vm = getVirtualMachine(instanceId);
@@ -904,116 +1242,66 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
                     idIsVolumeId = true;
                 }
             }
-            metrics = calculate(idIsVolumeId ? "VolumeReadBytes" : "DiskReadBytes", "Bytes", id, idIsVolumeId, startTimestamp, endTimestamp);
-            for( Metric m : metrics ) {
-                int minute = 1 + ( int ) ( ( m.timestamp - startTimestamp ) / CalendarWrapper.MINUTE );
-                VmStatistics stats = statMap.get(minute);
+            List<PendingMetric> pending = fetchStatistics(instanceId, id, idIsVolumeId, startTimestamp, endTimestamp);
 
-                if( stats == null ) {
-                    stats = new VmStatistics();
-                    statMap.put(minute, stats);
-                }
-                stats.setAverageDiskReadBytes(m.average);
-                stats.setMinimumDiskReadBytes(m.minimum);
-                stats.setMaximumDiskReadBytes(m.maximum);
-                if( stats.getSamples() < 1 ) {
-                    stats.setSamples(m.samples);
-                }
-            }
-            metrics = calculate(idIsVolumeId ? "VolumeReadOps" : "DiskReadOps", "Count", id, idIsVolumeId, startTimestamp, endTimestamp);
-            for( Metric m : metrics ) {
-                int minute = 1 + ( int ) ( ( m.timestamp - startTimestamp ) / CalendarWrapper.MINUTE );
-                VmStatistics stats = statMap.get(minute);
-
-                if( stats == null ) {
-                    stats = new VmStatistics();
-                    statMap.put(minute, stats);
+            try {
+                MetricSeries[] series = new MetricSeries[pending.size()];
+                long first = Long.MAX_VALUE, last = Long.MIN_VALUE;
+
+                for( int i = 0; i < series.length; i++ ) {
+                    series[i] = await(pending.get(i));
+                    if( series[i].size() > 0 ) {
+                        first = Math.min(first, toMinute(series[i].getTimestamp(0), startTimestamp));
+                        last = Math.max(last, toMinute(series[i].getTimestamp(series[i].size() - 1), startTimestamp));
+                    }
                 }
-                stats.setAverageDiskReadOperations(m.average);
-                stats.setMinimumDiskReadOperations(m.minimum);
-                stats.setMaximumDiskReadOperations(m.maximum);
-                if( stats.getSamples() < 1 ) {
-                    stats.setSamples(m.samples);
+                if( first > last ) {
+                    return Collections.emptyList();
                 }
-            }
-            metrics = calculate(idIsVolumeId ? "VolumeWriteBytes" : "DiskWriteBytes", "Bytes", id, idIsVolumeId, startTimestamp, endTimestamp);
-            for( Metric m : metrics ) {
-                int minute = 1 + ( int ) ( ( m.timestamp - startTimestamp ) / CalendarWrapper.MINUTE );
-                VmStatistics stats = statMap.get(minute);
+                // one slot per minute with data, filled in as the datapoints of each metric are applied
+                VmStatistics[] minutes = new VmStatistics[( int ) ( last - first + 1 )];
 
-                if( stats == null ) {
-                    stats = new VmStatistics();
-                    statMap.put(minute, stats);
-                }
-                stats.setAverageDiskWriteBytes(m.average);
-                stats.setMinimumDiskWriteBytes(m.minimum);
-                stats.setMaximumDiskWriteBytes(m.maximum);
-                if( stats.getSamples() < 1 ) {
-                    stats.setSamples(m.samples);
-                }
-            }
-            metrics = calculate(idIsVolumeId ? "VolumeWriteOps" : "DiskWriteOps", "Count", id, idIsVolumeId, startTimestamp, endTimestamp);
-            for( Metric m : metrics ) {
-                int minute = 1 + ( int ) ( ( m.timestamp - startTimestamp ) / CalendarWrapper.MINUTE );
-                VmStatistics stats = statMap.get(minute);
+                for( int i = 0; i < series.length; i++ ) {
+                    ApplyCalcs apply = pending.get(i).apply;
 
-                if( stats == null ) {
-                    stats = new VmStatistics();
-                    statMap.put(minute, stats);
-                }
-                stats.setAverageDiskWriteOperations(m.average);
-                stats.setMinimumDiskWriteOperations(m.minimum);
-                stats.setMaximumDiskWriteOperations(m.maximum);
-                if( stats.getSamples() < 1 ) {
-                    stats.setSamples(m.samples);
-                }
-            }
-            metrics = calculate("NetworkIn", "Bytes", instanceId, false, startTimestamp, endTimestamp);
-            for( Metric m : metrics ) {
-                int minute = 1 + ( int ) ( ( m.timestamp - startTimestamp ) / CalendarWrapper.MINUTE );
-                VmStatistics stats = statMap.get(minute);
+                    for( int j = 0; j < series[i].size(); j++ ) {
+                        long timestamp = series[i].getTimestamp(j);
+                        int slot = ( int ) ( toMinute(timestamp, startTimestamp) - first );
+                        VmStatistics stats = minutes[slot];
 
-                if( stats == null ) {
-                    stats = new VmStatistics();
-                    statMap.put(minute, stats);
-                }
-                stats.setAverageNetworkIn(m.average);
-                stats.setMinimumNetworkIn(m.minimum);
-                stats.setMaximumNetworkIn(m.maximum);
-                if( stats.getSamples() < 1 ) {
-                    stats.setSamples(m.samples);
+                        if( stats == null ) {
+                            stats = new VmStatistics();
+                            minutes[slot] = stats;
+                        }
+                        apply.apply(stats, timestamp, timestamp, series[i].getSamples(j), series[i].getAverage(j), series[i].getMinimum(j), series[i].getMaximum(j));
+                        if( stats.getSamples() < 1 ) {
+                            stats.setSamples(series[i].getSamples(j));
+                        }
+                    }
                 }
-            }
-            metrics = calculate("NetworkOut", "Bytes", instanceId, false, startTimestamp, endTimestamp);
-            for( Metric m : metrics ) {
-                int minute = 1 + ( int ) ( ( m.timestamp - startTimestamp ) / CalendarWrapper.MINUTE );
-                VmStatistics stats = statMap.get(minute);
+                ArrayList<VmStatistics> list = new ArrayList<VmStatistics>();
 
-                if( stats == null ) {
-                    stats = new VmStatistics();
-                    statMap.put(minute, stats);
-                }
-                stats.setAverageNetworkOut(m.average);
-                stats.setMinimumNetworkOut(m.minimum);
-                stats.setMaximumNetworkOut(m.maximum);
-                if( stats.getSamples() < 1 ) {
-                    stats.setSamples(m.samples);
+                for( VmStatistics stats : minutes ) {
+                    if( stats != null && stats.getSamples() > 0 ) {
+                        list.add(stats);
+                    }
                 }
+                return list;
             }
-            ArrayList<VmStatistics> list = new ArrayList<VmStatistics>();
-            for( Map.Entry<Integer, VmStatistics> entry : statMap.entrySet() ) {
-                VmStatistics stats = entry.getValue();
-
-                if( stats != null && stats.getSamples() > 0 ) {
-                    list.add(stats);
+            finally {
+                for( PendingMetric p : pending ) {
+                    p.metrics.cancel(true);
                 }
             }
-            return list;
         } finally {
             APITrace.end();
         }
     }
 
+    static private long toMinute( long timestamp, long startTimestamp ) {
+        return 1L + ( ( timestamp - startTimestamp ) / CalendarWrapper.MINUTE );
+    }
+
     @Override
     public Iterable<VirtualMachineStatus> getVMStatus( @Nullable String... vmIds ) throws InternalException, CloudException {
         VmStatusFilterOptions filterOptions = vmIds != null ? VmStatusFilterOptions.getInstance().withVmIds(vmIds) : VmStatusFilterOptions.getInstance();
@@ -1030,8 +1318,6 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
             }
             Map<String, String> params = getProvider().getStandardParameters(getContext(), EC2Method.DESCRIBE_INSTANCE_STATUS);
             EC2Method method;
-            NodeList blocks;
-            Document doc;
             Map<String, String> filterParameters = createFilterParametersFrom(filterOptions);
             AWSCloud.addExtraParameters(params, filterParameters);
             try {
@@ -1040,8 +1326,9 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
                 logger.error(e.getMessage());
                 throw new CloudException(e);
             }
+            ArrayList<VirtualMachineStatus> list = new ArrayList<VirtualMachineStatus>();
             try {
-                doc = method.invoke();
+                method.invoke(new DescribeInstanceStatusResponseParser(this, list));
             } catch( EC2Exception e ) {
                 String code = e.getCode();
                 if( code != null && code.startsWith("InvalidInstanceID") ) {
@@ -1053,50 +1340,6 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
                 logger.error(e.getMessage());
                 throw new CloudException(e);
             }
-            ArrayList<VirtualMachineStatus> list = new ArrayList<VirtualMachineStatus>();
-            blocks = doc.getElementsByTagName("instanceStatusSet");
-            for( int i = 0; i < blocks.getLength(); i++ ) {
-                NodeList instances = blocks.item(i).getChildNodes();
-                for( int j = 0; j < instances.getLength(); j++ ) {
-                    Node instance = instances.item(j);
-                    if( instance.getNodeName().equals("item") ) {
-                        NodeList attrs = instance.getChildNodes();
-                        VirtualMachineStatus vm = new VirtualMachineStatus();
-                        for( int k = 0; k < attrs.getLength(); k++ ) {
-                            Node attr = attrs.item(k);
-                            String name;
-                            name = attr.getNodeName();
-                            if( name.equals("instanceId") ) {
-                                String value = attr.getFirstChild().getNodeValue().trim();
-                                vm.setProviderVirtualMachineId(value);
-                            }
-                            else if( name.equals("systemStatus") ) {
-                                NodeList details = attr.getChildNodes();
-                                for( int l = 0; l < details.getLength(); l++ ) {
-                                    Node detail = details.item(l);
-                                    name = detail.getNodeName();
-                                    if( name.equals("status") ) {
-                                        String value = detail.getFirstChild().getNodeValue().trim();
-                                        vm.setProviderHostStatus(toVmStatus(value));
-                                    }
-                                }
-                            }
-                            else if( name.equals("instanceStatus") ) {
-                                NodeList details = attr.getChildNodes();
-                                for( int l = 0; l < details.getLength(); l++ ) {
-                                    Node detail = details.item(l);
-                                    name = detail.getNodeName();
-                                    if( name.equals("status") ) {
-                                        String value = detail.getFirstChild().getNodeValue().trim();
-                                        vm.setProviderVmStatus(toVmStatus(value));
-                                    }
-                                }
-                            }
-                        }
-                        list.add(vm);
-                    }
-                }
-            }
             return list;
         } catch( CloudException ce ) {
             ce.printStackTrace();
@@ -1164,33 +1407,13 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
     @Override
     public @Nonnull Iterable<VirtualMachineProduct> listProducts(@Nonnull String machineImageId, @Nonnull VirtualMachineProductFilterOptions options) throws InternalException, CloudException {
         MachineImage image = getProvider().getComputeServices().getImageSupport().getImage(machineImageId);
-        Iterable<VirtualMachineProduct> allProducts = listProducts(options, image.getArchitecture());
+        VMProductIndex index = getProductIndex();
+        int virtualizationTypes = index.getVirtualizationTypeMask(image.getProviderMetadata().get("virtualizationType"));
+        int rootDeviceTypes = VMProductIndex.getRootDeviceTypeMask(image.getType());
         List<VirtualMachineProduct> products = new ArrayList<VirtualMachineProduct>();
-        for( VirtualMachineProduct product : allProducts ) {
-            String vt = product.getProviderMetadata().get("vt");
-            String rdt = product.getProviderMetadata().get("rdt");
-            boolean matchesVt = false;
-            if( vt != null ) {
-                for( String type : vt.split(",") ) {
-                    if( type.equalsIgnoreCase(image.getProviderMetadata().get("virtualizationType")) ) {
-                        matchesVt = true;
-                        break;
-                    }
-                }
-            }
-            boolean matchesRdt = false;
-            if( rdt != null ) {
-                for( String type : rdt.split(",") ) {
-                    if( type.equalsIgnoreCase("ebs") && MachineImageType.VOLUME.equals(image.getType()) ) {
-                        matchesRdt = true;
-                        break;
-                    }
-                    else if( type.equalsIgnoreCase("instance") && MachineImageType.STORAGE.equals(image.getType()) ) {
-                        matchesRdt = true;
-                    }
-                }
-            }
-            if( matchesRdt && matchesVt ) {
+
+        for( VirtualMachineProduct product : listProducts(options, image.getArchitecture()) ) {
+            if( index.matches(product, virtualizationTypes, rootDeviceTypes) ) {
                 products.add(product);
             }
         }
@@ -1198,251 +1421,230 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
     }
 
     protected @Nonnull Iterable<VirtualMachineProduct> listProducts( @Nullable VirtualMachineProductFilterOptions options, @Nullable Architecture architecture ) throws InternalException, CloudException {
-        ProviderContext ctx = getContext();
         // FIXME: until core fixes the annotation for architecture let's assume it's nullable
-        String cacheName = "productsALL";
-        if( architecture != null ) {
-            cacheName = "products" + architecture.name();
+        List<VirtualMachineProduct> products = getProductIndex().list(architecture);
+
+        if( options == null ) {
+            return products;
         }
-        Cache<VirtualMachineProduct> cache = Cache.getInstance(getProvider(), cacheName, VirtualMachineProduct.class, CacheLevel.REGION, new TimePeriod<Day>(1, TimePeriod.DAY));
-        Iterable<VirtualMachineProduct> products = cache.get(ctx);
+        List<VirtualMachineProduct> matches = new ArrayList<VirtualMachineProduct>();
 
-        if( products == null ) {
-            List<VirtualMachineProduct> list = new ArrayList<VirtualMachineProduct>();
+        for( VirtualMachineProduct product : products ) {
+            if( options.matches(product) ) {
+                matches.add(product);
+            }
+        }
+        return matches;
+    }
 
-            try {
-                InputStream input = EC2Instance.class.getResourceAsStream("/org/dasein/cloud/aws/vmproducts.json");
+    /**
+     * Provides the products of the current region, read from the product resources once a day and indexed so
+     * that looking products up does not scan or re-parse them.
+     */
+    private @Nonnull VMProductIndex getProductIndex() throws InternalException, CloudException {
+        ProviderContext ctx = getContext();
+        Cache<VMProductIndex> cache = Cache.getInstance(getProvider(), "productIndex", VMProductIndex.class, CacheLevel.REGION, new TimePeriod<Day>(1, TimePeriod.DAY));
+        Iterable<VMProductIndex> indexes = cache.get(ctx);
 
-                if( input != null ) {
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(input));
-                    StringBuilder json = new StringBuilder();
-                    String line;
+        if( indexes != null ) {
+            Iterator<VMProductIndex> it = indexes.iterator();
 
-                    while( ( line = reader.readLine() ) != null ) {
-                        json.append(line);
-                        json.append("\n");
-                    }
-                    JSONArray arr = new JSONArray(json.toString());
-                    JSONObject toCache = null;
+            if( it.hasNext() ) {
+                return it.next();
+            }
+        }
+        VMProductIndex index = new VMProductIndex(loadProducts(ctx));
+
+        cache.put(ctx, Collections.singletonList(index));
+        return index;
+    }
 
-                    for( int i = 0; i < arr.length(); i++ ) {
-                        JSONObject productSet = arr.getJSONObject(i);
-                        String cloud, providerName;
+    private @Nonnull List<VirtualMachineProduct> loadProducts( @Nonnull ProviderContext ctx ) throws InternalException, CloudException {
+        List<VirtualMachineProduct> list = new ArrayList<VirtualMachineProduct>();
 
-                        if( productSet.has("cloud") ) {
-                            cloud = productSet.getString("cloud");
-                        }
-                        else {
-                            continue;
-                        }
-                        if( productSet.has("provider") ) {
-                            providerName = productSet.getString("provider");
-                        }
-                        else {
-                            continue;
-                        }
-                        if( !productSet.has("products") ) {
-                            continue;
-                        }
-                        if( toCache == null || ( providerName.equals("AWS") && cloud.equals("AWS") ) ) {
-                            toCache = productSet;
-                        }
-                        if( providerName.equalsIgnoreCase(getProvider().getProviderName()) && cloud.equalsIgnoreCase(getProvider().getCloudName()) ) {
-                            toCache = productSet;
-                            break;
-                        }
-                    }
-                    if( toCache == null ) {
-                        logger.warn("No products were defined");
-                        return Collections.emptyList();
-                    }
-                    JSONArray plist = toCache.getJSONArray("products");
+        try {
+            InputStream input = EC2Instance.class.getResourceAsStream("/org/dasein/cloud/aws/vmproducts.json");
 
-                    for( int i = 0; i < plist.length(); i++ ) {
-                        JSONObject product = plist.getJSONObject(i);
-                        boolean supported = true;
+            if( input != null ) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(input));
+                StringBuilder json = new StringBuilder();
+                String line;
 
-                        if( architecture != null ) {
-                            supported = false;
-                            if( product.has("architectures") ) {
-                                JSONArray architectures = product.getJSONArray("architectures");
+                while( ( line = reader.readLine() ) != null ) {
+                    json.append(line);
+                    json.append("\n");
+                }
+                JSONArray arr = new JSONArray(json.toString());
+                JSONObject toCache = null;
 
-                                for( int j = 0; j < architectures.length(); j++ ) {
-                                    String a = architectures.getString(j);
+                for( int i = 0; i < arr.length(); i++ ) {
+                    JSONObject productSet = arr.getJSONObject(i);
+                    String cloud, providerName;
 
-                                    if( architecture.name().equals(a) ) {
-                                        supported = true;
-                                        break;
-                                    }
-                                }
-                            }
-                            if( !supported ) {
-                                continue;
-                            }
-                        }
-                        if( product.has("excludesRegions") ) {
-                            JSONArray regions = product.getJSONArray("excludesRegions");
+                    if( productSet.has("cloud") ) {
+                        cloud = productSet.getString("cloud");
+                    }
+                    else {
+                        continue;
+                    }
+                    if( productSet.has("provider") ) {
+                        providerName = productSet.getString("provider");
+                    }
+                    else {
+                        continue;
+                    }
+                    if( !productSet.has("products") ) {
+                        continue;
+                    }
+                    if( toCache == null || ( providerName.equals("AWS") && cloud.equals("AWS") ) ) {
+                        toCache = productSet;
+                    }
+                    if( providerName.equalsIgnoreCase(getProvider().getProviderName()) && cloud.equalsIgnoreCase(getProvider().getCloudName()) ) {
+                        toCache = productSet;
+                        break;
+                    }
+                }
+                if( toCache == null ) {
+                    logger.warn("No products were defined");
+                    return new ArrayList<VirtualMachineProduct>();
+                }
+                JSONArray plist = toCache.getJSONArray("products");
 
-                            for( int j = 0; j < regions.length(); j++ ) {
-                                String r = regions.getString(j);
+                for( int i = 0; i < plist.length(); i++ ) {
+                    JSONObject product = plist.getJSONObject(i);
+                    boolean supported = true;
 
-                                if( r.equals(ctx.getRegionId()) ) {
-                                    supported = false;
-                                    break;
-                                }
-                            }
-                        }
-                        if( !supported ) {
-                            continue;
-                        }
-                        VirtualMachineProduct prd = toProduct(product);
+                    if( product.has("excludesRegions") ) {
+                        JSONArray regions = product.getJSONArray("excludesRegions");
 
-                        if( prd != null ) {
-                            if( options != null) {
-                                if( options.matches(prd) ) {
-                                    list.add(prd);
-                                }
-                            }
-                            else {
-                                list.add(prd);
+                        for( int j = 0; j < regions.length(); j++ ) {
+                            String r = regions.getString(j);
+
+                            if( r.equals(ctx.getRegionId()) ) {
+                                supported = false;
+                                break;
                             }
                         }
-
                     }
+                    if( !supported ) {
+                        continue;
+                    }
+                    VirtualMachineProduct prd = toProduct(product);
 
+                    if( prd != null ) {
+                        list.add(prd);
+                    }
                 }
-                else {
-                    logger.warn("No standard products resource exists for /org/dasein/cloud/aws/vmproducts.json");
+
+            }
+            else {
+                logger.warn("No standard products resource exists for /org/dasein/cloud/aws/vmproducts.json");
+            }
+            input = EC2Instance.class.getResourceAsStream("/org/dasein/cloud/aws/vmproducts-custom.json");
+            if( input != null ) {
+                ArrayList<VirtualMachineProduct> customList = new ArrayList<VirtualMachineProduct>();
+                TreeSet<String> discard = new TreeSet<String>();
+                boolean discardAll = false;
+
+                BufferedReader reader = new BufferedReader(new InputStreamReader(input));
+                StringBuilder json = new StringBuilder();
+                String line;
+
+                while( ( line = reader.readLine() ) != null ) {
+                    json.append(line);
+                    json.append("\n");
                 }
-                input = EC2Instance.class.getResourceAsStream("/org/dasein/cloud/aws/vmproducts-custom.json");
-                if( input != null ) {
-                    ArrayList<VirtualMachineProduct> customList = new ArrayList<VirtualMachineProduct>();
-                    TreeSet<String> discard = new TreeSet<String>();
-                    boolean discardAll = false;
+                JSONArray arr = new JSONArray(json.toString());
+                JSONObject toCache = null;
 
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(input));
-                    StringBuilder json = new StringBuilder();
-                    String line;
+                for( int i = 0; i < arr.length(); i++ ) {
+                    JSONObject listing = arr.getJSONObject(i);
+                    String cloud, providerName, endpoint = null;
 
-                    while( ( line = reader.readLine() ) != null ) {
-                        json.append(line);
-                        json.append("\n");
+                    if( listing.has("cloud") ) {
+                        cloud = listing.getString("cloud");
                     }
-                    JSONArray arr = new JSONArray(json.toString());
-                    JSONObject toCache = null;
-
-                    for( int i = 0; i < arr.length(); i++ ) {
-                        JSONObject listing = arr.getJSONObject(i);
-                        String cloud, providerName, endpoint = null;
+                    else {
+                        continue;
+                    }
+                    if( listing.has("provider") ) {
+                        providerName = listing.getString("provider");
+                    }
+                    else {
+                        continue;
+                    }
+                    if( listing.has("endpoint") ) {
+                        endpoint = listing.getString("endpoint");
+                    }
+                    if( !cloud.equals(getProvider().getCloudName()) || !providerName.equals(getProvider().getProviderName()) ) {
+                        continue;
+                    }
+                    if( endpoint != null && endpoint.equals(ctx.getCloud().getEndpoint()) ) {
+                        toCache = listing;
+                        break;
+                    }
+                    if( endpoint == null && toCache == null ) {
+                        toCache = listing;
+                    }
+                }
+                if( toCache != null ) {
+                    if( toCache.has("discardDefaults") ) {
+                        discardAll = toCache.getBoolean("discardDefaults");
+                    }
+                    if( toCache.has("discard") ) {
+                        JSONArray dlist = toCache.getJSONArray("discard");
 
-                        if( listing.has("cloud") ) {
-                            cloud = listing.getString("cloud");
-                        }
-                        else {
-                            continue;
-                        }
-                        if( listing.has("provider") ) {
-                            providerName = listing.getString("provider");
-                        }
-                        else {
-                            continue;
-                        }
-                        if( listing.has("endpoint") ) {
-                            endpoint = listing.getString("endpoint");
-                        }
-                        if( !cloud.equals(getProvider().getCloudName()) || !providerName.equals(getProvider().getProviderName()) ) {
-                            continue;
-                        }
-                        if( endpoint != null && endpoint.equals(ctx.getCloud().getEndpoint()) ) {
-                            toCache = listing;
-                            break;
-                        }
-                        if( endpoint == null && toCache == null ) {
-                            toCache = listing;
+                        for( int i = 0; i < dlist.length(); i++ ) {
+                            discard.add(dlist.getString(i));
                         }
                     }
-                    if( toCache != null ) {
-                        if( toCache.has("discardDefaults") ) {
-                            discardAll = toCache.getBoolean("discardDefaults");
-                        }
-                        if( toCache.has("discard") ) {
-                            JSONArray dlist = toCache.getJSONArray("discard");
+                    if( toCache.has("products") ) {
+                        JSONArray plist = toCache.getJSONArray("products");
 
-                            for( int i = 0; i < dlist.length(); i++ ) {
-                                discard.add(dlist.getString(i));
-                            }
-                        }
-                        if( toCache.has("products") ) {
-                            JSONArray plist = toCache.getJSONArray("products");
-
-                            for( int i = 0; i < plist.length(); i++ ) {
-                                JSONObject product = plist.getJSONObject(i);
-                                boolean supported = true;
-                                
-                                if( architecture != null ) {
-                                    supported = false;
-                                    if( product.has("architectures") ) {
-                                        JSONArray architectures = product.getJSONArray("architectures");
-
-                                        for( int j = 0; j < architectures.length(); j++ ) {
-                                            String a = architectures.getString(j);
-
-                                            if( architecture.name().equals(a) ) {
-                                                supported = true;
-                                                break;
-                                            }
-                                        }
-                                    }
-                                    if( !supported ) {
-                                        continue;
-                                    }
-                                }
-                                if( product.has("excludesRegions") ) {
-                                    JSONArray regions = product.getJSONArray("excludesRegions");
+                        for( int i = 0; i < plist.length(); i++ ) {
+                            JSONObject product = plist.getJSONObject(i);
+                            boolean supported = true;
+                            
+                            if( product.has("excludesRegions") ) {
+                                JSONArray regions = product.getJSONArray("excludesRegions");
 
-                                    for( int j = 0; j < regions.length(); j++ ) {
-                                        String r = regions.getString(j);
+                                for( int j = 0; j < regions.length(); j++ ) {
+                                    String r = regions.getString(j);
 
-                                        if( r.equals(ctx.getRegionId()) ) {
-                                            supported = false;
-                                            break;
-                                        }
+                                    if( r.equals(ctx.getRegionId()) ) {
+                                        supported = false;
+                                        break;
                                     }
                                 }
-                                if( !supported ) {
-                                    continue;
-                                }
-                                VirtualMachineProduct prd = toProduct(product);
+                            }
+                            if( !supported ) {
+                                continue;
+                            }
+                            VirtualMachineProduct prd = toProduct(product);
 
-                                if( prd != null ) {
-                                    customList.add(prd);
-                                }
+                            if( prd != null ) {
+                                customList.add(prd);
                             }
                         }
-                        if( !discardAll ) {
-                            for( VirtualMachineProduct product : list ) {
-                                if( !discard.contains(product.getProviderProductId()) ) {
-                                    customList.add(product);
-                                }
+                    }
+                    if( !discardAll ) {
+                        for( VirtualMachineProduct product : list ) {
+                            if( !discard.contains(product.getProviderProductId()) ) {
+                                customList.add(product);
                             }
                         }
-                        list = customList;
                     }
+                    list = customList;
                 }
-                products = list;
-                cache.put(ctx, products);
-
-            } catch( IOException e ) {
-                throw new InternalException(e);
-            } catch( JSONException e ) {
-                throw new InternalException(e);
             }
+            return list;
+        } catch( IOException e ) {
+            throw new InternalException(e);
+        } catch( JSONException e ) {
+            throw new InternalException(e);
         }
-        return products;
     }
 
-
-
     private String guess( String privateDnsAddress ) {
         String dnsAddress = privateDnsAddress;
         String[] parts = dnsAddress.split("\\.");
@@ -1669,21 +1871,28 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
             }
         }
 
-        // Wait for EC2 to figure out the server exists
-        List<VirtualMachine> serversCopy = describeInstances(instanceIds.toArray(new String[instanceIds.size()]));
-        long timeout = System.currentTimeMillis() + CalendarWrapper.MINUTE;
-        while( timeout > System.currentTimeMillis() && serversCopy.size() < servers.size()) {
-            try {
-                Thread.sleep(5000L);
-            } catch( InterruptedException ignore ) {
+        // Wait for EC2 to figure out the servers exist, polling together with any other launch in the region
+        InstanceWaiter.Lookup lookup = new InstanceWaiter.Lookup() {
+            @Override
+            public @Nonnull Collection<VirtualMachine> describe( @Nonnull String... ids ) throws CloudException, InternalException {
+                return describeInstances(true, ids);
             }
+        };
+        Map<String, Future<VirtualMachine>> arrivals = InstanceWaiter.getInstance(ctx.getAccountNumber(), ctx.getRegionId()).await(instanceIds, CalendarWrapper.MINUTE, lookup);
+        long giveUp = System.currentTimeMillis() + CalendarWrapper.MINUTE + InstanceWaiter.MAXIMUM_INTERVAL;
+
+        for( Future<VirtualMachine> arrival : arrivals.values() ) {
             try {
-                serversCopy = describeInstances(instanceIds.toArray(new String[instanceIds.size()]));
-            } catch( Throwable ignore ) {
+                arrival.get(Math.max(0L, giveUp - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch( ExecutionException ignore ) {
+            } catch( TimeoutException ignore ) {
             }
         }
 
-        // FIXME: not clear what is to be done if time is out but `serversCopy` is still less than `servers`
+        // FIXME: not clear what is to be done if time is out but some of the servers have not shown up yet
 
         // Set all instances their tags
         List<Tag> tags = new ArrayList<Tag>();
@@ -1709,22 +1918,7 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
             }
             if( server != null && cfg.getBootstrapKey() != null ) {
                 try {
-                    final String sid = server.getProviderVirtualMachineId();
-                    try {
-                        Callable<String> callable = new GetPassCallable(sid, getProvider());
-                        String password = callable.call();
-
-                        if( password == null ) {
-                            server.setRootPassword(null);
-                            server.setPasswordCallback(callable);
-                        }
-                        else {
-                            server.setRootPassword(password);
-                        }
-                        server.setPlatform(Platform.WINDOWS);
-                    } catch( CloudException e ) {
-                        logger.warn(e.getMessage());
-                    }
+                    assignPassword(server);
                 } catch( Throwable t ) {
                     logger.warn("Unable to retrieve password for " + server.getProviderVirtualMachineId() + ", Let's hope it's Unix: " + t.getMessage());
                 }
@@ -1760,49 +1954,45 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
     }
 
     private void enableIpForwarding( final String instanceId ) throws CloudException {
-
-        Thread t = new Thread() {
+        getProvider().hold();
+        launchPool.submit(new Runnable() {
             public void run() {
                 APITrace.begin(getProvider(), "enableIpForwarding");
+                try {
+                    long timeout = System.currentTimeMillis() + CalendarWrapper.MINUTE;
 
-                long timeout = System.currentTimeMillis() + CalendarWrapper.MINUTE;
-
-                while( timeout > System.currentTimeMillis() ) {
-                    try {
-                        Map<String, String> params = getProvider().getStandardParameters(getContext(), EC2Method.MODIFY_INSTANCE_ATTRIBUTE);
-                        EC2Method m;
+                    while( timeout > System.currentTimeMillis() ) {
+                        try {
+                            Map<String, String> params = getProvider().getStandardParameters(getContext(), EC2Method.MODIFY_INSTANCE_ATTRIBUTE);
+                            EC2Method m;
 
-                        params.put("InstanceId", instanceId);
-                        params.put("SourceDestCheck.Value", "false");
-                        m = new EC2Method(getProvider(), params);
+                            params.put("InstanceId", instanceId);
+                            params.put("SourceDestCheck.Value", "false");
+                            m = new EC2Method(getProvider(), params);
 
-                        m.invoke();
-                        return;
-                    } catch( EC2Exception ex ) {
-                        if( ex.getStatus() != 404 ) {
+                            m.invoke();
+                            return;
+                        } catch( EC2Exception ex ) {
+                            if( ex.getStatus() != 404 ) {
+                                logger.error("Unable to modify instance attributes on " + instanceId + ".", ex);
+                                return;
+                            }
+                        } catch( Throwable ex ) {
                             logger.error("Unable to modify instance attributes on " + instanceId + ".", ex);
                             return;
                         }
-                    } catch( Throwable ex ) {
-                        logger.error("Unable to modify instance attributes on " + instanceId + ".", ex);
-                        return;
-                    } finally {
-                        APITrace.end();
-                    }
 
-                    try {
-                        Thread.sleep(5000L);
-                    } catch( InterruptedException ignore ) {
+                        try {
+                            Thread.sleep(5000L);
+                        } catch( InterruptedException ignore ) {
+                        }
                     }
+                } finally {
+                    APITrace.end();
+                    getProvider().release();
                 }
-
             }
-        };
-
-        t.setName(EC2Method.MODIFY_INSTANCE_ATTRIBUTE + " thread");
-        t.setDaemon(true);
-        t.start();
-
+        });
     }
 
     @Override
@@ -1895,85 +2085,87 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
         return extraParameters;
     }
 
-    private @Nonnull Iterable<VirtualMachine> listVirtualMachinesWithParams( Map<String, String> extraParameters, @Nullable VMFilterOptions options ) throws InternalException, CloudException {
-        APITrace.begin(getProvider(), "listVirtualMachines");
-        try {
-            ProviderContext ctx = getContext();
+    private @Nonnull Iterable<VirtualMachine> listVirtualMachinesWithParams( final @Nullable Map<String, String> extraParameters, final @Nullable VMFilterOptions options ) throws InternalException, CloudException {
+        final ProviderContext ctx = getContext();
 
-            if( ctx == null ) {
-                throw new CloudException("No context was established for this request");
-            }
-
-            Future<Iterable<IpAddress>> ipPoolFuture = null;
-            Iterable<IpAddress> addresses;
-            if( getProvider().hasNetworkServices() ) {
-                NetworkServices services = getProvider().getNetworkServices();
+        if( ctx == null ) {
+            throw new CloudException("No context was established for this request");
+        }
+        getProvider().hold();
+        PopulatorThread<VirtualMachine> populator = new PopulatorThread<VirtualMachine>(new JiteratorPopulator<VirtualMachine>() {
+            @Override
+            public void populate( final @Nonnull Jiterator<VirtualMachine> iterator ) throws Exception {
+                try {
+                    APITrace.begin(getProvider(), "listVirtualMachines");
+                    try {
+                        Future<Iterable<IpAddress>> ipPoolFuture = null;
+                        if( getProvider().hasNetworkServices() ) {
+                            NetworkServices services = getProvider().getNetworkServices();
 
-                if( services != null ) {
-                    if( services.hasIpAddressSupport() ) {
-                        IpAddressSupport support = services.getIpAddressSupport();
+                            if( services != null ) {
+                                if( services.hasIpAddressSupport() ) {
+                                    IpAddressSupport support = services.getIpAddressSupport();
 
-                        if( support != null ) {
-                            ipPoolFuture = support.listIpPoolConcurrently(IPVersion.IPV4, false);
+                                    if( support != null ) {
+                                        ipPoolFuture = support.listIpPoolConcurrently(IPVersion.IPV4, false);
+                                    }
+                                }
+                            }
                         }
-                    }
-                }
-            }
-
-            Map<String, String> parameters = getProvider().getStandardParameters(getContext(), EC2Method.DESCRIBE_INSTANCES);
-
-            AWSCloud.addExtraParameters(parameters, extraParameters);
-
-            EC2Method method = new EC2Method(getProvider(), parameters);
-            ArrayList<VirtualMachine> list = new ArrayList<VirtualMachine>();
-            NodeList blocks;
-            Document doc;
-
-            try {
-                doc = method.invoke();
-            } catch( EC2Exception e ) {
-                logger.error(e.getSummary());
-                throw new CloudException(e);
-            }
-            blocks = doc.getElementsByTagName("instancesSet");
-            for( int i = 0; i < blocks.getLength(); i++ ) {
-                NodeList instances = blocks.item(i).getChildNodes();
 
-                for( int j = 0; j < instances.getLength(); j++ ) {
-                    Node instance = instances.item(j);
+                        // one parser for all pages so the elastic IPs are only awaited once
+                        DescribeInstancesResponseParser parser = new DescribeInstancesResponseParser(EC2Instance.this, ctx, ipPoolFuture, null) {
+                            @Override
+                            protected void emit( @Nonnull VirtualMachine vm ) throws CloudException, InternalException {
+                                if( options == null || options.matches(vm) ) {
+                                    iterator.push(vm);
+                                }
+                            }
+                        };
+                        String nextToken = null;
 
-                    if( instance.getNodeName().equals("item") ) {
+                        do {
+                            Map<String, String> parameters = getProvider().getStandardParameters(ctx, EC2Method.DESCRIBE_INSTANCES);
 
-                        try {
-                            if( ipPoolFuture != null ) {
-                                addresses = ipPoolFuture.get(30, TimeUnit.SECONDS);
+                            AWSCloud.addExtraParameters(parameters, extraParameters);
+                            // MaxResults may not be combined with explicit instance IDs
+                            if( !parameters.containsKey("InstanceId.1") ) {
+                                parameters.put("MaxResults", String.valueOf(getPageSize()));
                             }
-                            else {
-                                addresses = Collections.emptyList();
+                            if( nextToken != null ) {
+                                parameters.put("NextToken", nextToken);
                             }
-                        } catch( InterruptedException e ) {
-                            logger.error(e.getMessage());
-                            addresses = Collections.emptyList();
-                        } catch( ExecutionException e ) {
-                            logger.error(e.getMessage());
-                            addresses = Collections.emptyList();
-                        } catch( TimeoutException e ) {
-                            logger.error(e.getMessage());
-                            addresses = Collections.emptyList();
-                        }
+                            EC2Method method = new EC2Method(getProvider(), parameters);
 
-                        VirtualMachine vm = toVirtualMachine(ctx, instance, addresses);
-
-                        if( options == null || options.matches(vm) ) {
-                            list.add(vm);
-                        }
+                            try {
+                                method.invoke(parser);
+                            } catch( EC2Exception e ) {
+                                logger.error(e.getSummary());
+                                throw new CloudException(e);
+                            }
+                            nextToken = parser.getNextToken();
+                        } while( nextToken != null );
+                    } finally {
+                        APITrace.end();
                     }
+                } finally {
+                    getProvider().release();
                 }
             }
-            return list;
-        } finally {
-            APITrace.end();
-        }
+        });
+
+        populator.populate();
+        return populator.getResult();
+    }
+
+    /**
+     * @return the number of instances requested per page of <code>DescribeInstances</code>, within the 5 to 1000
+     * range accepted by EC2
+     */
+    private int getPageSize() {
+        int size = getProvider().getIntProperty(AWSCloud.DSN_DESCRIBE_PAGE_SIZE, 1000);
+
+        return Math.max(5, Math.min(1000, size));
     }
 
     @Override
@@ -2142,6 +2334,43 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
         return new ResourceStatus(vmId, state);
     }
 
+    @Nonnull VirtualMachineStatus toVirtualMachineStatus( @Nonnull Node instance ) {
+        NodeList attrs = instance.getChildNodes();
+        VirtualMachineStatus vm = new VirtualMachineStatus();
+        for( int k = 0; k < attrs.getLength(); k++ ) {
+            Node attr = attrs.item(k);
+            String name;
+            name = attr.getNodeName();
+            if( name.equals("instanceId") ) {
+                String value = attr.getFirstChild().getNodeValue().trim();
+                vm.setProviderVirtualMachineId(value);
+            }
+            else if( name.equals("systemStatus") ) {
+                NodeList details = attr.getChildNodes();
+                for( int l = 0; l < details.getLength(); l++ ) {
+                    Node detail = details.item(l);
+                    name = detail.getNodeName();
+                    if( name.equals("status") ) {
+                        String value = detail.getFirstChild().getNodeValue().trim();
+                        vm.setProviderHostStatus(toVmStatus(value));
+                    }
+                }
+            }
+            else if( name.equals("instanceStatus") ) {
+                NodeList details = attr.getChildNodes();
+                for( int l = 0; l < details.getLength(); l++ ) {
+                    Node detail = details.item(l);
+                    name = detail.getNodeName();
+                    if( name.equals("status") ) {
+                        String value = detail.getFirstChild().getNodeValue().trim();
+                        vm.setProviderVmStatus(toVmStatus(value));
+                    }
+                }
+            }
+        }
+        return vm;
+    }
+
     private @Nullable VmStatus toVmStatus( @Nonnull String status ) {
         // ok | impaired | insufficient-data | not-applicable
         if( status.equalsIgnoreCase("ok") ) return VmStatus.OK;
@@ -2159,7 +2388,7 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
         }
     }
 
-    private @Nullable VirtualMachine toVirtualMachine( @Nonnull ProviderContext ctx, @Nullable Node instance, @Nonnull Iterable<IpAddress> addresses ) throws CloudException {
+    @Nullable VirtualMachine toVirtualMachine( @Nonnull ProviderContext ctx, @Nullable Node instance, @Nonnull Iterable<IpAddress> addresses ) throws CloudException {
         if( instance == null ) {
             return null;
         }
@@ -2297,7 +2526,7 @@ public class EC2Instance extends AbstractVMSupport<AWSCloud> {
             }
             else if( name.equals("launchTime") ) {
                 SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-                fmt.setCalendar(UTC_CALENDAR);
+                fmt.setTimeZone(UTC_CALENDAR.getTimeZone());
                 String value = attr.getFirstChild().getNodeValue().trim();
 
                 try {
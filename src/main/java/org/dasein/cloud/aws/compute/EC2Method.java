@@ -33,6 +33,8 @@ import org.apache.log4j.Logger;
 import org.dasein.cloud.*;
 import org.dasein.cloud.admin.PrepaymentSupport;
 import org.dasein.cloud.aws.AWSCloud;
+import org.dasein.cloud.aws.RetryPolicy;
+import org.dasein.cloud.aws.WireInputStream;
 import org.dasein.cloud.aws.identity.IAMMethod;
 import org.dasein.cloud.compute.*;
 import org.dasein.cloud.identity.ServiceAction;
@@ -53,7 +55,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 public class EC2Method {
     static private final Logger logger = AWSCloud.getLogger(EC2Method.class);
@@ -659,16 +660,14 @@ public class EC2Method {
             wire.debug("");
             wire.debug("--------------------------------------------------------------------------------------");
         }
-        HttpClient client = null;
+        HttpResponse response = null;
         try {
             if( logger.isDebugEnabled() ) {
                 logger.debug("Talking to server at " + url);
             }
 
             HttpPost post = new HttpPost(url);
-            client = provider.getClient();
-
-            HttpResponse response;
+            HttpClient client = provider.getClient();
 
             attempts++;
             post.addHeader("Content-Type", "application/x-www-form-urlencoded; charset=utf-8");
@@ -739,7 +738,9 @@ public class EC2Method {
                 throw new InternalException("There was a temporary communication issue with the cloud, please try your request again", e);
             }
             int status = response.getStatusLine().getStatusCode();
+            RetryPolicy retryPolicy = provider.getRetryPolicy();
             if( status == HttpStatus.SC_OK ) {
+                retryPolicy.succeeded();
                 try {
                     HttpEntity entity = response.getEntity();
 
@@ -781,7 +782,7 @@ public class EC2Method {
                     InputStream input = entity.getContent();
 
                     try {
-                        BufferedReader in = new BufferedReader(new InputStreamReader(input));
+                        BufferedReader in = new BufferedReader(new InputStreamReader(input, "UTF-8"));
                         StringBuilder sb = new StringBuilder();
                         String line;
 
@@ -856,8 +857,8 @@ public class EC2Method {
                 if( logger.isDebugEnabled() ) {
                     logger.debug("Received " + status + " from " + parameters.get(AWSCloud.P_ACTION));
                 }
-                if( status == HttpStatus.SC_SERVICE_UNAVAILABLE || status == HttpStatus.SC_INTERNAL_SERVER_ERROR ) {
-                    if( attempts >= 5 ) {
+                if( retryPolicy.isRetryable(status, null) ) {
+                    if( !retryPolicy.shouldRetry(attempts, status, null) ) {
                         String msg;
 
                         if( status == HttpStatus.SC_SERVICE_UNAVAILABLE ) {
@@ -887,11 +888,9 @@ public class EC2Method {
                         throw new CloudException(msg);
                     }
                     else {
-                        try {
-                            Thread.sleep(5000L);
-                        }
-                        catch( InterruptedException e ) { /* ignore */ }
-                        return invoke();
+                        EntityUtils.consumeQuietly(response.getEntity());
+                        retryPolicy.backoff(attempts, status == 429);
+                        return invoke(debug, callback);
                     }
                 }
                 try {
@@ -940,6 +939,13 @@ public class EC2Method {
 
                             requestId = id.getFirstChild().getNodeValue().trim();
                         }
+                        if( retryPolicy.isThrottle(code) && retryPolicy.shouldRetry(attempts, status, code) ) {
+                            if( logger.isDebugEnabled() ) {
+                                logger.debug("Throttled (" + code + ") on attempt " + attempts + " of " + parameters.get(AWSCloud.P_ACTION) + ", backing off");
+                            }
+                            retryPolicy.backoff(attempts, true);
+                            return invoke(debug, callback);
+                        }
                         if( message == null ) {
                             throw new CloudException(CloudErrorType.COMMUNICATION, status, null, "Unable to identify error condition: " + status + "/" + requestId + "/" + code);
                         }
@@ -957,9 +963,9 @@ public class EC2Method {
             }
         }
         finally {
-            if( client != null ) {
-                client.getConnectionManager().closeIdleConnections(1, TimeUnit.SECONDS);
-                client.getConnectionManager().shutdown();
+            if( response != null ) {
+                // hands the connection back to the shared pool
+                EntityUtils.consumeQuietly(response.getEntity());
             }
             if( logger.isTraceEnabled() ) {
                 logger.trace("EXIT - " + EC2Method.class.getName() + ".invoke()");
@@ -984,7 +990,7 @@ public class EC2Method {
                     wire.debug(l);
                 }
             }
-            return XMLParser.parse(new ByteArrayInputStream(responseBody.getBytes()));
+            return XMLParser.parse(new ByteArrayInputStream(responseBody.getBytes("UTF-8")));
         }
         catch( IOException e ) {
             throw new CloudException(e);
@@ -998,30 +1004,18 @@ public class EC2Method {
     }
 
     private Document parseResponse( InputStream responseBodyAsStream ) throws CloudException, InternalException {
-        BufferedReader in = null;
         try {
-            in = new BufferedReader(new InputStreamReader(responseBodyAsStream));
-            StringBuilder sb = new StringBuilder();
-            String line;
-
-            while( ( line = in.readLine() ) != null ) {
-                sb.append(line);
-                sb.append("\n");
-            }
-            return parseResponse(sb.toString());
+            // parse straight from the connection, the parser detects the encoding declared by the response
+            return XMLParser.parse(WireInputStream.wrap(responseBodyAsStream, wire));
         }
         catch( IOException e ) {
             throw new CloudException(e);
         }
-        finally {
-            if( in != null ) {
-                try {
-                    in.close();
-                }
-                catch( IOException e ) {
-                    // Ignore
-                }
-            }
+        catch( ParserConfigurationException e ) {
+            throw new CloudException(e);
+        }
+        catch( SAXException e ) {
+            throw new CloudException(e);
         }
     }
 
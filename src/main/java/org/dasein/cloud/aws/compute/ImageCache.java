@@ -0,0 +1,223 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.compute;
+
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.compute.MachineImage;
+import org.dasein.cloud.compute.MachineImageState;
+import org.dasein.cloud.compute.MachineImageVolume;
+import org.dasein.util.CalendarWrapper;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * The machine images recently looked up by ID in one region of one account. Available images are kept for a few
+ * minutes and IDs that do not exist for a few seconds; images in any other state are still changing and are never
+ * kept. Concurrent lookups of the same ID share a single request to the cloud. The cache holds a bounded number of
+ * images, dropping the least recently used first. Images are mutable, so the image a lookup returns never leaves the
+ * cache and every caller gets a copy of its own.
+ */
+class ImageCache {
+    static final long FOUND_LIFETIME   = CalendarWrapper.MINUTE * 5L;
+    static final long MISSING_LIFETIME = CalendarWrapper.SECOND * 30L;
+    static final int  MAXIMUM_SIZE     = 1000;
+
+    static private final ConcurrentMap<String, ImageCache> caches = new ConcurrentHashMap<String, ImageCache>();
+
+    /**
+     * @param accountNumber the account looking up images
+     * @param regionId the region of the images
+     * @return the image cache of the account in the region
+     */
+    static @Nonnull ImageCache getInstance( @Nonnull String accountNumber, @Nonnull String regionId ) {
+        String key = accountNumber + "|" + regionId;
+        ImageCache cache = caches.get(key);
+
+        if( cache == null ) {
+            cache = new ImageCache();
+            ImageCache existing = caches.putIfAbsent(key, cache);
+
+            if( existing != null ) {
+                cache = existing;
+            }
+        }
+        return cache;
+    }
+
+    static private class Entry {
+        final MachineImage image;
+        final long         timeout;
+
+        Entry( @Nullable MachineImage image, long timeout ) {
+            this.image = image;
+            this.timeout = timeout;
+        }
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, Entry> eldest ) {
+            return size() > MAXIMUM_SIZE;
+        }
+    };
+
+    private final ConcurrentMap<String, FutureTask<MachineImage>> lookups = new ConcurrentHashMap<String, FutureTask<MachineImage>>();
+    // bumped by every invalidation so that a lookup racing with a change does not put back what it read before
+    private long generation;
+
+    private ImageCache() { }
+
+    /**
+     * Provides an image from the cache or looks it up, sharing the lookup with any other thread looking up the same
+     * image at the same time.
+     * @param imageId the ID of the image
+     * @param lookup looks the image up in the cloud, returning <code>null</code> if there is no such image
+     * @return the image or <code>null</code> if there is no such image
+     * @throws CloudException the lookup failed in the cloud
+     * @throws InternalException the lookup failed locally
+     */
+    @Nullable MachineImage get( @Nonnull String imageId, @Nonnull Callable<MachineImage> lookup ) throws CloudException, InternalException {
+        long started;
+
+        synchronized( entries ) {
+            Entry entry = entries.get(imageId);
+
+            if( entry != null ) {
+                if( entry.timeout > System.currentTimeMillis() ) {
+                    return copy(entry.image);
+                }
+                entries.remove(imageId);
+            }
+            started = generation;
+        }
+        FutureTask<MachineImage> task = new FutureTask<MachineImage>(lookup);
+        FutureTask<MachineImage> running = lookups.putIfAbsent(imageId, task);
+
+        if( running != null ) {
+            return copy(await(running));
+        }
+        try {
+            task.run();
+            MachineImage image = await(task);
+
+            put(imageId, image, started);
+            return copy(image);
+        }
+        finally {
+            // only forgotten once the entry is stored, so a thread arriving in between cannot start another lookup
+            lookups.remove(imageId, task);
+        }
+    }
+
+    /**
+     * Forgets an image after it was registered, changed or removed.
+     * @param imageId the ID of the image
+     */
+    void invalidate( @Nonnull String imageId ) {
+        synchronized( entries ) {
+            entries.remove(imageId);
+            generation++;
+        }
+    }
+
+    private void put( @Nonnull String imageId, @Nullable MachineImage image, long started ) {
+        long now = System.currentTimeMillis();
+        Entry entry;
+
+        if( image == null ) {
+            entry = new Entry(null, now + MISSING_LIFETIME);
+        }
+        else if( MachineImageState.ACTIVE.equals(image.getCurrentState()) ) {
+            entry = new Entry(image, now + FOUND_LIFETIME);
+        }
+        else {
+            return;
+        }
+        synchronized( entries ) {
+            if( generation == started ) {
+                entries.put(imageId, entry);
+            }
+        }
+    }
+
+    /**
+     * Copies the fields {@link AMI} fills in when it looks an image up by ID.
+     * @param image the image to copy
+     * @return a new image with the same fields or <code>null</code> if there is no image
+     */
+    static @Nullable MachineImage copy( @Nullable MachineImage image ) {
+        if( image == null ) {
+            return null;
+        }
+        MachineImage copy = MachineImage.getInstance(image.getProviderOwnerId(), image.getProviderRegionId(), image.getProviderMachineImageId(), image.getImageClass(), image.getCurrentState(), image.getName(), image.getDescription(), image.getArchitecture(), image.getPlatform());
+        List<MachineImageVolume> volumes = new ArrayList<MachineImageVolume>();
+        Map<String, String> tags = image.getTags();
+
+        for( MachineImageVolume volume : image.getVolumes() ) {
+            volumes.add(volume);
+        }
+        copy.withVolumes(volumes);
+        copy.getProviderMetadata().putAll(image.getProviderMetadata());
+        if( image.isPublic() ) {
+            copy.sharedWithPublic();
+        }
+        copy.setTags(tags == null ? new HashMap<String, String>() : new HashMap<String, String>(tags));
+        if( image.getType() != null ) {
+            copy.withType(image.getType());
+        }
+        if( image.getStorageFormat() != null ) {
+            copy.withStorageFormat(image.getStorageFormat());
+        }
+        return copy;
+    }
+
+    static private @Nullable MachineImage await( @Nonnull FutureTask<MachineImage> task ) throws CloudException, InternalException {
+        try {
+            return task.get();
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InternalException(e);
+        }
+        catch( ExecutionException e ) {
+            Throwable cause = e.getCause();
+
+            if( cause instanceof CloudException ) {
+                throw ( CloudException ) cause;
+            }
+            if( cause instanceof InternalException ) {
+                throw ( InternalException ) cause;
+            }
+            throw new InternalException(cause);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.compute;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.aws.AWSCloud;
+import org.dasein.cloud.compute.VirtualMachine;
+import org.dasein.util.CalendarWrapper;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for newly launched instances to show up in DescribeInstances. Every instance awaited in one region of one
+ * account, by any number of concurrent launches, is looked up in the same batched request on each tick. Ticks
+ * start a second apart and back off to ten seconds while nothing new shows up. Each instance has its own future,
+ * completed with the instance as soon as it is seen, or with <code>null</code> if it was not seen in time. A batch
+ * whose lookup fails with <code>InvalidInstanceID</code>, as EC2 fails a request naming an instance it does not know
+ * yet, is split in halves until the unknown instances are isolated. A batch failing for any other reason, such as
+ * throttling, is kept whole and tried again on the next tick.
+ */
+class InstanceWaiter {
+    static private final Logger logger = AWSCloud.getLogger(InstanceWaiter.class);
+
+    static final long MINIMUM_INTERVAL = CalendarWrapper.SECOND;
+    static final long MAXIMUM_INTERVAL = CalendarWrapper.SECOND * 10L;
+    static final int  BATCH_SIZE       = 200;
+
+    /**
+     * Looks instances up in the cloud.
+     */
+    interface Lookup {
+        /**
+         * @param instanceIds the IDs of the instances
+         * @return those of the instances that exist
+         * @throws CloudException the lookup failed in the cloud, with the provider code of the cloud's error
+         * @throws InternalException the lookup failed locally
+         */
+        @Nonnull Collection<VirtualMachine> describe( @Nonnull String ... instanceIds ) throws CloudException, InternalException;
+    }
+
+    static private final ConcurrentMap<String, InstanceWaiter> waiters = new ConcurrentHashMap<String, InstanceWaiter>();
+
+    static private final ScheduledExecutorService ticker;
+
+    static {
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(4, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "dasein-instance-waiter");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        pool.setKeepAliveTime(60L, TimeUnit.SECONDS);
+        pool.allowCoreThreadTimeOut(true);
+        ticker = pool;
+    }
+
+    /**
+     * @param accountNumber the account the instances were launched in
+     * @param regionId the region the instances were launched in
+     * @return the waiter for the instances of the account in the region
+     */
+    static @Nonnull InstanceWaiter getInstance( @Nonnull String accountNumber, @Nonnull String regionId ) {
+        String key = accountNumber + "|" + regionId;
+        InstanceWaiter waiter = waiters.get(key);
+
+        if( waiter == null ) {
+            waiter = new InstanceWaiter();
+            InstanceWaiter existing = waiters.putIfAbsent(key, waiter);
+
+            if( existing != null ) {
+                waiter = existing;
+            }
+        }
+        return waiter;
+    }
+
+    static private class Arrival extends SettableFuture<VirtualMachine> {
+        final long      deadline;
+        // dropped once the instance is resolved so that callers keeping the future do not keep the lookup
+        volatile Lookup lookup;
+
+        Arrival( long deadline, @Nonnull Lookup lookup ) {
+            this.deadline = deadline;
+            this.lookup = lookup;
+        }
+    }
+
+    private final Map<String, Arrival> pending   = new LinkedHashMap<String, Arrival>();
+    private long                       interval  = MINIMUM_INTERVAL;
+    private boolean                    scheduled = false;
+
+    private final Runnable tick = new Runnable() {
+        @Override
+        public void run() {
+            tick();
+        }
+    };
+
+    private InstanceWaiter() { }
+
+    /**
+     * Waits for instances to show up.
+     * @param instanceIds the IDs of the instances
+     * @param timeout how long to wait for them, in milliseconds
+     * @param lookup looks the instances up
+     * @return a future for each instance, completed with the instance or with <code>null</code> on timeout
+     */
+    synchronized @Nonnull Map<String, Future<VirtualMachine>> await( @Nonnull Collection<String> instanceIds, long timeout, @Nonnull Lookup lookup ) {
+        Map<String, Future<VirtualMachine>> arrivals = new LinkedHashMap<String, Future<VirtualMachine>>();
+        long deadline = System.currentTimeMillis() + timeout;
+
+        for( String instanceId : instanceIds ) {
+            Arrival arrival = pending.get(instanceId);
+
+            if( arrival == null ) {
+                arrival = new Arrival(deadline, lookup);
+                pending.put(instanceId, arrival);
+            }
+            arrivals.put(instanceId, arrival);
+        }
+        interval = MINIMUM_INTERVAL;
+        if( !scheduled && !pending.isEmpty() ) {
+            scheduled = true;
+            ticker.schedule(tick, interval, TimeUnit.MILLISECONDS);
+        }
+        return arrivals;
+    }
+
+    private void tick() {
+        boolean progress = false;
+
+        try {
+            Map<String, Arrival> batch;
+
+            synchronized( this ) {
+                batch = new LinkedHashMap<String, Arrival>(pending);
+            }
+            long now = System.currentTimeMillis();
+            List<String> instanceIds = new ArrayList<String>();
+            Set<Lookup> lookups = new LinkedHashSet<Lookup>();
+
+            for( Map.Entry<String, Arrival> entry : batch.entrySet() ) {
+                if( entry.getValue().deadline <= now ) {
+                    complete(entry.getKey(), entry.getValue(), null);
+                }
+                else {
+                    Lookup lookup = entry.getValue().lookup;
+
+                    instanceIds.add(entry.getKey());
+                    if( lookup != null ) {
+                        lookups.add(lookup);
+                    }
+                }
+            }
+            for( int i = 0; i < instanceIds.size(); i += BATCH_SIZE ) {
+                List<VirtualMachine> found = new ArrayList<VirtualMachine>();
+
+                try {
+                    describe(lookups, instanceIds.subList(i, Math.min(i + BATCH_SIZE, instanceIds.size())), found);
+                }
+                finally {
+                    // whatever was seen before a lookup failed still counts
+                    for( VirtualMachine vm : found ) {
+                        Arrival arrival = batch.get(vm.getProviderVirtualMachineId());
+
+                        if( arrival != null ) {
+                            complete(vm.getProviderVirtualMachineId(), arrival, vm);
+                            progress = true;
+                        }
+                    }
+                }
+            }
+        }
+        catch( Throwable t ) {
+            logger.warn("Unable to check for launched instances: " + t.getMessage());
+        }
+        finally {
+            synchronized( this ) {
+                interval = ( progress ? MINIMUM_INTERVAL : Math.min(interval * 2, MAXIMUM_INTERVAL) );
+                if( pending.isEmpty() ) {
+                    scheduled = false;
+                }
+                else {
+                    ticker.schedule(tick, interval, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks instances up, splitting the batch in halves whenever EC2 rejects it for naming an unknown instance.
+     * @throws CloudException the batch could not be looked up for any other reason
+     * @throws InternalException none of the lookups works
+     */
+    private void describe( @Nonnull Set<Lookup> lookups, @Nonnull List<String> instanceIds, @Nonnull List<VirtualMachine> found ) throws CloudException, InternalException {
+        try {
+            found.addAll(describe(lookups, instanceIds.toArray(new String[instanceIds.size()])));
+        }
+        catch( CloudException e ) {
+            String code = e.getProviderCode();
+
+            if( code == null || !code.startsWith("InvalidInstanceID") ) {
+                throw e;
+            }
+            if( instanceIds.size() > 1 ) {
+                int half = instanceIds.size() / 2;
+
+                describe(lookups, instanceIds.subList(0, half), found);
+                describe(lookups, instanceIds.subList(half, instanceIds.size()), found);
+            }
+            else {
+                logger.debug("Launched instance " + instanceIds.get(0) + " is not known yet: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Looks instances up with the first lookup that works. Any lookup of the same account and region will do, so
+     * another lookup is only tried if one fails locally; an error from the cloud would be the same for all of them.
+     * @throws CloudException the cloud rejected the lookup
+     * @throws InternalException none of the lookups works
+     */
+    private @Nonnull Collection<VirtualMachine> describe( @Nonnull Set<Lookup> lookups, @Nonnull String[] instanceIds ) throws CloudException, InternalException {
+        InternalException failure = null;
+
+        for( Lookup lookup : lookups ) {
+            try {
+                return lookup.describe(instanceIds);
+            }
+            catch( InternalException e ) {
+                failure = e;
+            }
+        }
+        if( failure != null ) {
+            throw failure;
+        }
+        return new ArrayList<VirtualMachine>();
+    }
+
+    private void complete( @Nonnull String instanceId, @Nonnull Arrival arrival, @Nullable VirtualMachine vm ) {
+        synchronized( this ) {
+            if( pending.get(instanceId) == arrival ) {
+                pending.remove(instanceId);
+            }
+        }
+        arrival.lookup = null;
+        arrival.set(vm);
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.compute;
+
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Base for streaming parsers of EC2 responses that list resources as the <code>item</code> elements of a named
+ * set, such as <code>volumeSet</code>. The response is read with StAX and each item is materialised on its own as
+ * a small DOM fragment, converted by the same code as the DOM path and emitted straight away, so the response is
+ * never held in memory as a whole.
+ *
+ * @param <T> the type of resource emitted by the parser
+ * @see org.dasein.cloud.aws.compute.EC2Method#invoke(XmlStreamParser)
+ */
+public abstract class ItemStreamParser<T> implements XmlStreamParser<T> {
+    private final String  setName;
+    private final List<T> list;
+    private String        nextToken;
+
+    protected ItemStreamParser( @Nonnull String setName, @Nullable List<T> list ) {
+        this.setName = setName;
+        this.list = list;
+    }
+
+    @Override
+    public List<T> parse( InputStream stream ) throws IOException, CloudException, InternalException {
+        XMLStreamReader reader = null;
+
+        nextToken = null;
+        try {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            // the DOM converters read whole text nodes with getFirstChild()
+            factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+            reader = factory.createXMLStreamReader(stream);
+
+            Document owner = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+
+            while( reader.hasNext() ) {
+                if( reader.next() == XMLStreamConstants.START_ELEMENT ) {
+                    if( setName.equals(reader.getLocalName()) ) {
+                        readSet(reader, owner);
+                    }
+                    else if( "nextToken".equals(reader.getLocalName()) ) {
+                        String token = reader.getElementText().trim();
+
+                        nextToken = ( token.length() > 0 ? token : null );
+                    }
+                }
+            }
+        }
+        catch( XMLStreamException e ) {
+            throw new CloudException(e);
+        }
+        catch( ParserConfigurationException e ) {
+            throw new InternalException(e);
+        }
+        finally {
+            if( reader != null ) {
+                try {
+                    reader.close();
+                }
+                catch( XMLStreamException e ) {
+                    // Ignore
+                }
+            }
+        }
+        return list;
+    }
+
+    private void readSet( @Nonnull XMLStreamReader reader, @Nonnull Document owner ) throws XMLStreamException, CloudException, InternalException {
+        while( reader.hasNext() ) {
+            switch( reader.next() ) {
+                case XMLStreamConstants.START_ELEMENT:
+                    if( "item".equals(reader.getLocalName()) ) {
+                        T item = toItem(readElement(reader, owner));
+
+                        if( item != null ) {
+                            emit(item);
+                        }
+                    }
+                    else {
+                        readElement(reader, owner);
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    return;
+            }
+        }
+    }
+
+    private @Nonnull Element readElement( @Nonnull XMLStreamReader reader, @Nonnull Document owner ) throws XMLStreamException {
+        Element element = owner.createElement(reader.getLocalName());
+
+        for( int i = 0; i < reader.getAttributeCount(); i++ ) {
+            element.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+        }
+        while( reader.hasNext() ) {
+            switch( reader.next() ) {
+                case XMLStreamConstants.START_ELEMENT:
+                    element.appendChild(readElement(reader, owner));
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    element.appendChild(owner.createTextNode(reader.getText()));
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    return element;
+            }
+        }
+        return element;
+    }
+
+    /**
+     * @return the token of the next page of a paginated response or <code>null</code> if this was the last page
+     */
+    public @Nullable String getNextToken() {
+        return nextToken;
+    }
+
+    /**
+     * Hands a converted resource to the caller. By default the resource is added to the list given to the
+     * constructor; override to filter resources or to push them elsewhere as soon as they are parsed.
+     * @param item the converted resource
+     * @throws CloudException the caller rejected the resource
+     * @throws InternalException the caller failed to handle the resource
+     */
+    protected void emit( @Nonnull T item ) throws CloudException, InternalException {
+        if( list != null ) {
+            list.add(item);
+        }
+    }
+
+    /**
+     * Converts a single <code>item</code> of the set into a resource.
+     * @param item the item element, detached from the rest of the response
+     * @return the resource or <code>null</code> to skip the item
+     * @throws CloudException the item could not be interpreted
+     * @throws InternalException an error occurred converting the item
+     */
+    protected abstract @Nullable T toItem( @Nonnull Node item ) throws CloudException, InternalException;
+}
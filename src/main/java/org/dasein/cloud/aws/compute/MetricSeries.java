@@ -0,0 +1,286 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.compute;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.annotation.Nonnull;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * The datapoints of one CloudWatch metric, held column by column in primitive arrays rather than as one object per
+ * datapoint. A day of one-minute datapoints takes a handful of arrays instead of well over a thousand objects.
+ * Datapoints are kept in timestamp order once {@link #sort()} has been called.
+ */
+class MetricSeries {
+    /**
+     * Reads the datapoints of a GetMetricStatistics response.
+     * @param doc the response
+     * @return the datapoints, in timestamp order
+     * @throws ParseException a datapoint carries a timestamp that is not in ISO 8601 format
+     */
+    static @Nonnull MetricSeries parse( @Nonnull Document doc ) throws ParseException {
+        NodeList blocks = doc.getElementsByTagName("member");
+        MetricSeries series = new MetricSeries(blocks.getLength());
+
+        for( int i = 0; i < blocks.getLength(); i++ ) {
+            NodeList items = blocks.item(i).getChildNodes();
+            int samples = 0;
+            long timestamp = -1L;
+            double minimum = -1.0, maximum = 0.0, average = 0.0;
+
+            for( int j = 0; j < items.getLength(); j++ ) {
+                Node item = items.item(j);
+                String name = item.getNodeName();
+
+                if( item.getFirstChild() == null ) {
+                    continue;
+                }
+                if( name.equals("Timestamp") ) {
+                    timestamp = parseTimestamp(item.getFirstChild().getNodeValue());
+                }
+                else if( name.equals("Average") ) {
+                    average = Double.parseDouble(item.getFirstChild().getNodeValue());
+                }
+                else if( name.equals("Minimum") ) {
+                    minimum = Double.parseDouble(item.getFirstChild().getNodeValue());
+                }
+                else if( name.equals("Maximum") ) {
+                    maximum = Double.parseDouble(item.getFirstChild().getNodeValue());
+                }
+                else if( name.equals("Samples") ) {
+                    samples = ( int ) Double.parseDouble(item.getFirstChild().getNodeValue());
+                }
+            }
+            series.add(timestamp, samples, average, minimum, maximum);
+        }
+        series.sort();
+        return series;
+    }
+
+    /**
+     * Parses an ISO 8601 timestamp such as <code>2015-06-01T12:34:00Z</code> without allocating anything. Fractional
+     * seconds and numeric offsets such as <code>+02:00</code> are accepted.
+     * @param value the timestamp
+     * @return the timestamp in milliseconds since the epoch
+     * @throws ParseException the value is not an ISO 8601 timestamp
+     */
+    static long parseTimestamp( @Nonnull CharSequence value ) throws ParseException {
+        int length = value.length();
+
+        while( length > 0 && Character.isWhitespace(value.charAt(length - 1)) ) {
+            length--;
+        }
+        int start = 0;
+
+        while( start < length && Character.isWhitespace(value.charAt(start)) ) {
+            start++;
+        }
+        if( length - start < 19 || value.charAt(start + 4) != '-' || value.charAt(start + 7) != '-' || value.charAt(start + 10) != 'T' || value.charAt(start + 13) != ':' || value.charAt(start + 16) != ':' ) {
+            throw new ParseException("Not an ISO 8601 timestamp: " + value, start);
+        }
+        long year = digits(value, start, 4);
+        int month = digits(value, start + 5, 2);
+        int day = digits(value, start + 8, 2);
+        int hour = digits(value, start + 11, 2);
+        int minute = digits(value, start + 14, 2);
+        int second = digits(value, start + 17, 2);
+        int position = start + 19;
+        int millis = 0;
+
+        if( month < 1 || month > 12 || day < 1 || day > 31 || hour > 23 || minute > 59 || second > 60 ) {
+            throw new ParseException("Not an ISO 8601 timestamp: " + value, start);
+        }
+        if( position < length && value.charAt(position) == '.' ) {
+            int scale = 100;
+
+            position++;
+            while( position < length && Character.isDigit(value.charAt(position)) ) {
+                millis += ( value.charAt(position) - '0' ) * scale;
+                scale /= 10;
+                position++;
+            }
+        }
+        long offset = 0L;
+
+        if( position < length ) {
+            char zone = value.charAt(position);
+
+            if( zone == 'Z' && position == length - 1 ) {
+                offset = 0L;
+            }
+            else if( ( zone == '+' || zone == '-' ) && length - position == 6 && value.charAt(position + 3) == ':' ) {
+                offset = ( digits(value, position + 1, 2) * 60L + digits(value, position + 4, 2) ) * 60000L;
+                if( zone == '-' ) {
+                    offset = -offset;
+                }
+            }
+            else {
+                throw new ParseException("Not an ISO 8601 timestamp: " + value, position);
+            }
+        }
+        long days = daysFromCivil(year, month, day);
+
+        return ( ( ( days * 24L + hour ) * 60L + minute ) * 60L + second ) * 1000L + millis - offset;
+    }
+
+    static private int digits( @Nonnull CharSequence value, int offset, int count ) throws ParseException {
+        int result = 0;
+
+        for( int i = offset; i < offset + count; i++ ) {
+            char c = value.charAt(i);
+
+            if( c < '0' || c > '9' ) {
+                throw new ParseException("Not an ISO 8601 timestamp: " + value, i);
+            }
+            result = result * 10 + ( c - '0' );
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of days between 1970-01-01 and the given date of the proleptic Gregorian calendar
+     */
+    static private long daysFromCivil( long year, int month, int day ) {
+        year -= ( month <= 2 ? 1 : 0 );
+        long era = ( year >= 0 ? year : year - 399 ) / 400;
+        long yearOfEra = year - era * 400;
+        long dayOfYear = ( 153 * ( month + ( month > 2 ? -3 : 9 ) ) + 2 ) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private long[]   timestamps;
+    private int[]    samples;
+    private double[] averages;
+    private double[] minimums;
+    private double[] maximums;
+    private int      size;
+
+    MetricSeries( int capacity ) {
+        capacity = Math.max(capacity, 1);
+        timestamps = new long[capacity];
+        samples = new int[capacity];
+        averages = new double[capacity];
+        minimums = new double[capacity];
+        maximums = new double[capacity];
+    }
+
+    void add( long timestamp, int sampleCount, double average, double minimum, double maximum ) {
+        if( size == timestamps.length ) {
+            int capacity = size * 2;
+
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            samples = Arrays.copyOf(samples, capacity);
+            averages = Arrays.copyOf(averages, capacity);
+            minimums = Arrays.copyOf(minimums, capacity);
+            maximums = Arrays.copyOf(maximums, capacity);
+        }
+        timestamps[size] = timestamp;
+        samples[size] = sampleCount;
+        averages[size] = average;
+        minimums[size] = minimum;
+        maximums[size] = maximum;
+        size++;
+    }
+
+    /**
+     * Puts the datapoints in timestamp order. Of several datapoints with the same timestamp only the first one
+     * added is kept.
+     */
+    void sort() {
+        if( size < 2 ) {
+            return;
+        }
+        boolean sorted = true;
+
+        for( int i = 1; i < size && sorted; i++ ) {
+            sorted = timestamps[i - 1] < timestamps[i];
+        }
+        if( sorted ) {
+            return;
+        }
+        // timestamps and positions packed together sort as primitives, with ties broken by position
+        long[] keys = new long[size];
+        long base = Long.MAX_VALUE;
+
+        for( int i = 0; i < size; i++ ) {
+            base = Math.min(base, timestamps[i]);
+        }
+        for( int i = 0; i < size; i++ ) {
+            keys[i] = ( ( timestamps[i] - base ) << 21 ) | i;
+        }
+        Arrays.sort(keys);
+        long[] sortedTimestamps = new long[size];
+        int[] sortedSamples = new int[size];
+        double[] sortedAverages = new double[size];
+        double[] sortedMinimums = new double[size];
+        double[] sortedMaximums = new double[size];
+        int count = 0;
+
+        for( long key : keys ) {
+            int i = ( int ) ( key & 0x1FFFFF );
+
+            if( count > 0 && sortedTimestamps[count - 1] == timestamps[i] ) {
+                continue;
+            }
+            sortedTimestamps[count] = timestamps[i];
+            sortedSamples[count] = samples[i];
+            sortedAverages[count] = averages[i];
+            sortedMinimums[count] = minimums[i];
+            sortedMaximums[count] = maximums[i];
+            count++;
+        }
+        timestamps = sortedTimestamps;
+        samples = sortedSamples;
+        averages = sortedAverages;
+        minimums = sortedMinimums;
+        maximums = sortedMaximums;
+        size = count;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getTimestamp( int i ) {
+        return timestamps[i];
+    }
+
+    int getSamples( int i ) {
+        return samples[i];
+    }
+
+    double getAverage( int i ) {
+        return averages[i];
+    }
+
+    double getMinimum( int i ) {
+        return minimums[i];
+    }
+
+    double getMaximum( int i ) {
+        return maximums[i];
+    }
+}
@@ -0,0 +1,616 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.compute;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.aws.AWSCloud;
+import org.dasein.cloud.compute.Architecture;
+import org.dasein.cloud.compute.ImageClass;
+import org.dasein.cloud.compute.ImageFilterOptions;
+import org.dasein.cloud.compute.MachineImage;
+import org.dasein.cloud.compute.MachineImageFormat;
+import org.dasein.cloud.compute.MachineImageState;
+import org.dasein.cloud.compute.MachineImageType;
+import org.dasein.cloud.compute.Platform;
+import org.dasein.util.CalendarWrapper;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The public machine images of one region, kept locally and indexed by owner, architecture, platform and the
+ * words of their names, descriptions and IDs. Searches are answered from the index and then checked against the
+ * filter options, so they return what a search against the cloud would have returned as of the last refresh.
+ * <p>
+ * The catalog is written to a compact binary file after every refresh and read back on first use, so a restarted
+ * process can answer searches before it has listed the public images again. Refreshes run in the background while
+ * searches keep using the previous contents.
+ * </p>
+ */
+class PublicImageCatalog {
+    static private final Logger logger = AWSCloud.getLogger(PublicImageCatalog.class);
+
+    static final long REFRESH_INTERVAL = CalendarWrapper.HOUR * 6L;
+
+    static private final int     MAGIC   = 0x414d4943;
+    static private final int     VERSION = 1;
+    static private final Charset UTF8    = Charset.forName("UTF-8");
+
+    static private final ConcurrentMap<String, PublicImageCatalog> catalogs = new ConcurrentHashMap<String, PublicImageCatalog>();
+
+    static private final ExecutorService refreshPool;
+
+    static {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(2, 2, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "dasein-image-catalog");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        pool.allowCoreThreadTimeOut(true);
+        refreshPool = pool;
+    }
+
+    /**
+     * @param directory the directory the catalog file is kept in
+     * @param regionId the region whose public images are cataloged
+     * @return the catalog of the region
+     */
+    static @Nonnull PublicImageCatalog getInstance( @Nonnull File directory, @Nonnull String regionId ) {
+        String key = directory.getAbsolutePath() + "|" + regionId;
+        PublicImageCatalog catalog = catalogs.get(key);
+
+        if( catalog == null ) {
+            // loaded before it is shared, or a concurrent caller would find it empty and refresh the whole region
+            synchronized( catalogs ) {
+                catalog = catalogs.get(key);
+                if( catalog == null ) {
+                    catalog = new PublicImageCatalog(new File(directory, "public-images-" + regionId + ".catalog"), regionId);
+                    catalog.load();
+                    catalogs.put(key, catalog);
+                }
+            }
+        }
+        return catalog;
+    }
+
+    static private class Snapshot {
+        final long                        refreshed;
+        final MachineImage[]              images;
+        final Map<String, int[]>          owners        = new HashMap<String, int[]>();
+        final Map<Architecture, int[]>    architectures = new EnumMap<Architecture, int[]>(Architecture.class);
+        final Map<Platform, int[]>        platforms     = new EnumMap<Platform, int[]>(Platform.class);
+        final Map<String, int[]>          words         = new HashMap<String, int[]>();
+
+        Snapshot( long refreshed, @Nonnull List<MachineImage> images ) {
+            Map<String, List<Integer>> owners = new HashMap<String, List<Integer>>();
+            Map<Architecture, List<Integer>> architectures = new EnumMap<Architecture, List<Integer>>(Architecture.class);
+            Map<Platform, List<Integer>> platforms = new EnumMap<Platform, List<Integer>>(Platform.class);
+            Map<String, List<Integer>> words = new HashMap<String, List<Integer>>();
+
+            this.refreshed = refreshed;
+            this.images = images.toArray(new MachineImage[images.size()]);
+            for( int i = 0; i < this.images.length; i++ ) {
+                MachineImage image = this.images[i];
+                Set<String> imageWords = new LinkedHashSet<String>();
+
+                post(owners, image.getProviderOwnerId(), i);
+                post(architectures, image.getArchitecture(), i);
+                post(platforms, image.getPlatform(), i);
+                split(image.getName(), imageWords);
+                split(image.getDescription(), imageWords);
+                split(image.getProviderMachineImageId(), imageWords);
+                for( String word : imageWords ) {
+                    post(words, word, i);
+                }
+            }
+            toPostings(owners, this.owners);
+            toPostings(architectures, this.architectures);
+            toPostings(platforms, this.platforms);
+            toPostings(words, this.words);
+        }
+    }
+
+    private final File          file;
+    private final String        regionId;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile Snapshot   snapshot;
+
+    private PublicImageCatalog( @Nonnull File file, @Nonnull String regionId ) {
+        this.file = file;
+        this.regionId = regionId;
+    }
+
+    /**
+     * @return true if the catalog has never been filled or was last refreshed longer ago than {@link #REFRESH_INTERVAL}
+     */
+    boolean isStale() {
+        Snapshot s = snapshot;
+
+        return ( s == null || s.refreshed + REFRESH_INTERVAL < System.currentTimeMillis() );
+    }
+
+    /**
+     * Refreshes the catalog in the background unless a refresh is already running.
+     * @param loader lists every public image of the region
+     * @return true if a refresh was started, false if one was already running
+     */
+    boolean refresh( @Nonnull final Callable<List<MachineImage>> loader ) {
+        if( !refreshing.compareAndSet(false, true) ) {
+            return false;
+        }
+        refreshPool.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    update(loader.call());
+                }
+                catch( Throwable t ) {
+                    logger.warn("Unable to refresh the public images of " + regionId + ": " + t.getMessage());
+                }
+                finally {
+                    refreshing.set(false);
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Replaces the contents of the catalog and saves them.
+     * @param images every public image of the region
+     */
+    void update( @Nonnull List<MachineImage> images ) {
+        snapshot = new Snapshot(System.currentTimeMillis(), images);
+        save();
+    }
+
+    /**
+     * Searches the catalog. Filter options with tags are not answered, as tags are matched by the cloud.
+     * @param options the filter options
+     * @return copies of the matching images, carrying the fields the catalog keeps, or <code>null</code> if the
+     * catalog cannot answer the search
+     */
+    @Nullable List<MachineImage> search( @Nonnull ImageFilterOptions options ) {
+        Snapshot s = snapshot;
+
+        if( s == null || ( options.getTags() != null && !options.getTags().isEmpty() ) ) {
+            return null;
+        }
+        int[] candidates = null;
+
+        // with matchesAny, any one criterion is enough, so none of them narrows the search
+        if( !options.isMatchesAny() ) {
+            if( options.getAccountNumber() != null ) {
+                candidates = intersect(candidates, s.owners.get(options.getAccountNumber()));
+            }
+            if( options.getArchitecture() != null ) {
+                candidates = intersect(candidates, s.architectures.get(options.getArchitecture()));
+            }
+            Platform platform = options.getPlatform();
+
+            if( platform != null && !platform.equals(Platform.UNKNOWN) ) {
+                BitSet family = new BitSet(s.images.length);
+
+                for( Map.Entry<Platform, int[]> entry : s.platforms.entrySet() ) {
+                    Platform p = entry.getKey();
+
+                    if( p.equals(platform) || ( platform.isWindows() && p.isWindows() ) || ( platform.isUnix() && p.isUnix() ) ) {
+                        set(family, entry.getValue());
+                    }
+                }
+                candidates = intersect(candidates, family);
+            }
+            String regex = options.getRegex();
+
+            if( regex != null ) {
+                for( String fragment : getRequiredFragments(regex) ) {
+                    BitSet containing = new BitSet(s.images.length);
+
+                    for( Map.Entry<String, int[]> entry : s.words.entrySet() ) {
+                        if( entry.getKey().contains(fragment) ) {
+                            set(containing, entry.getValue());
+                        }
+                    }
+                    candidates = intersect(candidates, containing);
+                }
+            }
+        }
+        ImageClass cls = options.getImageClass();
+        List<MachineImage> matches = new ArrayList<MachineImage>();
+        int count = ( candidates == null ? s.images.length : candidates.length );
+
+        for( int i = 0; i < count; i++ ) {
+            MachineImage image = s.images[candidates == null ? i : candidates[i]];
+
+            if( cls != null && !cls.equals(image.getImageClass()) ) {
+                continue;
+            }
+            if( options.matches(image) ) {
+                matches.add(copy(image));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Finds the runs of letters and digits that any name, description or ID matched by a regular expression must
+     * contain. Only expressions made of literal text and <code>.</code>, <code>.*</code> or <code>.+</code> wildcards
+     * are understood; other expressions yield nothing, so the search is not narrowed at all.
+     * @param regex the regular expression
+     * @return the lower case fragments, each of which is part of a word of any match
+     */
+    static @Nonnull Set<String> getRequiredFragments( @Nonnull String regex ) {
+        Set<String> fragments = new LinkedHashSet<String>();
+        StringBuilder fragment = new StringBuilder();
+
+        for( int i = 0; i <= regex.length(); i++ ) {
+            char c = ( i < regex.length() ? regex.charAt(i) : '.' );
+
+            if( c == '.' ) {
+                if( i + 1 < regex.length() && ( regex.charAt(i + 1) == '*' || regex.charAt(i + 1) == '+' ) ) {
+                    i++;
+                }
+            }
+            else if( c == '\\' ) {
+                if( i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1)) ) {
+                    return Collections.emptySet();
+                }
+                c = regex.charAt(++i);
+            }
+            else if( "|()[]{}?*+^$".indexOf(c) > -1 ) {
+                return Collections.emptySet();
+            }
+            if( c != '.' && Character.isLetterOrDigit(c) ) {
+                fragment.append(Character.toLowerCase(c));
+            }
+            else {
+                if( fragment.length() > 0 ) {
+                    fragments.add(fragment.toString());
+                }
+                fragment.setLength(0);
+            }
+        }
+        return fragments;
+    }
+
+    static private void split( @Nullable String text, @Nonnull Set<String> words ) {
+        if( text == null ) {
+            return;
+        }
+        int start = -1;
+
+        for( int i = 0; i <= text.length(); i++ ) {
+            if( i < text.length() && Character.isLetterOrDigit(text.charAt(i)) ) {
+                if( start < 0 ) {
+                    start = i;
+                }
+            }
+            else if( start > -1 ) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ENGLISH));
+                start = -1;
+            }
+        }
+    }
+
+    static private <K> void post( @Nonnull Map<K, List<Integer>> postings, @Nullable K key, int position ) {
+        if( key == null ) {
+            return;
+        }
+        List<Integer> list = postings.get(key);
+
+        if( list == null ) {
+            list = new ArrayList<Integer>();
+            postings.put(key, list);
+        }
+        list.add(position);
+    }
+
+    static private <K> void toPostings( @Nonnull Map<K, List<Integer>> lists, @Nonnull Map<K, int[]> postings ) {
+        for( Map.Entry<K, List<Integer>> entry : lists.entrySet() ) {
+            List<Integer> list = entry.getValue();
+            int[] positions = new int[list.size()];
+
+            for( int i = 0; i < positions.length; i++ ) {
+                positions[i] = list.get(i);
+            }
+            postings.put(entry.getKey(), positions);
+        }
+    }
+
+    /**
+     * @param candidates the ascending positions found so far, or <code>null</code> for every position
+     * @param positions the ascending positions of one criterion, or <code>null</code> for none
+     * @return the positions in both
+     */
+    static private @Nonnull int[] intersect( @Nullable int[] candidates, @Nullable int[] positions ) {
+        if( positions == null ) {
+            return new int[0];
+        }
+        if( candidates == null ) {
+            return positions;
+        }
+        int[] result = new int[Math.min(candidates.length, positions.length)];
+        int i = 0, j = 0, count = 0;
+
+        while( i < candidates.length && j < positions.length ) {
+            if( candidates[i] < positions[j] ) {
+                i++;
+            }
+            else if( candidates[i] > positions[j] ) {
+                j++;
+            }
+            else {
+                result[count++] = candidates[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * @param candidates the ascending positions found so far, or <code>null</code> for every position
+     * @param positions the positions of one criterion
+     * @return the positions in both
+     */
+    static private @Nonnull int[] intersect( @Nullable int[] candidates, @Nonnull BitSet positions ) {
+        if( candidates == null ) {
+            int[] result = new int[positions.cardinality()];
+            int count = 0;
+
+            for( int i = positions.nextSetBit(0); i > -1; i = positions.nextSetBit(i + 1) ) {
+                result[count++] = i;
+            }
+            return result;
+        }
+        int[] result = new int[candidates.length];
+        int count = 0;
+
+        for( int candidate : candidates ) {
+            if( positions.get(candidate) ) {
+                result[count++] = candidate;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    static private void set( @Nonnull BitSet bits, @Nonnull int[] positions ) {
+        for( int position : positions ) {
+            bits.set(position);
+        }
+    }
+
+    private void load() {
+        if( !file.exists() ) {
+            return;
+        }
+        try {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+
+            try {
+                if( input.readInt() != MAGIC || input.readInt() != VERSION ) {
+                    logger.warn("Ignoring " + file + " as it is not a public image catalog of this version");
+                    return;
+                }
+                long refreshed = input.readLong();
+                int count = input.readInt();
+                List<MachineImage> images = new ArrayList<MachineImage>(count);
+
+                for( int i = 0; i < count; i++ ) {
+                    images.add(readImage(input));
+                }
+                snapshot = new Snapshot(refreshed, images);
+            }
+            finally {
+                input.close();
+            }
+        }
+        catch( IOException e ) {
+            logger.warn("Unable to read the public image catalog " + file + ": " + e.getMessage());
+        }
+        catch( RuntimeException e ) {
+            logger.warn("Ignoring the damaged public image catalog " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the catalog to its file. The file is replaced in a single rename so a reader never sees it half
+     * written.
+     */
+    private synchronized void save() {
+        Snapshot s = snapshot;
+
+        if( s == null ) {
+            return;
+        }
+        File directory = file.getParentFile();
+
+        if( directory != null && !directory.exists() && !directory.mkdirs() ) {
+            logger.warn("Unable to create " + directory);
+            return;
+        }
+        File temporary = new File(file.getPath() + ".tmp");
+
+        try {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(temporary))));
+
+            try {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeLong(s.refreshed);
+                output.writeInt(s.images.length);
+                for( MachineImage image : s.images ) {
+                    writeImage(output, image);
+                }
+            }
+            finally {
+                output.close();
+            }
+            if( !temporary.renameTo(file) && !( file.delete() && temporary.renameTo(file) ) ) {
+                logger.warn("Unable to replace " + file);
+            }
+        }
+        catch( IOException e ) {
+            logger.warn("Unable to save the public image catalog to " + file + ": " + e.getMessage());
+        }
+    }
+
+    private @Nonnull MachineImage readImage( @Nonnull DataInputStream input ) throws IOException {
+        String imageId = readString(input);
+        String ownerId = readString(input);
+        String name = readString(input);
+        String description = readString(input);
+        Architecture architecture = readEnum(input, Architecture.class);
+        Platform platform = readEnum(input, Platform.class);
+        ImageClass cls = readEnum(input, ImageClass.class);
+        MachineImageState state = readEnum(input, MachineImageState.class);
+        MachineImageType type = readEnum(input, MachineImageType.class);
+        int tagCount = input.readInt();
+        Map<String, String> tags = new HashMap<String, String>();
+
+        for( int i = 0; i < tagCount; i++ ) {
+            String key = readString(input);
+            String value = readString(input);
+
+            if( key != null && value != null ) {
+                tags.put(key, value);
+            }
+        }
+        return newImage(imageId, ownerId, name, description, architecture, platform, cls, state, type, tags);
+    }
+
+    /**
+     * Copies an image of the catalog so callers may change what a search returns without changing the catalog. The
+     * catalog keeps the fields the DescribeImages stream parser fills in, so a copy matches what a search against
+     * the cloud returns; provider metadata, volumes, creation time and software are not among them.
+     * @param image the cataloged image
+     * @return a new image with the fields the catalog keeps
+     */
+    private @Nonnull MachineImage copy( @Nonnull MachineImage image ) {
+        Map<String, String> tags = image.getTags();
+
+        return newImage(image.getProviderMachineImageId(), image.getProviderOwnerId(), image.getName(), image.getDescription(), image.getArchitecture(), image.getPlatform(), image.getImageClass(), image.getCurrentState(), image.getType(), tags == null ? new HashMap<String, String>() : new HashMap<String, String>(tags));
+    }
+
+    private @Nonnull MachineImage newImage( String imageId, String ownerId, String name, String description, Architecture architecture, Platform platform, ImageClass cls, MachineImageState state, MachineImageType type, @Nonnull Map<String, String> tags ) {
+        MachineImage image = MachineImage.getInstance(ownerId, regionId, imageId, cls, state, name, description, architecture, platform);
+
+        if( type != null ) {
+            image.withType(type);
+            if( type.equals(MachineImageType.STORAGE) ) {
+                image.withStorageFormat(MachineImageFormat.AWS);
+            }
+        }
+        if( "true".equalsIgnoreCase(tags.get("public")) ) {
+            image.sharedWithPublic();
+        }
+        image.setTags(tags);
+        return image;
+    }
+
+    private void writeImage( @Nonnull DataOutputStream output, @Nonnull MachineImage image ) throws IOException {
+        Map<String, String> tags = image.getTags();
+
+        writeString(output, image.getProviderMachineImageId());
+        writeString(output, image.getProviderOwnerId());
+        writeString(output, image.getName());
+        writeString(output, image.getDescription());
+        writeEnum(output, image.getArchitecture());
+        writeEnum(output, image.getPlatform());
+        writeEnum(output, image.getImageClass());
+        writeEnum(output, image.getCurrentState());
+        writeEnum(output, image.getType());
+        output.writeInt(tags == null ? 0 : tags.size());
+        if( tags != null ) {
+            for( Map.Entry<String, String> tag : tags.entrySet() ) {
+                writeString(output, tag.getKey());
+                writeString(output, tag.getValue());
+            }
+        }
+    }
+
+    static private @Nullable String readString( @Nonnull DataInputStream input ) throws IOException {
+        int length = input.readInt();
+
+        if( length < 0 ) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+
+        input.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    static private void writeString( @Nonnull DataOutputStream output, @Nullable String value ) throws IOException {
+        if( value == null ) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF8);
+
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    static private @Nullable <T extends Enum<T>> T readEnum( @Nonnull DataInputStream input, @Nonnull Class<T> type ) throws IOException {
+        String name = readString(input);
+
+        return ( name == null ? null : Enum.valueOf(type, name) );
+    }
+
+    static private void writeEnum( @Nonnull DataOutputStream output, @Nullable Enum<?> value ) throws IOException {
+        writeString(output, value == null ? null : value.name());
+    }
+}
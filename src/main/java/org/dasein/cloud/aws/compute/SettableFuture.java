@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.compute;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A future that is completed by whoever learns its outcome rather than by running a task of its own.
+ *
+ * @param <V> the type of the outcome
+ */
+class SettableFuture<V> extends FutureTask<V> {
+    SettableFuture() {
+        super(new Callable<V>() {
+            @Override
+            public V call() {
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void set( V value ) {
+        super.set(value);
+    }
+
+    @Override
+    public void setException( @Nonnull Throwable cause ) {
+        super.setException(cause);
+    }
+}
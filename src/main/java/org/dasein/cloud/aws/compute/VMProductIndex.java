@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.compute;
+
+import org.dasein.cloud.compute.Architecture;
+import org.dasein.cloud.compute.MachineImageType;
+import org.dasein.cloud.compute.VirtualMachineProduct;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The virtual machine products available in one region, indexed by product ID and by architecture. The
+ * virtualization types and root device types each product supports are read from its provider metadata once and
+ * kept as bit masks, so matching products to a machine image does not split the metadata strings again.
+ */
+class VMProductIndex {
+    static final int RDT_EBS      = 1;
+    static final int RDT_INSTANCE = 2;
+
+    private final List<VirtualMachineProduct>                    all;
+    private final Map<String, VirtualMachineProduct>             byId                = new HashMap<String, VirtualMachineProduct>();
+    private final Map<Architecture, List<VirtualMachineProduct>> byArchitecture      = new EnumMap<Architecture, List<VirtualMachineProduct>>(Architecture.class);
+    private final Map<String, Integer>                           virtualizationTypes = new HashMap<String, Integer>();
+    private final Map<VirtualMachineProduct, int[]>              masks               = new IdentityHashMap<VirtualMachineProduct, int[]>();
+
+    VMProductIndex( @Nonnull List<VirtualMachineProduct> products ) {
+        all = Collections.unmodifiableList(new ArrayList<VirtualMachineProduct>(products));
+        for( VirtualMachineProduct product : all ) {
+            String id = product.getProviderProductId();
+
+            // as with the linear search, the first product with an ID wins
+            if( !byId.containsKey(id) ) {
+                byId.put(id, product);
+            }
+            Architecture[] architectures = product.getArchitectures();
+
+            if( architectures != null ) {
+                for( Architecture architecture : architectures ) {
+                    List<VirtualMachineProduct> list = byArchitecture.get(architecture);
+
+                    if( list == null ) {
+                        list = new ArrayList<VirtualMachineProduct>();
+                        byArchitecture.put(architecture, list);
+                    }
+                    list.add(product);
+                }
+            }
+            int vt = 0, rdt = 0;
+            String value = product.getProviderMetadata().get("vt");
+
+            if( value != null ) {
+                for( String type : value.split(",") ) {
+                    String key = type.trim().toLowerCase(Locale.ENGLISH);
+                    Integer bit = virtualizationTypes.get(key);
+
+                    if( bit == null ) {
+                        bit = 1 << virtualizationTypes.size();
+                        virtualizationTypes.put(key, bit);
+                    }
+                    vt |= bit;
+                }
+            }
+            value = product.getProviderMetadata().get("rdt");
+            if( value != null ) {
+                for( String type : value.split(",") ) {
+                    if( type.trim().equalsIgnoreCase("ebs") ) {
+                        rdt |= RDT_EBS;
+                    }
+                    else if( type.trim().equalsIgnoreCase("instance") ) {
+                        rdt |= RDT_INSTANCE;
+                    }
+                }
+            }
+            masks.put(product, new int[] { vt, rdt });
+        }
+    }
+
+    /**
+     * @param productId the ID of a product
+     * @return the product or <code>null</code> if there is no such product in the region
+     */
+    @Nullable VirtualMachineProduct getProduct( @Nonnull String productId ) {
+        return byId.get(productId);
+    }
+
+    /**
+     * @param architecture the architecture the products must support, or <code>null</code> for all products
+     * @return the products, in catalog order
+     */
+    @Nonnull List<VirtualMachineProduct> list( @Nullable Architecture architecture ) {
+        if( architecture == null ) {
+            return all;
+        }
+        List<VirtualMachineProduct> list = byArchitecture.get(architecture);
+
+        return ( list == null ? Collections.<VirtualMachineProduct>emptyList() : Collections.unmodifiableList(list) );
+    }
+
+    /**
+     * @param virtualizationType the virtualization type of a machine image, such as <code>hvm</code>
+     * @return the bit standing for the virtualization type or 0 if no product supports it
+     */
+    int getVirtualizationTypeMask( @Nullable String virtualizationType ) {
+        if( virtualizationType == null ) {
+            return 0;
+        }
+        Integer bit = virtualizationTypes.get(virtualizationType.trim().toLowerCase(Locale.ENGLISH));
+
+        return ( bit == null ? 0 : bit );
+    }
+
+    /**
+     * @param type the type of a machine image
+     * @return the bit standing for the root device type of images of that type or 0 for none
+     */
+    static int getRootDeviceTypeMask( @Nullable MachineImageType type ) {
+        if( MachineImageType.VOLUME.equals(type) ) {
+            return RDT_EBS;
+        }
+        else if( MachineImageType.STORAGE.equals(type) ) {
+            return RDT_INSTANCE;
+        }
+        return 0;
+    }
+
+    /**
+     * @param product a product of this index
+     * @param virtualizationTypes the virtualization type bits of which one must be supported
+     * @param rootDeviceTypes the root device type bits of which one must be supported
+     * @return true if the product supports one of the virtualization types and one of the root device types
+     */
+    boolean matches( @Nonnull VirtualMachineProduct product, int virtualizationTypes, int rootDeviceTypes ) {
+        int[] mask = masks.get(product);
+
+        return mask != null && ( mask[0] & virtualizationTypes ) != 0 && ( mask[1] & rootDeviceTypes ) != 0;
+    }
+}
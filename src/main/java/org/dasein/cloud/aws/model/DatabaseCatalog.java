@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.model;
+
+import org.dasein.cloud.InternalException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The database products of a {@link DatabaseProvider}, indexed by engine and region, along with the product
+ * definitions indexed by product name. The AWS catalog is read once per JVM, on first use, so listing the products
+ * of an engine in a region is a map lookup instead of a parse of the whole resource followed by a linear scan.
+ * The index cannot be modified.
+ */
+public class DatabaseCatalog {
+    static public final String AWS_PRODUCTS = "/org/dasein/cloud/aws/dbproducts.json";
+
+    static private volatile DatabaseCatalog aws;
+
+    /**
+     * @return the catalog of AWS database products
+     * @throws InternalException the catalog resource could not be read
+     */
+    static public @Nonnull DatabaseCatalog getAWSCatalog() throws InternalException {
+        DatabaseCatalog catalog = aws;
+
+        if( catalog == null ) {
+            synchronized( DatabaseCatalog.class ) {
+                catalog = aws;
+                if( catalog == null ) {
+                    catalog = new DatabaseCatalog(DatabaseProvider.fromFile(AWS_PRODUCTS, "AWS"));
+                    aws = catalog;
+                }
+            }
+        }
+        return catalog;
+    }
+
+    private final Map<String, List<DatabaseProduct>>     products;
+    private final Map<String, DatabaseProductDefinition> definitions;
+
+    public DatabaseCatalog( @Nonnull DatabaseProvider provider ) {
+        Map<String, List<DatabaseProduct>> products = new HashMap<String, List<DatabaseProduct>>();
+        Map<String, DatabaseProductDefinition> definitions = new HashMap<String, DatabaseProductDefinition>();
+
+        if( provider.getEngines() != null ) {
+            for( DatabaseEngine engine : provider.getEngines() ) {
+                if( engine.getRegions() == null ) {
+                    continue;
+                }
+                for( DatabaseRegion region : engine.getRegions() ) {
+                    if( region.getProducts() == null ) {
+                        continue;
+                    }
+                    String key = toKey(engine.getName(), region.getName());
+                    List<DatabaseProduct> list = products.get(key);
+
+                    if( list == null ) {
+                        list = new ArrayList<DatabaseProduct>();
+                        products.put(key, list);
+                    }
+                    list.addAll(region.getProducts());
+                }
+            }
+        }
+        for( Map.Entry<String, List<DatabaseProduct>> entry : products.entrySet() ) {
+            entry.setValue(Collections.unmodifiableList(new ArrayList<DatabaseProduct>(entry.getValue())));
+        }
+        if( provider.getProductDefinitions() != null ) {
+            for( DatabaseProductDefinition definition : provider.getProductDefinitions() ) {
+                String key = definition.getName().toLowerCase(Locale.ENGLISH);
+
+                // the first definition of a name wins, as it did with the linear search
+                if( !definitions.containsKey(key) ) {
+                    definitions.put(key, definition);
+                }
+            }
+        }
+        this.products = Collections.unmodifiableMap(products);
+        this.definitions = Collections.unmodifiableMap(definitions);
+    }
+
+    static private @Nonnull String toKey( @Nonnull String engine, @Nonnull String region ) {
+        return engine.toLowerCase(Locale.ENGLISH) + "|" + region.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * @param engine the name of a database engine, in any case
+     * @param region the ID of a region, in any case
+     * @return the products of the engine in the region, in catalog order
+     */
+    public @Nonnull List<DatabaseProduct> getProducts( @Nonnull String engine, @Nonnull String region ) {
+        List<DatabaseProduct> list = products.get(toKey(engine, region));
+
+        if( list == null ) {
+            return Collections.emptyList();
+        }
+        return list;
+    }
+
+    /**
+     * @param productName the name of a product, in any case
+     * @return the definition of the product or <code>null</code> if there is none
+     */
+    public @Nullable DatabaseProductDefinition getDefinition( @Nonnull String productName ) {
+        return definitions.get(productName.toLowerCase(Locale.ENGLISH));
+    }
+}
@@ -25,6 +25,7 @@ import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
@@ -36,6 +37,8 @@ import org.dasein.cloud.CloudException;
 import org.dasein.cloud.InternalException;
 import org.dasein.cloud.ProviderContext;
 import org.dasein.cloud.aws.AWSCloud;
+import org.dasein.cloud.aws.RetryPolicy;
+import org.dasein.cloud.aws.WireInputStream;
 import org.dasein.cloud.aws.compute.EC2Exception;
 import org.dasein.cloud.identity.ServiceAction;
 import org.dasein.cloud.network.DNSSupport;
@@ -166,10 +169,9 @@ public class Route53Method {
 		if( logger.isDebugEnabled() ) {
 			logger.debug("Talking to server at " + url);
 		}
-        HttpClient client = null;
+        HttpResponse response = null;
 		try {
-            client = provider.getClient();
-            HttpResponse response;
+            HttpClient client = provider.getClient();
     		int status;
     
     		attempts++;
@@ -186,6 +188,7 @@ public class Route53Method {
                 }
                 wire.debug("");
             }
+            RetryPolicy retryPolicy = provider.getRetryPolicy();
             String xml;
 
             try {
@@ -208,6 +211,18 @@ public class Route53Method {
                 try {
                     HttpEntity entity = response.getEntity();
 
+                    if( entity != null && (status == HttpStatus.SC_OK || status == HttpStatus.SC_ACCEPTED || status == HttpStatus.SC_CREATED) ) {
+                        InputStream input = entity.getContent();
+
+                        retryPolicy.succeeded();
+
+                        try {
+                            return parseResponse(input);
+                        }
+                        finally {
+                            input.close();
+                        }
+                    }
                     if( entity != null ) {
                         xml = EntityUtils.toString(entity);
                         if( wire.isDebugEnabled() ) {
@@ -288,8 +303,8 @@ public class Route53Method {
     		    throw new CloudException(msg);
     		}
     		else {
-    			if( status == HttpStatus.SC_SERVICE_UNAVAILABLE || status == HttpStatus.SC_INTERNAL_SERVER_ERROR ) {
-    				if( attempts >= 5 ) {
+    			if( retryPolicy.isRetryable(status, null) ) {
+    				if( !retryPolicy.shouldRetry(attempts, status, null) ) {
     					String msg;
     					
     					if( status == HttpStatus.SC_SERVICE_UNAVAILABLE ) {
@@ -303,14 +318,8 @@ public class Route53Method {
     					throw new CloudException(msg);
     				}
     				else {
-    					try { Thread.sleep(5000L); }
-    					catch( InterruptedException ignore ) { }
-    					try {
-    					    return invokeMethod(method.getClass().newInstance());
-    					}
-    					catch( Throwable t ) {
-    					    throw new InternalException(t);
-    					}
+    					retryPolicy.backoff(attempts, status == 429);
+    					return retry(method);
     				}
     			}
                 Document doc;
@@ -341,6 +350,10 @@ public class Route53Method {
 
                         requestId = id.getFirstChild().getNodeValue().trim();
                     }
+                    if( retryPolicy.isThrottle(code) && retryPolicy.shouldRetry(attempts, status, code) ) {
+                        retryPolicy.backoff(attempts, true);
+                        return retry(method);
+                    }
                     if( message == null ) {
                         throw new CloudException("Unable to identify error condition: " + status + "/" + requestId + "/" + code);
                     }
@@ -350,13 +363,33 @@ public class Route53Method {
     		}
         }
         finally {
-            if (client != null) {
-                client.getConnectionManager().shutdown();
+            if( response != null ) {
+                // hands the connection back to the shared pool
+                EntityUtils.consumeQuietly(response.getEntity());
             }
             logger.debug("Done");
         }
 	}
 	
+    /**
+     * Sends a fresh copy of a request that failed, since a request cannot be executed twice.
+     */
+    private Document retry(HttpRequestBase method) throws EC2Exception, CloudException, InternalException {
+        HttpRequestBase copy;
+
+        try {
+            copy = method.getClass().newInstance();
+        }
+        catch( Throwable t ) {
+            throw new InternalException(t);
+        }
+        copy.setURI(method.getURI());
+        if( method instanceof HttpEntityEnclosingRequestBase ) {
+            ((HttpEntityEnclosingRequestBase)copy).setEntity(((HttpEntityEnclosingRequestBase)method).getEntity());
+        }
+        return invokeMethod(copy);
+    }
+
 	private Document parseResponse(String responseBody, boolean debug) throws CloudException, InternalException {
 	    try {
 	        if( debug ) { System.out.println(responseBody); }
@@ -373,24 +406,19 @@ public class Route53Method {
         }   
 	}
 	
-	private Document parseResponse(InputStream responseBodyAsStream, boolean debug) throws CloudException, InternalException {
+	private Document parseResponse(InputStream responseBodyAsStream) throws CloudException, InternalException {
 		try {
-			BufferedReader in = new BufferedReader(new InputStreamReader(responseBodyAsStream));
-			StringBuilder sb = new StringBuilder();
-			String line;
-	            
-			while( (line = in.readLine()) != null ) {
-				sb.append(line);
-				sb.append("\n");
-			}
-			in.close();
-	          
-			//System.out.println(sb.toString());
-			return parseResponse(sb.toString(), debug);
+			return XMLParser.parse(WireInputStream.wrap(responseBodyAsStream, wire));
 		}
 		catch( IOException e ) {
 			throw new CloudException(e);
-		}			
+		}
+		catch( ParserConfigurationException e ) {
+			throw new CloudException(e);
+		}
+		catch( SAXException e ) {
+			throw new CloudException(e);
+		}
 	}
 	
 	private String translateMethod(String operation) {
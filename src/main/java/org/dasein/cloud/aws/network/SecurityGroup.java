@@ -652,20 +652,9 @@ public class SecurityGroup extends AbstractFirewallSupport<AWSCloud> {
 
     @Override
     public void revoke(@Nonnull String providerFirewallRuleId) throws InternalException, CloudException {
-        FirewallRule rule = null;
+        // rule IDs encode the group and the whole permission, so there is no need to look the rule up first
+        FirewallRule rule = FirewallRule.parseId(providerFirewallRuleId);
 
-        for( Firewall f : list() ) {
-            String fwId = f.getProviderFirewallId();
-
-            if( fwId != null ) {
-                for( FirewallRule r : getRules(fwId) ) {
-                    if( providerFirewallRuleId.equals(r.getProviderRuleId()) ) {
-                        rule = r;
-                        break;
-                    }
-                }
-            }
-        }
         if( rule == null ) {
             throw new CloudException("Unable to parse rule ID: " + providerFirewallRuleId);
         }
@@ -1631,12 +1631,13 @@ public class VPC extends AbstractVLANSupport<AWSCloud> {
                             }
                             ComputeServices compute = getProvider().getComputeServices();
                             VirtualMachineSupport vmSupport = compute == null ? null : compute.getVirtualMachineSupport();
-                            Iterable<VirtualMachine> vms;
+                            List<VirtualMachine> vms = new ArrayList<VirtualMachine>();
 
-                            if( vmSupport == null ) {
-                                vms = Collections.emptyList();
-                            } else {
-                                vms = vmSupport.listVirtualMachines();
+                            // the listing is lazy and can only be walked once, but it is matched against every subnet
+                            if( vmSupport != null ) {
+                                for( VirtualMachine vm : vmSupport.listVirtualMachines() ) {
+                                    vms.add(vm);
+                                }
                             }
                             for( Subnet subnet : listSubnets(vlanId) ) {
                                 iterator.push(subnet);
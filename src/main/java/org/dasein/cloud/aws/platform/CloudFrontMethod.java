@@ -27,11 +27,14 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
 import org.dasein.cloud.CloudException;
 import org.dasein.cloud.InternalException;
 import org.dasein.cloud.ProviderContext;
 import org.dasein.cloud.aws.AWSCloud;
+import org.dasein.cloud.aws.RetryPolicy;
+import org.dasein.cloud.aws.WireInputStream;
 import org.dasein.cloud.identity.ServiceAction;
 import org.dasein.cloud.platform.CDNSupport;
 import org.dasein.cloud.util.APITrace;
@@ -52,6 +55,7 @@ import java.util.SimpleTimeZone;
 
 public class CloudFrontMethod {
 	static private final Logger logger = Logger.getLogger(CloudFrontMethod.class);
+	static private final Logger wire = AWSCloud.getWireLogger(CloudFrontMethod.class);
     static SimpleDateFormat fmt = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z");
     static {
         fmt.setCalendar(Calendar.getInstance(new SimpleTimeZone(0, "GMT")));
@@ -148,7 +152,7 @@ public class CloudFrontMethod {
         client = provider.getClient();
         CloudFrontResponse response = new CloudFrontResponse();
 
-        HttpResponse httpResponse;
+        HttpResponse httpResponse = null;
         int status;
 
         try {
@@ -171,7 +175,10 @@ public class CloudFrontMethod {
             else {
                 response.etag = null;
             }
+            RetryPolicy retryPolicy = provider.getRetryPolicy();
+
             if( status == HttpStatus.SC_OK || status == HttpStatus.SC_CREATED || status == HttpStatus.SC_ACCEPTED ) {
+                retryPolicy.succeeded();
                 try {
                     HttpEntity entity = httpResponse.getEntity();
 
@@ -204,8 +211,8 @@ public class CloudFrontMethod {
                 return null;
             }
             else {
-                if( status == HttpStatus.SC_SERVICE_UNAVAILABLE || status == HttpStatus.SC_INTERNAL_SERVER_ERROR ) {
-                    if( attempts >= 5 ) {
+                if( retryPolicy.isRetryable(status, null) ) {
+                    if( !retryPolicy.shouldRetry(attempts, status, null) ) {
                         String msg;
 
                         if( status == HttpStatus.SC_SERVICE_UNAVAILABLE ) {
@@ -218,8 +225,8 @@ public class CloudFrontMethod {
                         throw new CloudException(msg);
                     }
                     else {
-                        try { Thread.sleep(5000L); }
-                        catch( InterruptedException ignore ) { }
+                        EntityUtils.consumeQuietly(httpResponse.getEntity());
+                        retryPolicy.backoff(attempts, status == 429);
                         return invoke(args);
                     }
                 }
@@ -275,6 +282,10 @@ public class CloudFrontMethod {
 
                             requestId = id.getFirstChild().getNodeValue().trim();
                         }
+                        if( retryPolicy.isThrottle(code) && retryPolicy.shouldRetry(attempts, status, code) ) {
+                            retryPolicy.backoff(attempts, true);
+                            return invoke(args);
+                        }
                         if( message == null ) {
                             throw new CloudException("Unable to identify error condition: " + status + "/" + requestId + "/" + code);
                         }
@@ -289,25 +300,16 @@ public class CloudFrontMethod {
                 }
             }
         } finally {
-            if (client != null) {
-                client.getConnectionManager().shutdown();
+            if( httpResponse != null ) {
+                // hands the connection back to the shared pool
+                EntityUtils.consumeQuietly(httpResponse.getEntity());
             }
         }
     }
 	
 	private Document parseResponse(InputStream responseBodyAsStream) throws CloudException, InternalException {
 		try {
-			BufferedReader in = new BufferedReader(new InputStreamReader(responseBodyAsStream));
-			StringBuilder sb = new StringBuilder();
-			String line;
-	            
-			while( (line = in.readLine()) != null ) {
-				sb.append(line);
-			}
-			in.close();
-	            
-			//System.out.println(sb.toString());
-			return XMLParser.parse(new ByteArrayInputStream(sb.toString().getBytes()));
+			return XMLParser.parse(WireInputStream.wrap(responseBodyAsStream, wire));
 		}
 		catch( IOException e ) {
 			logger.error(e);
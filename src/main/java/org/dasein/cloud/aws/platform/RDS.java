@@ -31,8 +31,7 @@ import org.dasein.cloud.aws.AWSCloud;
 import org.dasein.cloud.aws.compute.EC2Exception;
 import org.dasein.cloud.aws.compute.EC2Method;
 import org.dasein.cloud.aws.model.DatabaseProductDefinition;
-import org.dasein.cloud.aws.model.DatabaseProvider;
-import org.dasein.cloud.aws.model.DatabaseRegion;
+import org.dasein.cloud.aws.model.DatabaseCatalog;
 import org.dasein.cloud.identity.ServiceAction;
 import org.dasein.cloud.network.Direction;
 import org.dasein.cloud.network.FirewallRule;
@@ -695,39 +694,36 @@ public class RDS extends AbstractRelationalDatabaseSupport<AWSCloud> {
     @Override
     public Iterable<DatabaseProduct> listDatabaseProducts( DatabaseEngine engine ) throws CloudException, InternalException {
         List<DatabaseProduct> products = new ArrayList<DatabaseProduct>();
-        DatabaseProvider databaseProvider = DatabaseProvider.fromFile("/org/dasein/cloud/aws/dbproducts.json", "AWS");
-
-        org.dasein.cloud.aws.model.DatabaseEngine databaseEngine = databaseProvider.findEngine(getEngineString(engine));
-
-        if( databaseEngine != null ) {
-            for ( DatabaseRegion region : databaseEngine.getRegions() ) {
-                if( region.getName().equalsIgnoreCase( getProvider().getContext().getRegionId()) ) {
-                    for( org.dasein.cloud.aws.model.DatabaseProduct databaseProduct : region.getProducts() ) {
-                        DatabaseProduct product = new DatabaseProduct(databaseProduct.getName());
-                        product.setEngine(engine);
-                        product.setHighAvailability(databaseProduct.isHighAvailability());
-                        product.setStandardHourlyRate(databaseProduct.getHourlyRate());
-                        product.setStandardIoRate(databaseProduct.getIoRate());
-                        product.setStandardStorageRate(databaseProduct.getStorageRate());
-                        DatabaseLicenseModel lic = GENERAL_PUBLIC_LICENSE;
-                        if( "included".equalsIgnoreCase(databaseProduct.getLicense())) {
-                            lic = LICENSE_INCLUDED;
-                        } else if( "byol".equalsIgnoreCase(databaseProduct.getLicense())) {
-                            lic = BRING_YOUR_OWN_LICENSE;
-                        } else if( "postgres".equalsIgnoreCase(databaseProduct.getLicense())) {
-                            lic = POSTGRESQL_LICENSE;
-                        }
-                        product.setLicenseModel(lic);
-                        product.setCurrency(databaseProduct.getCurrency());
-                        DatabaseProductDefinition def = databaseProvider.findProductDefinition(databaseProduct.getName());
-                        if( def != null) {
-                            product.setName(String.format("%.2fGB RAM, %d CPU, %s Network Performance", def.getMemory(), def.getvCpus(), def.getNetworkPerformance()));
-                        }
-                        product.setStorageInGigabytes(databaseProduct.getMinStorage());
-                        products.add(product);
-                    }
-                }
-            }
+        String regionId = getProvider().getContext().getRegionId();
+
+        if( regionId == null ) {
+            return products;
+        }
+        DatabaseCatalog catalog = DatabaseCatalog.getAWSCatalog();
+
+        for( org.dasein.cloud.aws.model.DatabaseProduct databaseProduct : catalog.getProducts(getEngineString(engine), regionId) ) {
+            DatabaseProduct product = new DatabaseProduct(databaseProduct.getName());
+            product.setEngine(engine);
+            product.setHighAvailability(databaseProduct.isHighAvailability());
+            product.setStandardHourlyRate(databaseProduct.getHourlyRate());
+            product.setStandardIoRate(databaseProduct.getIoRate());
+            product.setStandardStorageRate(databaseProduct.getStorageRate());
+            DatabaseLicenseModel lic = GENERAL_PUBLIC_LICENSE;
+            if( "included".equalsIgnoreCase(databaseProduct.getLicense())) {
+                lic = LICENSE_INCLUDED;
+            } else if( "byol".equalsIgnoreCase(databaseProduct.getLicense())) {
+                lic = BRING_YOUR_OWN_LICENSE;
+            } else if( "postgres".equalsIgnoreCase(databaseProduct.getLicense())) {
+                lic = POSTGRESQL_LICENSE;
+            }
+            product.setLicenseModel(lic);
+            product.setCurrency(databaseProduct.getCurrency());
+            DatabaseProductDefinition def = catalog.getDefinition(databaseProduct.getName());
+            if( def != null) {
+                product.setName(String.format("%.2fGB RAM, %d CPU, %s Network Performance", def.getMemory(), def.getvCpus(), def.getNetworkPerformance()));
+            }
+            product.setStorageInGigabytes(databaseProduct.getMinStorage());
+            products.add(product);
         }
         return products;
     }
@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.storage;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.aws.AWSCloud;
+import org.dasein.util.CalendarWrapper;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The regions of the buckets in one account, shared by every {@link S3} instance working against that account.
+ * Entries expire after half an hour or so, staggered so that buckets resolved together are not looked up again
+ * together. When a snapshot file is configured, the entries are written to it after each batch of lookups and read
+ * back on first use, so a restarted process does not look up every bucket again.
+ */
+class BucketRegions {
+    static private final Logger logger = AWSCloud.getLogger(BucketRegions.class);
+
+    static private final long LIFETIME = CalendarWrapper.MINUTE * 30L;
+    static private final long JITTER   = CalendarWrapper.MINUTE * 5L;
+
+    static private final int MAXIMUM_ACCOUNTS = 100;
+
+    // the least recently used accounts are dropped; their regions are looked up or read from the snapshot again
+    static private final Map<String, BucketRegions> accounts = new LinkedHashMap<String, BucketRegions>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, BucketRegions> eldest ) {
+            return size() > MAXIMUM_ACCOUNTS;
+        }
+    };
+
+    /**
+     * @param accountNumber the account owning the buckets
+     * @param snapshot the file the regions are saved to, if any; only the first value for an account is used
+     * @return the bucket regions of the account, loaded from the snapshot before anyone gets to see them
+     */
+    static @Nonnull BucketRegions getInstance( @Nonnull String accountNumber, @Nullable File snapshot ) {
+        synchronized( accounts ) {
+            BucketRegions regions = accounts.get(accountNumber);
+
+            if( regions == null ) {
+                regions = new BucketRegions(snapshot);
+                regions.load();
+                accounts.put(accountNumber, regions);
+            }
+            return regions;
+        }
+    }
+
+    static private class Constraint {
+        final String regionId;
+        final long   resolved;
+        final long   timeout;
+
+        Constraint( @Nonnull String regionId, long resolved ) {
+            this.regionId = regionId;
+            this.resolved = resolved;
+            this.timeout = resolved + LIFETIME + ThreadLocalRandom.current().nextLong(JITTER);
+        }
+    }
+
+    private final ConcurrentMap<String, Constraint> constraints = new ConcurrentHashMap<String, Constraint>();
+    private final File                              snapshot;
+
+    private BucketRegions( @Nullable File snapshot ) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * @param bucket the name of a bucket
+     * @return the region of the bucket or <code>null</code> if it is not known or has expired
+     */
+    @Nullable String get( @Nonnull String bucket ) {
+        Constraint c = constraints.get(bucket);
+
+        if( c == null || c.timeout <= System.currentTimeMillis() ) {
+            return null;
+        }
+        return c.regionId;
+    }
+
+    void put( @Nonnull String bucket, @Nonnull String regionId ) {
+        constraints.put(bucket, new Constraint(regionId, System.currentTimeMillis()));
+    }
+
+    void remove( @Nonnull String bucket ) {
+        constraints.remove(bucket);
+    }
+
+    private void load() {
+        if( snapshot == null || !snapshot.exists() ) {
+            return;
+        }
+        Properties properties = new Properties();
+
+        try {
+            FileInputStream input = new FileInputStream(snapshot);
+
+            try {
+                properties.load(input);
+            }
+            finally {
+                input.close();
+            }
+        }
+        catch( IOException e ) {
+            logger.warn("Unable to read bucket regions from " + snapshot + ": " + e.getMessage());
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        for( String bucket : properties.stringPropertyNames() ) {
+            String[] parts = properties.getProperty(bucket).split(" ");
+
+            if( parts.length != 2 ) {
+                continue;
+            }
+            try {
+                Constraint c = new Constraint(parts[0], Long.parseLong(parts[1]));
+
+                if( c.timeout > now ) {
+                    constraints.putIfAbsent(bucket, c);
+                }
+            }
+            catch( NumberFormatException ignore ) {
+                // a damaged entry is simply looked up again
+            }
+        }
+    }
+
+    /**
+     * Writes the current entries to the snapshot file, if there is one. The file is replaced in a single rename so
+     * a reader never sees it half written.
+     */
+    synchronized void save() {
+        if( snapshot == null ) {
+            return;
+        }
+        Properties properties = new Properties();
+
+        for( Map.Entry<String, Constraint> entry : constraints.entrySet() ) {
+            properties.setProperty(entry.getKey(), entry.getValue().regionId + " " + entry.getValue().resolved);
+        }
+        File temporary = new File(snapshot.getPath() + ".tmp");
+
+        try {
+            FileOutputStream output = new FileOutputStream(temporary);
+
+            try {
+                properties.store(output, "S3 bucket regions");
+            }
+            finally {
+                output.close();
+            }
+            if( !temporary.renameTo(snapshot) && !( snapshot.delete() && temporary.renameTo(snapshot) ) ) {
+                logger.warn("Unable to replace " + snapshot);
+            }
+        }
+        catch( IOException e ) {
+            logger.warn("Unable to save bucket regions to " + snapshot + ": " + e.getMessage());
+        }
+    }
+}
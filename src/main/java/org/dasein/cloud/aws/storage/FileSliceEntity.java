@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.storage;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+/**
+ * Request entity streaming a slice of a file, read with positional reads so that several parts of the same
+ * file can be sent at once.
+ */
+class FileSliceEntity extends AbstractHttpEntity {
+    private final File file;
+    private final long offset;
+    private final long length;
+
+    FileSliceEntity(File file, long offset, long length, String contentType) {
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+        setContentType(contentType);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        final FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+
+        channel.position(offset);
+        return new BufferedInputStream(new LimitedInputStream(Channels.newInputStream(channel), length));
+    }
+
+    @Override
+    public void writeTo(OutputStream output) throws IOException {
+        FileInputStream input = new FileInputStream(file);
+
+        try {
+            FileChannel channel = input.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(65536);
+            long position = offset;
+            long end = offset + length;
+
+            while( position < end ) {
+                buffer.limit((int)Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+
+                if( read == -1 ) {
+                    throw new EOFException("Unexpected end of " + file + " at " + position);
+                }
+                position += read;
+                output.write(buffer.array(), 0, read);
+                buffer.clear();
+            }
+            output.flush();
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    static private class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        LimitedInputStream(InputStream input, long limit) {
+            super(input);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if( remaining <= 0 ) {
+                return -1;
+            }
+            int b = super.read();
+
+            if( b != -1 ) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if( remaining <= 0 ) {
+                return -1;
+            }
+            int read = super.read(b, off, (int)Math.min(len, remaining));
+
+            if( read != -1 ) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+}
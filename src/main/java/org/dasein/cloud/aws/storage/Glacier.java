@@ -38,10 +38,22 @@ import org.json.JSONObject;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.EOFException;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Implements support for Amazon Glacier using the Dasein Cloud blob storage interface. Dasein Cloud buckets are
@@ -386,7 +398,7 @@ public class Glacier extends AbstractBlobStoreSupport<AWSCloud> implements Offli
     protected void put(@Nullable String bucket, @Nonnull String object, @Nonnull File file) throws CloudException, InternalException {
         APITrace.begin(getProvider(), "Blob.putFile");
         try {
-            // TODO: upload
+            putArchive(bucket, object, file);
         }
         finally {
             APITrace.end();
@@ -396,13 +408,253 @@ public class Glacier extends AbstractBlobStoreSupport<AWSCloud> implements Offli
     protected void put(@Nullable String bucket, @Nonnull String object, @Nonnull String content) throws CloudException, InternalException {
         APITrace.begin(getProvider(), "Blob.putString");
         try {
-            // TODO: upload
+            if( bucket == null ) {
+                throw new OperationNotSupportedException("Root objects are not supported");
+            }
+            byte[][] hashes;
+
+            try {
+                hashes = TreeHash.compute(content.getBytes("utf-8"));
+            }
+            catch( UnsupportedEncodingException e ) {
+                throw new InternalException(e);
+            }
+            Map<String, String> headers = new HashMap<String, String>();
+
+            headers.put(GlacierMethod.HEADER_ARCHIVE_DESCRIPTION, toDescription(object));
+            headers.put(GlacierMethod.HEADER_TREE_HASH, TreeHash.toHex(hashes[1]));
+            GlacierMethod method = GlacierMethod.build(getProvider(), GlacierAction.CREATE_ARCHIVE)
+                    .vaultId(bucket).headers(headers).bodyText(content).toMethod();
+
+            getArchiveId(method.invokeHeaders(), object);
         }
         finally {
             APITrace.end();
         }
     }
 
+    static private final long MIN_PART_SIZE          = 1024L * 1024L;
+    static private final long MAX_PART_SIZE          = 4096L * 1024L * 1024L;
+    static private final int  DEFAULT_PART_SIZE_MB   = 64;
+    static private final int  DEFAULT_UPLOAD_THREADS = 4;
+    static private final int  MAX_PARTS              = 10000;
+    static private final int  PART_ATTEMPTS          = 3;
+
+    /**
+     * Determines the part size for uploading an archive of the given length. Glacier only accepts parts of a power
+     * of two megabytes, so the configured size is rounded up to one, and it is grown when needed to stay within the
+     * limit on the number of parts.
+     * @param length the length of the archive being uploaded
+     * @return the part size in bytes
+     */
+    private long getPartSize(long length) {
+        long configured = getProvider().getIntProperty(AWSCloud.DSN_GLACIER_PART_SIZE, DEFAULT_PART_SIZE_MB) * 1024L * 1024L;
+        long partSize = MIN_PART_SIZE;
+
+        while( partSize < configured && partSize < MAX_PART_SIZE ) {
+            partSize <<= 1;
+        }
+        while( (length + partSize - 1) / partSize > MAX_PARTS && partSize < MAX_PART_SIZE ) {
+            partSize <<= 1;
+        }
+        return partSize;
+    }
+
+    /**
+     * Uploads a file as a new archive, in parallel parts if it is larger than a single part.
+     * @return the ID Glacier assigned to the archive
+     */
+    private @Nonnull String putArchive(@Nullable String bucket, @Nonnull String object, @Nonnull File file) throws CloudException, InternalException {
+        if( bucket == null ) {
+            throw new OperationNotSupportedException("Root objects are not supported");
+        }
+        long length = file.length();
+        long partSize = getPartSize(length);
+
+        if( length > partSize ) {
+            return putMultipart(bucket, object, file, partSize);
+        }
+        byte[][] hashes = hash(file, 0L, length);
+        Map<String, String> headers = new HashMap<String, String>();
+
+        headers.put(GlacierMethod.HEADER_ARCHIVE_DESCRIPTION, toDescription(object));
+        headers.put(GlacierMethod.HEADER_CONTENT_SHA256, TreeHash.toHex(hashes[0]));
+        headers.put(GlacierMethod.HEADER_TREE_HASH, TreeHash.toHex(hashes[1]));
+        GlacierMethod method = GlacierMethod.build(getProvider(), GlacierAction.CREATE_ARCHIVE)
+                .vaultId(bucket).headers(headers).bodyFile(file).toMethod();
+
+        return getArchiveId(method.invokeHeaders(), object);
+    }
+
+    private @Nonnull String putMultipart(@Nonnull String bucket, @Nonnull String object, @Nonnull File file, long partSize) throws CloudException, InternalException {
+        Map<String, String> headers = new HashMap<String, String>();
+
+        headers.put(GlacierMethod.HEADER_ARCHIVE_DESCRIPTION, toDescription(object));
+        headers.put(GlacierMethod.HEADER_PART_SIZE, String.valueOf(partSize));
+        Map<String, String> initiated = GlacierMethod.build(getProvider(), GlacierAction.INITIATE_MULTIPART_UPLOAD)
+                .vaultId(bucket).headers(headers).toMethod().invokeHeaders();
+        String uploadId = initiated.get(GlacierMethod.HEADER_UPLOAD_ID);
+
+        if( uploadId == null ) {
+            throw new CloudException("Glacier response missing " + GlacierMethod.HEADER_UPLOAD_ID + " header");
+        }
+        long length = file.length();
+        int threads = Math.max(1, getProvider().getIntProperty(AWSCloud.DSN_GLACIER_UPLOAD_THREADS, DEFAULT_UPLOAD_THREADS));
+        int count = (int)((length + partSize - 1) / partSize);
+        ExecutorService pool = S3.newTransferPool(Math.min(threads, count), "dasein-glacier-upload");
+        boolean completed = false;
+
+        try {
+            List<Future<byte[]>> parts = new ArrayList<Future<byte[]>>(count);
+
+            for( int i=0; i<count; i++ ) {
+                long offset = i * partSize;
+
+                parts.add(pool.submit(new PartUpload(bucket, object, uploadId, file, offset, Math.min(partSize, length - offset))));
+            }
+            List<byte[]> treeHashes = new ArrayList<byte[]>(count);
+
+            for( Future<byte[]> part : parts ) {
+                try {
+                    treeHashes.add(part.get());
+                }
+                catch( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    throw new InternalException(e);
+                }
+                catch( ExecutionException e ) {
+                    Throwable cause = e.getCause();
+
+                    if( cause instanceof CloudException ) {
+                        throw (CloudException)cause;
+                    }
+                    if( cause instanceof InternalException ) {
+                        throw (InternalException)cause;
+                    }
+                    throw new InternalException(cause);
+                }
+            }
+            headers = new HashMap<String, String>();
+            headers.put(GlacierMethod.HEADER_ARCHIVE_SIZE, String.valueOf(length));
+            // parts are a power of two megabytes, so their tree hashes are whole subtrees of the archive's
+            headers.put(GlacierMethod.HEADER_TREE_HASH, TreeHash.toHex(TreeHash.combine(treeHashes)));
+            Map<String, String> response = GlacierMethod.build(getProvider(), GlacierAction.COMPLETE_MULTIPART_UPLOAD)
+                    .vaultId(bucket).uploadId(uploadId).headers(headers).toMethod().invokeHeaders();
+            String archiveId = getArchiveId(response, object);
+
+            completed = true;
+            return archiveId;
+        }
+        finally {
+            pool.shutdownNow();
+            if( !completed ) {
+                abortMultipartUpload(bucket, object, uploadId);
+            }
+        }
+    }
+
+    private void abortMultipartUpload(@Nonnull String bucket, @Nonnull String object, @Nonnull String uploadId) {
+        try {
+            GlacierMethod.build(getProvider(), GlacierAction.ABORT_MULTIPART_UPLOAD)
+                    .vaultId(bucket).uploadId(uploadId).toMethod().invoke();
+        }
+        catch( Throwable t ) {
+            logger.warn("Unable to abort multipart upload " + uploadId + " of " + object + ": " + t.getMessage());
+        }
+    }
+
+    /**
+     * Uploads a single part of a multipart upload, retrying just that part when it fails.
+     * @return the tree hash of the part
+     */
+    private class PartUpload implements Callable<byte[]> {
+        private final String bucket;
+        private final String object;
+        private final String uploadId;
+        private final File   file;
+        private final long   offset;
+        private final long   length;
+
+        PartUpload(@Nonnull String bucket, @Nonnull String object, @Nonnull String uploadId, @Nonnull File file, long offset, long length) {
+            this.bucket = bucket;
+            this.object = object;
+            this.uploadId = uploadId;
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public byte[] call() throws CloudException, InternalException {
+            // the part is hashed by the thread uploading it, so hashing runs in parallel with the other uploads
+            byte[][] hashes = hash(file, offset, length);
+            int attempt = 0;
+
+            while( true ) {
+                attempt++;
+                try {
+                    Map<String, String> headers = new HashMap<String, String>();
+
+                    headers.put("Content-Range", "bytes " + offset + "-" + (offset + length - 1) + "/*");
+                    headers.put(GlacierMethod.HEADER_CONTENT_SHA256, TreeHash.toHex(hashes[0]));
+                    headers.put(GlacierMethod.HEADER_TREE_HASH, TreeHash.toHex(hashes[1]));
+                    GlacierMethod.build(getProvider(), GlacierAction.UPLOAD_PART)
+                            .vaultId(bucket).uploadId(uploadId).headers(headers)
+                            .bodyFile(file, offset, length).toMethod().invoke();
+                    return hashes[1];
+                }
+                catch( CloudException e ) {
+                    if( attempt >= PART_ATTEMPTS || Thread.currentThread().isInterrupted() ) {
+                        throw e;
+                    }
+                    logger.warn("Retrying bytes " + offset + "-" + (offset + length - 1) + " of " + object + ": " + e.getMessage());
+                    getProvider().getRetryPolicy().backoff(attempt, false);
+                }
+                catch( InternalException e ) {
+                    if( attempt >= PART_ATTEMPTS || Thread.currentThread().isInterrupted() ) {
+                        throw e;
+                    }
+                    logger.warn("Retrying bytes " + offset + "-" + (offset + length - 1) + " of " + object + ": " + e.getMessage());
+                    getProvider().getRetryPolicy().backoff(attempt, false);
+                }
+            }
+        }
+    }
+
+    static private @Nonnull byte[][] hash(@Nonnull File file, long offset, long length) throws InternalException {
+        try {
+            return TreeHash.compute(file, offset, length);
+        }
+        catch( IOException e ) {
+            throw new InternalException(e);
+        }
+    }
+
+    static private @Nonnull String getArchiveId(@Nonnull Map<String, String> headers, @Nonnull String object) throws CloudException {
+        String archiveId = headers.get(GlacierMethod.HEADER_ARCHIVE_ID);
+
+        if( archiveId == null ) {
+            throw new CloudException("Glacier returned no archive ID for " + object);
+        }
+        return archiveId;
+    }
+
+    /**
+     * Glacier only accepts printable ASCII in archive descriptions.
+     */
+    static private @Nonnull String toDescription(@Nonnull String object) {
+        StringBuilder description = new StringBuilder();
+
+        for( int i=0; i<object.length() && description.length() < 1024; i++ ) {
+            char c = object.charAt(i);
+
+            if( c >= 32 && c <= 126 ) {
+                description.append(c);
+            }
+        }
+        return description.toString();
+    }
+
     @Override
     public void removeBucket(@Nonnull String bucket) throws CloudException, InternalException {
         APITrace.begin(getProvider(), "Blob.removeBucket");
@@ -464,8 +716,11 @@ public class Glacier extends AbstractBlobStoreSupport<AWSCloud> implements Offli
             if( !exists(bucket) ) {
                 createBucket(bucket, false);
             }
-            put(bucket, fileName, source);
-            return getObject(bucket, fileName);
+            // archives can only be looked up through an inventory job, so describe the new archive directly
+            String archiveId = putArchive(bucket, fileName, source);
+
+            return Blob.getInstance(getContext().getRegionId(), archiveId, bucket, archiveId,
+                    System.currentTimeMillis(), new Storage<Byte>(source.length(), Storage.BYTE));
         }
         finally {
             APITrace.end();
@@ -669,8 +924,27 @@ public class Glacier extends AbstractBlobStoreSupport<AWSCloud> implements Offli
     public OfflineStoreRequest createDownloadRequest(@Nonnull String bucket, @Nonnull String object) throws CloudException, InternalException {
         APITrace.begin(getProvider(), "Blob.createDownloadRequest");
         try {
-            // todo
-            throw new OperationNotSupportedException("glacier downloads are not yet supported");
+            try {
+                JSONObject bodyJson = new JSONObject();
+                bodyJson.put("Type", "archive-retrieval");
+                bodyJson.put("ArchiveId", object);
+
+                final GlacierMethod method = GlacierMethod.build(getProvider(), GlacierAction.CREATE_JOB)
+                        .vaultId(bucket).bodyText(bodyJson.toString()).toMethod();
+
+                Map<String,String> responseHeaders = method.invokeHeaders();
+                if (!responseHeaders.containsKey(HEADER_JOB_ID)) {
+                    throw new CloudException("Glacier response missing " + HEADER_JOB_ID + " header");
+                }
+                String jobId = responseHeaders.get(HEADER_JOB_ID);
+
+                return new OfflineStoreRequest(jobId, bucket, object, OfflineStoreRequestAction.DOWNLOAD,
+                        ACTION_ARCHIVE_RETRIEVAL, null, "", OfflineStoreRequestStatus.IN_PROGRESS, "",
+                        System.currentTimeMillis(), -1);
+
+            } catch (JSONException e) {
+                throw new CloudException(e);
+            }
         }
         finally {
             APITrace.end();
@@ -721,16 +995,294 @@ public class Glacier extends AbstractBlobStoreSupport<AWSCloud> implements Offli
 
     @Nonnull
     @Override
-    public FileTransfer getDownloadRequestResult(@Nonnull String bucket, @Nonnull String requestId, @Nonnull File toFile) throws InternalException, CloudException {
+    public FileTransfer getDownloadRequestResult(final @Nonnull String bucket, final @Nonnull String requestId, final @Nonnull File toFile) throws InternalException, CloudException {
         APITrace.begin(getProvider(), "Blob.getDownloadRequestResult");
         try {
-            throw new OperationNotSupportedException("glacier downloads are not yet supported");
+            final GlacierMethod method = GlacierMethod.build(getProvider(), GlacierAction.DESCRIBE_JOB)
+                    .vaultId(bucket).jobId(requestId).toMethod();
+            final long size;
+            final String treeHash;
+
+            try {
+                JSONObject job = method.invokeJson();
+
+                if( !ACTION_ARCHIVE_RETRIEVAL.equalsIgnoreCase(job.getString("Action")) ) {
+                    throw new OperationNotSupportedException("Glacier job " + requestId + " is not an archive retrieval");
+                }
+                if( !"Succeeded".equalsIgnoreCase(job.getString("StatusCode")) ) {
+                    throw new CloudException("Glacier job " + requestId + " has not succeeded: " + job.getString("StatusCode"));
+                }
+                size = job.getLong("ArchiveSizeInBytes");
+                treeHash = job.isNull("SHA256TreeHash") ? null : job.getString("SHA256TreeHash");
+            }
+            catch( JSONException e ) {
+                throw new CloudException(e);
+            }
+            final FileTransfer transfer = new FileTransfer();
+
+            transfer.setBytesToTransfer(size);
+            getProvider().hold();
+            Thread t = new Thread() {
+                public void run() {
+                    try {
+                        getJobOutput(bucket, requestId, toFile, size, treeHash, transfer);
+                        transfer.complete(null);
+                    }
+                    catch( Throwable error ) {
+                        logger.error("Failed to download Glacier job " + requestId + ": " + error.getMessage());
+                        transfer.complete(error);
+                    }
+                    finally {
+                        getProvider().release();
+                    }
+                }
+            };
+
+            t.setName("Glacier download " + requestId);
+            t.setDaemon(true);
+            t.start();
+            return transfer;
         }
         finally {
             APITrace.end();
         }
     }
 
+    /**
+     * Downloads the output of a retrieval job as parallel byte ranges written straight into a preallocated file.
+     * Ranges are a power of two megabytes so that Glacier returns a tree hash for each of them, every range is
+     * checked against its tree hash before it is recorded as complete, and the whole file is checked against the
+     * tree hash of the archive at the end. Completed ranges are recorded in a sidecar file so that a download
+     * interrupted by a crash resumes with the ranges still missing.
+     */
+    void getJobOutput(@Nonnull String bucket, @Nonnull String jobId, @Nonnull File toFile, long size, @Nullable String expectedTreeHash, @Nonnull FileTransfer transfer) throws CloudException, InternalException {
+        if( size == 0L ) {
+            getEmptyJobOutput(toFile, expectedTreeHash);
+            return;
+        }
+        long rangeSize = getPartSize(size);
+        int count = (int)Math.max(1L, (size + rangeSize - 1) / rangeSize);
+        GlacierDownloadProgress progress;
+        RandomAccessFile file;
+
+        try {
+            progress = GlacierDownloadProgress.open(toFile, jobId, size, rangeSize);
+            file = new RandomAccessFile(toFile, "rw");
+        }
+        catch( IOException e ) {
+            throw new InternalException(e);
+        }
+        boolean verified = false;
+
+        try {
+            if( file.length() != size ) {
+                file.setLength(size);
+            }
+            FileChannel channel = file.getChannel();
+            AtomicLong done = new AtomicLong();
+            List<RangeDownload> pending = new ArrayList<RangeDownload>();
+
+            for( int i=0; i<count; i++ ) {
+                long start = i * rangeSize;
+                long end = Math.min(size, start + rangeSize) - 1;
+
+                if( progress.getTreeHash(i) != null ) {
+                    done.addAndGet(end - start + 1);
+                }
+                else {
+                    pending.add(new RangeDownload(bucket, jobId, i, start, end, channel, progress, done, transfer));
+                }
+            }
+            transfer.setBytesTransferred(done.get());
+            if( !pending.isEmpty() ) {
+                int threads = Math.max(1, getProvider().getIntProperty(AWSCloud.DSN_GLACIER_DOWNLOAD_THREADS, DEFAULT_DOWNLOAD_THREADS));
+                ExecutorService pool = S3.newTransferPool(Math.min(threads, pending.size()), "dasein-glacier-download");
+
+                try {
+                    for( Future<Void> result : pool.invokeAll(pending) ) {
+                        try {
+                            result.get();
+                        }
+                        catch( ExecutionException e ) {
+                            Throwable cause = e.getCause();
+
+                            if( cause instanceof CloudException ) {
+                                throw (CloudException)cause;
+                            }
+                            if( cause instanceof InternalException ) {
+                                throw (InternalException)cause;
+                            }
+                            throw new InternalException(cause);
+                        }
+                    }
+                }
+                catch( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    throw new InternalException(e);
+                }
+                finally {
+                    pool.shutdownNow();
+                }
+            }
+            if( expectedTreeHash != null ) {
+                List<byte[]> hashes = new ArrayList<byte[]>(count);
+
+                for( int i=0; i<count; i++ ) {
+                    hashes.add(progress.getTreeHash(i));
+                }
+                String actual = TreeHash.toHex(TreeHash.combine(hashes));
+
+                if( !actual.equalsIgnoreCase(expectedTreeHash) ) {
+                    throw new CloudException("Tree hash of " + toFile + " is " + actual + " but Glacier reported " + expectedTreeHash);
+                }
+            }
+            verified = true;
+        }
+        catch( IOException e ) {
+            throw new InternalException(e);
+        }
+        finally {
+            try {
+                file.close();
+            }
+            catch( IOException ignore ) {
+                // ignore
+            }
+            if( verified ) {
+                progress.delete();
+            }
+            else {
+                progress.close();
+            }
+        }
+    }
+
+    /**
+     * Writes the output of a job for an empty archive, which has no byte range to download.
+     */
+    private void getEmptyJobOutput(@Nonnull File toFile, @Nullable String expectedTreeHash) throws CloudException, InternalException {
+        if( expectedTreeHash != null ) {
+            String actual = TreeHash.toHex(new TreeHash().digest());
+
+            if( !actual.equalsIgnoreCase(expectedTreeHash) ) {
+                throw new CloudException("Glacier reported tree hash " + expectedTreeHash + " for an empty archive");
+            }
+        }
+        try {
+            RandomAccessFile file = new RandomAccessFile(toFile, "rw");
+
+            try {
+                file.setLength(0L);
+            }
+            finally {
+                file.close();
+            }
+        }
+        catch( IOException e ) {
+            throw new InternalException(e);
+        }
+    }
+
+    static private final int DEFAULT_DOWNLOAD_THREADS = 4;
+
+    /**
+     * Downloads a single range of a job output into its place in the target file, retrying just that range when
+     * it fails or does not match its tree hash.
+     */
+    private class RangeDownload implements Callable<Void> {
+        private final String                  bucket;
+        private final String                  jobId;
+        private final int                     index;
+        private final long                    start;
+        private final long                    end;
+        private final FileChannel             channel;
+        private final GlacierDownloadProgress progress;
+        private final AtomicLong              done;
+        private final FileTransfer            transfer;
+
+        RangeDownload(@Nonnull String bucket, @Nonnull String jobId, int index, long start, long end, @Nonnull FileChannel channel, @Nonnull GlacierDownloadProgress progress, @Nonnull AtomicLong done, @Nonnull FileTransfer transfer) {
+            this.bucket = bucket;
+            this.jobId = jobId;
+            this.index = index;
+            this.start = start;
+            this.end = end;
+            this.channel = channel;
+            this.progress = progress;
+            this.done = done;
+            this.transfer = transfer;
+        }
+
+        @Override
+        public Void call() throws CloudException, InternalException {
+            int attempt = 0;
+
+            while( true ) {
+                attempt++;
+                final long[] written = new long[1];
+
+                try {
+                    Map<String, String> headers = new HashMap<String, String>();
+
+                    headers.put("Range", "bytes=" + start + "-" + end);
+                    GlacierMethod.build(getProvider(), GlacierAction.GET_JOB_OUTPUT)
+                            .vaultId(bucket).jobId(jobId).headers(headers).toMethod()
+                            .invokeStream(new GlacierMethod.BodyHandler() {
+                                @Override
+                                public void handle(@Nonnull Map<String, String> headers, @Nonnull InputStream body) throws IOException, CloudException, InternalException {
+                                    TreeHash hash = new TreeHash();
+                                    byte[] buffer = new byte[65536];
+                                    long position = start;
+                                    int read;
+
+                                    while( (read = body.read(buffer)) != -1 ) {
+                                        if( position + read > end + 1 ) {
+                                            throw new CloudException("Glacier returned more than bytes " + start + "-" + end + " of job " + jobId);
+                                        }
+                                        ByteBuffer data = ByteBuffer.wrap(buffer, 0, read);
+
+                                        while( data.hasRemaining() ) {
+                                            position += channel.write(data, position);
+                                        }
+                                        hash.update(buffer, 0, read);
+                                        written[0] += read;
+                                        transfer.setBytesTransferred(done.addAndGet(read));
+                                    }
+                                    if( position != end + 1 ) {
+                                        throw new EOFException("Glacier returned " + (position - start) + " of bytes " + start + "-" + end + " of job " + jobId);
+                                    }
+                                    byte[] treeHash = hash.digest();
+                                    String expected = headers.get(GlacierMethod.HEADER_TREE_HASH);
+
+                                    if( expected != null && !expected.equalsIgnoreCase(TreeHash.toHex(treeHash)) ) {
+                                        throw new CloudException("Bytes " + start + "-" + end + " of job " + jobId + " do not match their tree hash");
+                                    }
+                                    // the range only counts as done once it is safely on disk
+                                    channel.force(false);
+                                    progress.complete(index, treeHash);
+                                }
+                            });
+                    return null;
+                }
+                catch( CloudException e ) {
+                    retry(attempt, written[0], e);
+                }
+                catch( InternalException e ) {
+                    retry(attempt, written[0], e);
+                }
+            }
+        }
+
+        private <T extends Exception> void retry(int attempt, long written, @Nonnull T e) throws T {
+            // the range is fetched again from its first byte
+            transfer.setBytesTransferred(done.addAndGet(-written));
+            if( attempt >= PART_ATTEMPTS || Thread.currentThread().isInterrupted() ) {
+                throw e;
+            }
+            logger.warn("Retrying bytes " + start + "-" + end + " of job " + jobId + ": " + e.getMessage());
+            getProvider().getRetryPolicy().backoff(attempt, false);
+        }
+    }
+
 	@Override
 	public void updateTags(String bucket, Tag... tags) throws CloudException,
 			InternalException {
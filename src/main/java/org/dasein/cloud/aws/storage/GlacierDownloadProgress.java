@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.storage;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.log4j.Logger;
+import org.dasein.cloud.aws.AWSCloud;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+/**
+ * Sidecar file recording which byte ranges of a Glacier job output have been written to the target file, along
+ * with their tree hashes, so an interrupted download resumes with the ranges still missing. The first line
+ * identifies the download; every completed range appends a line with its index and tree hash once its bytes have
+ * been forced to disk. A line cut short by a crash is ignored and its range fetched again.
+ */
+class GlacierDownloadProgress {
+    static private final Logger  logger = AWSCloud.getLogger(GlacierDownloadProgress.class);
+    static private final Charset ASCII  = Charset.forName("US-ASCII");
+    static private final String  SUFFIX = ".glacier-progress";
+
+    /**
+     * Opens the progress of downloading a job output into a file, keeping earlier progress only if it was
+     * recorded for the same job output and range size and the target file is still in place.
+     * @param target the file the job output is written to
+     * @param jobId the ID of the retrieval job
+     * @param size the size of the job output
+     * @param rangeSize the size of each range
+     * @return the progress, with the tree hashes of the ranges already completed
+     * @throws IOException the sidecar file could not be read or written
+     */
+    static @Nonnull GlacierDownloadProgress open(@Nonnull File target, @Nonnull String jobId, long size, long rangeSize) throws IOException {
+        File file = new File(target.getPath() + SUFFIX);
+        String header = jobId + " " + size + " " + rangeSize;
+        int count = (int)Math.max(1L, (size + rangeSize - 1) / rangeSize);
+        byte[][] hashes = new byte[count][];
+
+        if( file.exists() && target.exists() && target.length() == size ) {
+            if( !load(file, header, hashes) ) {
+                hashes = new byte[count][];
+            }
+        }
+        int completed = 0;
+
+        for( byte[] hash : hashes ) {
+            if( hash != null ) {
+                completed++;
+            }
+        }
+        FileOutputStream output;
+
+        if( completed > 0 ) {
+            logger.info("Resuming download of Glacier job " + jobId + " with " + completed + " of " + count + " ranges complete");
+            output = new FileOutputStream(file, true);
+            // ends a line a crash may have cut short
+            output.write('\n');
+        }
+        else {
+            output = new FileOutputStream(file, false);
+            output.write((header + "\n").getBytes(ASCII));
+            output.getChannel().force(false);
+        }
+        return new GlacierDownloadProgress(file, output, hashes);
+    }
+
+    static private boolean load(@Nonnull File file, @Nonnull String header, @Nonnull byte[][] hashes) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), ASCII));
+
+        try {
+            if( !header.equals(reader.readLine()) ) {
+                return false;
+            }
+            String line;
+
+            while( (line = reader.readLine()) != null ) {
+                String[] parts = line.trim().split(" ");
+
+                if( parts.length != 2 || parts[1].length() != 64 ) {
+                    continue;
+                }
+                try {
+                    int index = Integer.parseInt(parts[0]);
+
+                    if( index >= 0 && index < hashes.length ) {
+                        hashes[index] = Hex.decodeHex(parts[1].toCharArray());
+                    }
+                }
+                catch( NumberFormatException ignore ) {
+                    // a partly written line
+                }
+                catch( DecoderException ignore ) {
+                    // a partly written line
+                }
+            }
+            return true;
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    private final File             file;
+    private final FileOutputStream output;
+    private final byte[][]         hashes;
+
+    private GlacierDownloadProgress(@Nonnull File file, @Nonnull FileOutputStream output, @Nonnull byte[][] hashes) {
+        this.file = file;
+        this.output = output;
+        this.hashes = hashes;
+    }
+
+    /**
+     * @param index the index of a range
+     * @return the tree hash of the range or <code>null</code> if it has not been downloaded yet
+     */
+    synchronized @Nullable byte[] getTreeHash(int index) {
+        return hashes[index];
+    }
+
+    /**
+     * Records a range as complete. Its bytes must already have been forced to disk.
+     * @param index the index of the range
+     * @param treeHash the verified tree hash of the range
+     * @throws IOException the sidecar file could not be written
+     */
+    synchronized void complete(int index, @Nonnull byte[] treeHash) throws IOException {
+        hashes[index] = treeHash;
+        output.write((index + " " + TreeHash.toHex(treeHash) + "\n").getBytes(ASCII));
+        output.getChannel().force(false);
+    }
+
+    /**
+     * Closes the sidecar file, leaving it in place for a later resume.
+     */
+    synchronized void close() {
+        try {
+            output.close();
+        }
+        catch( IOException ignore ) {
+            // nothing left to save
+        }
+    }
+
+    /**
+     * Closes and removes the sidecar file once the whole output has been downloaded and verified.
+     */
+    synchronized void delete() {
+        close();
+        if( !file.delete() ) {
+            logger.warn("Unable to remove " + file);
+        }
+    }
+}
@@ -22,6 +22,7 @@ package org.dasein.cloud.aws.storage;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpRequestBase;
@@ -31,8 +32,8 @@ import org.apache.log4j.Logger;
 import org.dasein.cloud.CloudErrorType;
 import org.dasein.cloud.CloudException;
 import org.dasein.cloud.InternalException;
-import org.dasein.cloud.OperationNotSupportedException;
 import org.dasein.cloud.aws.AWSCloud;
+import org.dasein.cloud.aws.RetryPolicy;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -58,6 +59,14 @@ public class GlacierMethod {
     static public final String SERVICE_ID        = "glacier";
     static public final String API_VERSION       = "2012-06-01";
 
+    static public final String HEADER_ARCHIVE_DESCRIPTION = "x-amz-archive-description";
+    static public final String HEADER_ARCHIVE_ID          = "x-amz-archive-id";
+    static public final String HEADER_ARCHIVE_SIZE        = "x-amz-archive-size";
+    static public final String HEADER_CONTENT_SHA256      = "x-amz-content-sha256";
+    static public final String HEADER_PART_SIZE           = "x-amz-part-size";
+    static public final String HEADER_TREE_HASH           = "x-amz-sha256-tree-hash";
+    static public final String HEADER_UPLOAD_ID           = "x-amz-multipart-upload-id";
+
     private GlacierAction action           = null;
     private Map<String,String> headers     = null;
     private Map<String,String> queryParameters = null;
@@ -65,8 +74,11 @@ public class GlacierMethod {
     private String vaultId                 = null;
     private String archiveId               = null;
     private String jobId                   = null;
+    private String uploadId                = null;
     private String bodyText                = null;
     private File bodyFile                  = null;
+    private long bodyOffset                = 0L;
+    private long bodyLength                = -1L;
 
     private GlacierMethod(Builder builder) {
         this.action = builder.action;
@@ -74,10 +86,13 @@ public class GlacierMethod {
         this.vaultId = builder.vaultId;
         this.archiveId = builder.archiveId;
         this.jobId = builder.jobId;
+        this.uploadId = builder.uploadId;
         this.headers = builder.headers == null ? new HashMap<String,String>() : builder.headers;
         this.queryParameters = builder.queryParameters == null ? new HashMap<String, String>() : builder.queryParameters;
         this.bodyText = builder.bodyText;
         this.bodyFile = builder.bodyFile;
+        this.bodyOffset = builder.bodyOffset;
+        this.bodyLength = builder.bodyLength;
     }
 
     private static byte[] computePayloadSHA256Hash(byte[] payload) throws NoSuchAlgorithmException, IOException {
@@ -123,7 +138,7 @@ public class GlacierMethod {
             throw new CloudException(e);
         } finally {
             if (clientAndResponse != null) {
-                clientAndResponse.client.getConnectionManager().shutdown();
+                clientAndResponse.release();
             }
         }
     }
@@ -137,6 +152,7 @@ public class GlacierMethod {
      */
     public Map<String, String> invokeHeaders() throws InternalException, CloudException {
         ClientAndResponse clientAndResponse = invokeInternal();
+        boolean handled = false;
         try {
             Map<String, String> headers = new HashMap<String, String>();
             // doesn't support duplicate header keys, but they are unused by glacier
@@ -145,7 +161,53 @@ public class GlacierMethod {
             }
             return headers;
         }finally {
-            clientAndResponse.client.getConnectionManager().shutdown();
+            clientAndResponse.release();
+        }
+    }
+
+    /**
+     * Receives the body of a response as a stream, for responses too large to be held in memory.
+     */
+    public interface BodyHandler {
+        /**
+         * @param headers the response headers, keyed by lower case name
+         * @param body the response body, which is released once the handler returns, or aborted if it fails
+         */
+        void handle(@Nonnull Map<String, String> headers, @Nonnull InputStream body) throws IOException, CloudException, InternalException;
+    }
+
+    /**
+     * Invokes the method and hands the response body to the handler as it arrives from the connection
+     * @param handler the handler reading the body
+     * @throws InternalException
+     * @throws CloudException
+     * @throws GlacierException
+     */
+    public void invokeStream(@Nonnull BodyHandler handler) throws InternalException, CloudException {
+        ClientAndResponse clientAndResponse = invokeInternal();
+        boolean handled = false;
+        try {
+            Map<String, String> headers = new HashMap<String, String>();
+            for (Header header : clientAndResponse.response.getAllHeaders()) {
+                headers.put(header.getName().toLowerCase(), header.getValue());
+            }
+            HttpEntity entity = clientAndResponse.response.getEntity();
+            if (entity == null) {
+                throw new CloudException("Glacier returned no response body");
+            }
+            InputStream input = entity.getContent();
+            handler.handle(headers, input);
+            input.close();
+            handled = true;
+        } catch (IOException e) {
+            throw new CloudException(e);
+        } finally {
+            if (handled) {
+                clientAndResponse.release();
+            } else {
+                // closing would read the rest of a possibly huge body just to reuse the connection
+                clientAndResponse.abort();
+            }
         }
     }
 
@@ -157,10 +219,39 @@ public class GlacierMethod {
     public void invoke() throws InternalException, CloudException {
 
         final ClientAndResponse clientAndResponse = invokeInternal();
-        clientAndResponse.client.getConnectionManager().shutdown();
+        clientAndResponse.release();
     }
 
     private ClientAndResponse invokeInternal() throws InternalException, CloudException {
+        RetryPolicy retryPolicy = provider.getRetryPolicy();
+        int attempts = 0;
+
+        while( true ) {
+            attempts++;
+            ClientAndResponse clientAndResponse = send();
+            int status = clientAndResponse.response.getStatusLine().getStatusCode();
+
+            if( status < 400 ) {
+                retryPolicy.succeeded();
+                return clientAndResponse;
+            }
+            GlacierException e;
+            try {
+                e = getGlacierException(clientAndResponse.response);
+            } finally {
+                clientAndResponse.release();
+            }
+            if( !retryPolicy.shouldRetry(attempts, status, e.getProviderCode()) ) {
+                throw e;
+            }
+            retryPolicy.backoff(attempts, retryPolicy.isThrottle(e.getProviderCode()) || status == 429 || status == HttpStatus.SC_SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Signs and sends the request once, whatever the status of the response.
+     */
+    private ClientAndResponse send() throws InternalException, CloudException {
 
         if( wire.isDebugEnabled() ) {
             wire.debug("");
@@ -197,11 +288,11 @@ public class GlacierMethod {
             method.addHeader(AWSCloud.P_CFAUTH, v4Authorization);
 
             if (bodyText != null) {
-                try {
-                    ((HttpEntityEnclosingRequestBase)method).setEntity(new StringEntity(bodyText));
-                } catch (UnsupportedEncodingException e) {
-                    throw new InternalException(e);
-                }
+                // the body hash is computed over the UTF-8 bytes
+                ((HttpEntityEnclosingRequestBase)method).setEntity(new StringEntity(bodyText, "UTF-8"));
+            }
+            else if (bodyFile != null) {
+                ((HttpEntityEnclosingRequestBase)method).setEntity(new FileSliceEntity(bodyFile, bodyOffset, getBodyLength(), "application/octet-stream"));
             }
 
             if( wire.isDebugEnabled() ) {
@@ -217,6 +308,10 @@ public class GlacierMethod {
 
                     wire.debug("");
                 }
+                else if( bodyFile != null ) {
+                    wire.debug("-- file upload --");
+                    wire.debug("");
+                }
             }
 
             HttpResponse httpResponse;
@@ -233,12 +328,7 @@ public class GlacierMethod {
                 wire.debug("");
             }
 
-            int status = httpResponse.getStatusLine().getStatusCode();
-            if( status >= 400) {
-                throw getGlacierException(httpResponse);
-            } else {
-                return new ClientAndResponse(client, httpResponse);
-            }
+            return new ClientAndResponse(client, method, httpResponse);
         }
         finally {
             if( wire.isDebugEnabled() ) {
@@ -283,11 +373,22 @@ public class GlacierMethod {
             return AWSCloud.computeSHA256Hash("");
         } else if (bodyText != null) {
             return AWSCloud.computeSHA256Hash(bodyText);
+        } else if (headers.containsKey(HEADER_CONTENT_SHA256)) {
+            // callers uploading archives compute the linear hash along with the tree hash
+            return headers.get(HEADER_CONTENT_SHA256);
         } else {
-            throw new OperationNotSupportedException("glacier file handling not implemented");
+            try {
+                return TreeHash.toHex(TreeHash.compute(bodyFile, bodyOffset, getBodyLength())[0]);
+            } catch (IOException e) {
+                throw new InternalException(e);
+            }
         }
     }
 
+    private long getBodyLength() {
+        return bodyLength < 0L ? bodyFile.length() - bodyOffset : bodyLength;
+    }
+
     private String getUrlWithParameters() throws InternalException, CloudException {
         if (queryParameters == null || queryParameters.size() == 0) {
             return getUrl();
@@ -346,6 +447,15 @@ public class GlacierMethod {
             case LIST_JOBS: case CREATE_JOB:
                 url.append("/jobs");
                 break;
+            case INITIATE_MULTIPART_UPLOAD:
+                url.append("/multipart-uploads");
+                break;
+            case UPLOAD_PART: case COMPLETE_MULTIPART_UPLOAD: case ABORT_MULTIPART_UPLOAD:
+                if (uploadId == null) {
+                    throw new InternalException("uploadId required");
+                }
+                url.append("/multipart-uploads/").append(uploadId);
+                break;
             case DESCRIBE_JOB: case GET_JOB_OUTPUT:
                 if (jobId == null) {
                     throw new InternalException("jobId required");
@@ -362,12 +472,28 @@ public class GlacierMethod {
 
     private static class ClientAndResponse {
         public final HttpClient client;
+        public final HttpRequestBase request;
         public final HttpResponse response;
 
-        private ClientAndResponse(HttpClient client, HttpResponse response) {
+        private ClientAndResponse(HttpClient client, HttpRequestBase request, HttpResponse response) {
             this.client = client;
+            this.request = request;
             this.response = response;
         }
+
+        /**
+         * Hands the connection back to the shared pool.
+         */
+        private void release() {
+            EntityUtils.consumeQuietly(response.getEntity());
+        }
+
+        /**
+         * Drops the connection without reading what is left of the response.
+         */
+        private void abort() {
+            request.abort();
+        }
     }
 
     public static Builder build(@Nonnull AWSCloud provider, @Nonnull GlacierAction action) {
@@ -380,10 +506,13 @@ public class GlacierMethod {
         private String vaultId;
         private String archiveId;
         private String jobId;
+        private String uploadId;
         public Map<String, String> headers;
         public Map<String, String> queryParameters;
         public String bodyText;
         public File bodyFile;
+        public long bodyOffset;
+        public long bodyLength = -1L;
 
         public Builder(@Nonnull AWSCloud provider, @Nonnull GlacierAction action) {
             this.provider = provider;
@@ -405,6 +534,11 @@ public class GlacierMethod {
             return this;
         }
 
+        public Builder uploadId(@Nonnull String value) {
+            uploadId = value;
+            return this;
+        }
+
         public Builder headers(@Nonnull Map<String, String> value) {
             headers = value;
             return this;
@@ -425,6 +559,16 @@ public class GlacierMethod {
             return this;
         }
 
+        /**
+         * Sends a slice of a file as the body, for the parts of a multipart upload.
+         */
+        public Builder bodyFile(@Nonnull File value, long offset, long length) {
+            bodyFile = value;
+            bodyOffset = offset;
+            bodyLength = length;
+            return this;
+        }
+
         public GlacierMethod toMethod() {
             return new GlacierMethod(this);
         }
@@ -32,16 +32,11 @@ import org.dasein.cloud.storage.BlobStoreCapabilities;
 import org.dasein.cloud.storage.BlobStoreSupport;
 import org.dasein.cloud.storage.FileTransfer;
 import org.dasein.cloud.util.APITrace;
-import org.dasein.cloud.util.Cache;
-import org.dasein.cloud.util.CacheLevel;
 import org.dasein.cloud.util.NamingConstraints;
-import org.dasein.util.CalendarWrapper;
 import org.dasein.util.Jiterator;
 import org.dasein.util.JiteratorPopulator;
 import org.dasein.util.PopulatorThread;
 import org.dasein.util.uom.storage.Storage;
-import org.dasein.util.uom.time.Day;
-import org.dasein.util.uom.time.TimePeriod;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -53,18 +48,28 @@ import javax.crypto.spec.SecretKeySpec;
 import javax.xml.bind.DatatypeConverter;
 import java.io.*;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class S3 extends AbstractBlobStoreSupport<AWSCloud> {
     static private final Logger                                    logger              = AWSCloud.getLogger(S3.class);
     static private final String                                    HMAC_SHA1_ALGORITHM = "HmacSHA1";
 
 
-    static private final Random random = new Random();
     private static final int MAX_RETRIES = 0;
 
     public S3( AWSCloud provider ) {
@@ -246,8 +251,7 @@ public class S3 extends AbstractBlobStoreSupport<AWSCloud> {
     					logger.error("S3 error setting tags for " + bucketName + ": " + e.getSummary());
     					return;
     				}
-    				try { Thread.sleep(5000L); } 
-    				catch( InterruptedException ignore ) { }
+    				getProvider().getRetryPolicy().backoff(attempt + 1, 5000L);
     				logger.warn("Retry attempt "+ (attempt + 1) + " to create tags for ["+bucketName+"]");
     				updateTags( attempt + 1, bucketName, action, keyValuePairs);
     			} 
@@ -295,52 +299,145 @@ public class S3 extends AbstractBlobStoreSupport<AWSCloud> {
     	}
     }
 
-    private String getRegion( @Nonnull String bucket, boolean reload ) throws CloudException, InternalException {
+    static private final int DEFAULT_REGION_THREADS = 16;
+
+    private @Nonnull BucketRegions getBucketRegions() throws CloudException {
         ProviderContext ctx = getProvider().getContext();
 
         if( ctx == null ) {
             throw new CloudException("No context was set for this request");
         }
-        Cache<Affinity> cache = Cache.getInstance(getProvider(), "affinity", Affinity.class, CacheLevel.CLOUD_ACCOUNT, new TimePeriod<Day>(1, TimePeriod.DAY));
-        Iterable<Affinity> affinities = cache.get(ctx);
-        Affinity affinity;
+        Properties p = ctx.getCustomProperties();
+        String snapshot = ( p == null ? null : p.getProperty(AWSCloud.DSN_S3_REGION_CACHE) );
 
-        if( affinities == null ) {
-            affinity = new Affinity();
-            cache.put(ctx, Collections.singletonList(affinity));
-        }
-        else {
-            affinity = affinities.iterator().next();
+        return BucketRegions.getInstance(ctx.getAccountNumber(), snapshot == null || snapshot.trim().isEmpty() ? null : new File(snapshot.trim()));
+    }
+
+    private String getRegion( @Nonnull String bucket, boolean reload ) throws CloudException, InternalException {
+        BucketRegions regions = getBucketRegions();
+        String regionId = ( reload ? null : regions.get(bucket) );
+
+        if( regionId == null ) {
+            regionId = locateBucket(bucket);
+            if( regionId == null ) {
+                // a failed lookup is not remembered as the region of the bucket
+                return toRegion(null);
+            }
+            regions.put(bucket, regionId);
         }
-        Constraint c = affinity.constraints.get(bucket);
+        return regionId;
+    }
 
-        if( reload || c == null || c.timeout <= System.currentTimeMillis() ) {
-            S3Method method = new S3Method(getProvider(), S3Action.LOCATE_BUCKET);
-            String location = null;
-            S3Response response;
+    /**
+     * Finds the regions of many buckets at once. Buckets whose region is not already known are looked up
+     * concurrently, and the results are shared with every other lookup against the same account.
+     * @param buckets the names of the buckets
+     * @return the region of each bucket
+     */
+    private @Nonnull Map<String, String> getRegions( @Nonnull Collection<String> buckets ) throws CloudException, InternalException {
+        final BucketRegions regions = getBucketRegions();
+        Map<String, String> result = new HashMap<String, String>();
+        List<String> missing = new ArrayList<String>();
 
-            method = new S3Method(getProvider(), S3Action.LOCATE_BUCKET);
-            try {
-                response = method.invoke(bucket, "?location");
+        for( String bucket : buckets ) {
+            String regionId = regions.get(bucket);
+
+            if( regionId == null ) {
+                missing.add(bucket);
             }
-            catch( S3Exception e ) {
-                response = null;
+            else {
+                result.put(bucket, regionId);
             }
-            if( response != null ) {
-                NodeList constraints = response.document.getElementsByTagName("LocationConstraint");
+        }
+        if( missing.isEmpty() ) {
+            return result;
+        }
+        int threads = Math.min(missing.size(), Math.max(1, getProvider().getIntProperty(AWSCloud.DSN_S3_REGION_THREADS, DEFAULT_REGION_THREADS)));
 
-                if( constraints.getLength() > 0 ) {
-                    Node constraint = constraints.item(0);
+        if( threads == 1 ) {
+            for( String bucket : missing ) {
+                result.put(bucket, getRegion(bucket, true));
+            }
+        }
+        else {
+            List<Callable<String>> lookups = new ArrayList<Callable<String>>();
+
+            for( final String bucket : missing ) {
+                lookups.add(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        String regionId = locateBucket(bucket);
 
-                    if( constraint != null && constraint.hasChildNodes() ) {
-                        location = constraint.getFirstChild().getNodeValue().trim();
+                        if( regionId == null ) {
+                            return toRegion(null);
+                        }
+                        regions.put(bucket, regionId);
+                        return regionId;
                     }
+                });
+            }
+            ExecutorService pool = newTransferPool(threads, "dasein-s3-locate");
+
+            try {
+                List<Future<String>> futures = pool.invokeAll(lookups);
+
+                for( int i = 0; i < missing.size(); i++ ) {
+                    result.put(missing.get(i), futures.get(i).get());
+                }
+            }
+            catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InternalException(e);
+            }
+            catch( ExecutionException e ) {
+                Throwable cause = e.getCause();
+
+                if( cause instanceof CloudException ) {
+                    throw ( CloudException ) cause;
+                }
+                if( cause instanceof InternalException ) {
+                    throw ( InternalException ) cause;
                 }
+                throw new InternalException(cause);
+            }
+            finally {
+                pool.shutdownNow();
+            }
+        }
+        regions.save();
+        return result;
+    }
+
+    /**
+     * @param bucket the name of the bucket
+     * @return the region of the bucket or <code>null</code> if S3 did not say, for example because access was
+     * denied or the request was throttled
+     */
+    private @Nullable String locateBucket( @Nonnull String bucket ) throws CloudException, InternalException {
+        S3Method method = new S3Method(getProvider(), S3Action.LOCATE_BUCKET);
+        String location = null;
+        S3Response response;
+
+        try {
+            response = method.invoke(bucket, "?location");
+        }
+        catch( S3Exception e ) {
+            logger.warn("Unable to locate bucket " + bucket + ": " + e.getSummary());
+            return null;
+        }
+        if( response == null || response.document == null ) {
+            return null;
+        }
+        NodeList constraints = response.document.getElementsByTagName("LocationConstraint");
+
+        if( constraints.getLength() > 0 ) {
+            Node constraint = constraints.item(0);
+
+            if( constraint != null && constraint.hasChildNodes() ) {
+                location = constraint.getFirstChild().getNodeValue().trim();
             }
-            c = new Constraint(toRegion(location));
-            affinity.constraints.put(bucket, c);
         }
-        return c.regionId;
+        return toRegion(location);
     }
 
     @Override
@@ -393,7 +490,7 @@ public class S3 extends AbstractBlobStoreSupport<AWSCloud> {
                     continue;
                 }
                 if( getProvider().getEC2Provider().isAWS() ) {
-                    if( getRegion(name, true).equals(regionId) ) {
+                    if( getRegion(name, false).equals(regionId) ) {
                         return Blob.getInstance(regionId, getLocation(name, null), name, ts);
                     }
                 }
@@ -430,86 +527,136 @@ public class S3 extends AbstractBlobStoreSupport<AWSCloud> {
             if( !myRegion.equals(regionId) ) {
                 return null;
             }
+            return lookupObject(regionId, bucketName, objectName);
+        }
+        finally {
+            APITrace.end();
+        }
+    }
 
-            HashMap<String, String> parameters = new HashMap<String, String>();
-            S3Response response;
-            String marker = null;
-            boolean done = false;
-            S3Method method;
+    /**
+     * Looks up the metadata of a single object in one round trip: a HEAD request on the object, or a listing of
+     * at most one key under the object's name when the caller may list the bucket but not read the object.
+     * @return the object or <code>null</code> if there is no such object
+     */
+    @Nullable Blob lookupObject( @Nonnull String regionId, @Nonnull String bucket, @Nonnull String object ) throws CloudException, InternalException {
+        S3Method method = new S3Method(getProvider(), S3Action.HEAD_OBJECT);
+        S3Response response;
 
-            while( !done ) {
-                NodeList blocks;
+        try {
+            response = method.invoke(bucket, object);
+        }
+        catch( S3Exception e ) {
+            if( e.getStatus() == HttpStatus.SC_NOT_FOUND ) {
+                return null;
+            }
+            if( e.getStatus() != HttpStatus.SC_FORBIDDEN ) {
+                logger.error(e.getSummary());
+                throw new CloudException(e);
+            }
+            return listObject(regionId, bucket, object);
+        }
+        Blob blob = ( response == null ? null : toBlob(regionId, bucket, object, response.headers) );
 
-                parameters.clear();
-                if( marker != null ) {
-                    parameters.put("marker", marker);
-                }
-                parameters.put("max-keys", String.valueOf(30));
-                method = new S3Method(getProvider(), S3Action.LIST_CONTENTS, parameters, null);
-                try {
-                    response = method.invoke(bucketName, null);
-                }
-                catch( S3Exception e ) {
-                    String code = e.getCode();
+        if( blob == null ) {
+            return listObject(regionId, bucket, object);
+        }
+        return blob;
+    }
 
-                    if( code == null || !code.equals("SignatureDoesNotMatch") ) {
-                        throw new CloudException(e);
-                    }
-                    logger.error(e.getSummary());
-                    throw new CloudException(e);
+    private @Nullable Blob toBlob( @Nonnull String regionId, @Nonnull String bucket, @Nonnull String object, @Nullable Header[] headers ) {
+        if( headers == null ) {
+            return null;
+        }
+        Storage<org.dasein.util.uom.storage.Byte> size = null;
+        long ts = -1L;
+
+        for( Header header : headers ) {
+            if( header.getName().equalsIgnoreCase("Content-Length") ) {
+                size = new Storage<org.dasein.util.uom.storage.Byte>(Long.parseLong(header.getValue().trim()), Storage.BYTE);
+            }
+            else if( header.getName().equalsIgnoreCase("Last-Modified") ) {
+                SimpleDateFormat fmt = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+
+                try {
+                    ts = fmt.parse(header.getValue().trim()).getTime();
                 }
-                blocks = response.document.getElementsByTagName("IsTruncated");
-                if( blocks.getLength() > 0 ) {
-                    done = blocks.item(0).getFirstChild().getNodeValue().trim().equalsIgnoreCase("false");
+                catch( ParseException e ) {
+                    logger.warn("Unable to parse the modification time of " + object + ": " + header.getValue());
                 }
-                blocks = response.document.getElementsByTagName("Contents");
-                for( int i = 0; i < blocks.getLength(); i++ ) {
-                    Node object = blocks.item(i);
-                    Storage<org.dasein.util.uom.storage.Byte> size = null;
-                    String name = null;
-                    long ts = -1L;
+            }
+        }
+        if( size == null ) {
+            return null;
+        }
+        return Blob.getInstance(regionId, getLocation(bucket, object), bucket, object, ts, size);
+    }
 
-                    if( object.hasChildNodes() ) {
-                        NodeList attrs = object.getChildNodes();
+    /**
+     * Finds an object by listing at most one key starting with its name. Keys are listed in lexicographic order,
+     * so if the object exists it is the first key under that prefix.
+     */
+    private @Nullable Blob listObject( @Nonnull String regionId, @Nonnull String bucket, @Nonnull String object ) throws CloudException, InternalException {
+        HashMap<String, String> parameters = new HashMap<String, String>();
+        S3Response response;
+        S3Method method;
 
-                        for( int j = 0; j < attrs.getLength(); j++ ) {
-                            Node attr = attrs.item(j);
+        parameters.put("prefix", object);
+        parameters.put("max-keys", "1");
+        method = new S3Method(getProvider(), S3Action.LIST_CONTENTS, parameters, null);
+        try {
+            response = method.invoke(bucket, null);
+        }
+        catch( S3Exception e ) {
+            if( e.getStatus() == HttpStatus.SC_NOT_FOUND ) {
+                return null;
+            }
+            logger.error(e.getSummary());
+            throw new CloudException(e);
+        }
+        if( response == null || response.document == null ) {
+            return null;
+        }
+        NodeList blocks = response.document.getElementsByTagName("Contents");
 
-                            if( attr.getNodeName().equalsIgnoreCase("Key") ) {
-                                String key = attr.getFirstChild().getNodeValue().trim();
+        for( int i = 0; i < blocks.getLength(); i++ ) {
+            NodeList attrs = blocks.item(i).getChildNodes();
+            Storage<org.dasein.util.uom.storage.Byte> size = null;
+            String name = null;
+            long ts = -1L;
 
-                                name = key;
-                                marker = key;
-                            }
-                            else if( attr.getNodeName().equalsIgnoreCase("Size") ) {
-                                size = new Storage<org.dasein.util.uom.storage.Byte>(Long.parseLong(attr.getFirstChild().getNodeValue().trim()), Storage.BYTE);
-                            }
-                            else if( attr.getNodeName().equalsIgnoreCase("LastModified") ) {
-                                SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-                                String dateString = attr.getFirstChild().getNodeValue().trim();
+            for( int j = 0; j < attrs.getLength(); j++ ) {
+                Node attr = attrs.item(j);
 
-                                try {
-                                    ts = fmt.parse(dateString).getTime();
-                                }
-                                catch( ParseException e ) {
-                                    logger.error(e);
-                                    e.printStackTrace();
-                                    throw new CloudException(e);
-                                }
-                            }
-                        }
+                if( !attr.hasChildNodes() ) {
+                    continue;
+                }
+                String value = attr.getFirstChild().getNodeValue().trim();
+
+                if( attr.getNodeName().equalsIgnoreCase("Key") ) {
+                    name = value;
+                }
+                else if( attr.getNodeName().equalsIgnoreCase("Size") ) {
+                    size = new Storage<org.dasein.util.uom.storage.Byte>(Long.parseLong(value), Storage.BYTE);
+                }
+                else if( attr.getNodeName().equalsIgnoreCase("LastModified") ) {
+                    SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+
+                    fmt.setTimeZone(TimeZone.getTimeZone("UTC"));
+                    try {
+                        ts = fmt.parse(value).getTime();
                     }
-                    if( !objectName.equals(name) || size == null ) {
-                        continue;
+                    catch( ParseException e ) {
+                        logger.error(e);
+                        throw new CloudException(e);
                     }
-                    return Blob.getInstance(regionId, getLocation(bucketName, name), bucketName, name, ts, size);
                 }
             }
-            return null;
-        }
-        finally {
-            APITrace.end();
+            if( object.equals(name) && size != null ) {
+                return Blob.getInstance(regionId, getLocation(bucket, name), bucket, name, ts, size);
+            }
         }
+        return null;
     }
 
     @Override
@@ -609,31 +756,9 @@ public class S3 extends AbstractBlobStoreSupport<AWSCloud> {
             if( !getRegion(bucket, false).equals(ctx.getRegionId()) ) {
                 return null;
             }
-            S3Method method = new S3Method(getProvider(), S3Action.OBJECT_EXISTS);
-            S3Response response;
-
-            try {
-                response = method.invoke(bucket, object);
-                if( response != null && response.headers != null ) {
-                    for( Header header : response.headers ) {
-                        if( header.getName().equalsIgnoreCase("Content-Length") ) {
-                            return new Storage<org.dasein.util.uom.storage.Byte>(Long.parseLong(header.getValue()), Storage.BYTE);
-                        }
-                    }
-                }
-                return null;
-            }
-            catch( S3Exception e ) {
-                if( e.getStatus() != HttpStatus.SC_NOT_FOUND ) {
-                    String code = e.getCode();
+            Blob blob = lookupObject(ctx.getRegionId(), bucket, object);
 
-                    if( code == null || ( !code.equals("NoSuchBucket") && !code.equals("NoSuchKey") ) ) {
-                        logger.error(e.getSummary());
-                        throw new CloudException(e);
-                    }
-                }
-                return null;
-            }
+            return ( blob == null ? null : blob.getSize() );
         }
         finally {
             APITrace.end();
@@ -696,6 +821,25 @@ public class S3 extends AbstractBlobStoreSupport<AWSCloud> {
             if( bucket == null ) {
                 throw new CloudException("No bucket was specified");
             }
+            int threads = getProvider().getIntProperty(AWSCloud.DSN_S3_DOWNLOAD_THREADS, DEFAULT_DOWNLOAD_THREADS);
+
+            // ranged downloads are opt-in as they cost an extra HEAD request to learn the size and version
+            if( threads > 1 ) {
+                Header[] head = headObject(bucket, object);
+                String length = getHeader(head, "Content-Length");
+                String etag = getHeader(head, "ETag");
+
+                // without an ETag the ranges cannot be pinned to one version of the object
+                if( length != null && etag != null ) {
+                    long size = Long.parseLong(length.trim());
+                    long rangeSize = getPartSize(size);
+
+                    if( size > rangeSize ) {
+                        getRanges(bucket, object, etag, toFile, transfer, size, rangeSize, threads);
+                        return;
+                    }
+                }
+            }
             IOException lastError = null;
             int attempts = 0;
 
@@ -717,11 +861,7 @@ public class S3 extends AbstractBlobStoreSupport<AWSCloud> {
                     catch( IOException e ) {
                         lastError = e;
                         logger.warn(e);
-                        try {
-                            Thread.sleep(10000L);
-                        }
-                        catch( InterruptedException ignore ) {
-                        }
+                        getProvider().getRetryPolicy().backoff(attempts + 1, 1000L);
                     }
                     finally {
                         response.close();
@@ -748,6 +888,232 @@ public class S3 extends AbstractBlobStoreSupport<AWSCloud> {
         }
     }
 
+    static private final int DEFAULT_DOWNLOAD_THREADS = 1;
+
+    /**
+     * Looks up the headers of an object with a HEAD request.
+     * @return the headers of the object or <code>null</code> if they could not be determined
+     */
+    private @Nullable Header[] headObject( @Nonnull String bucket, @Nonnull String object ) throws CloudException, InternalException {
+        S3Method method = new S3Method(getProvider(), S3Action.HEAD_OBJECT);
+
+        try {
+            S3Response response = method.invoke(bucket, object);
+
+            return ( response == null ? null : response.headers );
+        }
+        catch( S3Exception e ) {
+            // let the download itself report the problem
+            logger.debug("Unable to look up " + object + ": " + e.getSummary());
+            return null;
+        }
+    }
+
+    static private @Nullable String getHeader( @Nullable Header[] headers, @Nonnull String name ) {
+        if( headers != null ) {
+            for( Header header : headers ) {
+                if( header.getName().equalsIgnoreCase(name) ) {
+                    return header.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Downloads an object as concurrent byte ranges written at their offsets into a preallocated file. Ranges that
+     * fail are resumed from the last byte written while completed ranges are left alone. Every range is requested
+     * with <code>If-Match</code> on the ETag seen before the download, so the download fails rather than mixing two
+     * versions of an object that is overwritten meanwhile.
+     */
+    private void getRanges( @Nonnull String bucket, @Nonnull String object, @Nonnull String etag, @Nonnull File toFile, @Nullable FileTransfer transfer, long size, long rangeSize, int threads ) throws CloudException, InternalException {
+        RandomAccessFile file;
+
+        try {
+            file = new RandomAccessFile(toFile, "rw");
+            file.setLength(size);
+        }
+        catch( IOException e ) {
+            logger.error(e);
+            throw new InternalException(e);
+        }
+        try {
+            FileChannel channel = file.getChannel();
+            AtomicLong progress = new AtomicLong(0L);
+            List<RangeDownload> pending = new ArrayList<RangeDownload>();
+
+            for( long start = 0L; start < size; start += rangeSize ) {
+                pending.add(new RangeDownload(bucket, object, etag, channel, start, Math.min(size, start + rangeSize) - 1L, progress, transfer));
+            }
+            if( transfer != null ) {
+                transfer.setBytesTransferred(0L);
+            }
+            ExecutorService pool = newTransferPool(Math.min(threads, pending.size()), "dasein-s3-download");
+            IOException lastError = null;
+            int attempts = 0;
+
+            try {
+                while( !pending.isEmpty() ) {
+                    if( attempts >= 5 ) {
+                        logger.error(lastError);
+                        throw new InternalException(lastError);
+                    }
+                    if( attempts > 0 ) {
+                        getProvider().getRetryPolicy().backoff(attempts, 1000L);
+                        if( Thread.currentThread().isInterrupted() ) {
+                            throw new InternalException("Interrupted while downloading " + object);
+                        }
+                    }
+                    attempts++;
+                    List<Future<Void>> results;
+
+                    try {
+                        results = pool.invokeAll(pending);
+                    }
+                    catch( InterruptedException e ) {
+                        Thread.currentThread().interrupt();
+                        throw new InternalException(e);
+                    }
+                    List<RangeDownload> failed = new ArrayList<RangeDownload>();
+
+                    for( int i=0; i<results.size(); i++ ) {
+                        try {
+                            results.get(i).get();
+                        }
+                        catch( InterruptedException e ) {
+                            Thread.currentThread().interrupt();
+                            throw new InternalException(e);
+                        }
+                        catch( ExecutionException e ) {
+                            Throwable cause = e.getCause();
+
+                            if( cause instanceof IOException ) {
+                                lastError = (IOException)cause;
+                                logger.warn(cause);
+                                failed.add(pending.get(i));
+                            }
+                            else if( cause instanceof CloudException ) {
+                                throw (CloudException)cause;
+                            }
+                            else if( cause instanceof InternalException ) {
+                                throw (InternalException)cause;
+                            }
+                            else {
+                                throw new InternalException(cause);
+                            }
+                        }
+                    }
+                    pending = failed;
+                }
+            }
+            finally {
+                pool.shutdownNow();
+            }
+        }
+        finally {
+            try { file.close(); }
+            catch( IOException ignore ) { }
+        }
+    }
+
+    /**
+     * Downloads one byte range of an object, remembering how much of it has been written so that a retry picks up
+     * where the previous attempt stopped.
+     */
+    private class RangeDownload implements Callable<Void> {
+        private final String       bucket;
+        private final String       object;
+        private final String       etag;
+        private final FileChannel  channel;
+        private final long         start;
+        private final long         end;
+        private final AtomicLong   progress;
+        private final FileTransfer transfer;
+        private volatile long      written;
+
+        RangeDownload(String bucket, String object, String etag, FileChannel channel, long start, long end, AtomicLong progress, FileTransfer transfer) {
+            this.bucket = bucket;
+            this.object = object;
+            this.etag = etag;
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.progress = progress;
+            this.transfer = transfer;
+        }
+
+        @Override
+        public Void call() throws CloudException, InternalException, IOException {
+            long position = start + written;
+
+            if( position > end ) {
+                return null;
+            }
+            HashMap<String, String> headers = new HashMap<String, String>();
+
+            headers.put("Range", "bytes=" + position + "-" + end);
+            headers.put("If-Match", etag);
+            S3Method method = new S3Method(getProvider(), S3Action.GET_OBJECT, null, headers);
+            S3Response response;
+
+            try {
+                response = method.invoke(bucket, object);
+            }
+            catch( S3Exception e ) {
+                if( e.getStatus() == HttpStatus.SC_PRECONDITION_FAILED ) {
+                    throw new CloudException(object + " was changed while it was being downloaded");
+                }
+                throw e;
+            }
+
+            if( response == null || response.input == null ) {
+                throw new IOException("No content was returned for bytes " + position + "-" + end + " of " + object);
+            }
+            try {
+                boolean ranged = false;
+
+                if( response.headers != null ) {
+                    for( Header header : response.headers ) {
+                        if( header.getName().equalsIgnoreCase("Content-Range") ) {
+                            ranged = true;
+                        }
+                    }
+                }
+                if( !ranged ) {
+                    throw new CloudException("The cloud ignored the requested range of " + object);
+                }
+                ReadableByteChannel input = Channels.newChannel(response.input);
+                ByteBuffer buffer = ByteBuffer.allocate(65536);
+
+                while( position <= end ) {
+                    int count = input.read(buffer);
+
+                    if( count == -1 ) {
+                        break;
+                    }
+                    buffer.flip();
+                    while( buffer.hasRemaining() ) {
+                        position += channel.write(buffer, position);
+                    }
+                    buffer.clear();
+                    written = position - start;
+                    long total = progress.addAndGet(count);
+
+                    if( transfer != null ) {
+                        transfer.setBytesTransferred(total);
+                    }
+                }
+                if( position <= end ) {
+                    throw new EOFException("Premature end of bytes " + start + "-" + end + " of " + object + " at " + position);
+                }
+                return null;
+            }
+            finally {
+                response.close();
+            }
+        }
+    }
+
     private @Nullable Document getAcl( @Nonnull String bucket, @Nullable String object ) throws CloudException, InternalException {
         S3Method method;
 
@@ -989,6 +1355,8 @@ public class S3 extends AbstractBlobStoreSupport<AWSCloud> {
             logger.error(e.getSummary());
             throw new CloudException(e);
         }
+        Map<String, Long> buckets = new LinkedHashMap<String, Long>();
+
         blocks = response.document.getElementsByTagName("Bucket");
         for( int i = 0; i < blocks.getLength(); i++ ) {
             Node object = blocks.item(i);
@@ -1010,33 +1378,20 @@ public class S3 extends AbstractBlobStoreSupport<AWSCloud> {
             if( name == null ) {
                 throw new CloudException("Bad response from server.");
             }
-            if( getProvider().getEC2Provider().isAWS() ) {
-                String location = null;
-
-                method = new S3Method(getProvider(), S3Action.LOCATE_BUCKET);
-                try {
-                    response = method.invoke(name, "?location");
-                }
-                catch( S3Exception e ) {
-                    response = null;
-                }
-                if( response != null ) {
-                    NodeList constraints = response.document.getElementsByTagName("LocationConstraint");
-
-                    if( constraints.getLength() > 0 ) {
-                        Node constraint = constraints.item(0);
+            buckets.put(name, ts);
+        }
+        if( getProvider().getEC2Provider().isAWS() ) {
+            Map<String, String> regions = getRegions(buckets.keySet());
 
-                        if( constraint != null && constraint.hasChildNodes() ) {
-                            location = constraint.getFirstChild().getNodeValue().trim();
-                        }
-                    }
-                }
-                if( toRegion(location).equals(regionId) ) {
-                    iterator.push(Blob.getInstance(regionId, getLocation(name, null), name, ts));
+            for( Map.Entry<String, Long> bucket : buckets.entrySet() ) {
+                if( regionId.equals(regions.get(bucket.getKey())) ) {
+                    iterator.push(Blob.getInstance(regionId, getLocation(bucket.getKey(), null), bucket.getKey(), bucket.getValue()));
                 }
             }
-            else {
-                iterator.push(Blob.getInstance(regionId, getLocation(name, null), name, ts));
+        }
+        else {
+            for( Map.Entry<String, Long> bucket : buckets.entrySet() ) {
+                iterator.push(Blob.getInstance(regionId, getLocation(bucket.getKey(), null), bucket.getKey(), bucket.getValue()));
             }
         }
     }
@@ -1314,6 +1669,15 @@ public class S3 extends AbstractBlobStoreSupport<AWSCloud> {
                 headers = new HashMap<String, String>();
                 headers.put("x-amz-acl", "public-read");
             }
+            // multipart uploads are only relied upon with AWS itself; other S3 implementations get a single PUT
+            if( getProvider().getEC2Provider().isAWS() ) {
+                long partSize = getPartSize(file.length());
+
+                if( file.length() > partSize ) {
+                    putMultipart(bucket, object, file, headers, partSize);
+                    return;
+                }
+            }
             method = new S3Method(getProvider(), S3Action.PUT_OBJECT, null, headers, "application/octet-stream", file);
             try {
                 method.invoke(bucket, object);
@@ -1327,6 +1691,216 @@ public class S3 extends AbstractBlobStoreSupport<AWSCloud> {
         }
     }
 
+    static private final long MIN_PART_SIZE        = 5L * 1024L * 1024L;
+    static private final int  DEFAULT_PART_SIZE_MB = 16;
+    static private final int  DEFAULT_UPLOAD_THREADS = 4;
+    static private final int  MAX_PARTS            = 10000;
+    static private final int  PART_ATTEMPTS        = 3;
+
+    /**
+     * Determines the part size for uploading a file of the given length, honouring the configured part size but
+     * growing it when needed to stay within the S3 limit on the number of parts.
+     * @param length the length of the file being uploaded
+     * @return the part size in bytes
+     */
+    private long getPartSize(long length) {
+        long partSize = Math.max(MIN_PART_SIZE, getProvider().getIntProperty(AWSCloud.DSN_S3_PART_SIZE, DEFAULT_PART_SIZE_MB) * 1024L * 1024L);
+
+        if( length / partSize >= MAX_PARTS ) {
+            partSize = (length + MAX_PARTS - 1) / MAX_PARTS;
+        }
+        return partSize;
+    }
+
+    static @Nonnull ExecutorService newTransferPool(int threads, @Nonnull final String name) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    private void putMultipart(@Nullable String bucket, @Nonnull String object, @Nonnull File file, @Nullable Map<String, String> headers, long partSize) throws CloudException, InternalException {
+        String uploadId = initiateMultipartUpload(bucket, object, headers);
+        int threads = Math.max(1, getProvider().getIntProperty(AWSCloud.DSN_S3_UPLOAD_THREADS, DEFAULT_UPLOAD_THREADS));
+        int count = (int)((file.length() + partSize - 1) / partSize);
+        ExecutorService pool = newTransferPool(Math.min(threads, count), "dasein-s3-upload");
+        boolean completed = false;
+
+        try {
+            List<Future<String>> parts = new ArrayList<Future<String>>(count);
+
+            for( int i=0; i<count; i++ ) {
+                long offset = i * partSize;
+
+                parts.add(pool.submit(new PartUpload(bucket, object, uploadId, i + 1, file, offset, Math.min(partSize, file.length() - offset))));
+            }
+            String[] etags = new String[count];
+
+            for( int i=0; i<count; i++ ) {
+                try {
+                    etags[i] = parts.get(i).get();
+                }
+                catch( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    throw new InternalException(e);
+                }
+                catch( ExecutionException e ) {
+                    Throwable cause = e.getCause();
+
+                    if( cause instanceof CloudException ) {
+                        throw (CloudException)cause;
+                    }
+                    if( cause instanceof InternalException ) {
+                        throw (InternalException)cause;
+                    }
+                    throw new InternalException(cause);
+                }
+            }
+            completeMultipartUpload(bucket, object, uploadId, etags);
+            completed = true;
+        }
+        finally {
+            pool.shutdownNow();
+            if( !completed ) {
+                abortMultipartUpload(bucket, object, uploadId);
+            }
+        }
+    }
+
+    private @Nonnull String initiateMultipartUpload(@Nullable String bucket, @Nonnull String object, @Nullable Map<String, String> headers) throws CloudException, InternalException {
+        S3Method method = new S3Method(getProvider(), S3Action.INITIATE_MULTIPART_UPLOAD, null, headers == null ? null : new HashMap<String, String>(headers), "application/octet-stream", (String)null);
+        S3Response response;
+
+        try {
+            response = method.invoke(bucket, object, Collections.singletonMap("uploads", (String)null));
+        }
+        catch( S3Exception e ) {
+            throw new CloudException(e);
+        }
+        if( response == null || response.document == null ) {
+            throw new CloudException("No upload ID was returned for " + object);
+        }
+        NodeList ids = response.document.getElementsByTagName("UploadId");
+
+        if( ids.getLength() < 1 || !ids.item(0).hasChildNodes() ) {
+            throw new CloudException("No upload ID was returned for " + object);
+        }
+        return ids.item(0).getFirstChild().getNodeValue().trim();
+    }
+
+    private void completeMultipartUpload(@Nullable String bucket, @Nonnull String object, @Nonnull String uploadId, @Nonnull String[] etags) throws CloudException, InternalException {
+        StringBuilder body = new StringBuilder();
+
+        body.append("<CompleteMultipartUpload>");
+        for( int i=0; i<etags.length; i++ ) {
+            body.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>");
+            body.append(etags[i]);
+            body.append("</ETag></Part>");
+        }
+        body.append("</CompleteMultipartUpload>");
+
+        S3Method method = new S3Method(getProvider(), S3Action.COMPLETE_MULTIPART_UPLOAD, null, null, "application/xml", body.toString());
+        S3Response response;
+
+        try {
+            response = method.invoke(bucket, object, Collections.singletonMap("uploadId", uploadId));
+        }
+        catch( S3Exception e ) {
+            throw new CloudException(e);
+        }
+        // S3 may report a failure to assemble the parts in the body of a 200 response
+        if( response != null && response.document != null ) {
+            NodeList errors = response.document.getElementsByTagName("Error");
+
+            if( errors.getLength() > 0 ) {
+                NodeList messages = response.document.getElementsByTagName("Message");
+                String message = "Failed to complete the upload of " + object;
+
+                if( messages.getLength() > 0 && messages.item(0).hasChildNodes() ) {
+                    message = message + ": " + messages.item(0).getFirstChild().getNodeValue().trim();
+                }
+                throw new CloudException(message);
+            }
+        }
+    }
+
+    private void abortMultipartUpload(@Nullable String bucket, @Nonnull String object, @Nonnull String uploadId) {
+        S3Method method = new S3Method(getProvider(), S3Action.ABORT_MULTIPART_UPLOAD);
+
+        try {
+            method.invoke(bucket, object, Collections.singletonMap("uploadId", uploadId));
+        }
+        catch( Throwable t ) {
+            logger.warn("Unable to abort multipart upload " + uploadId + " of " + object + ": " + t.getMessage());
+        }
+    }
+
+    /**
+     * Uploads a single part of a multipart upload, retrying just that part when it fails.
+     */
+    private class PartUpload implements Callable<String> {
+        private final String bucket;
+        private final String object;
+        private final String uploadId;
+        private final int    partNumber;
+        private final File   file;
+        private final long   offset;
+        private final long   length;
+
+        PartUpload(String bucket, String object, String uploadId, int partNumber, File file, long offset, long length) {
+            this.bucket = bucket;
+            this.object = object;
+            this.uploadId = uploadId;
+            this.partNumber = partNumber;
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public String call() throws CloudException, InternalException {
+            Map<String, String> subResources = new HashMap<String, String>();
+            subResources.put("partNumber", String.valueOf(partNumber));
+            subResources.put("uploadId", uploadId);
+            int attempt = 0;
+
+            while( true ) {
+                attempt++;
+                try {
+                    S3Method method = new S3Method(getProvider(), S3Action.UPLOAD_PART, null, null, "application/octet-stream", file, offset, length);
+                    S3Response response = method.invoke(bucket, object, subResources);
+
+                    if( response != null && response.headers != null ) {
+                        for( Header header : response.headers ) {
+                            if( header.getName().equalsIgnoreCase("ETag") ) {
+                                return header.getValue();
+                            }
+                        }
+                    }
+                    throw new CloudException("No ETag was returned for part " + partNumber + " of " + object);
+                }
+                catch( CloudException e ) {
+                    if( attempt >= PART_ATTEMPTS || Thread.currentThread().isInterrupted() ) {
+                        throw e;
+                    }
+                    logger.warn("Retrying part " + partNumber + " of " + object + ": " + e.getMessage());
+                    getProvider().getRetryPolicy().backoff(attempt, false);
+                }
+                catch( InternalException e ) {
+                    if( attempt >= PART_ATTEMPTS || Thread.currentThread().isInterrupted() ) {
+                        throw e;
+                    }
+                    logger.warn("Retrying part " + partNumber + " of " + object + ": " + e.getMessage());
+                    getProvider().getRetryPolicy().backoff(attempt, false);
+                }
+            }
+        }
+    }
+
     @Override
     protected void put( @Nullable String bucket, @Nonnull String object, @Nonnull String content ) throws CloudException, InternalException {
         APITrace.begin(getProvider(), "Blob.putString");
@@ -1382,11 +1956,13 @@ public class S3 extends AbstractBlobStoreSupport<AWSCloud> {
 
             try {
                 method.invoke(bucket, null);
+                getBucketRegions().remove(bucket);
             }
             catch( S3Exception e ) {
                 String code = e.getCode();
 
                 if( code != null && ( code.equals("NoSuchBucket") ) ) {
+                    getBucketRegions().remove(bucket);
                     return;
                 }
                 logger.error(e.getSummary());
@@ -1445,11 +2021,7 @@ public class S3 extends AbstractBlobStoreSupport<AWSCloud> {
                             throw e;
                         }
                     }
-                    try {
-                        Thread.sleep(retries * 10000L);
-                    }
-                    catch( InterruptedException ignore ) {
-                    }
+                    getProvider().getRetryPolicy().backoff(10 - retries, 1000L);
                 }
             }
             boolean ok = true;
@@ -1572,18 +2144,4 @@ public class S3 extends AbstractBlobStoreSupport<AWSCloud> {
     		removeTags(id, tags);
     	}
     }
-
-    static private class Constraint {
-        public String regionId;
-        public long   timeout;
-
-        public Constraint( String regionId ) {
-            this.regionId = regionId;
-            this.timeout = System.currentTimeMillis() + ( CalendarWrapper.MINUTE * 30L ) + random.nextInt(( int ) ( CalendarWrapper.MINUTE * 5L ));
-        }
-    }
-
-    static private class Affinity {
-        public HashMap<String, Constraint> constraints = new HashMap<String, Constraint>();
-    }
 }
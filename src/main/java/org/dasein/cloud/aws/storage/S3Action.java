@@ -22,22 +22,26 @@ package org.dasein.cloud.aws.storage;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
 
 public enum S3Action {
-	CREATE_BUCKET, DELETE_BUCKET, LIST_BUCKETS, LIST_CONTENTS, LOCATE_BUCKET, COPY_OBJECT, OBJECT_EXISTS, GET_OBJECT, PUT_OBJECT, DELETE_OBJECT, GET_ACL, SET_ACL, GET_BUCKET_TAG, PUT_BUCKET_TAG, DELETE_BUCKET_TAG;
+	CREATE_BUCKET, DELETE_BUCKET, LIST_BUCKETS, LIST_CONTENTS, LOCATE_BUCKET, COPY_OBJECT, OBJECT_EXISTS, GET_OBJECT, PUT_OBJECT, DELETE_OBJECT, GET_ACL, SET_ACL, GET_BUCKET_TAG, PUT_BUCKET_TAG, DELETE_BUCKET_TAG,
+	INITIATE_MULTIPART_UPLOAD, UPLOAD_PART, COMPLETE_MULTIPART_UPLOAD, ABORT_MULTIPART_UPLOAD, HEAD_OBJECT;
 	
 	public HttpRequestBase getMethod(String url) {
 		switch( this ) {
-		case OBJECT_EXISTS:
+		case OBJECT_EXISTS: case HEAD_OBJECT:
 			return new HttpHead(url);
-		case DELETE_BUCKET: case DELETE_OBJECT: case DELETE_BUCKET_TAG:
+		case DELETE_BUCKET: case DELETE_OBJECT: case DELETE_BUCKET_TAG: case ABORT_MULTIPART_UPLOAD:
 			return new HttpDelete(url);
 		case LIST_BUCKETS: case LIST_CONTENTS: case LOCATE_BUCKET: case GET_OBJECT: case GET_ACL: case GET_BUCKET_TAG:
 			return new HttpGet(url);
-		case CREATE_BUCKET: case COPY_OBJECT: case PUT_OBJECT: case SET_ACL: case PUT_BUCKET_TAG:
+		case CREATE_BUCKET: case COPY_OBJECT: case PUT_OBJECT: case SET_ACL: case PUT_BUCKET_TAG: case UPLOAD_PART:
 			return new HttpPut(url);
+		case INITIATE_MULTIPART_UPLOAD: case COMPLETE_MULTIPART_UPLOAD:
+			return new HttpPost(url);
 		}
 		return null;
 	}
@@ -20,6 +20,7 @@
 package org.dasein.cloud.aws.storage;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
@@ -36,6 +37,8 @@ import org.apache.log4j.Logger;
 import org.dasein.cloud.CloudException;
 import org.dasein.cloud.InternalException;
 import org.dasein.cloud.aws.AWSCloud;
+import org.dasein.cloud.aws.RetryPolicy;
+import org.dasein.cloud.aws.WireInputStream;
 import org.dasein.cloud.identity.ServiceAction;
 import org.dasein.cloud.storage.BlobStoreSupport;
 import org.dasein.cloud.util.APITrace;
@@ -49,6 +52,8 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
@@ -132,8 +137,60 @@ public class S3Method {
     static public String getChecksum(File file) throws NoSuchAlgorithmException, FileNotFoundException, IOException {
         return toBase64(computeMD5Hash(new FileInputStream(file)));
     }
-   
-	
+
+    /**
+     * Computes the SHA-256 and MD5 digests of a file in a single streaming pass through a fixed size buffer, so
+     * memory use stays constant whatever the size of the file.
+     * @param file the file to digest
+     * @return the SHA-256 digest followed by the MD5 digest
+     * @throws NoSuchAlgorithmException the JVM is missing SHA-256 or MD5
+     * @throws IOException the file could not be read
+     */
+    static public byte[][] computeSHA256AndMD5Hash(File file) throws NoSuchAlgorithmException, IOException {
+        return computeSHA256AndMD5Hash(file, 0L, file.length());
+    }
+
+    /**
+     * Computes the SHA-256 and MD5 digests of a slice of a file using positional reads, so several slices of the
+     * same file may be digested concurrently.
+     * @param file the file to digest
+     * @param offset the position of the first byte of the slice
+     * @param length the number of bytes in the slice
+     * @return the SHA-256 digest followed by the MD5 digest
+     * @throws NoSuchAlgorithmException the JVM is missing SHA-256 or MD5
+     * @throws IOException the file could not be read
+     */
+    static public byte[][] computeSHA256AndMD5Hash(File file, long offset, long length) throws NoSuchAlgorithmException, IOException {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        MessageDigest md5 = MessageDigest.getInstance("MD5");
+        FileInputStream input = new FileInputStream(file);
+
+        try {
+            FileChannel channel = input.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(65536);
+            long position = offset;
+            long end = offset + length;
+
+            while( position < end ) {
+                buffer.limit((int)Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+
+                if( read == -1 ) {
+                    throw new EOFException("Unexpected end of " + file + " at " + position);
+                }
+                position += read;
+                buffer.flip();
+                sha256.update(buffer.array(), 0, buffer.limit());
+                md5.update(buffer.array(), 0, buffer.limit());
+                buffer.clear();
+            }
+            return new byte[][] { sha256.digest(), md5.digest() };
+        }
+        finally {
+            input.close();
+        }
+    }
+
     static public String toBase64(byte[] data) {
         byte[] b64 = Base64.encodeBase64(data);
         
@@ -148,6 +205,8 @@ public class S3Method {
     private Map<String,String> parameters  = null;
     private AWSCloud           provider    = null;
     private File               uploadFile  = null;
+    private long               uploadOffset = 0L;
+    private long               uploadLength = -1L;
 
     public S3Method(AWSCloud provider, S3Action action) {
         this.action = action;
@@ -180,6 +239,19 @@ public class S3Method {
         this.parameters = parameters;
     }
 
+    /**
+     * Constructs a method sending the given slice of a file as its body, used for the parts of a multipart upload.
+     */
+    public S3Method(AWSCloud provider, S3Action action, Map<String,String> parameters, Map<String,String> headers, String contentType, File uploadFile, long uploadOffset, long uploadLength) {
+        this(provider, action, parameters, headers, contentType, uploadFile);
+        this.uploadOffset = uploadOffset;
+        this.uploadLength = uploadLength;
+    }
+
+    private long getUploadLength() {
+        return ( uploadLength > -1L ? uploadLength : uploadFile.length() );
+    }
+
     private String getDate() throws CloudException {
         if( provider.getEC2Provider().isStorage() && "google".equalsIgnoreCase(provider.getProviderName()) ) {
             SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ssz", new Locale("US"));
@@ -198,156 +270,228 @@ public class S3Method {
     }
 
     S3Response invoke(String bucket, String object) throws S3Exception, CloudException, InternalException {
-        return invoke(bucket, object, null);
+        return invoke(bucket, object, null, null);
     }
 
-    static private final Logger wire = AWSCloud.getWireLogger(S3.class);
+    /**
+     * Invokes the method against a sub-resource of an object, such as the uploads of a multipart upload.
+     * @param bucket the bucket holding the object
+     * @param object the key of the object
+     * @param subResources the query parameters naming the sub-resource, with a <code>null</code> value for those without one
+     * @return the response
+     */
+    S3Response invoke(@Nullable String bucket, @Nonnull String object, @Nonnull Map<String,String> subResources) throws S3Exception, CloudException, InternalException {
+        return invoke(bucket, object, null, subResources);
+    }
 
-    // TODO(stas): This method screams for some heavy refactoring
     S3Response invoke(@Nullable String bucket, @Nullable String object, @Nullable String temporaryEndpoint) throws S3Exception, CloudException, InternalException {
-        if( wire.isDebugEnabled() ) {
-            wire.debug("");
-            wire.debug("----------------------------------------------------------------------------------");
+        return invoke(bucket, object, temporaryEndpoint, null);
+    }
+
+    static private final Logger wire = AWSCloud.getWireLogger(S3.class);
+
+    /**
+     * Builds the URL of a request. The bucket and the object key are encoded here; the sub-resources are appended
+     * to the encoded key as query parameters so that they reach S3 and the signature as a query string.
+     * @param bucket the bucket, if any
+     * @param object the object key, if any
+     * @param temporaryEndpoint the endpoint S3 redirected the request to, if any
+     * @param subResources the sub-resources of the object, if any
+     * @return the URL of the request
+     * @throws CloudException the endpoint could not be determined
+     * @throws InternalException the URL could not be encoded
+     */
+    String getUrl(@Nullable String bucket, @Nullable String object, @Nullable String temporaryEndpoint, @Nullable Map<String,String> subResources) throws CloudException, InternalException {
+        StringBuilder url = new StringBuilder();
+
+        // Sanitise the parameters as they may have spaces and who knows what else
+        if( bucket != null ) {
+            bucket = AWSCloud.encode(bucket, false);
         }
-        HttpClient client = null;
-        boolean leaveOpen = false;
-        try {
-            StringBuilder url = new StringBuilder();
-            HttpRequestBase method;
-            int status;
+        if( object != null && !"?location".equalsIgnoreCase( object ) && !"?acl".equalsIgnoreCase( object ) && !"?tagging".equalsIgnoreCase( object )) {
+            object = AWSCloud.encode(object, false);
+        }
+        if( temporaryEndpoint != null ) {
+            temporaryEndpoint = AWSCloud.encode(temporaryEndpoint, false);
+        }
+        if( provider.getEC2Provider().isAWS() ) {
+            url.append("https://");
+            if( temporaryEndpoint == null ) {
+                boolean validDomainName = isValidDomainName(bucket);
+                String regionId = provider.getContext().getRegionId();
 
-            // Sanitise the parameters as they may have spaces and who knows what else
-            if( bucket != null ) {
-                bucket = AWSCloud.encode(bucket, false);
-            }
-            if( object != null && !"?location".equalsIgnoreCase( object ) && !"?acl".equalsIgnoreCase( object ) && !"?tagging".equalsIgnoreCase( object )) {
-                object = AWSCloud.encode(object, false);
-            }
-            if( temporaryEndpoint != null ) {
-                temporaryEndpoint = AWSCloud.encode(temporaryEndpoint, false);
-            }
-            if( provider.getEC2Provider().isAWS() ) {
-                url.append("https://");
-                if( temporaryEndpoint == null ) {
-                    boolean validDomainName = isValidDomainName(bucket);
-                    String regionId = provider.getContext().getRegionId();
-
-                    if( bucket != null && validDomainName ) {
-                        url.append(bucket);
-                        if (regionId != null && !regionId.isEmpty() && !"us-east-1".equals(regionId)) {
-                            url.append(".s3-");
-                            url.append(regionId);
-                            url.append(".amazonaws.com/");
-                        }
-                        else {
-                            url.append(".s3.amazonaws.com/");
-                        }
+                if( bucket != null && validDomainName ) {
+                    url.append(bucket);
+                    if (regionId != null && !regionId.isEmpty() && !"us-east-1".equals(regionId)) {
+                        url.append(".s3-");
+                        url.append(regionId);
+                        url.append(".amazonaws.com/");
                     }
                     else {
-                        if (regionId != null && !regionId.isEmpty() && !"us-east-1".equals(regionId)) {
-                            url.append("s3-");
-                            url.append(regionId);
-                            url.append(".amazonaws.com/");
-                        }
-                        else {
-                            url.append("s3.amazonaws.com/");
-                        }
-                    }
-                    if ( bucket != null && !validDomainName) {
-                        url.append(bucket);
-                        url.append("/");
+                        url.append(".s3.amazonaws.com/");
                     }
                 }
                 else {
-                    url.append(temporaryEndpoint);
-                    url.append("/");
-                }
-            }
-            else if( provider.getEC2Provider().isStorage() && "google".equalsIgnoreCase(provider.getProviderName()) ) {
-                url.append("https://");
-                if( temporaryEndpoint == null ) {
-                    if( bucket != null ) {
-                        url.append(bucket);
-                        url.append(".");
+                    if (regionId != null && !regionId.isEmpty() && !"us-east-1".equals(regionId)) {
+                        url.append("s3-");
+                        url.append(regionId);
+                        url.append(".amazonaws.com/");
+                    }
+                    else {
+                        url.append("s3.amazonaws.com/");
                     }
-                    url.append("commondatastorage.googleapis.com/");
                 }
-                else {
-                    url.append(temporaryEndpoint);
+                if ( bucket != null && !validDomainName) {
+                    url.append(bucket);
                     url.append("/");
                 }
             }
             else {
-                int idx = 0;
-                
-                if( !provider.getContext().getEndpoint().startsWith("http") ) {
-                    url.append("https://");
+                url.append(temporaryEndpoint);
+                url.append("/");
+            }
+        }
+        else if( provider.getEC2Provider().isStorage() && "google".equalsIgnoreCase(provider.getProviderName()) ) {
+            url.append("https://");
+            if( temporaryEndpoint == null ) {
+                if( bucket != null ) {
+                    url.append(bucket);
+                    url.append(".");
                 }
-                else {
-                    idx = provider.getContext().getEndpoint().indexOf("https://");
-                    if( idx == -1 ) {
-                        idx = "http://".length();
-                        url.append("http://");
-                    }
-                    else {
-                        idx = "https://".length();
-                        url.append("https://");
-                    }
+                url.append("commondatastorage.googleapis.com/");
+            }
+            else {
+                url.append(temporaryEndpoint);
+                url.append("/");
+            }
+        }
+        else {
+            int idx = 0;
+            
+            if( !provider.getContext().getEndpoint().startsWith("http") ) {
+                url.append("https://");
+            }
+            else {
+                idx = provider.getContext().getEndpoint().indexOf("https://");
+                if( idx == -1 ) {
+                    idx = "http://".length();
+                    url.append("http://");
                 }
-                String service = "";
-                if( provider.getEC2Provider().isEucalyptus() ) {
-                    service = "Walrus/";
+                else {
+                    idx = "https://".length();
+                    url.append("https://");
                 }
+            }
+            String service = "";
+            if( provider.getEC2Provider().isEucalyptus() ) {
+                service = "Walrus/";
+            }
 
-                if( temporaryEndpoint == null ) {
-                    url.append(provider.getContext().getEndpoint().substring(idx));
-                    if( !provider.getContext().getEndpoint().endsWith("/") ) {
-                        url.append("/").append(service);
-                    }
-                    else {
-                        url.append(service);
-                    }
+            if( temporaryEndpoint == null ) {
+                url.append(provider.getContext().getEndpoint().substring(idx));
+                if( !provider.getContext().getEndpoint().endsWith("/") ) {
+                    url.append("/").append(service);
                 }
                 else {
-                    url.append(temporaryEndpoint);
-                    url.append("/");
                     url.append(service);
                 }
-                if( bucket != null ) {
-                    url.append(bucket);
-                    url.append("/");
-                }
             }
-            if( object != null ) {
-                url.append(object);
+            else {
+                url.append(temporaryEndpoint);
+                url.append("/");
+                url.append(service);
+            }
+            if( bucket != null ) {
+                url.append(bucket);
+                url.append("/");
+            }
+        }
+        if( object != null ) {
+            url.append(object);
+        }
+        else if( parameters != null ) {
+            boolean first = true;
+
+            if( object != null && object.indexOf('?') != -1 ) {
+                first = false;
             }
-            else if( parameters != null ) {
-                boolean first = true;
+            for( Map.Entry<String,String> entry : parameters.entrySet() ) {
+                String key = entry.getKey();
+                String val = entry.getValue();
 
-                if( object != null && object.indexOf('?') != -1 ) {
+                if( first ) {
+                    url.append("?");
                     first = false;
                 }
-                for( Map.Entry<String,String> entry : parameters.entrySet() ) {
-                    String key = entry.getKey();
-                    String val = entry.getValue();
-
-                    if( first ) {
-                        url.append("?");
-                        first = false;
-                    }
-                    else {
-                        url.append("&");
-                    }
-                    if( val != null ) {
-                        url.append(AWSCloud.encode(key, false));
-                        url.append("=");
-                        url.append(AWSCloud.encode(val, false));
-                    }
-                    else {
-                        url.append(AWSCloud.encode(key, false));
-                    }
+                else {
+                    url.append("&");
+                }
+                if( val != null ) {
+                    url.append(AWSCloud.encode(key, false));
+                    url.append("=");
+                    url.append(AWSCloud.encode(val, false));
+                }
+                else {
+                    url.append(AWSCloud.encode(key, false));
                 }
             }
+        }
+        if( object != null && subResources != null && !subResources.isEmpty() ) {
+            url.append(object.indexOf('?') == -1 ? "?" : "&");
+            appendSubResources(url, subResources);
+        }
+        return url.toString();
+    }
+
+    /**
+     * @return the object key with its sub-resources as signed by v2 signatures
+     */
+    private @Nullable String getResource(@Nullable String object, @Nullable Map<String,String> subResources) throws InternalException {
+        if( object == null ) {
+            return null;
+        }
+        if( !"?location".equalsIgnoreCase( object ) && !"?acl".equalsIgnoreCase( object ) && !"?tagging".equalsIgnoreCase( object )) {
+            object = AWSCloud.encode(object, false);
+        }
+        if( subResources == null || subResources.isEmpty() ) {
+            return object;
+        }
+        StringBuilder resource = new StringBuilder(object);
+
+        resource.append("?");
+        appendSubResources(resource, subResources);
+        return resource.toString();
+    }
+
+    static private void appendSubResources(@Nonnull StringBuilder url, @Nonnull Map<String,String> subResources) throws InternalException {
+        boolean first = true;
+
+        // sorted, as v2 signatures expect them
+        for( Map.Entry<String,String> entry : new TreeMap<String,String>(subResources).entrySet() ) {
+            if( !first ) {
+                url.append("&");
+            }
+            first = false;
+            url.append(entry.getKey());
+            if( entry.getValue() != null ) {
+                url.append("=");
+                url.append(AWSCloud.encode(entry.getValue(), false));
+            }
+        }
+    }
+
+    // TODO(stas): This method screams for some heavy refactoring
+    private S3Response invoke(@Nullable String bucket, @Nullable String object, @Nullable String temporaryEndpoint, @Nullable Map<String,String> subResources) throws S3Exception, CloudException, InternalException {
+        if( wire.isDebugEnabled() ) {
+            wire.debug("");
+            wire.debug("----------------------------------------------------------------------------------");
+        }
+        HttpResponse httpResponse = null;
+        boolean leaveOpen = false;
+        try {
+            HttpRequestBase method;
+            int status;
+            String url = getUrl(bucket, object, temporaryEndpoint, subResources);
 
             if( provider.getEC2Provider().isStorage() && provider.getProviderName().equalsIgnoreCase("Google") ) {
                 headers.put(AWSCloud.P_GOOG_DATE, getDate());
@@ -363,10 +507,29 @@ public class S3Method {
                 headers.put("Content-Type", contentType);
             }
 
-            method = action.getMethod(url.toString());
+            method = action.getMethod(url);
             String host = method.getURI().getHost();
             headers.put("host", host);
 
+            String bodyHash = null;
+            String contentMD5 = null;
+            if( uploadFile != null ) {
+                // stream the file through the digests rather than loading it into memory
+                try {
+                    byte[][] digests = computeSHA256AndMD5Hash(uploadFile, uploadOffset, getUploadLength());
+
+                    bodyHash = new String(Hex.encodeHex(digests[0], true));
+                    contentMD5 = toBase64(digests[1]);
+                    headers.put("Content-MD5", contentMD5);
+                }
+                catch( NoSuchAlgorithmException e ) {
+                    throw new InternalException(e);
+                }
+                catch( IOException e ) {
+                    throw new InternalException(e);
+                }
+            }
+
             if(action.equals(S3Action.PUT_BUCKET_TAG))
             	try {
             		headers.put("Content-MD5", toBase64(computeMD5Hash(body)));
@@ -385,12 +548,18 @@ public class S3Method {
             if( body != null ) {
                 ((HttpEntityEnclosingRequestBase)method).setEntity(new StringEntity(body, APPLICATION_XML));
             }
+            else if( uploadFile != null && uploadLength > -1L ) {
+                ((HttpEntityEnclosingRequestBase)method).setEntity(new FileSliceEntity(uploadFile, uploadOffset, uploadLength, contentType));
+            }
             else if( uploadFile != null ) {
                 ((HttpEntityEnclosingRequestBase)method).setEntity(new FileEntity(uploadFile, contentType));
             }
             try {
                 String hash = null;
-                if( method instanceof HttpEntityEnclosingRequestBase ) {
+                if( bodyHash != null ) {
+                    hash = bodyHash;
+                }
+                else if( method instanceof HttpEntityEnclosingRequestBase && ((HttpEntityEnclosingRequestBase)method).getEntity() != null ) {
                     try {
                         hash = provider.getRequestBodyHash(EntityUtils.toString(((HttpEntityEnclosingRequestBase)method).getEntity()));
                     }
@@ -409,7 +578,7 @@ public class S3Method {
                             new String(provider.getAccessKey()[0]),
                             new String(provider.getAccessKey()[1]),
                             method.getMethod(),
-                            url.toString(),
+                            url,
                             SERVICE_ID,
                             headers,
                             hash);
@@ -423,11 +592,11 @@ public class S3Method {
                             new String(provider.getAccessKey()[0], "utf-8"),
                             provider.getAccessKey()[1],
                             method.getMethod(),
-                            null,
+                            contentMD5,
                             contentType,
                             headers,
-                            bucket,
-                            object);
+                            bucket == null ? null : AWSCloud.encode(bucket, false),
+                            getResource(object, subResources));
                 }
                 method.addHeader(AWSCloud.P_CFAUTH, signature);
             }
@@ -436,7 +605,7 @@ public class S3Method {
             }
 
             if( wire.isDebugEnabled() ) {
-                wire.debug("[" + url.toString() + "]");
+                wire.debug("[" + url + "]");
                 wire.debug(method.getRequestLine().toString());
                 for( Header header : method.getAllHeaders() ) {
                     wire.debug(header.getName() + ": " + header.getValue());
@@ -455,10 +624,9 @@ public class S3Method {
             }
 
             attempts++;
-            client = provider.getClient(body == null && uploadFile == null);
+            HttpClient client = provider.getClient(body == null && uploadFile == null);
             
             S3Response response = new S3Response();
-            HttpResponse httpResponse;
             
             try {
                 APITrace.trace(provider, action.toString());
@@ -489,8 +657,11 @@ public class S3Method {
                     throw new CloudException(e);
                 }
             }
+            RetryPolicy retryPolicy = provider.getRetryPolicy();
+
             try {
-                if( status == HttpStatus.SC_OK || status == HttpStatus.SC_CREATED || status == HttpStatus.SC_ACCEPTED ) {
+                if( status == HttpStatus.SC_OK || status == HttpStatus.SC_CREATED || status == HttpStatus.SC_ACCEPTED || status == HttpStatus.SC_PARTIAL_CONTENT ) {
+                    retryPolicy.succeeded();
                     Header clen = httpResponse.getFirstHeader("Content-Length");
                     long len = -1L;
                     
@@ -501,7 +672,9 @@ public class S3Method {
                         try {
                             Header ct = httpResponse.getFirstHeader("Content-Type");
     
-                            if( (ct != null && (ct.getValue().startsWith("application/xml") || ct.getValue().startsWith("text/xml"))) || ( action.equals(S3Action.GET_BUCKET_TAG) && input != null )) {
+                            // a byte range of an object is never a complete XML document, whatever its content type,
+                            // and a HEAD response describes a body without carrying it
+                            if( status != HttpStatus.SC_PARTIAL_CONTENT && input != null && ((ct != null && (ct.getValue().startsWith("application/xml") || ct.getValue().startsWith("text/xml"))) || action.equals(S3Action.GET_BUCKET_TAG)) ) {
                                 try {
                                     response.document = parseResponse(input);
                                     return response;
@@ -537,14 +710,14 @@ public class S3Method {
                     return response;
                 }
                 if( status == HttpStatus.SC_FORBIDDEN ) {
-                    throw new S3Exception(status, "", "AccessForbidden", "Access was denied : " + (url != null ? url.toString() : "" ));
+                    throw new S3Exception(status, "", "AccessForbidden", "Access was denied : " + (url != null ? url : "" ));
                 }
                 else if( status == HttpStatus.SC_NOT_FOUND ) {
                     throw new S3Exception(status, null, null, "Object not found.");
                 }
                 else {
-                    if( status == HttpStatus.SC_SERVICE_UNAVAILABLE || status == HttpStatus.SC_INTERNAL_SERVER_ERROR ) {
-                        if( attempts >= 5 ) {
+                    if( retryPolicy.isRetryable(status, null) ) {
+                        if( !retryPolicy.shouldRetry(attempts, status, null) ) {
                             String msg;
                             
                             if( status == HttpStatus.SC_SERVICE_UNAVAILABLE ) {
@@ -562,9 +735,9 @@ public class S3Method {
                                 try { input.close(); }
                                 catch( IOException ignore ) { }
                             }
-                            try { Thread.sleep(5000L); }
-                            catch( InterruptedException ignore ) { }
-                            return invoke(bucket, object);
+                            // S3 answers SlowDown with a 503
+                            retryPolicy.backoff(attempts, status == HttpStatus.SC_SERVICE_UNAVAILABLE || status == 429);
+                            return invoke(bucket, object, temporaryEndpoint, subResources);
                         }
                     }
                     try {
@@ -611,9 +784,13 @@ public class S3Method {
                                     throw new CloudException("Too deep redirect to " + endpoint);
                                 }
                                 else {
-                                    return invoke(bucket, object, endpoint);
+                                    return invoke(bucket, object, endpoint, subResources);
                                 }
                             }
+                            else if( retryPolicy.isThrottle(code) && retryPolicy.shouldRetry(attempts, status, code) ) {
+                                retryPolicy.backoff(attempts, true);
+                                return invoke(bucket, object, temporaryEndpoint, subResources);
+                            }
                             else {
                                 if( message == null ) {
                                     throw new CloudException("Unable to identify error condition: " + status + "/" + requestId + "/" + code);
@@ -649,8 +826,9 @@ public class S3Method {
             }
         }
         finally {
-            if (!leaveOpen && client != null) {
-                client.getConnectionManager().shutdown();
+            if( !leaveOpen && httpResponse != null ) {
+                // hands the connection back to the shared pool
+                EntityUtils.consumeQuietly(httpResponse.getEntity());
             }
             if( wire.isDebugEnabled() ) {
                 wire.debug("----------------------------------------------------------------------------------");
@@ -665,18 +843,7 @@ public class S3Method {
 
 	private Document parseResponse(InputStream responseBodyAsStream) throws CloudException, InternalException {
 		try {
-			BufferedReader in = new BufferedReader(new InputStreamReader(responseBodyAsStream));
-			StringBuilder sb = new StringBuilder();
-			String line;
-	            
-			while( (line = in.readLine()) != null ) {
-				sb.append(line);
-			}
-			in.close();
-            
-            wire.debug(sb.toString());
-
-			return XMLParser.parse(new ByteArrayInputStream(sb.toString().getBytes()));
+			return XMLParser.parse(WireInputStream.wrap(responseBodyAsStream, wire));
 		}
 		catch( IOException e ) {
 			logger.error(e);
@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.storage;
+
+import org.apache.commons.codec.binary.Hex;
+import org.dasein.cloud.InternalException;
+
+import javax.annotation.Nonnull;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming computation of the SHA-256 tree hash Glacier uses to check archives and parts of archives. Data is
+ * hashed in 1 MB leaves and each pair of neighbouring hashes is combined as soon as both are known, so only one
+ * pending hash per level of the tree is held and memory stays constant whatever the size of the data.
+ * <p>
+ * Whole subtrees, such as the tree hashes of the parts of a multipart upload, can be combined the same way as
+ * long as every subtree but the last covers the same power of two number of leaves.
+ * </p>
+ * @see <a href="http://docs.aws.amazon.com/amazonglacier/latest/dev/checksum-calculations.html">Computing Checksums</a>
+ */
+public class TreeHash {
+    static public final int CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * Computes the linear SHA-256 digest and the tree hash of a slice of a file in a single pass, reading the
+     * slice a leaf at a time with positional reads so several slices of the same file may be hashed concurrently.
+     * @param file the file to hash
+     * @param offset the position of the first byte of the slice
+     * @param length the number of bytes in the slice
+     * @return the linear SHA-256 digest followed by the tree hash
+     * @throws InternalException the JVM is missing SHA-256
+     * @throws IOException the file could not be read
+     */
+    static public @Nonnull byte[][] compute(@Nonnull File file, long offset, long length) throws InternalException, IOException {
+        MessageDigest linear = newDigest();
+        TreeHash tree = new TreeHash();
+        FileInputStream input = new FileInputStream(file);
+
+        try {
+            FileChannel channel = input.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+            long position = offset;
+            long end = offset + length;
+
+            while( position < end ) {
+                buffer.limit((int)Math.min(buffer.capacity(), end - position));
+                while( buffer.hasRemaining() ) {
+                    int read = channel.read(buffer, position);
+
+                    if( read == -1 ) {
+                        throw new EOFException("Unexpected end of " + file + " at " + position);
+                    }
+                    position += read;
+                }
+                linear.update(buffer.array(), 0, buffer.limit());
+                tree.update(buffer.array(), 0, buffer.limit());
+                buffer.clear();
+            }
+        }
+        finally {
+            input.close();
+        }
+        return new byte[][] { linear.digest(), tree.digest() };
+    }
+
+    /**
+     * Computes the linear SHA-256 digest and the tree hash of data held in memory.
+     * @param data the data to hash
+     * @return the linear SHA-256 digest followed by the tree hash
+     * @throws InternalException the JVM is missing SHA-256
+     */
+    static public @Nonnull byte[][] compute(@Nonnull byte[] data) throws InternalException {
+        TreeHash tree = new TreeHash();
+
+        tree.update(data, 0, data.length);
+        return new byte[][] { newDigest().digest(data), tree.digest() };
+    }
+
+    /**
+     * Combines the tree hashes of consecutive parts into the tree hash of the whole.
+     * @param hashes the tree hashes of the parts, in order; every part but the last must cover the same power of
+     *               two number of megabytes
+     * @return the tree hash of the whole
+     * @throws InternalException the JVM is missing SHA-256
+     */
+    static public @Nonnull byte[] combine(@Nonnull List<byte[]> hashes) throws InternalException {
+        TreeHash tree = new TreeHash();
+
+        for( byte[] hash : hashes ) {
+            tree.push(hash, 0);
+        }
+        return tree.digest();
+    }
+
+    static public @Nonnull String toHex(@Nonnull byte[] hash) {
+        return new String(Hex.encodeHex(hash, true));
+    }
+
+    static private @Nonnull MessageDigest newDigest() throws InternalException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch( NoSuchAlgorithmException e ) {
+            throw new InternalException(e);
+        }
+    }
+
+    private final MessageDigest leaf;
+    private final MessageDigest node;
+    private final List<byte[]>  pending = new ArrayList<byte[]>();
+    private final List<Integer> levels  = new ArrayList<Integer>();
+    private long                leafBytes;
+    private boolean             empty   = true;
+
+    public TreeHash() throws InternalException {
+        leaf = newDigest();
+        node = newDigest();
+    }
+
+    /**
+     * Adds data to the hash; the data may be split across calls at any point.
+     * @param data the buffer holding the data
+     * @param offset the position of the data in the buffer
+     * @param length the number of bytes to add
+     */
+    public void update(@Nonnull byte[] data, int offset, int length) {
+        while( length > 0 ) {
+            int count = (int)Math.min(length, CHUNK_SIZE - leafBytes);
+
+            leaf.update(data, offset, count);
+            leafBytes += count;
+            offset += count;
+            length -= count;
+            empty = false;
+            if( leafBytes == CHUNK_SIZE ) {
+                push(leaf.digest(), 0);
+                leafBytes = 0;
+            }
+        }
+    }
+
+    /**
+     * Completes the hash. The instance must not be used afterwards.
+     * @return the tree hash of all the data added
+     */
+    public @Nonnull byte[] digest() {
+        if( leafBytes > 0 || empty ) {
+            // the trailing partial leaf, or the hash of nothing at all
+            push(leaf.digest(), 0);
+            leafBytes = 0;
+        }
+        int top = pending.size() - 1;
+        byte[] hash = pending.get(top);
+
+        // the subtrees left over are of decreasing height, and are folded from the right
+        for( int i = top - 1; i >= 0; i-- ) {
+            hash = join(pending.get(i), hash);
+        }
+        return hash;
+    }
+
+    private void push(@Nonnull byte[] hash, int level) {
+        int top = pending.size() - 1;
+
+        while( top >= 0 && levels.get(top) == level ) {
+            hash = join(pending.remove(top), hash);
+            levels.remove(top);
+            level++;
+            top--;
+        }
+        pending.add(hash);
+        levels.add(level);
+        empty = false;
+    }
+
+    private @Nonnull byte[] join(@Nonnull byte[] left, @Nonnull byte[] right) {
+        node.update(left);
+        node.update(right);
+        return node.digest();
+    }
+}
@@ -29,6 +29,8 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 
 @RunWith(JUnit4.class)
 public class AWSSignatureV4Tests {
@@ -416,6 +418,36 @@ for f in sorted(basenames):
         assertEquals("AWS4-HMAC-SHA256 Credential=AKIDEXAMPLE/20110909/us-east-1/host/aws4_request, SignedHeaders=content-type;date;host, Signature=b105eb10c6d318d2294de9d49dd8b031b55e3c3fe139f2e637da70511e9e7b71", authz);
     }
 
+    /* ===================== SIGNING KEY CACHE TESTS ====================== */
 
+    @Test
+    public void testV4Signature__cached_signing_key_is_reused() throws Exception {
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("x-amz-date", "20150830T123600Z");
+        headers.put("Host", "ec2.us-east-1.amazonaws.com");
+        String first = awsCloud.getV4Authorization("AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY",
+                "POST", "https://ec2.us-east-1.amazonaws.com/", "ec2", headers, "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+        for( int i = 0; i < 3; i++ ) {
+            String authz = awsCloud.getV4Authorization("AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY",
+                    "POST", "https://ec2.us-east-1.amazonaws.com/", "ec2", headers, "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+            assertEquals(first, authz);
+        }
+        byte[] key = awsCloud.getV4SigningKey("wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY", "20150830", "us-east-1", "ec2");
+        assertSame(key, awsCloud.getV4SigningKey("wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY", "20150830", "us-east-1", "ec2"));
+    }
 
+    @Test
+    public void testV4Signature__cached_signing_key_is_per_secret() throws Exception {
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("x-amz-date", "20150830T123600Z");
+        headers.put("Host", "ec2.us-east-1.amazonaws.com");
+        String first = awsCloud.getV4Authorization("AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY",
+                "POST", "https://ec2.us-east-1.amazonaws.com/", "ec2", headers, "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+        String other = awsCloud.getV4Authorization("AKIDEXAMPLE", "someOtherSecretKeyForTheSameDayAndRegion",
+                "POST", "https://ec2.us-east-1.amazonaws.com/", "ec2", headers, "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+        String again = awsCloud.getV4Authorization("AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY",
+                "POST", "https://ec2.us-east-1.amazonaws.com/", "ec2", headers, "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+        assertEquals(first, again);
+        assertFalse(first.equals(other));
+    }
 }
@@ -23,16 +23,22 @@ package org.dasein.cloud.aws;
 
 import org.dasein.cloud.Cloud;
 import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.aws.compute.XmlStreamParser;
 import org.junit.Before;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.mockito.stubbing.Stubber;
 import org.powermock.api.mockito.PowerMockito;
 import org.w3c.dom.Document;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 
@@ -76,6 +82,24 @@ public class AwsTestBase {
         return documentBuilder.parse(getClass().getClassLoader().getResourceAsStream(resourceName));
     }
 
+    protected InputStream stream(String resourceName) throws Exception {
+        return getClass().getClassLoader().getResourceAsStream(resourceName);
+    }
+
+    /**
+     * Stubs a streamed request to feed a resource to the parser it is invoked with.
+     */
+    protected Stubber parse(final String resourceName) {
+        return doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                XmlStreamParser parser = invocation.getArgumentAt(0, XmlStreamParser.class);
+                parser.parse(stream(resourceName));
+                return null;
+            }
+        });
+    }
+
     protected <T> List<T> toList(Iterable<T> iterable) {
         List<T> list = new ArrayList<>(5);
 
@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws;
+
+import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.dc.Region;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ AWSCloud.class, RegionsAndZones.class })
+public class RegionsAndZonesTest extends AwsTestBase {
+
+    private static final List<String> REGIONS = Arrays.asList("us-east-1", "us-west-1", "us-west-2", "eu-west-1");
+
+    private RegionsAndZones regionsAndZones;
+    private List<Region> regions;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        // an account of its own keeps the shared platform cache apart from other tests
+        doReturn("210987654321").when(providerContextStub).getAccountNumber();
+        regionsAndZones = PowerMockito.spy(new RegionsAndZones(awsCloudStub));
+
+        regions = new ArrayList<Region>();
+        for( String regionId : REGIONS ) {
+            Region region = new Region();
+            region.setProviderRegionId(regionId);
+            region.setName(regionId);
+            regions.add(region);
+        }
+        doReturn(regions).when(regionsAndZones).listRegions();
+    }
+
+    @Test
+    public void testColdCacheLooksUpEachRegionOnce() throws Exception {
+        final ConcurrentMap<String, AtomicInteger> lookups = new ConcurrentHashMap<String, AtomicInteger>();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        PowerMockito.doAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                String regionId = (String)invocation.getArguments()[1];
+
+                lookups.putIfAbsent(regionId, new AtomicInteger());
+                lookups.get(regionId).incrementAndGet();
+                release.await(10, TimeUnit.SECONDS);
+                return regionId.startsWith("us-") ? AWSCloud.PLATFORM_VPC : AWSCloud.PLATFORM_EC2;
+            }
+        }).when(regionsAndZones, "describePlatform", any(ProviderContext.class), anyString());
+
+        ExecutorService callers = Executors.newFixedThreadPool(REGIONS.size() * 2);
+
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            final CountDownLatch started = new CountDownLatch(REGIONS.size() * 2);
+
+            for( int i = 0; i < REGIONS.size() * 2; i++ ) {
+                final String regionId = REGIONS.get(i % REGIONS.size());
+
+                results.add(callers.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        started.countDown();
+                        return regionsAndZones.isRegionEC2VPC(regionId);
+                    }
+                }));
+            }
+            // every caller is waiting on an unfinished lookup when the lookups are allowed to finish
+            started.await(10, TimeUnit.SECONDS);
+            release.countDown();
+            for( int i = 0; i < results.size(); i++ ) {
+                String regionId = REGIONS.get(i % REGIONS.size());
+
+                assertEquals(regionId.startsWith("us-") ? AWSCloud.PLATFORM_VPC : AWSCloud.PLATFORM_EC2,
+                        results.get(i).get(10, TimeUnit.SECONDS));
+            }
+        }
+        finally {
+            callers.shutdownNow();
+        }
+        assertEquals(REGIONS.size(), lookups.size());
+        for( String regionId : REGIONS ) {
+            assertEquals("Lookups of " + regionId, 1, lookups.get(regionId).get());
+        }
+    }
+
+    @Test
+    public void testListingRegionsDoesNotBlockOtherCallers() throws Exception {
+        final CountDownLatch listing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        // an account of its own, as the platform cache of the other test is still warm
+        doReturn("310987654321").when(providerContextStub).getAccountNumber();
+        PowerMockito.doAnswer(new Answer<List<Region>>() {
+            @Override
+            public List<Region> answer(InvocationOnMock invocation) throws Throwable {
+                listing.countDown();
+                release.await(10, TimeUnit.SECONDS);
+                return regions;
+            }
+        }).when(regionsAndZones).listRegions();
+        PowerMockito.doAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                String regionId = (String)invocation.getArguments()[1];
+
+                return regionId.startsWith("us-") ? AWSCloud.PLATFORM_VPC : AWSCloud.PLATFORM_EC2;
+            }
+        }).when(regionsAndZones, "describePlatform", any(ProviderContext.class), anyString());
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<String> first = callers.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return regionsAndZones.isRegionEC2VPC("us-east-1");
+                }
+            });
+
+            assertTrue(listing.await(10, TimeUnit.SECONDS));
+            Future<String> second = callers.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return regionsAndZones.isRegionEC2VPC("eu-west-1");
+                }
+            });
+
+            // answered while the first caller is still listing the regions
+            assertEquals(AWSCloud.PLATFORM_EC2, second.get(5, TimeUnit.SECONDS));
+            release.countDown();
+            assertEquals(AWSCloud.PLATFORM_VPC, first.get(10, TimeUnit.SECONDS));
+        }
+        finally {
+            release.countDown();
+            callers.shutdownNow();
+        }
+    }
+}
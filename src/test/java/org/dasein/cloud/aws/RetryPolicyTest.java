@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void testThrottleCodesAreRetried() {
+        RetryPolicy policy = new RetryPolicy();
+
+        assertTrue(policy.shouldRetry(1, 400, "RequestLimitExceeded"));
+        assertTrue(policy.shouldRetry(1, 400, "Throttling"));
+        assertTrue(policy.shouldRetry(1, 503, "SlowDown"));
+        assertFalse(policy.shouldRetry(1, 400, "InvalidInstanceID.NotFound"));
+    }
+
+    @Test
+    public void testServerErrorsAreRetried() {
+        RetryPolicy policy = new RetryPolicy();
+
+        assertTrue(policy.shouldRetry(1, 500, null));
+        assertTrue(policy.shouldRetry(1, 503, null));
+        assertFalse(policy.shouldRetry(1, 404, null));
+    }
+
+    @Test
+    public void testAttemptsAreLimited() {
+        RetryPolicy policy = new RetryPolicy(3, RetryPolicy.DEFAULT_BUDGET);
+
+        assertTrue(policy.shouldRetry(2, 503, null));
+        assertFalse(policy.shouldRetry(3, 503, null));
+    }
+
+    @Test
+    public void testBudgetIsSpentAndRefilled() {
+        RetryPolicy policy = new RetryPolicy(5, 10);
+
+        assertTrue(policy.shouldRetry(1, 503, null));
+        assertTrue(policy.shouldRetry(1, 503, null));
+        assertFalse("Retries must stop once the budget is spent", policy.shouldRetry(1, 503, null));
+        for( int i = 0; i < 5; i++ ) {
+            policy.succeeded();
+        }
+        assertTrue(policy.shouldRetry(1, 503, null));
+        for( int i = 0; i < 100; i++ ) {
+            policy.succeeded();
+        }
+        assertEquals("Successes must not grow the budget beyond its size", 10, policy.getAvailableBudget());
+    }
+
+    @Test
+    public void testDelayIsJitteredWithinCeiling() {
+        RetryPolicy policy = new RetryPolicy();
+        boolean varied = false;
+        long first = policy.getDelay(3, 100L);
+
+        for( int i = 0; i < 1000; i++ ) {
+            long delay = policy.getDelay(3, 100L);
+
+            assertTrue("Delay out of range: " + delay, delay >= 0L && delay <= 400L);
+            varied |= ( delay != first );
+        }
+        assertTrue("Delays must be randomised", varied);
+        for( int i = 0; i < 100; i++ ) {
+            assertTrue(policy.getDelay(40, RetryPolicy.THROTTLED_BASE_DELAY) <= RetryPolicy.MAX_DELAY);
+        }
+    }
+}
@@ -43,9 +43,6 @@ import org.dasein.cloud.compute.VmState;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.invocation.InvocationOnMock;
-import org.mockito.stubbing.Answer;
-import org.mockito.stubbing.Stubber;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
@@ -63,7 +60,6 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.notNull;
-import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -201,17 +197,6 @@ public class AMITest extends AwsTestBase {
         assertEquals(MachineImageState.ACTIVE, resourceStatuses.get(2).getResourceStatus());
     }
 
-    private Stubber parse(final String resource) {
-        return doAnswer(new Answer<Void>() {
-            @Override
-            public Void answer(InvocationOnMock invocation) throws Throwable {
-                XmlStreamParser parser = invocation.getArgumentAt(0, XmlStreamParser.class);
-                parser.parse(stream(resource));
-                return null;
-            }
-        });
-    }
-
     @Test
     public void testListImagesWithoutFilter() throws Exception {
         EC2Method describeImagesStub1 = mock(EC2Method.class);
@@ -171,4 +171,17 @@ public class DescribeImagesResponseParserTest {
         assertEquals("Tag 'Empty' is not found or is not parsed correctly", "", image1.getTag("Empty"));
     }
 
+    @Test
+    public void testParseEmitsImages() throws Exception {
+        final List<MachineImage> emitted = new ArrayList<MachineImage>();
+
+        new DescribeImagesResponseParser("test-region", null, null, null) {
+            @Override
+            protected void emit(MachineImage image) {
+                emitted.add(image);
+            }
+        }.parse(new ByteArrayInputStream(TEST_XML_TWO_IMAGES.getBytes()));
+        assertEquals("Every image is emitted without filter options", 2, emitted.size());
+    }
+
 }
\ No newline at end of file
@@ -36,6 +36,7 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.w3c.dom.Document;
 
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +47,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.notNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -74,6 +76,10 @@ public class EBSSnapshotTest extends AwsTestBase {
         return super.resource("org/dasein/cloud/aws/compute/snapshot/" + resourceName);
     }
 
+    protected InputStream stream(String resourceName) throws Exception {
+        return getClass().getClassLoader().getResourceAsStream("org/dasein/cloud/aws/compute/snapshot/" + resourceName);
+    }
+
     @Test
     public void testGetSnapshot() throws Exception {
         String snapshotId = "snap-1a2b3c4d";
@@ -147,7 +153,7 @@ public class EBSSnapshotTest extends AwsTestBase {
     @Test
     public void testListSnapshots() throws Exception {
         EC2Method describeSnapshotsStub = mock(EC2Method.class);
-        when(describeSnapshotsStub.invoke()).thenReturn(resource("describe_snapshots_list.xml"));
+        parse("describe_snapshots_list.xml").when(describeSnapshotsStub).invoke((XmlStreamParser) notNull());
         PowerMockito.whenNew(EC2Method.class).withArguments(eq(awsCloudStub),
                 argThat(allOf(hasEntry("Owner.1", "self"), hasEntry("Action", "DescribeSnapshots"))))
                 .thenReturn(describeSnapshotsStub);
@@ -159,7 +165,7 @@ public class EBSSnapshotTest extends AwsTestBase {
     @Test
     public void testListSnapshotsWithFilterOptions() throws Exception {
         EC2Method describeSnapshotsStub = mock(EC2Method.class);
-        when(describeSnapshotsStub.invoke()).thenReturn(resource("describe_snapshots_list.xml"));
+        parse("describe_snapshots_list.xml").when(describeSnapshotsStub).invoke((XmlStreamParser) notNull());
         PowerMockito.whenNew(EC2Method.class).withArguments(eq(awsCloudStub),
                 argThat(allOf(hasEntry("Owner.1", "self"), hasEntry("Action", "DescribeSnapshots"))))
                 .thenReturn(describeSnapshotsStub);
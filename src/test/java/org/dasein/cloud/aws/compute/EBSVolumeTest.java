@@ -47,6 +47,7 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.w3c.dom.Document;
 
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
@@ -61,6 +62,7 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.notNull;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -107,6 +109,10 @@ public class EBSVolumeTest extends AwsTestBase {
         return super.resource("org/dasein/cloud/aws/compute/volume/" + resourceName);
     }
 
+    protected InputStream stream(String resourceName) throws Exception {
+        return getClass().getClassLoader().getResourceAsStream("org/dasein/cloud/aws/compute/volume/" + resourceName);
+    }
+
     @Test
     public void testListVolumeProducts() throws CloudException, InternalException {
         List<VolumeProduct> volumeProducts = (List<VolumeProduct>) ebsVolume.listVolumeProducts();
@@ -146,7 +152,7 @@ public class EBSVolumeTest extends AwsTestBase {
     @Test
     public void testListVolumes() throws Exception {
         EC2Method describeVolumesStub = mock(EC2Method.class);
-        when(describeVolumesStub.invoke()).thenReturn(resource("describe_volumes.xml"));
+        parse("describe_volumes.xml").when(describeVolumesStub).invoke((XmlStreamParser) notNull());
         PowerMockito.whenNew(EC2Method.class)
                 .withArguments(eq(awsCloudStub), argThat(allOf(hasEntry("Action", "DescribeVolumes"))))
                 .thenReturn(describeVolumesStub);
@@ -160,7 +166,7 @@ public class EBSVolumeTest extends AwsTestBase {
     @Test
     public void testListVolumesFilter() throws Exception {
         EC2Method describeVolumesStub = mock(EC2Method.class);
-        when(describeVolumesStub.invoke()).thenReturn(resource("describe_volumes.xml"));
+        parse("describe_volumes.xml").when(describeVolumesStub).invoke((XmlStreamParser) notNull());
         PowerMockito.whenNew(EC2Method.class)
                 .withArguments(eq(awsCloudStub), argThat(allOf(hasEntry("Action", "DescribeVolumes"))))
                 .thenReturn(describeVolumesStub);
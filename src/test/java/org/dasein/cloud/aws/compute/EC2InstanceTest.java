@@ -22,6 +22,7 @@
 package org.dasein.cloud.aws.compute;
 
 import org.dasein.cloud.AbstractProviderService;
+import org.dasein.cloud.ProviderContext;
 import org.dasein.cloud.ResourceStatus;
 import org.dasein.cloud.aws.AWSCloud;
 import org.dasein.cloud.aws.AwsTestBase;
@@ -39,6 +40,7 @@ import org.dasein.cloud.compute.VirtualMachineLifecycle;
 import org.dasein.cloud.compute.VirtualMachineProduct;
 import org.dasein.cloud.compute.VirtualMachineProductFilterOptions;
 import org.dasein.cloud.compute.VirtualMachineStatus;
+import org.dasein.cloud.compute.VmStatistics;
 import org.dasein.cloud.compute.VmState;
 import org.dasein.cloud.compute.VmStatus;
 import org.dasein.cloud.compute.VmStatusFilterOptions;
@@ -50,25 +52,35 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.internal.util.collections.Sets;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.w3c.dom.Document;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.TimeZone;
 
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.core.AllOf.allOf;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.notNull;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -116,6 +128,94 @@ public class EC2InstanceTest extends AwsTestBase {
                 ec2Instance.getPassword(instanceId));
     }
 
+    private EC2Method stubGetPassword(String instanceId) throws Exception {
+        EC2Method ec2MethodStub = mock(EC2Method.class);
+
+        PowerMockito.whenNew(EC2Method.class).withArguments(eq(awsCloudStub),
+                argThat(allOf(hasEntry("InstanceId", instanceId), hasEntry("Action", "GetPasswordData"))))
+                .thenReturn(ec2MethodStub);
+        return ec2MethodStub;
+    }
+
+    private void enableAsyncPasswords() {
+        Properties properties = new Properties();
+
+        properties.setProperty(AWSCloud.DSN_ASYNC_PASSWORDS, "true");
+        doReturn(properties).when(providerContextStub).getCustomProperties();
+    }
+
+    private VirtualMachine launched(String instanceId, Platform platform) {
+        VirtualMachine server = new VirtualMachine();
+
+        server.setProviderVirtualMachineId(instanceId);
+        server.setPlatform(platform);
+        return server;
+    }
+
+    @Test
+    public void testPasswordFetchPollsUntilPasswordArrives() throws Exception {
+        String instanceId = "i-2574e22a";
+        EC2Method ec2MethodStub = stubGetPassword(instanceId);
+        Document empty = resource("org/dasein/cloud/aws/compute/instance/get_password_empty.xml");
+
+        when(ec2MethodStub.invoke()).thenReturn(empty, empty, empty,
+                resource("org/dasein/cloud/aws/compute/instance/get_password.xml"));
+
+        EC2Instance.PasswordFetch fetch = new EC2Instance.PasswordFetch(instanceId, awsCloudStub, 10L, 10000L).start();
+
+        assertEquals("TGludXggdmVyc2lvbiAyLjYuMTYteGVuVSAoYnVpbGRlckBwYXRjaGJhdC5hbWF6b25zYSkgKGdj", fetch.call());
+        verify(ec2MethodStub, times(4)).invoke();
+    }
+
+    @Test
+    public void testPasswordFetchTimesOut() throws Exception {
+        String instanceId = "i-2574e22a";
+        EC2Method ec2MethodStub = stubGetPassword(instanceId);
+
+        when(ec2MethodStub.invoke()).thenAnswer(new Answer<Document>() {
+            @Override
+            public Document answer(InvocationOnMock invocation) throws Throwable {
+                return resource("org/dasein/cloud/aws/compute/instance/get_password_empty.xml");
+            }
+        });
+
+        long started = System.currentTimeMillis();
+        EC2Instance.PasswordFetch fetch = new EC2Instance.PasswordFetch(instanceId, awsCloudStub, 10L, 200L).start();
+
+        assertNull("No password shows up before the deadline", fetch.call());
+        assertTrue("The background poll gave up at its deadline rather than the callback's wait",
+                System.currentTimeMillis() - started < 5000L);
+    }
+
+    @Test
+    public void testAssignPasswordIsSynchronousByDefault() throws Exception {
+        String instanceId = "i-2574e22a";
+        EC2Method ec2MethodStub = stubGetPassword(instanceId);
+
+        when(ec2MethodStub.invoke()).thenReturn(resource("org/dasein/cloud/aws/compute/instance/get_password.xml"));
+
+        VirtualMachine server = launched(instanceId, Platform.UNKNOWN);
+
+        ec2Instance.assignPassword(server);
+        assertEquals("TGludXggdmVyc2lvbiAyLjYuMTYteGVuVSAoYnVpbGRlckBwYXRjaGJhdC5hbWF6b25zYSkgKGdj", server.getRootPassword());
+        assertEquals(Platform.WINDOWS, server.getPlatform());
+        verify(ec2MethodStub, times(1)).invoke();
+    }
+
+    @Test
+    public void testAsyncPasswordsSkipUnixServers() throws Exception {
+        String instanceId = "i-2574e22a";
+        EC2Method ec2MethodStub = stubGetPassword(instanceId);
+
+        enableAsyncPasswords();
+
+        VirtualMachine server = launched(instanceId, Platform.UBUNTU);
+
+        ec2Instance.assignPassword(server);
+        assertNull(server.getRootPassword());
+        verify(ec2MethodStub, never()).invoke();
+    }
+
     @Test
     public void testGetVirtualMachine() throws Exception {
         String instanceId = "i-2574e22a";
@@ -262,8 +362,8 @@ public class EC2InstanceTest extends AwsTestBase {
         VmStatus status = VmStatus.IMPAIRED;
 
         EC2Method describeInstanceStatusMethodStub = mock(EC2Method.class);
-        when(describeInstanceStatusMethodStub.invoke())
-                .thenReturn(resource("org/dasein/cloud/aws/compute/instance/describe_instance_status.xml"));
+        parse("org/dasein/cloud/aws/compute/instance/describe_instance_status.xml")
+                .when(describeInstanceStatusMethodStub).invoke((XmlStreamParser) notNull());
         PowerMockito.whenNew(EC2Method.class).withArguments(eq(awsCloudStub),
                 argThat(allOf(hasEntry("InstanceId.1", instanceId1), hasEntry("InstanceId.2", instanceId2),
                         hasEntry("Filter.0.Name", "system-status.status"), hasEntry("Filter.0.Value.0", "impaired"),
@@ -313,8 +413,8 @@ public class EC2InstanceTest extends AwsTestBase {
         tags.put(tagKey, tagValue);
 
         EC2Method describeInstanceMethodStub = mock(EC2Method.class);
-        when(describeInstanceMethodStub.invoke())
-                .thenReturn(resource("org/dasein/cloud/aws/compute/instance/describe_instance.xml"));
+        parse("org/dasein/cloud/aws/compute/instance/describe_instance.xml")
+                .when(describeInstanceMethodStub).invoke((XmlStreamParser) notNull());
         PowerMockito.whenNew(EC2Method.class).withArguments(eq(awsCloudStub),
                 argThat(allOf(hasEntry("Filter.0.Name", "tag:" + tagKey), hasEntry("Filter.0.Value.0", tagValue),
                         hasEntry("Filter.1.Name", "instance-state-name"), hasEntry("Filter.1.Value.0", "running"),
@@ -323,13 +423,42 @@ public class EC2InstanceTest extends AwsTestBase {
                         hasEntry("Filter.3.Value.0", spotRequestId), hasEntry("Action", "DescribeInstances"))))
                 .thenReturn(describeInstanceMethodStub);
 
-        List<VirtualMachine> virtualMachines = (List<VirtualMachine>) ec2Instance.listVirtualMachines(
+        List<VirtualMachine> virtualMachines = toList(ec2Instance.listVirtualMachines(
                 VMFilterOptions.getInstance().withVmStates(Sets.newSet(VmState.RUNNING))
-                        .withLifecycles(VirtualMachineLifecycle.SPOT).withSpotRequestId(spotRequestId).withTags(tags));
+                        .withLifecycles(VirtualMachineLifecycle.SPOT).withSpotRequestId(spotRequestId).withTags(tags)));
 
         assertEquals(1, virtualMachines.size());
     }
 
+    @Test
+    public void testListVirtualMachinesFollowsNextToken() throws Exception {
+        EC2Method listIpMethodStub = mock(EC2Method.class);
+        when(listIpMethodStub.invoke()).thenReturn(resource("org/dasein/cloud/aws/network/describe_addresses.xml"));
+        PowerMockito.whenNew(EC2Method.class)
+                .withArguments(eq(awsCloudStub), argThat(allOf(hasEntry("Action", "DescribeAddresses"))))
+                .thenReturn(listIpMethodStub);
+
+        EC2Method firstPageStub = mock(EC2Method.class);
+        parse("org/dasein/cloud/aws/compute/instance/describe_instance_page.xml")
+                .when(firstPageStub).invoke((XmlStreamParser) notNull());
+        PowerMockito.whenNew(EC2Method.class).withArguments(eq(awsCloudStub),
+                argThat(allOf(hasEntry("Action", "DescribeInstances"), hasEntry("MaxResults", "1000"))))
+                .thenReturn(firstPageStub);
+
+        EC2Method lastPageStub = mock(EC2Method.class);
+        parse("org/dasein/cloud/aws/compute/instance/describe_instance.xml")
+                .when(lastPageStub).invoke((XmlStreamParser) notNull());
+        PowerMockito.whenNew(EC2Method.class).withArguments(eq(awsCloudStub),
+                argThat(allOf(hasEntry("Action", "DescribeInstances"), hasEntry("NextToken", "eyJ2IjoiMiIsImMiOiJwYWdlLTIifQ=="))))
+                .thenReturn(lastPageStub);
+
+        List<VirtualMachine> virtualMachines = toList(ec2Instance.listVirtualMachines());
+
+        assertEquals(2, virtualMachines.size());
+        verify(firstPageStub, times(1)).invoke((XmlStreamParser) notNull());
+        verify(lastPageStub, times(1)).invoke((XmlStreamParser) notNull());
+    }
+
     @Test
     public void testEnableAnalytics() throws Exception {
         String instanceId = "i-2574e22a";
@@ -591,6 +720,71 @@ public class EC2InstanceTest extends AwsTestBase {
         verify(startInstanceMock, times(1)).invoke();
     }
 
+    private void stubDescribeInstances(String... instanceIds) throws Exception {
+        EC2Method listIpMethodStub = mock(EC2Method.class);
+        when(listIpMethodStub.invoke()).thenReturn(resource("org/dasein/cloud/aws/network/describe_addresses.xml"));
+        PowerMockito.whenNew(EC2Method.class)
+                .withArguments(eq(awsCloudStub), argThat(allOf(hasEntry("Action", "DescribeAddresses"))))
+                .thenReturn(listIpMethodStub);
+
+        EC2Method describeInstancesMethodStub = mock(EC2Method.class);
+        when(describeInstancesMethodStub.invoke())
+                .thenReturn(resource("org/dasein/cloud/aws/compute/instance/describe_instances.xml"));
+        PowerMockito.whenNew(EC2Method.class).withArguments(eq(awsCloudStub),
+                argThat(allOf(hasEntry("InstanceId.1", instanceIds[0]), hasEntry("InstanceId.2", instanceIds[1]),
+                        hasEntry("Action", "DescribeInstances"))))
+                .thenReturn(describeInstancesMethodStub);
+    }
+
+    private EC2Method stubMetricStatistics(String instanceId) throws Exception {
+        EC2Method getMetricStatisticsMethodStub = mock(EC2Method.class);
+        // every query is parsed on its own pool thread, so each gets its own document
+        when(getMetricStatisticsMethodStub.invoke()).thenAnswer(new Answer<Document>() {
+            @Override
+            public Document answer(InvocationOnMock invocation) throws Throwable {
+                return resource("org/dasein/cloud/aws/compute/instance/get_metric_statistics.xml");
+            }
+        });
+        PowerMockito.whenNew(EC2Method.class).withArguments(eq("monitoring"), eq(awsCloudStub),
+                argThat(allOf(hasEntry("Dimensions.member.Value.1", instanceId), hasEntry("Action", "GetMetricStatistics"))))
+                .thenReturn(getMetricStatisticsMethodStub);
+        return getMetricStatisticsMethodStub;
+    }
+
+    @Test
+    public void testGetVMStatisticsForManyInstances() throws Exception {
+        stubDescribeInstances("i-1a2b3c4d", "i-2a2b3c4d");
+        EC2Method first = stubMetricStatistics("i-1a2b3c4d");
+        EC2Method second = stubMetricStatistics("i-2a2b3c4d");
+
+        Map<String, VmStatistics> statistics = ec2Instance.getVMStatistics(Arrays.asList("i-1a2b3c4d", "i-2a2b3c4d"), 0L, 0L);
+
+        assertEquals(2, statistics.size());
+        for( String instanceId : Arrays.asList("i-1a2b3c4d", "i-2a2b3c4d") ) {
+            VmStatistics vmStatistics = statistics.get(instanceId);
+
+            assertEquals(3, vmStatistics.getSamples());
+            assertEquals(2.0, vmStatistics.getMinimumCpuUtilization(), 0.0);
+            assertEquals(15.0, vmStatistics.getMaximumCpuUtilization(), 0.0);
+        }
+        // CPU, network in and out and four disk metrics per instance
+        verify(first, times(7)).invoke();
+        verify(second, times(7)).invoke();
+    }
+
+    @Test
+    public void testGetVMStatisticsIsolatesFailures() throws Exception {
+        stubDescribeInstances("i-1a2b3c4d", "i-2a2b3c4d");
+        stubMetricStatistics("i-1a2b3c4d");
+        EC2Method failing = stubMetricStatistics("i-2a2b3c4d");
+        when(failing.invoke()).thenThrow(EC2Exception.create(500, null, "InternalFailure", "CloudWatch failed"));
+
+        Map<String, VmStatistics> statistics = ec2Instance.getVMStatistics(Arrays.asList("i-1a2b3c4d", "i-2a2b3c4d"), 0L, 0L);
+
+        assertEquals(Collections.singleton("i-1a2b3c4d"), statistics.keySet());
+        assertEquals(15.0, statistics.get("i-1a2b3c4d").getMaximumCpuUtilization(), 0.0);
+    }
+
     /**
      * Tests that the list of *all* products is not empty (FB8437).
      *
@@ -604,6 +798,10 @@ public class EC2InstanceTest extends AwsTestBase {
         when(ec2InstanceMock.listProducts(any(VirtualMachineProductFilterOptions.class), any(Architecture.class)))
                 .thenCallRealMethod();
         when(ec2InstanceMock.toProduct(any(JSONObject.class))).thenCallRealMethod();
+        PowerMockito.when(ec2InstanceMock, method(EC2Instance.class, "getProductIndex")).withNoArguments()
+                .thenCallRealMethod();
+        PowerMockito.when(ec2InstanceMock, method(EC2Instance.class, "loadProducts", ProviderContext.class))
+                .withArguments(any(ProviderContext.class)).thenCallRealMethod();
         PowerMockito.when(ec2InstanceMock, method(AbstractProviderService.class, "getProvider")).withNoArguments()
                 .thenReturn(awsCloudStub);
         PowerMockito.when(ec2InstanceMock, method(EC2Instance.class, "getContext")).withNoArguments()
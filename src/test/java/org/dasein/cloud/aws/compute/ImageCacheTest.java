@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.compute;
+
+import org.dasein.cloud.compute.Architecture;
+import org.dasein.cloud.compute.ImageClass;
+import org.dasein.cloud.compute.MachineImage;
+import org.dasein.cloud.compute.MachineImageState;
+import org.dasein.cloud.compute.Platform;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class ImageCacheTest {
+
+    private static class Lookup implements Callable<MachineImage> {
+        final AtomicInteger calls = new AtomicInteger();
+        final MachineImage  image;
+
+        Lookup(MachineImage image) {
+            this.image = image;
+        }
+
+        @Override
+        public MachineImage call() throws Exception {
+            calls.incrementAndGet();
+            return image;
+        }
+    }
+
+    private ImageCache cache() {
+        // a fresh account for each test keeps the shared caches apart
+        return ImageCache.getInstance(UUID.randomUUID().toString(), "us-east-1");
+    }
+
+    private MachineImage image(String id, MachineImageState state) {
+        return MachineImage.getInstance("123456789012", "us-east-1", id, ImageClass.MACHINE, state, id, id, Architecture.I64, Platform.UNIX);
+    }
+
+    @Test
+    public void testAvailableImagesAreKept() throws Exception {
+        ImageCache cache = cache();
+        Lookup lookup = new Lookup(image("ami-1a2b3c4d", MachineImageState.ACTIVE));
+
+        assertEquals("ami-1a2b3c4d", cache.get("ami-1a2b3c4d", lookup).getProviderMachineImageId());
+        assertEquals("ami-1a2b3c4d", cache.get("ami-1a2b3c4d", lookup).getProviderMachineImageId());
+        assertEquals(1, lookup.calls.get());
+    }
+
+    @Test
+    public void testCallersGetTheirOwnCopy() throws Exception {
+        ImageCache cache = cache();
+        MachineImage image = image("ami-1a2b3c4d", MachineImageState.ACTIVE);
+        Lookup lookup = new Lookup(image);
+
+        image.getProviderMetadata().put("virtualizationType", "hvm");
+        image.setTag("Name", "web");
+
+        MachineImage first = cache.get("ami-1a2b3c4d", lookup);
+
+        assertNotSame(image, first);
+        first.setTag("Name", "changed");
+        first.getProviderMetadata().put("virtualizationType", "paravirtual");
+
+        MachineImage second = cache.get("ami-1a2b3c4d", lookup);
+
+        assertNotSame(first, second);
+        assertEquals("web", second.getTag("Name"));
+        assertEquals("hvm", second.getProviderMetadata().get("virtualizationType"));
+        assertEquals(1, lookup.calls.get());
+    }
+
+    @Test
+    public void testMissingImagesAreKept() throws Exception {
+        ImageCache cache = cache();
+        Lookup lookup = new Lookup(null);
+
+        assertNull(cache.get("ami-00000000", lookup));
+        assertNull(cache.get("ami-00000000", lookup));
+        assertEquals(1, lookup.calls.get());
+    }
+
+    @Test
+    public void testChangingImagesAreNotKept() throws Exception {
+        ImageCache cache = cache();
+        Lookup lookup = new Lookup(image("ami-1a2b3c4d", MachineImageState.PENDING));
+
+        cache.get("ami-1a2b3c4d", lookup);
+        cache.get("ami-1a2b3c4d", lookup);
+        assertEquals(2, lookup.calls.get());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        ImageCache cache = cache();
+        Lookup lookup = new Lookup(image("ami-1a2b3c4d", MachineImageState.ACTIVE));
+
+        cache.get("ami-1a2b3c4d", lookup);
+        cache.invalidate("ami-1a2b3c4d");
+        cache.get("ami-1a2b3c4d", lookup);
+        assertEquals(2, lookup.calls.get());
+    }
+
+    @Test
+    public void testConcurrentLookupsShareOneRequest() throws Exception {
+        final ImageCache cache = cache();
+        final CountDownLatch ready = new CountDownLatch(8);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        final MachineImage image = image("ami-1a2b3c4d", MachineImageState.ACTIVE);
+        final Callable<MachineImage> lookup = new Callable<MachineImage>() {
+            @Override
+            public MachineImage call() throws Exception {
+                calls.incrementAndGet();
+                release.await(10, TimeUnit.SECONDS);
+                return image;
+            }
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<MachineImage>> results = new ArrayList<Future<MachineImage>>();
+
+            for( int i = 0; i < 8; i++ ) {
+                results.add(pool.submit(new Callable<MachineImage>() {
+                    @Override
+                    public MachineImage call() throws Exception {
+                        ready.countDown();
+                        return cache.get("ami-1a2b3c4d", lookup);
+                    }
+                }));
+            }
+            assertTrue(ready.await(10, TimeUnit.SECONDS));
+            release.countDown();
+            Set<MachineImage> distinct = Collections.newSetFromMap(new IdentityHashMap<MachineImage, Boolean>());
+
+            for( Future<MachineImage> result : results ) {
+                MachineImage found = result.get(10, TimeUnit.SECONDS);
+
+                assertEquals("ami-1a2b3c4d", found.getProviderMachineImageId());
+                assertNotSame(image, found);
+                distinct.add(found);
+            }
+            assertEquals(8, distinct.size());
+            assertEquals(1, calls.get());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+}
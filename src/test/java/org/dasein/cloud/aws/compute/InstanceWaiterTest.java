@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.compute;
+
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.compute.VirtualMachine;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class InstanceWaiterTest {
+
+    @Test
+    public void testConcurrentLaunchesShareOneLookup() throws Exception {
+        final List<List<String>> requests = new CopyOnWriteArrayList<List<String>>();
+        InstanceWaiter.Lookup lookup = new InstanceWaiter.Lookup() {
+            @Override
+            public Collection<VirtualMachine> describe(String... instanceIds) throws CloudException {
+                List<VirtualMachine> found = new ArrayList<VirtualMachine>();
+
+                requests.add(Arrays.asList(instanceIds));
+                for( String instanceId : instanceIds ) {
+                    // like EC2, one unknown ID fails the whole request
+                    if( instanceId.equals("i-missing") ) {
+                        throw EC2Exception.create(400, null, "InvalidInstanceID.NotFound", "The instance ID 'i-missing' does not exist");
+                    }
+                    VirtualMachine vm = new VirtualMachine();
+
+                    vm.setProviderVirtualMachineId(instanceId);
+                    found.add(vm);
+                }
+                return found;
+            }
+        };
+        InstanceWaiter waiter = InstanceWaiter.getInstance(UUID.randomUUID().toString(), "us-east-1");
+        Map<String, Future<VirtualMachine>> first = waiter.await(Arrays.asList("i-1a2b3c4d", "i-missing"), 1500L, lookup);
+        Map<String, Future<VirtualMachine>> second = waiter.await(Arrays.asList("i-2a2b3c4d"), 1500L, lookup);
+
+        assertEquals("i-1a2b3c4d", first.get("i-1a2b3c4d").get(10, TimeUnit.SECONDS).getProviderVirtualMachineId());
+        assertEquals("i-2a2b3c4d", second.get("i-2a2b3c4d").get(10, TimeUnit.SECONDS).getProviderVirtualMachineId());
+        assertNull("An instance that never shows up times out", first.get("i-missing").get(10, TimeUnit.SECONDS));
+        assertTrue(requests.get(0).containsAll(Arrays.asList("i-1a2b3c4d", "i-missing", "i-2a2b3c4d")));
+    }
+
+    @Test
+    public void testThrottledBatchIsKeptWhole() throws Exception {
+        final List<List<String>> requests = new CopyOnWriteArrayList<List<String>>();
+        InstanceWaiter.Lookup lookup = new InstanceWaiter.Lookup() {
+            @Override
+            public Collection<VirtualMachine> describe(String... instanceIds) throws CloudException {
+                List<VirtualMachine> found = new ArrayList<VirtualMachine>();
+
+                requests.add(Arrays.asList(instanceIds));
+                if( requests.size() == 1 ) {
+                    throw EC2Exception.create(503, null, "RequestLimitExceeded", "Request limit exceeded.");
+                }
+                for( String instanceId : instanceIds ) {
+                    VirtualMachine vm = new VirtualMachine();
+
+                    vm.setProviderVirtualMachineId(instanceId);
+                    found.add(vm);
+                }
+                return found;
+            }
+        };
+        InstanceWaiter waiter = InstanceWaiter.getInstance(UUID.randomUUID().toString(), "us-east-1");
+        Map<String, Future<VirtualMachine>> arrivals = waiter.await(Arrays.asList("i-1a2b3c4d", "i-2a2b3c4d"), 10000L, lookup);
+
+        assertEquals("i-1a2b3c4d", arrivals.get("i-1a2b3c4d").get(10, TimeUnit.SECONDS).getProviderVirtualMachineId());
+        assertEquals("i-2a2b3c4d", arrivals.get("i-2a2b3c4d").get(10, TimeUnit.SECONDS).getProviderVirtualMachineId());
+        assertEquals("A throttled batch is retried whole on the next tick", 2, requests.size());
+        assertEquals(requests.get(0), requests.get(1));
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.compute;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.annotation.Nonnull;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the items materialised by the streaming parsers are identical to the items of the DOM path, so
+ * the converters see the same nodes whichever way the response was read.
+ *
+ * @see org.dasein.cloud.aws.compute.ItemStreamParser
+ */
+public class ItemStreamParserTest {
+
+    private InputStream stream(String resourceName) {
+        return getClass().getClassLoader().getResourceAsStream("org/dasein/cloud/aws/compute/" + resourceName);
+    }
+
+    private List<Node> parseDom(String resourceName, String setName) throws Exception {
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(stream(resourceName));
+        NodeList blocks = doc.getElementsByTagName(setName);
+        List<Node> items = new ArrayList<Node>();
+
+        for( int i = 0; i < blocks.getLength(); i++ ) {
+            NodeList children = blocks.item(i).getChildNodes();
+
+            for( int j = 0; j < children.getLength(); j++ ) {
+                if( children.item(j).getNodeName().equals("item") ) {
+                    items.add(children.item(j));
+                }
+            }
+        }
+        return items;
+    }
+
+    private List<Node> parseStream(String resourceName, String setName) throws Exception {
+        List<Node> items = new ArrayList<Node>();
+
+        new ItemStreamParser<Node>(setName, items) {
+            @Override
+            protected Node toItem( @Nonnull Node item ) {
+                return item;
+            }
+        }.parse(stream(resourceName));
+        return items;
+    }
+
+    private void assertSameItems(String resourceName, String setName, int expected) throws Exception {
+        List<Node> dom = parseDom(resourceName, setName);
+        List<Node> streamed = parseStream(resourceName, setName);
+
+        assertEquals("Unexpected number of items in " + resourceName, expected, dom.size());
+        assertEquals("Streaming parser found a different number of items in " + resourceName, dom.size(), streamed.size());
+        for( int i = 0; i < dom.size(); i++ ) {
+            assertTrue("Item " + i + " of " + resourceName + " differs from the DOM path", dom.get(i).isEqualNode(streamed.get(i)));
+        }
+    }
+
+    @Test
+    public void testDescribeInstances() throws Exception {
+        assertSameItems("instance/describe_instance.xml", "instancesSet", 1);
+    }
+
+    @Test
+    public void testDescribeInstanceStatus() throws Exception {
+        assertSameItems("instance/describe_instance_status.xml", "instanceStatusSet", 1);
+    }
+
+    @Test
+    public void testDescribeVolumes() throws Exception {
+        assertSameItems("volume/describe_volumes.xml", "volumeSet", 1);
+    }
+
+    @Test
+    public void testDescribeSnapshots() throws Exception {
+        assertSameItems("snapshot/describe_snapshots_list.xml", "snapshotSet", 2);
+    }
+}
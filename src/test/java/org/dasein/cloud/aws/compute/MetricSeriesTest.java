@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.compute;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+public class MetricSeriesTest {
+
+    private long reference(String pattern, String value) throws Exception {
+        SimpleDateFormat fmt = new SimpleDateFormat(pattern);
+
+        fmt.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return fmt.parse(value).getTime();
+    }
+
+    @Test
+    public void testParseTimestamp() throws Exception {
+        String[] values = { "2015-06-01T12:34:56Z", "1970-01-01T00:00:00Z", "2000-02-29T23:59:59Z", "1969-12-31T23:59:59Z", "2100-03-01T00:00:00Z" };
+
+        for( String value : values ) {
+            assertEquals(value, reference("yyyy-MM-dd'T'HH:mm:ss'Z'", value), MetricSeries.parseTimestamp(value));
+        }
+        assertEquals(reference("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", "2015-06-01T12:34:56.789Z"), MetricSeries.parseTimestamp("2015-06-01T12:34:56.789Z"));
+        assertEquals(reference("yyyy-MM-dd'T'HH:mm:ss'Z'", "2015-06-01T10:34:56Z"), MetricSeries.parseTimestamp(" 2015-06-01T12:34:56+02:00\n"));
+    }
+
+    @Test(expected = ParseException.class)
+    public void testParseTimestampRejectsGarbage() throws Exception {
+        MetricSeries.parseTimestamp("2015-06-01 12:34:56");
+    }
+
+    @Test
+    public void testParseSortsAndDropsDuplicates() throws Exception {
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(
+                getClass().getClassLoader().getResourceAsStream("org/dasein/cloud/aws/compute/instance/get_metric_statistics.xml"));
+        MetricSeries series = MetricSeries.parse(doc);
+        long start = reference("yyyy-MM-dd'T'HH:mm:ss'Z'", "2015-06-01T12:00:00Z");
+
+        assertEquals(3, series.size());
+        for( int i = 0; i < 3; i++ ) {
+            assertEquals(start + i * 60000L, series.getTimestamp(i));
+        }
+        assertEquals("The first of two datapoints with the same timestamp is kept", 4.0, series.getAverage(0), 0.0);
+        assertEquals(3, series.getSamples(0));
+        assertEquals(7.0, series.getMinimum(1), 0.0);
+        assertEquals(15.0, series.getMaximum(2), 0.0);
+    }
+}
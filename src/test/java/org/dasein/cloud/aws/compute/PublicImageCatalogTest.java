@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.compute;
+
+import org.dasein.cloud.compute.Architecture;
+import org.dasein.cloud.compute.ImageClass;
+import org.dasein.cloud.compute.ImageFilterOptions;
+import org.dasein.cloud.compute.MachineImage;
+import org.dasein.cloud.compute.MachineImageState;
+import org.dasein.cloud.compute.MachineImageType;
+import org.dasein.cloud.compute.Platform;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PublicImageCatalogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MachineImage image(String id, String owner, Architecture architecture, Platform platform, String name) {
+        MachineImage image = MachineImage.getInstance(owner, "us-east-1", id, ImageClass.MACHINE, MachineImageState.ACTIVE, name, name + " image", architecture, platform);
+        Map<String, String> tags = new HashMap<String, String>();
+
+        tags.put("public", "true");
+        tags.put("virtualizationType", "hvm");
+        image.withType(MachineImageType.VOLUME);
+        image.sharedWithPublic();
+        image.setTags(tags);
+        return image;
+    }
+
+    private List<String> ids(List<MachineImage> images) {
+        List<String> ids = new ArrayList<String>();
+
+        for( MachineImage image : images ) {
+            ids.add(image.getProviderMachineImageId());
+        }
+        return ids;
+    }
+
+    private List<MachineImage> images() {
+        return Arrays.asList(
+                image("ami-00000001", "137112412989", Architecture.I64, Platform.UNIX, "amzn-ami-hvm-2015.09.1.x86_64-gp2"),
+                image("ami-00000002", "137112412989", Architecture.I32, Platform.UNIX, "amzn-ami-pv-2015.09.1.i386-ebs"),
+                image("ami-00000003", "801119661308", Architecture.I64, Platform.WINDOWS, "Windows_Server-2012-R2_RTM-English-64Bit-Base"),
+                image("ami-00000004", "099720109477", Architecture.I64, Platform.UBUNTU, "ubuntu/images/hvm-ssd/ubuntu-trusty-14.04-amd64-server"));
+    }
+
+    @Test
+    public void testGetRequiredFragments() {
+        assertEquals(Arrays.asList("getting", "started"), new ArrayList<String>(PublicImageCatalog.getRequiredFragments("getting-started")));
+        assertEquals(Arrays.asList("ubuntu", "14", "04"), new ArrayList<String>(PublicImageCatalog.getRequiredFragments(".*Ubuntu.*14\\.04.*")));
+        assertTrue("Alternation is not understood", PublicImageCatalog.getRequiredFragments("centos|ubuntu").isEmpty());
+        assertTrue("Character classes are not understood", PublicImageCatalog.getRequiredFragments("ubuntu\\d+").isEmpty());
+    }
+
+    @Test
+    public void testSearchIsNotAnsweredBeforeTheFirstRefresh() throws Exception {
+        PublicImageCatalog catalog = PublicImageCatalog.getInstance(folder.newFolder("empty"), "us-east-1");
+
+        assertTrue(catalog.isStale());
+        assertNull(catalog.search(ImageFilterOptions.getInstance()));
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        PublicImageCatalog catalog = PublicImageCatalog.getInstance(folder.newFolder("search"), "us-east-1");
+
+        catalog.update(images());
+        assertFalse(catalog.isStale());
+        assertEquals(4, catalog.search(ImageFilterOptions.getInstance()).size());
+        assertEquals(Arrays.asList("ami-00000001", "ami-00000002"),
+                ids(catalog.search(ImageFilterOptions.getInstance().withAccountNumber("137112412989"))));
+        assertEquals(Arrays.asList("ami-00000002"),
+                ids(catalog.search(ImageFilterOptions.getInstance().withArchitecture(Architecture.I32))));
+        assertEquals(Arrays.asList("ami-00000003"),
+                ids(catalog.search(ImageFilterOptions.getInstance().onPlatform(Platform.WINDOWS))));
+        assertEquals(Arrays.asList("ami-00000004"),
+                ids(catalog.search(ImageFilterOptions.getInstance().matchingRegex(".*trusty-14\\.04.*"))));
+        assertEquals(Arrays.asList("ami-00000001"),
+                ids(catalog.search(ImageFilterOptions.getInstance().withArchitecture(Architecture.I64).matchingRegex("amzn-ami-.*"))));
+    }
+
+    @Test
+    public void testSearchMatchesPartsOfWords() throws Exception {
+        PublicImageCatalog catalog = PublicImageCatalog.getInstance(folder.newFolder("fragments"), "us-east-1");
+
+        catalog.update(images());
+        assertEquals(Arrays.asList("ami-00000001", "ami-00000002"),
+                ids(catalog.search(ImageFilterOptions.getInstance().matchingRegex(".*mzn.*"))));
+        assertEquals(Arrays.asList("ami-00000004"),
+                ids(catalog.search(ImageFilterOptions.getInstance().matchingRegex(".*ssd.*rust.*"))));
+        assertTrue(catalog.search(ImageFilterOptions.getInstance().matchingRegex(".*trusty.*Windows.*")).isEmpty());
+    }
+
+    @Test
+    public void testSearchReturnsCopies() throws Exception {
+        PublicImageCatalog catalog = PublicImageCatalog.getInstance(folder.newFolder("copies"), "us-east-1");
+
+        catalog.update(images());
+        catalog.search(ImageFilterOptions.getInstance()).get(0).getTags().put("virtualizationType", "paravirtual");
+        assertEquals("hvm", catalog.search(ImageFilterOptions.getInstance()).get(0).getTags().get("virtualizationType"));
+    }
+
+    @Test
+    public void testCatalogSurvivesRestart() throws Exception {
+        File directory = folder.newFolder("restart");
+
+        PublicImageCatalog.getInstance(directory, "eu-west-1").update(images());
+
+        File copy = folder.newFolder("restart-copy");
+        File saved = new File(directory, "public-images-eu-west-1.catalog");
+
+        assertTrue(saved.exists());
+        assertTrue(saved.renameTo(new File(copy, saved.getName())));
+
+        PublicImageCatalog catalog = PublicImageCatalog.getInstance(copy, "eu-west-1");
+        List<MachineImage> images = catalog.search(ImageFilterOptions.getInstance().withAccountNumber("099720109477"));
+
+        assertFalse(catalog.isStale());
+        assertEquals(1, images.size());
+
+        MachineImage image = images.get(0);
+
+        assertEquals("ami-00000004", image.getProviderMachineImageId());
+        assertEquals("eu-west-1", image.getProviderRegionId());
+        assertEquals(Architecture.I64, image.getArchitecture());
+        assertEquals(Platform.UBUNTU, image.getPlatform());
+        assertEquals(MachineImageType.VOLUME, image.getType());
+        assertEquals("hvm", image.getTags().get("virtualizationType"));
+        assertTrue(image.isPublic());
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the indexed catalog against the linear lookups of {@link DatabaseProvider} it replaced.
+ */
+public class DatabaseCatalogTest {
+
+    /**
+     * The products of an engine in a region as RDS used to list them: the first engine of that name, then every
+     * region of that name within it.
+     */
+    private List<DatabaseProduct> findProducts(DatabaseProvider provider, String engineName, String regionId) {
+        List<DatabaseProduct> products = new ArrayList<DatabaseProduct>();
+        DatabaseEngine engine = provider.findEngine(engineName);
+
+        if( engine != null ) {
+            for( DatabaseRegion region : engine.getRegions() ) {
+                if( region.getName().equalsIgnoreCase(regionId) ) {
+                    products.addAll(region.getProducts());
+                }
+            }
+        }
+        return products;
+    }
+
+    private DatabaseProduct product(String name) {
+        DatabaseProduct product = new DatabaseProduct();
+
+        product.setName(name);
+        return product;
+    }
+
+    private DatabaseRegion region(String name, DatabaseProduct ... products) {
+        DatabaseRegion region = new DatabaseRegion();
+
+        region.setName(name);
+        region.setProducts(Arrays.asList(products));
+        return region;
+    }
+
+    private DatabaseEngine engine(String name, DatabaseRegion ... regions) {
+        DatabaseEngine engine = new DatabaseEngine();
+
+        engine.setName(name);
+        engine.setRegions(Arrays.asList(regions));
+        return engine;
+    }
+
+    private DatabaseProductDefinition definition(String name, int vCpus) {
+        DatabaseProductDefinition definition = new DatabaseProductDefinition();
+
+        definition.setName(name);
+        definition.setvCpus(vCpus);
+        return definition;
+    }
+
+    @Test
+    public void testMatchesLinearLookupsOfAWSCatalog() throws Exception {
+        DatabaseProvider provider = DatabaseProvider.fromFile(DatabaseCatalog.AWS_PRODUCTS, "AWS");
+        DatabaseCatalog catalog = new DatabaseCatalog(provider);
+        int compared = 0;
+
+        for( DatabaseEngine engine : provider.getEngines() ) {
+            for( DatabaseRegion region : engine.getRegions() ) {
+                String engineName = engine.getName();
+                String regionId = region.getName();
+                List<DatabaseProduct> expected = findProducts(provider, engineName, regionId);
+
+                assertFalse(expected.isEmpty());
+                assertEquals(expected, catalog.getProducts(engineName, regionId));
+                assertEquals(expected, catalog.getProducts(engineName.toUpperCase(Locale.ENGLISH), regionId.toUpperCase(Locale.ENGLISH)));
+                assertEquals(expected, catalog.getProducts(engineName.toLowerCase(Locale.ENGLISH), regionId));
+                for( DatabaseProduct product : expected ) {
+                    String name = product.getName();
+
+                    assertSame(provider.findProductDefinition(name), catalog.getDefinition(name));
+                    assertSame(provider.findProductDefinition(name), catalog.getDefinition(name.toUpperCase(Locale.ENGLISH)));
+                    compared++;
+                }
+            }
+        }
+        assertTrue(compared > 0);
+        for( DatabaseProductDefinition definition : provider.getProductDefinitions() ) {
+            assertSame(provider.findProductDefinition(definition.getName()), catalog.getDefinition(definition.getName()));
+        }
+    }
+
+    @Test
+    public void testUnknownEngineRegionAndProduct() throws Exception {
+        DatabaseCatalog catalog = DatabaseCatalog.getAWSCatalog();
+
+        assertTrue(catalog.getProducts("no-such-engine", "us-east-1").isEmpty());
+        assertTrue(catalog.getProducts("mysql", "no-such-region").isEmpty());
+        assertNull(catalog.getDefinition("db.no.such"));
+        assertSame(catalog, DatabaseCatalog.getAWSCatalog());
+    }
+
+    @Test
+    public void testFirstDefinitionWins() throws Exception {
+        DatabaseProvider provider = new DatabaseProvider("AWS", "AWS");
+
+        provider.setEngines(new ArrayList<DatabaseEngine>());
+        provider.setProductDefinitions(Arrays.asList(definition("db.m3.medium", 1), definition("DB.M3.MEDIUM", 2)));
+        DatabaseCatalog catalog = new DatabaseCatalog(provider);
+
+        assertSame(provider.findProductDefinition("db.m3.medium"), catalog.getDefinition("db.m3.medium"));
+        assertEquals(1, catalog.getDefinition("Db.M3.Medium").getvCpus());
+    }
+
+    @Test
+    public void testDuplicateEnginesAndRegionsAreMerged() throws Exception {
+        DatabaseProduct micro = product("db.t2.micro");
+        DatabaseProduct small = product("db.t2.small");
+        DatabaseProduct medium = product("db.m3.medium");
+        DatabaseProvider provider = new DatabaseProvider("AWS", "AWS");
+
+        provider.setEngines(Arrays.asList(
+                engine("MySQL", region("us-east-1", micro), region("US-EAST-1", small)),
+                engine("mysql", region("us-east-1", medium))));
+        provider.setProductDefinitions(new ArrayList<DatabaseProductDefinition>());
+        DatabaseCatalog catalog = new DatabaseCatalog(provider);
+
+        // duplicate regions of one engine were always listed together
+        assertEquals(findProducts(provider, "mysql", "us-east-1"), catalog.getProducts("mysql", "us-east-1").subList(0, 2));
+        // a second entry for the same engine is no longer hidden behind the first
+        assertEquals(Arrays.asList(micro, small, medium), catalog.getProducts("MYSQL", "us-east-1"));
+    }
+}
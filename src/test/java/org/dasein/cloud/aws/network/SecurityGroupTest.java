@@ -315,8 +315,6 @@ public class SecurityGroupTest extends AwsTestBase {
 				RuleTarget.getGlobal("sg-1a2b3c4d"), 80, 80);
 		EC2Method ec2MethodStub = mock(EC2Method.class);
         when(ec2MethodStub.invoke())
-        		.thenReturn(resource("org/dasein/cloud/aws/network/security_group/describe_security_group.xml"))
-        		.thenReturn(resource("org/dasein/cloud/aws/network/security_group/describe_security_group.xml"))
         		.thenReturn(resource("org/dasein/cloud/aws/network/security_group/describe_security_group.xml"))
         		.thenReturn(resource("org/dasein/cloud/aws/network/security_group/revoke_security_group_rule.xml"));
         PowerMockito.whenNew(EC2Method.class)
@@ -347,8 +345,6 @@ public class SecurityGroupTest extends AwsTestBase {
 				RuleTarget.getGlobal("sg-1a2b3c4d"), 80, 80);
 		EC2Method ec2MethodStub = mock(EC2Method.class);
         when(ec2MethodStub.invoke())
-        		.thenReturn(resource("org/dasein/cloud/aws/network/security_group/describe_security_group.xml"))
-        		.thenReturn(resource("org/dasein/cloud/aws/network/security_group/describe_security_group.xml"))
         		.thenReturn(resource("org/dasein/cloud/aws/network/security_group/describe_empty_security_group.xml"));
         PowerMockito.whenNew(EC2Method.class)
             	.withArguments(eq(awsCloudStub), argThat(allOf(
@@ -369,7 +365,6 @@ public class SecurityGroupTest extends AwsTestBase {
 				RuleTarget.getGlobal("sg-1a2b3c4d"), 80, 80);
 		EC2Method ec2MethodStub = mock(EC2Method.class);
         when(ec2MethodStub.invoke())
-        		.thenReturn(resource("org/dasein/cloud/aws/network/security_group/describe_security_group.xml"))
         		.thenReturn(resource("org/dasein/cloud/aws/network/security_group/describe_security_group.xml"))
         		.thenReturn(resource("org/dasein/cloud/aws/network/security_group/revoke_security_group_rule_failed.xml"));
         PowerMockito.whenNew(EC2Method.class)
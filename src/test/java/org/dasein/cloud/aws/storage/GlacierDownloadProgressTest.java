@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.storage;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks how the sidecar file of a resumable Glacier download is read back after an interruption.
+ */
+public class GlacierDownloadProgressTest {
+    static private final long MB   = 1024L * 1024L;
+    static private final long SIZE = 3 * MB;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File target() throws Exception {
+        File target = new File(folder.getRoot(), "archive.bin");
+        RandomAccessFile file = new RandomAccessFile(target, "rw");
+
+        try {
+            file.setLength(SIZE);
+        }
+        finally {
+            file.close();
+        }
+        return target;
+    }
+
+    private File sidecar(File target, String content) throws Exception {
+        File sidecar = new File(target.getPath() + ".glacier-progress");
+        FileWriter writer = new FileWriter(sidecar);
+
+        try {
+            writer.write(content);
+        }
+        finally {
+            writer.close();
+        }
+        return sidecar;
+    }
+
+    private String firstLine(File file) throws Exception {
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+
+        try {
+            return reader.readLine();
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    private byte[] hash(int seed) throws Exception {
+        return TreeHash.compute(new byte[] { (byte)seed })[1];
+    }
+
+    @Test
+    public void testTruncatedLastLineIsIgnored() throws Exception {
+        File target = target();
+
+        sidecar(target, "job-1 " + SIZE + " " + MB + "\n"
+                + "0 " + TreeHash.toHex(hash(0)) + "\n"
+                + "2 " + TreeHash.toHex(hash(2)).substring(0, 40));
+        GlacierDownloadProgress progress = GlacierDownloadProgress.open(target, "job-1", SIZE, MB);
+
+        assertArrayEquals(hash(0), progress.getTreeHash(0));
+        assertNull(progress.getTreeHash(1));
+        assertNull(progress.getTreeHash(2));
+        progress.complete(2, hash(2));
+        progress.close();
+
+        // the range completed after the resume must not be glued onto the truncated line
+        progress = GlacierDownloadProgress.open(target, "job-1", SIZE, MB);
+        assertArrayEquals(hash(0), progress.getTreeHash(0));
+        assertNull(progress.getTreeHash(1));
+        assertArrayEquals(hash(2), progress.getTreeHash(2));
+        progress.close();
+    }
+
+    @Test
+    public void testMismatchedHeaderDiscardsProgress() throws Exception {
+        String[] headers = {
+                "job-2 " + SIZE + " " + MB,
+                "job-1 " + (SIZE + 1) + " " + MB,
+                "job-1 " + SIZE + " " + (2 * MB)
+        };
+
+        for( String header : headers ) {
+            File target = target();
+            File sidecar = sidecar(target, header + "\n0 " + TreeHash.toHex(hash(0)) + "\n");
+            GlacierDownloadProgress progress = GlacierDownloadProgress.open(target, "job-1", SIZE, MB);
+
+            try {
+                for( int i=0; i<3; i++ ) {
+                    assertNull(header, progress.getTreeHash(i));
+                }
+                assertEquals("job-1 " + SIZE + " " + MB, firstLine(sidecar));
+            }
+            finally {
+                progress.delete();
+            }
+        }
+    }
+
+    @Test
+    public void testMissingTargetDiscardsProgress() throws Exception {
+        File target = target();
+
+        sidecar(target, "job-1 " + SIZE + " " + MB + "\n0 " + TreeHash.toHex(hash(0)) + "\n");
+        if( !target.delete() ) {
+            throw new IllegalStateException("Unable to remove " + target);
+        }
+        GlacierDownloadProgress progress = GlacierDownloadProgress.open(target, "job-1", SIZE, MB);
+
+        assertNull(progress.getTreeHash(0));
+        progress.close();
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.storage;
+
+import org.dasein.cloud.aws.AWSCloud;
+import org.dasein.cloud.aws.AwsTestBase;
+import org.dasein.cloud.aws.RetryPolicy;
+import org.dasein.cloud.storage.FileTransfer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Downloads the output of a Glacier retrieval job against a fake that serves byte ranges of a known archive.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(value = { AWSCloud.class, GlacierMethod.class }, fullyQualifiedNames = "org.dasein.cloud.aws.storage.GlacierMethod*")
+public class GlacierTest extends AwsTestBase {
+    static private final int MB = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Glacier glacier;
+    private byte[] archive;
+    private List<String> requested;
+    private Set<String> corrupted;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        Properties properties = new Properties();
+
+        properties.setProperty(AWSCloud.DSN_GLACIER_PART_SIZE, "1");
+        properties.setProperty(AWSCloud.DSN_GLACIER_DOWNLOAD_THREADS, "1");
+        doReturn(properties).when(providerContextStub).getCustomProperties();
+        doReturn(mock(RetryPolicy.class)).when(awsCloudStub).getRetryPolicy();
+
+        glacier = new Glacier(awsCloudStub);
+        archive = new byte[2 * MB + MB / 2];
+        new Random(archive.length).nextBytes(archive);
+        requested = Collections.synchronizedList(new ArrayList<String>());
+        corrupted = new HashSet<String>();
+
+        final GlacierMethod method = mock(GlacierMethod.class);
+
+        PowerMockito.whenNew(GlacierMethod.class).withAnyArguments().thenAnswer(new Answer<GlacierMethod>() {
+            @Override
+            public GlacierMethod answer(InvocationOnMock invocation) throws Throwable {
+                GlacierMethod.Builder builder = invocation.getArgumentAt(0, GlacierMethod.Builder.class);
+
+                requested.add(builder.headers.get("Range"));
+                return method;
+            }
+        });
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                String range = requested.get(requested.size() - 1);
+                String[] bounds = range.substring("bytes=".length()).split("-");
+                byte[] body = Arrays.copyOfRange(archive, Integer.parseInt(bounds[0]), Integer.parseInt(bounds[1]) + 1);
+                Map<String, String> headers = new HashMap<String, String>();
+
+                headers.put(GlacierMethod.HEADER_TREE_HASH, TreeHash.toHex(TreeHash.compute(body)[1]));
+                if( corrupted.remove(range) ) {
+                    body[0] ^= 1;
+                }
+                invocation.getArgumentAt(0, GlacierMethod.BodyHandler.class).handle(headers, new ByteArrayInputStream(body));
+                return null;
+            }
+        }).when(method).invokeStream(any(GlacierMethod.BodyHandler.class));
+    }
+
+    private String range(int index) {
+        long start = (long)index * MB;
+
+        return "bytes=" + start + "-" + (Math.min(archive.length, start + MB) - 1);
+    }
+
+    private String treeHash(byte[] data) throws Exception {
+        return TreeHash.toHex(TreeHash.compute(data)[1]);
+    }
+
+    private byte[] read(File file) throws Exception {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+
+        try {
+            byte[] data = new byte[(int)input.length()];
+
+            input.readFully(data);
+            return data;
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    @Test
+    public void testResumeSkipsCompletedRanges() throws Exception {
+        File target = new File(folder.getRoot(), "archive.bin");
+        RandomAccessFile file = new RandomAccessFile(target, "rw");
+
+        try {
+            file.setLength(archive.length);
+            file.write(archive, 0, MB);
+        }
+        finally {
+            file.close();
+        }
+        FileOutputStream sidecar = new FileOutputStream(target.getPath() + ".glacier-progress");
+
+        try {
+            sidecar.write(("job-1 " + archive.length + " " + MB + "\n"
+                    + "0 " + treeHash(Arrays.copyOfRange(archive, 0, MB)) + "\n").getBytes("US-ASCII"));
+        }
+        finally {
+            sidecar.close();
+        }
+        glacier.getJobOutput("vault", "job-1", target, archive.length, treeHash(archive), new FileTransfer());
+
+        assertEquals(Arrays.asList(range(1), range(2)), requested);
+        assertArrayEquals(archive, read(target));
+        assertFalse(new File(target.getPath() + ".glacier-progress").exists());
+    }
+
+    @Test
+    public void testTreeHashMismatchRetriesRange() throws Exception {
+        File target = new File(folder.getRoot(), "archive.bin");
+
+        corrupted.add(range(1));
+        glacier.getJobOutput("vault", "job-1", target, archive.length, treeHash(archive), new FileTransfer());
+
+        assertEquals(Arrays.asList(range(0), range(1), range(1), range(2)), requested);
+        assertArrayEquals(archive, read(target));
+        assertFalse(new File(target.getPath() + ".glacier-progress").exists());
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.storage;
+
+import org.dasein.cloud.aws.AwsTestBase;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class S3MethodTest extends AwsTestBase {
+
+    @Test
+    public void testUrlOfObject() throws Exception {
+        S3Method method = new S3Method(awsCloudStub, S3Action.GET_OBJECT);
+
+        assertEquals("https://my-bucket.s3.amazonaws.com/my%20file.bin",
+                method.getUrl("my-bucket", "my file.bin", null, null));
+    }
+
+    @Test
+    public void testUrlOfUploads() throws Exception {
+        S3Method method = new S3Method(awsCloudStub, S3Action.INITIATE_MULTIPART_UPLOAD);
+
+        assertEquals("https://my-bucket.s3.amazonaws.com/my%20file.bin?uploads",
+                method.getUrl("my-bucket", "my file.bin", null, Collections.singletonMap("uploads", (String)null)));
+    }
+
+    @Test
+    public void testUrlOfPart() throws Exception {
+        S3Method method = new S3Method(awsCloudStub, S3Action.UPLOAD_PART);
+        Map<String, String> subResources = new HashMap<String, String>();
+
+        subResources.put("uploadId", "VXBsb2FkIElE+/=");
+        subResources.put("partNumber", "3");
+        assertEquals("https://my-bucket.s3.amazonaws.com/my%20file.bin?partNumber=3&uploadId=VXBsb2FkIElE%2B%2F%3D",
+                method.getUrl("my-bucket", "my file.bin", null, subResources));
+    }
+}
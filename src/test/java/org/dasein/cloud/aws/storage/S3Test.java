@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.storage;
+
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+import org.dasein.cloud.aws.AWSCloud;
+import org.dasein.cloud.aws.AwsTestBase;
+import org.dasein.cloud.storage.Blob;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.w3c.dom.Document;
+
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.core.AllOf.allOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Looks up single S3 objects against mocked HEAD and listing requests.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ AWSCloud.class, S3.class })
+public class S3Test extends AwsTestBase {
+    static private final String BUCKET = "my-bucket";
+    static private final String OBJECT = "reports/2016.csv";
+
+    private S3 s3;
+    private S3Method headMethod;
+    private S3Method listMethod;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        s3 = new S3(awsCloudStub);
+        headMethod = mock(S3Method.class);
+        listMethod = mock(S3Method.class);
+        PowerMockito.whenNew(S3Method.class).withArguments(eq(awsCloudStub), eq(S3Action.HEAD_OBJECT))
+                .thenReturn(headMethod);
+        PowerMockito.whenNew(S3Method.class).withArguments(eq(awsCloudStub), eq(S3Action.LIST_CONTENTS),
+                argThat(allOf(hasEntry("prefix", OBJECT), hasEntry("max-keys", "1"))), isNull())
+                .thenReturn(listMethod);
+    }
+
+    protected Document resource(String resourceName) throws Exception {
+        return super.resource("org/dasein/cloud/aws/storage/s3/" + resourceName);
+    }
+
+    private S3Method.S3Response listing(String resourceName) throws Exception {
+        S3Method.S3Response response = new S3Method.S3Response();
+
+        response.document = resource(resourceName);
+        return response;
+    }
+
+    @Test
+    public void testLookupObjectWithHead() throws Exception {
+        S3Method.S3Response response = new S3Method.S3Response();
+
+        response.headers = new Header[] {
+                new BasicHeader("Content-Length", "434234"),
+                new BasicHeader("Last-Modified", "Mon, 01 Feb 2016 10:20:30 GMT"),
+                new BasicHeader("Content-Type", "text/csv")
+        };
+        when(headMethod.invoke(BUCKET, OBJECT)).thenReturn(response);
+
+        Blob blob = s3.lookupObject(REGION, BUCKET, OBJECT);
+
+        assertEquals(OBJECT, blob.getObjectName());
+        assertEquals(434234L, blob.getSize().getQuantity().longValue());
+        assertEquals(1454322030000L, blob.getCreationTimestamp());
+        verify(listMethod, never()).invoke(anyString(), anyString());
+    }
+
+    @Test
+    public void testLookupMissingObject() throws Exception {
+        when(headMethod.invoke(BUCKET, OBJECT)).thenThrow(new S3Exception(404, null, null, "Object not found."));
+
+        assertNull(s3.lookupObject(REGION, BUCKET, OBJECT));
+        verify(listMethod, never()).invoke(anyString(), anyString());
+    }
+
+    @Test
+    public void testLookupForbiddenObjectListsBucket() throws Exception {
+        when(headMethod.invoke(BUCKET, OBJECT)).thenThrow(new S3Exception(403, "", "AccessForbidden", "Access was denied"));
+        when(listMethod.invoke(BUCKET, null)).thenReturn(listing("list_object.xml"));
+
+        Blob blob = s3.lookupObject(REGION, BUCKET, OBJECT);
+
+        assertEquals(OBJECT, blob.getObjectName());
+        assertEquals(434234L, blob.getSize().getQuantity().longValue());
+        assertEquals(1454322030000L, blob.getCreationTimestamp());
+    }
+
+    @Test
+    public void testLookupForbiddenObjectIgnoresLongerKeys() throws Exception {
+        when(headMethod.invoke(BUCKET, OBJECT)).thenThrow(new S3Exception(403, "", "AccessForbidden", "Access was denied"));
+        when(listMethod.invoke(BUCKET, null)).thenReturn(listing("list_object_other.xml"));
+
+        assertNull(s3.lookupObject(REGION, BUCKET, OBJECT));
+    }
+}
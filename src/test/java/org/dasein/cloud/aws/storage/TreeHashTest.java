@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.aws.storage;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Checks the streaming tree hash against a direct, level by level implementation of the Glacier algorithm.
+ */
+public class TreeHashTest {
+    static private final int MB = TreeHash.CHUNK_SIZE;
+
+    private byte[] sha256(byte[] data, int offset, int length) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+        digest.update(data, offset, length);
+        return digest.digest();
+    }
+
+    private byte[] expectedTreeHash(byte[] data) throws Exception {
+        List<byte[]> level = new ArrayList<byte[]>();
+
+        for( int i = 0; i < data.length; i += MB ) {
+            level.add(sha256(data, i, Math.min(MB, data.length - i)));
+        }
+        if( level.isEmpty() ) {
+            level.add(sha256(data, 0, 0));
+        }
+        while( level.size() > 1 ) {
+            List<byte[]> next = new ArrayList<byte[]>();
+
+            for( int i = 0; i < level.size(); i += 2 ) {
+                if( i + 1 < level.size() ) {
+                    byte[] pair = new byte[64];
+
+                    System.arraycopy(level.get(i), 0, pair, 0, 32);
+                    System.arraycopy(level.get(i + 1), 0, pair, 32, 32);
+                    next.add(sha256(pair, 0, 64));
+                }
+                else {
+                    next.add(level.get(i));
+                }
+            }
+            level = next;
+        }
+        return level.get(0);
+    }
+
+    private byte[] randomData(int length) {
+        byte[] data = new byte[length];
+
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    public void testInMemory() throws Exception {
+        for( int length : new int[] { 0, 1, MB - 1, MB, MB + 1, 3 * MB + 5, 7 * MB + 1 } ) {
+            byte[] data = randomData(length);
+            byte[][] hashes = TreeHash.compute(data);
+
+            assertArrayEquals("Linear hash of " + length + " bytes", sha256(data, 0, length), hashes[0]);
+            assertArrayEquals("Tree hash of " + length + " bytes", expectedTreeHash(data), hashes[1]);
+        }
+    }
+
+    @Test
+    public void testFileSlicesCombine() throws Exception {
+        byte[] data = randomData(13 * MB + 77);
+        File file = File.createTempFile("treehash", ".bin");
+
+        try {
+            FileOutputStream output = new FileOutputStream(file);
+
+            try {
+                output.write(data);
+            }
+            finally {
+                output.close();
+            }
+            assertArrayEquals(expectedTreeHash(data), TreeHash.compute(file, 0L, data.length)[1]);
+            for( int partSize : new int[] { MB, 2 * MB, 4 * MB } ) {
+                List<byte[]> parts = new ArrayList<byte[]>();
+
+                for( long offset = 0; offset < data.length; offset += partSize ) {
+                    parts.add(TreeHash.compute(file, offset, Math.min(partSize, data.length - offset))[1]);
+                }
+                assertArrayEquals("Parts of " + partSize + " bytes", expectedTreeHash(data), TreeHash.combine(parts));
+            }
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testUnalignedUpdates() throws Exception {
+        byte[] data = randomData(5 * MB + 3);
+        TreeHash hash = new TreeHash();
+
+        for( int i = 0; i < data.length; i += 7777 ) {
+            hash.update(data, i, Math.min(7777, data.length - i));
+        }
+        assertArrayEquals(expectedTreeHash(data), hash.digest());
+    }
+}